@@ -0,0 +1,512 @@
+package com.nurihome.app.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * <p>Generates the Gson type adapters of the classes annotated with {@code @GenerateTypeAdapter}.</p>
+ *
+ * <p>for each class, a {@code TypeAdapterFactory} named "{simple class name}_TypeAdapterFactory" is generated in the package of the class,
+ * and the factories are listed in "META-INF/services/com.google.gson.TypeAdapterFactory" (loaded by {@code GsonUtils}).
+ * the fields are accessed with the static final {@link java.lang.invoke.VarHandle}s (the entities keep their private fields),
+ * so there is no {@link java.lang.reflect.Field} access while reading or writing.</p>
+ *
+ * <p>the processor is declared "aggregating" for the incremental compilation of Gradle (META-INF/gradle/incremental.annotation.processors),
+ * because the factories of all annotated classes are listed in one service file.</p>
+ */
+@SupportedAnnotationTypes(TypeAdapterProcessor.ANNOTATION)
+public class TypeAdapterProcessor extends AbstractProcessor {
+
+	static final String ANNOTATION = "com.nurihome.app.annotation.GenerateTypeAdapter";
+
+	private static final String SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+
+	private static final String SERVICE_FILE = "META-INF/services/com.google.gson.TypeAdapterFactory";
+
+	private static final String SUFFIX = "_TypeAdapterFactory";
+
+	/**
+	 * generated factories (written to the service file in the last round)
+	 */
+	private final Set<String> factories = new LinkedHashSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+
+		if (annotation != null) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() == ElementKind.CLASS) {
+					generate((TypeElement) element);
+				}
+			}
+		}
+
+		if ((roundEnv.processingOver()) && (!factories.isEmpty())) {
+			writeServiceFile();
+		}
+
+		return false;
+	}
+
+	private void warning(final Element element, final String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message + " (the reflective adapter is used)", element);
+	}
+
+	/**
+	 * <p>Field of the generated adapter.</p>
+	 */
+	private static final class Property {
+
+		String field;
+
+		String name;
+
+		List<String> alternates = new ArrayList<String>();
+
+		/**
+		 * declared type (source form)
+		 */
+		String type;
+
+		/**
+		 * erased type (class literal)
+		 */
+		String erasure;
+
+		/**
+		 * boxed type of the primitive field (null if the field is not primitive)
+		 */
+		String boxed;
+
+		/**
+		 * the value can be a subclass of the declared type (written with the adapter of the runtime class)
+		 */
+		boolean runtimeType;
+
+	}
+
+	private void generate(final TypeElement type) {
+		// ------------------------------------------------------------
+		// check the class
+		// ------------------------------------------------------------
+		if ((!type.getTypeParameters().isEmpty()) || (type.getModifiers().contains(Modifier.PRIVATE))
+				|| (type.getModifiers().contains(Modifier.ABSTRACT))
+				|| ((type.getNestingKind() != NestingKind.TOP_LEVEL) && (!type.getModifiers().contains(Modifier.STATIC)))) {
+			warning(type, "the type adapter can not be generated for a generic, private, abstract or inner class");
+
+			return;
+		}
+
+		if (!"java.lang.Object".equals(type.getSuperclass().toString())) {
+			warning(type, "the type adapter can not be generated for a class which extends " + type.getSuperclass());
+
+			return;
+		}
+
+		boolean constructor = false;
+
+		for (ExecutableElement executable : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if ((executable.getParameters().isEmpty()) && (!executable.getModifiers().contains(Modifier.PRIVATE))) {
+				constructor = true;
+			}
+		}
+
+		if (!constructor) {
+			warning(type, "the type adapter can not be generated for a class without a no-argument constructor");
+
+			return;
+		}
+
+		List<Property> properties = new ArrayList<Property>();
+
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			if ((field.getModifiers().contains(Modifier.STATIC)) || (field.getModifiers().contains(Modifier.TRANSIENT))) {
+				continue;
+			}
+
+			TypeMirror fieldType = field.asType();
+
+			if (containsTypeVariable(fieldType)) {
+				warning(type, "the type adapter can not be generated for the field of a type variable. field=" + field.getSimpleName());
+
+				return;
+			}
+
+			Property property = new Property();
+			property.field = field.getSimpleName().toString();
+			property.name = property.field;
+			property.type = fieldType.toString();
+			property.erasure = processingEnv.getTypeUtils().erasure(fieldType).toString();
+
+			if (fieldType.getKind().isPrimitive()) {
+				property.boxed = processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(fieldType.getKind())).getQualifiedName().toString();
+			}
+
+			property.runtimeType = isRuntimeTypeDependent(fieldType);
+
+			readSerializedName(field, property);
+			properties.add(property);
+		}
+
+		String packageName = ((PackageElement) processingEnv.getElementUtils().getPackageOf(type)).getQualifiedName().toString();
+		String className = type.getQualifiedName().toString();
+		String factoryName = (packageName.isEmpty() ? className : className.substring(packageName.length() + 1)).replace('.', '_') + SUFFIX;
+		String qualifiedFactoryName = packageName.isEmpty() ? factoryName : packageName + "." + factoryName;
+
+		try {
+			try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedFactoryName, type).openWriter()) {
+				writer.write(render(packageName, className, factoryName, properties));
+			}
+
+			factories.add(qualifiedFactoryName);
+		}catch (IOException e)
+		{
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "failed to generate the type adapter. " + e.getMessage(), type);
+		}
+	}
+
+	private static boolean containsTypeVariable(final TypeMirror type) {
+		if ((type.getKind() == TypeKind.TYPEVAR) || (type.getKind() == TypeKind.WILDCARD)) {
+			return true;
+		}
+
+		if (type.getKind() == TypeKind.ARRAY) {
+			return containsTypeVariable(((ArrayType) type).getComponentType());
+		}
+
+		if (type.getKind() == TypeKind.DECLARED) {
+			for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+				if (containsTypeVariable(argument)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * <p>check if the value of the field can be a subclass of the declared type (the class or interface which is not final, not parameterized and not Object),
+	 * the reflective adapter of Gson writes such a value with the adapter of the runtime class (TypeAdapterRuntimeTypeWrapper)</p>
+	 */
+	private static boolean isRuntimeTypeDependent(final TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			return false;
+		}
+
+		DeclaredType declaredType = (DeclaredType) type;
+		TypeElement element = (TypeElement) declaredType.asElement();
+
+		if ((element.getKind() != ElementKind.CLASS) && (element.getKind() != ElementKind.INTERFACE)) {
+			return false;
+		}
+
+		return (declaredType.getTypeArguments().isEmpty()) && (!element.getModifiers().contains(Modifier.FINAL))
+				&& (!"java.lang.Object".equals(element.getQualifiedName().toString()));
+	}
+
+	/**
+	 * <p>read {@code @SerializedName(value, alternate)} of the field</p>
+	 */
+	private static void readSerializedName(final VariableElement field, final Property property) {
+		for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+			if (!SERIALIZED_NAME.equals(mirror.getAnnotationType().toString())) {
+				continue;
+			}
+
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+				String name = entry.getKey().getSimpleName().toString();
+
+				if ("value".equals(name)) {
+					property.name = (String) entry.getValue().getValue();
+				}else if ("alternate".equals(name))
+				{
+					for (Object value : (List<?>) entry.getValue().getValue()) {
+						property.alternates.add((String) ((AnnotationValue) value).getValue());
+					}
+				}
+			}
+		}
+	}
+
+	private static String literal(final String value) {
+		StringBuilder sb = new StringBuilder("\"");
+
+		for (char c : value.toCharArray()) {
+			if ((c == '"') || (c == '\\')) {
+				sb.append('\\');
+			}
+
+			sb.append(c);
+		}
+
+		return sb.append('"').toString();
+	}
+
+	private static String render(final String packageName, final String className, final String factoryName, final List<Property> properties) {
+		StringBuilder sb = new StringBuilder();
+
+		if (!packageName.isEmpty()) {
+			sb.append("package ").append(packageName).append(";\n\n");
+		}
+
+		sb.append("import java.io.IOException;\n");
+		sb.append("import java.lang.invoke.MethodHandles;\n");
+		sb.append("import java.lang.invoke.VarHandle;\n\n");
+		sb.append("import com.google.gson.Gson;\n");
+		sb.append("import com.google.gson.TypeAdapter;\n");
+		sb.append("import com.google.gson.TypeAdapterFactory;\n");
+		sb.append("import com.google.gson.reflect.TypeToken;\n");
+		sb.append("import com.google.gson.stream.JsonReader;\n");
+		sb.append("import com.google.gson.stream.JsonToken;\n");
+		sb.append("import com.google.gson.stream.JsonWriter;\n\n");
+		sb.append("/**\n * <p>Gson type adapter of {@link ").append(className).append("} (generated by gws-processor, do not edit).</p>\n */\n");
+		sb.append("@javax.annotation.processing.Generated(\"com.nurihome.app.processor.TypeAdapterProcessor\")\n");
+		sb.append("public final class ").append(factoryName).append(" implements TypeAdapterFactory {\n\n");
+
+		// ------------------------------------------------------------
+		// field handles
+		// ------------------------------------------------------------
+		for (int i = 0; i < properties.size(); i++) {
+			sb.append("\tprivate static final VarHandle F").append(i).append(";\n\n");
+		}
+
+		sb.append("\tstatic {\n");
+		sb.append("\t\ttry {\n");
+		sb.append("\t\t\tMethodHandles.Lookup lookup = MethodHandles.privateLookupIn(").append(className).append(".class, MethodHandles.lookup());\n\n");
+
+		for (int i = 0; i < properties.size(); i++) {
+			Property property = properties.get(i);
+
+			sb.append("\t\t\tF").append(i).append(" = lookup.findVarHandle(").append(className).append(".class, ").append(literal(property.field))
+				.append(", ").append(property.erasure).append(".class);\n");
+		}
+
+		sb.append("\t\t}catch (ReflectiveOperationException e)\n\t\t{\n");
+		sb.append("\t\t\tthrow new ExceptionInInitializerError(e);\n");
+		sb.append("\t\t}\n");
+		sb.append("\t}\n\n");
+
+		sb.append("\t@Override\n");
+		sb.append("\t@SuppressWarnings(\"unchecked\")\n");
+		sb.append("\tpublic <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {\n");
+		sb.append("\t\tif (type.getRawType() != ").append(className).append(".class) {\n");
+		sb.append("\t\t\treturn null;\n");
+		sb.append("\t\t}\n\n");
+		sb.append("\t\treturn (TypeAdapter<T>) new Adapter(gson);\n");
+		sb.append("\t}\n\n");
+
+		// ------------------------------------------------------------
+		// adapter
+		// ------------------------------------------------------------
+		sb.append("\t@SuppressWarnings(\"unchecked\")\n");
+		sb.append("\tprivate static final class Adapter extends TypeAdapter<").append(className).append("> {\n\n");
+
+		boolean runtimeType = properties.stream().anyMatch(property -> property.runtimeType);
+
+		if (runtimeType) {
+			sb.append("\t\tprivate final Gson gson;\n\n");
+		}
+
+		for (int i = 0; i < properties.size(); i++) {
+			Property property = properties.get(i);
+			String adapterType = (property.boxed != null) ? property.boxed : property.type;
+
+			sb.append("\t\tprivate final TypeAdapter<").append(adapterType).append("> a").append(i).append(";\n\n");
+		}
+
+		sb.append("\t\tAdapter(Gson gson) {\n");
+
+		if (runtimeType) {
+			sb.append("\t\t\tthis.gson = gson;\n");
+		}
+
+		for (int i = 0; i < properties.size(); i++) {
+			Property property = properties.get(i);
+
+			if (property.boxed != null) {
+				sb.append("\t\t\tthis.a").append(i).append(" = gson.getAdapter(").append(property.boxed).append(".class);\n");
+			}else if (property.type.equals(property.erasure))
+			{
+				sb.append("\t\t\tthis.a").append(i).append(" = gson.getAdapter(").append(property.type).append(".class);\n");
+			}else
+			{
+				sb.append("\t\t\tthis.a").append(i).append(" = gson.getAdapter(new TypeToken<").append(property.type).append(">(){});\n");
+			}
+		}
+
+		sb.append("\t\t}\n\n");
+
+		// ------------------------------------------------------------
+		// write
+		// ------------------------------------------------------------
+		sb.append("\t\t@Override\n");
+		sb.append("\t\tpublic void write(JsonWriter out, ").append(className).append(" value) throws IOException {\n");
+		sb.append("\t\t\tif (value == null) {\n");
+		sb.append("\t\t\t\tout.nullValue();\n");
+		sb.append("\t\t\t\treturn;\n");
+		sb.append("\t\t\t}\n\n");
+		sb.append("\t\t\tout.beginObject();\n");
+
+		for (int i = 0; i < properties.size(); i++) {
+			Property property = properties.get(i);
+
+			sb.append("\t\t\tout.name(").append(literal(property.name)).append(");\n");
+
+			if (property.boxed != null) {
+				sb.append("\t\t\ta").append(i).append(".write(out, (").append(property.erasure).append(") F").append(i).append(".get(value));\n");
+			}else if (property.runtimeType)
+			{
+				sb.append("\t\t\tObject v").append(i).append(" = F").append(i).append(".get(value);\n");
+				sb.append("\t\t\truntimeAdapter(a").append(i).append(", ").append(property.erasure).append(".class, v").append(i).append(").write(out, v").append(i).append(");\n");
+			}else
+			{
+				sb.append("\t\t\ta").append(i).append(".write(out, (").append(property.type).append(") F").append(i).append(".get(value));\n");
+			}
+		}
+
+		sb.append("\t\t\tout.endObject();\n");
+		sb.append("\t\t}\n\n");
+
+		// ------------------------------------------------------------
+		// read
+		// ------------------------------------------------------------
+		sb.append("\t\t@Override\n");
+		sb.append("\t\tpublic ").append(className).append(" read(JsonReader in) throws IOException {\n");
+		sb.append("\t\t\tif (in.peek() == JsonToken.NULL) {\n");
+		sb.append("\t\t\t\tin.nextNull();\n");
+		sb.append("\t\t\t\treturn null;\n");
+		sb.append("\t\t\t}\n\n");
+		sb.append("\t\t\t").append(className).append(" value = new ").append(className).append("();\n\n");
+		sb.append("\t\t\tin.beginObject();\n\n");
+		sb.append("\t\t\twhile (in.hasNext()) {\n");
+		sb.append("\t\t\t\tswitch (in.nextName()) {\n");
+
+		Set<String> names = new LinkedHashSet<String>();
+
+		for (int i = 0; i < properties.size(); i++) {
+			Property property = properties.get(i);
+			boolean found = false;
+
+			for (String name : property.alternates) {
+				if (names.add(name)) {
+					sb.append("\t\t\t\t\tcase ").append(literal(name)).append(":\n");
+					found = true;
+				}
+			}
+
+			if (names.add(property.name)) {
+				sb.append("\t\t\t\t\tcase ").append(literal(property.name)).append(":\n");
+				found = true;
+			}
+
+			if (!found) {
+				continue;
+			}
+
+			if (property.boxed != null) {
+				// ------------------------------------------------------------
+				// the primitive field is not changed by the null value (same as the reflective adapter)
+				// ------------------------------------------------------------
+				sb.append("\t\t\t\t\t\t").append(property.boxed).append(" v").append(i).append(" = a").append(i).append(".read(in);\n\n");
+				sb.append("\t\t\t\t\t\tif (v").append(i).append(" != null) {\n");
+				sb.append("\t\t\t\t\t\t\tF").append(i).append(".set(value, (").append(property.erasure).append(") v").append(i).append(");\n");
+				sb.append("\t\t\t\t\t\t}\n");
+			}else
+			{
+				sb.append("\t\t\t\t\t\tF").append(i).append(".set(value, (").append(property.type).append(") a").append(i).append(".read(in));\n");
+			}
+
+			sb.append("\t\t\t\t\t\tbreak;\n");
+		}
+
+		sb.append("\t\t\t\t\tdefault:\n");
+		sb.append("\t\t\t\t\t\tin.skipValue();\n");
+		sb.append("\t\t\t\t\t\tbreak;\n");
+		sb.append("\t\t\t\t}\n");
+		sb.append("\t\t\t}\n\n");
+		sb.append("\t\t\tin.endObject();\n\n");
+		sb.append("\t\t\treturn value;\n");
+		sb.append("\t\t}\n\n");
+
+		if (runtimeType) {
+			// ------------------------------------------------------------
+			// adapter of the runtime class (the rules of TypeAdapterRuntimeTypeWrapper of Gson : the reflective adapter of the subclass
+			// is not used over the custom adapter of the declared type)
+			// ------------------------------------------------------------
+			sb.append("\t\t@SuppressWarnings(\"rawtypes\")\n");
+			sb.append("\t\tprivate TypeAdapter runtimeAdapter(TypeAdapter declared, Class<?> declaredType, Object v) {\n");
+			sb.append("\t\t\tif ((v == null) || (v.getClass() == declaredType)) {\n");
+			sb.append("\t\t\t\treturn declared;\n");
+			sb.append("\t\t\t}\n\n");
+			sb.append("\t\t\tTypeAdapter runtime = gson.getAdapter(v.getClass());\n\n");
+			sb.append("\t\t\tif ((isReflective(runtime)) && (!isReflective(gson.getAdapter(declaredType)))) {\n");
+			sb.append("\t\t\t\treturn declared;\n");
+			sb.append("\t\t\t}\n\n");
+			sb.append("\t\t\treturn runtime;\n");
+			sb.append("\t\t}\n\n");
+			sb.append("\t\tprivate static boolean isReflective(TypeAdapter<?> adapter) {\n");
+			sb.append("\t\t\treturn adapter.getClass().getName().startsWith(\"com.google.gson.internal.bind.ReflectiveTypeAdapterFactory$\");\n");
+			sb.append("\t\t}\n\n");
+		}
+
+		sb.append("\t}\n\n");
+		sb.append("}\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * <p>write the service file of the generated factories</p>
+	 */
+	private void writeServiceFile() {
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+
+			try (Writer writer = file.openWriter()) {
+				for (String factory : factories) {
+					writer.write(factory);
+					writer.write('\n');
+				}
+			}
+		}catch (IOException e)
+		{
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "failed to write " + SERVICE_FILE + ". " + e.getMessage());
+		}
+	}
+
+}
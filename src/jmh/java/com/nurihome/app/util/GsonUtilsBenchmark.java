@@ -0,0 +1,95 @@
+package com.nurihome.app.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.nurihome.app.web.entity.ModelEntity;
+
+/**
+ * <p>Measures the conversions of {@link GsonUtils} used by the request path (object -> json, json -> Map / List, path extraction).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GsonUtilsBenchmark {
+
+	/**
+	 * number of the rows of the response
+	 */
+	@Param({"1", "100"})
+	private int rows;
+
+	private ModelEntity modelEntity;
+
+	private String mapJson;
+
+	private String listJson;
+
+	private String responseJson;
+
+	private final JsonPath itemsPath = JsonPath.compile("response.body.items");
+
+	@Setup
+	public void setup() {
+		List<Map<String, Object>> rs = new ArrayList<Map<String, Object>>();
+
+		for (int i = 0; i < rows; i++) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put("id", i);
+			row.put("name", "상품 " + i);
+			row.put("amount", i * 1000.5);
+			row.put("enabled", true);
+			rs.add(row);
+		}
+
+		modelEntity = new ModelEntity();
+		modelEntity.setData(rs);
+
+		mapJson = GsonUtils.convertObject2Json(rs.isEmpty() ? new LinkedHashMap<String, Object>() : rs.get(0));
+		listJson = GsonUtils.convertObject2Json(rs);
+		responseJson = "{\"response\":{\"header\":{\"resultCode\":\"00\"},\"body\":{\"items\":" + listJson + ",\"totalCount\":" + rows + "}}}";
+	}
+
+	@Benchmark
+	public String objectToJson() {
+		return GsonUtils.convertObject2Json(modelEntity);
+	}
+
+	@Benchmark
+	public byte[] objectToJsonBytes() {
+		return GsonUtils.convertObject2JsonBytes(modelEntity);
+	}
+
+	@Benchmark
+	public Map<String, Object> jsonToMap() {
+		return GsonUtils.convertJson2Map(mapJson);
+	}
+
+	@Benchmark
+	public List<Map<String, Object>> jsonToList() {
+		return GsonUtils.convertJson2List(listJson);
+	}
+
+	@Benchmark
+	public String pathToObject() {
+		return GsonUtils.parseJsonTree2Object(responseJson, "response.header.resultCode", String.class);
+	}
+
+	@Benchmark
+	public List<Map<String, Object>> pathToList() {
+		return GsonUtils.parseJsonTree2List(responseJson, itemsPath);
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.nurihome.app.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * <p>Reads the same paths from one json document with the Gson tree (parsed once and for each path),
+ * the streaming path extraction of {@link GsonUtils}, and the indexed {@link JsonDocument}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonDocumentBenchmark {
+
+	private static final String[] PATHS = {
+		"response.header.resultCode",
+		"response.header.resultMsg",
+		"response.body.totalCount",
+		"response.body.items[0].name",
+		"response.body.items[10].amount",
+		"response.body.items[50].name",
+		"response.body.items[99].amount",
+		"response.body.pageNo"
+	};
+
+	/**
+	 * number of the items of the document
+	 */
+	@Param({"100", "1000"})
+	private int items;
+
+	private String json;
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("{\"response\":{\"header\":{\"resultCode\":\"00\",\"resultMsg\":\"NORMAL SERVICE.\"},\"body\":{\"items\":[");
+
+		for (int i = 0; i < items; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+
+			sb.append("{\"id\":").append(i)
+				.append(",\"name\":\"상품 ").append(i)
+				.append("\",\"amount\":").append(i * 1000.5)
+				.append(",\"tags\":[\"a\",\"b\",\"c\"],\"enabled\":true}");
+		}
+
+		sb.append("],\"totalCount\":").append(items).append(",\"pageNo\":1}}}");
+
+		json = sb.toString();
+	}
+
+	private static JsonElement select(final JsonElement root, final String path) {
+		JsonElement jsonElement = root;
+
+		for (String part : path.split("\\.")) {
+			int bracket = part.indexOf('[');
+
+			if (bracket >= 0) {
+				jsonElement = jsonElement.getAsJsonObject().get(part.substring(0, bracket))
+					.getAsJsonArray().get(Integer.parseInt(part.substring(bracket + 1, part.length() - 1)));
+			}else
+			{
+				jsonElement = jsonElement.getAsJsonObject().get(part);
+			}
+		}
+
+		return jsonElement;
+	}
+
+	/**
+	 * <p>the whole document is parsed for each path (the usage of parseJsonTree* before)</p>
+	 */
+	@Benchmark
+	public void gsonTreePerPath(Blackhole blackhole) {
+		for (String path : PATHS) {
+			JsonObject jsonTree = JsonParser.parseString(json).getAsJsonObject();
+
+			blackhole.consume(select(jsonTree, path).getAsString());
+		}
+	}
+
+	@Benchmark
+	public void gsonTreeOnce(Blackhole blackhole) {
+		JsonObject jsonTree = JsonParser.parseString(json).getAsJsonObject();
+
+		for (String path : PATHS) {
+			blackhole.consume(select(jsonTree, path).getAsString());
+		}
+	}
+
+	@Benchmark
+	public void streamingPerPath(Blackhole blackhole) {
+		for (String path : PATHS) {
+			blackhole.consume(GsonUtils.parseJsonTree2Object(json, path, String.class));
+		}
+	}
+
+	@Benchmark
+	public void jsonDocument(Blackhole blackhole) {
+		JsonDocument document = JsonDocument.parse(json);
+
+		for (String path : PATHS) {
+			blackhole.consume(document.getString(path));
+		}
+	}
+
+}
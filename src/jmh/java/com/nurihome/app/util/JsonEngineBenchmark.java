@@ -0,0 +1,87 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.nurihome.app.web.entity.ModelEntity;
+
+/**
+ * <p>Compares the JSON engines on the payload shapes of the service commands (envelope with rows of the query result).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonEngineBenchmark {
+
+	/**
+	 * number of the rows of the envelope
+	 */
+	@Param({"1", "100", "1000"})
+	private int rows;
+
+	@Param({"gson", "jackson"})
+	private String engineName;
+
+	private JsonEngine engine;
+
+	private ModelEntity modelEntity;
+
+	private String json;
+
+	private final OutputStream discard = OutputStream.nullOutputStream();
+
+	@Setup
+	public void setup() {
+		engine = "jackson".equals(engineName) ? new JacksonJsonEngine() : GsonUtils.createGsonEngine();
+
+		List<Map<String, Object>> rs = new ArrayList<Map<String, Object>>();
+
+		for (int i = 0; i < rows; i++) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put("id", i);
+			row.put("userId", "user" + i);
+			row.put("userName", "사용자 " + i);
+			row.put("amount", i * 1000.5);
+			row.put("remark", null);
+			row.put("enabled", (i % 2) == 0);
+			rs.add(row);
+		}
+
+		modelEntity = new ModelEntity();
+		modelEntity.setData(rs);
+
+		json = engine.toJson(modelEntity);
+	}
+
+	@Benchmark
+	public String toJson() {
+		return engine.toJson(modelEntity);
+	}
+
+	@Benchmark
+	public OutputStream writeJson() throws IOException {
+		engine.writeJson(modelEntity, discard);
+
+		return discard;
+	}
+
+	@Benchmark
+	public Map<Object, Object> fromJson() {
+		return engine.fromJson(json, Map.class);
+	}
+
+}
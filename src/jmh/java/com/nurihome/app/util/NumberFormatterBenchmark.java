@@ -0,0 +1,69 @@
+package com.nurihome.app.util;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * <p>Formats the amount columns of a grid of 1000 rows: a new DecimalFormat for each cell (as Utils.getNumberType was)
+ * against {@link NumberFormatter#formatColumns(List, String...)}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NumberFormatterBenchmark {
+
+	private static final String PATTERN = "###,###,###,###,##0.00";
+
+	private static final String[] COLUMNS = {"amount", "price", "tax"};
+
+	private List<Map<String, Object>> rows;
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		rows = new ArrayList<Map<String, Object>>();
+
+		for (int i = 0; i < 1000; i++) {
+			Map<String, Object> row = new HashMap<String, Object>();
+			row.put("amount", Long.valueOf(i * 12345L));
+			row.put("price", Double.valueOf(i * 1.37));
+			row.put("tax", new BigDecimal(i).movePointLeft(1));
+			rows.add(row);
+		}
+	}
+
+	@Benchmark
+	public List<Map<String, Object>> decimalFormatPerCell() {
+		for (Map<String, Object> row : rows) {
+			for (String column : COLUMNS) {
+				row.put(column, new DecimalFormat(PATTERN).format(row.get(column)));
+			}
+		}
+
+		return rows;
+	}
+
+	@Benchmark
+	public List<Map<String, Object>> formatColumns() {
+		return NumberFormatter.getInstance(PATTERN).formatColumns(rows, COLUMNS);
+	}
+
+	@Benchmark
+	public String setNumberType() {
+		return Utils.setNumberType("-1234567.891");
+	}
+
+}
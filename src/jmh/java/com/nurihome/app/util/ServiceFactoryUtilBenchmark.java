@@ -0,0 +1,64 @@
+package com.nurihome.app.util;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.nurihome.app.gws.common.service.TestService;
+import com.nurihome.app.web.entity.ModelEntity;
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>Compares the precompiled dispatch table with the reflective lookup (getDeclaredMethod + Method.invoke) used before.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ServiceFactoryUtilBenchmark {
+
+	private Object service;
+
+	private ParamEntity paramEntity;
+
+	@Setup
+	public void setup() {
+		service = new TestService();
+		paramEntity = new ParamEntity(new HashMap<String, String>(), "common.test", "retrieveTestInfo");
+
+		ServiceCommandRegistry.initialize(Collections.singletonMap("common.test", service));
+	}
+
+	@Benchmark
+	public ModelEntity registry() {
+		ModelEntity modelEntity = new ModelEntity();
+
+		ServiceFactoryUtil.invokeCommand(paramEntity, modelEntity);
+
+		return modelEntity;
+	}
+
+	@Benchmark
+	public ModelEntity reflection() throws Exception {
+		ModelEntity modelEntity = new ModelEntity();
+
+		Method command = service.getClass().getDeclaredMethod(paramEntity.getCommandId(), ParamEntity.class);
+		modelEntity.setData(command.invoke(service, paramEntity));
+
+		return modelEntity;
+	}
+
+	@Benchmark
+	public Object registryUnknownCommand() {
+		return ServiceCommandRegistry.lookup("common.test", "unknownCommand");
+	}
+
+}
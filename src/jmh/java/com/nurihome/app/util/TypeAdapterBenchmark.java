@@ -0,0 +1,142 @@
+package com.nurihome.app.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.nurihome.app.web.entity.ModelEntity;
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>Compares the type adapters generated by gws-processor with the reflective adapters of Gson.</p>
+ *
+ * <ul>
+ * <li>throughput: serialize / deserialize the envelopes with the warmed up Gson instances</li>
+ * <li>first request: the first serialization of a new Gson instance (creating the adapters of the envelope)</li>
+ * </ul>
+ */
+public class TypeAdapterBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Envelopes {
+
+		Gson reflective;
+
+		Gson generated;
+
+		ModelEntity modelEntity;
+
+		ParamEntity paramEntity;
+
+		String paramJson;
+
+		@Setup
+		public void setup() {
+			reflective = GsonUtils.createGsonBuilder(false).create();
+			generated = GsonUtils.createGsonBuilder(true).create();
+
+			List<Map<String, Object>> rs = new ArrayList<Map<String, Object>>();
+
+			for (int i = 0; i < 20; i++) {
+				Map<String, Object> row = new LinkedHashMap<String, Object>();
+				row.put("id", i);
+				row.put("name", "name-" + i);
+				row.put("amount", i * 1000.5);
+				rs.add(row);
+			}
+
+			modelEntity = new ModelEntity();
+			modelEntity.setData(rs);
+
+			Map<String, String> parameters = new HashMap<String, String>();
+			parameters.put("userId", "admin");
+			parameters.put("pageNo", "1");
+
+			paramEntity = new ParamEntity(parameters, "common.test", "retrieveTestInfo", "127.0.0.1");
+			paramJson = reflective.toJson(paramEntity);
+		}
+
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public String serializeReflective(Envelopes envelopes) {
+		return envelopes.reflective.toJson(envelopes.modelEntity);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public String serializeGenerated(Envelopes envelopes) {
+		return envelopes.generated.toJson(envelopes.modelEntity);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public ParamEntity deserializeReflective(Envelopes envelopes) {
+		return envelopes.reflective.fromJson(envelopes.paramJson, ParamEntity.class);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public ParamEntity deserializeGenerated(Envelopes envelopes) {
+		return envelopes.generated.fromJson(envelopes.paramJson, ParamEntity.class);
+	}
+
+	@State(Scope.Thread)
+	public static class FirstRequest {
+
+		Gson reflective;
+
+		Gson generated;
+
+		ModelEntity modelEntity;
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			reflective = GsonUtils.createGsonBuilder(false).create();
+			generated = GsonUtils.createGsonBuilder(true).create();
+
+			modelEntity = new ModelEntity();
+			modelEntity.setData(new ParamEntity(new HashMap<String, String>(), "common.test", "retrieveTestInfo"));
+		}
+
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 10)
+	@Measurement(iterations = 200)
+	public String firstRequestReflective(FirstRequest firstRequest) {
+		return firstRequest.reflective.toJson(firstRequest.modelEntity);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 10)
+	@Measurement(iterations = 200)
+	public String firstRequestGenerated(FirstRequest firstRequest) {
+		return firstRequest.generated.toJson(firstRequest.modelEntity);
+	}
+
+}
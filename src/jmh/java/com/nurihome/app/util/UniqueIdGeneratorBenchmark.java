@@ -0,0 +1,70 @@
+package com.nurihome.app.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * <p>Throughput of the unique ids with 8 threads: {@link UniqueIdGenerator} against the former generator
+ * (a shared AtomicLong and String.format, as Utils.createUniqueIdByTimestamp was).</p>
+ *
+ * <pre>
+ * gradlew jmh -PjmhIncludes=UniqueIdGeneratorBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class UniqueIdGeneratorBenchmark {
+
+	private static final AtomicLong LEGACY = new AtomicLong((System.currentTimeMillis() / 1000L) * 1000000000L);
+
+	/**
+	 * output buffer of each thread
+	 */
+	@State(Scope.Thread)
+	public static class Buffer {
+
+		final byte[] bytes = new byte[32];
+
+	}
+
+	@Benchmark
+	public long legacyLong() {
+		return LEGACY.getAndIncrement();
+	}
+
+	@Benchmark
+	public String legacyString() {
+		return String.format("%1$d", LEGACY.getAndIncrement());
+	}
+
+	@Benchmark
+	public long nextId() {
+		return UniqueIdGenerator.nextId();
+	}
+
+	@Benchmark
+	public String nextIdString() {
+		return Utils.createUniqueIdByTimestamp();
+	}
+
+	@Benchmark
+	public int writeDecimal(Buffer buffer) {
+		return UniqueIdGenerator.writeDecimal(UniqueIdGenerator.nextId(), buffer.bytes, 0);
+	}
+
+	@Benchmark
+	public int writeBase32(Buffer buffer) {
+		return UniqueIdGenerator.writeBase32(UniqueIdGenerator.nextId(), buffer.bytes, 0);
+	}
+
+}
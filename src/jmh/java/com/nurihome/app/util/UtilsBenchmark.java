@@ -0,0 +1,101 @@
+package com.nurihome.app.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * <p>Measures the helpers of {@link Utils} called by the services (unique id, number format, byte limit, UTF-8 length, Base64, SHA-256).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UtilsBenchmark {
+
+	private static final String ASCII = "The quick brown fox jumps over the lazy dog. The quick brown fox jumps over the lazy dog.";
+
+	private static final String KOREAN = "다람쥐 헌 쳇바퀴에 타고파. 키스의 고유조건은 입술끼리 만나야 하고 특별한 기술은 필요치 않다.";
+
+	private byte[] content;
+
+	private String base64;
+
+	@Setup
+	public void setup() {
+		content = new byte[1024];
+
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+
+		base64 = Utils.convertByte2Base64(content);
+	}
+
+	@Benchmark
+	public String createUniqueIdByTimestamp() {
+		return Utils.createUniqueIdByTimestamp();
+	}
+
+	@Benchmark
+	public String setNumberType() {
+		return Utils.setNumberType("1234567890");
+	}
+
+	@Benchmark
+	public String setNumberTypeDecimal() {
+		return Utils.setNumberType("-1234567.891");
+	}
+
+	@Benchmark
+	public String setNumberTypeWithCurrency() {
+		return Utils.setNumberTypeWithCurrency("1234567", "₩");
+	}
+
+	@Benchmark
+	public String byteLimitAscii() throws Exception {
+		return Utils.byteLimit(ASCII, 40);
+	}
+
+	@Benchmark
+	public String byteLimitKorean() throws Exception {
+		return Utils.byteLimit(KOREAN, 40);
+	}
+
+	@Benchmark
+	public String byteLimitWithinLimit() throws Exception {
+		return Utils.byteLimit(KOREAN, KOREAN.getBytes(StandardCharsets.UTF_8).length);
+	}
+
+	@Benchmark
+	public int encodedLengthKorean() {
+		return Utf8Utils.encodedLength(KOREAN);
+	}
+
+	@Benchmark
+	public int getBytesLengthKorean() {
+		return KOREAN.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	@Benchmark
+	public String convertByte2Base64() {
+		return Utils.convertByte2Base64(content);
+	}
+
+	@Benchmark
+	public byte[] convertBase64String2Byte() {
+		return Utils.convertBase64String2Byte(base64);
+	}
+
+	@Benchmark
+	public String convertSHA256Hash() {
+		return Utils.convertSHA256Hash(ASCII);
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.nurihome.app.web.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.nurihome.app.gws.common.service.TestService;
+import com.nurihome.app.util.CommandResultCache;
+import com.nurihome.app.util.ServiceCommandRegistry;
+
+/**
+ * <p>End-to-end request of {@link HttpController#process} through MockMvc (parameter binding, dispatch, invocation, serialization),
+ * without the servlet container and the network.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HttpControllerBenchmark {
+
+	/**
+	 * write the response directly to the servlet output stream (gws.response.streaming)
+	 */
+	@Param({"true", "false"})
+	private boolean streamingResponse;
+
+	private MockMvc mockMvc;
+
+	@Setup
+	public void setup() {
+		ServiceCommandRegistry.initialize(Collections.singletonMap("common.test", new TestService()));
+
+		HttpController controller = new HttpController(Runnable::run, 50, Runnable::run, 30000L, new CommandResultCache(false, 1L), streamingResponse);
+
+		mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+	}
+
+	@Benchmark
+	public byte[] process() throws Exception {
+		return mockMvc.perform(get("/app/1.0/service/ajax")
+				.param("serviceId", "common.test")
+				.param("commandId", "retrieveTestInfo"))
+			.andReturn()
+			.getResponse()
+			.getContentAsByteArray();
+	}
+
+	@Benchmark
+	public byte[] processMissingParameters() throws Exception {
+		return mockMvc.perform(get("/app/1.0/service/ajax"))
+			.andReturn()
+			.getResponse()
+			.getContentAsByteArray();
+	}
+
+}
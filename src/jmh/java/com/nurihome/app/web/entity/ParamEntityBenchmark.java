@@ -0,0 +1,58 @@
+package com.nurihome.app.web.entity;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * <p>Measures the construction of {@link ParamEntity} for each request, and the parameter lookups of the services.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParamEntityBenchmark {
+
+	private Map<String, String> params;
+
+	private ParamEntity paramEntity;
+
+	@Setup
+	public void setup() {
+		params = new HashMap<String, String>();
+		params.put("serviceId", "common.test");
+		params.put("commandId", "retrieveTestInfo");
+		params.put("userId", "admin");
+		params.put("pageNo", "1");
+		params.put("pageSize", "20");
+
+		paramEntity = new ParamEntity(params, "common.test", "retrieveTestInfo", "127.0.0.1", Locale.KOREA);
+	}
+
+	@Benchmark
+	public ParamEntity construct() {
+		return new ParamEntity(params, "common.test", "retrieveTestInfo");
+	}
+
+	@Benchmark
+	public ParamEntity constructWithTimeout() {
+		ParamEntity entity = new ParamEntity(params, "common.test", "retrieveTestInfo", "127.0.0.1", Locale.KOREA);
+		entity.setTimeout(3000L, TimeUnit.MILLISECONDS);
+
+		return entity;
+	}
+
+	@Benchmark
+	public String getParameter() {
+		return paramEntity.getParameter("userId");
+	}
+
+}
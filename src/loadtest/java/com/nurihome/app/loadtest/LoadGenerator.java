@@ -0,0 +1,355 @@
+package com.nurihome.app.loadtest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * <p>Load generator of the ajax endpoint ("/app/1.0/service/ajax") on the JDK HttpClient.</p>
+ *
+ * <ul>
+ * <li>open model - the requests arrive at a fixed rate regardless of the responses (sendAsync, bounded by the maximum number of requests in flight)</li>
+ * <li>closed model - a fixed number of workers send the requests one after another (paced by the rate, if the rate is set)</li>
+ * </ul>
+ *
+ * <p>the latency is measured from the intended start time of each request (the schedule of the rate), so the requests which could not be sent
+ * in time because the server was slow are counted with their waiting time. without a rate (closed model), the intended start time is the send time.</p>
+ *
+ * <p>each request is a form POST of a command picked from the mix (serviceId.commandId:weight, ...) with a "payload" parameter
+ * of the size picked from the payload sizes (bytes:weight, ...).</p>
+ *
+ * <p>the errors of the commands are returned with HTTP 200, so a response is an error unless the "message" of the envelope is "OK".</p>
+ */
+final class LoadGenerator {
+
+	private final HttpClient client;
+
+	private final URI uri;
+
+	private final Duration timeout;
+
+	private final String[] commandNames;
+
+	private final int[] commandWeights;
+
+	private final int[] payloadWeights;
+
+	/**
+	 * form body of each command and payload size ([command][payload])
+	 */
+	private final byte[][][] bodies;
+
+	private final LoadReport report = new LoadReport();
+
+	LoadGenerator(final URI uri, final String mix, final String payloadSizes, final long timeoutMillis) {
+		this.client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofMillis(timeoutMillis))
+			.build();
+		this.uri = uri;
+		this.timeout = Duration.ofMillis(timeoutMillis);
+
+		Map<String, Integer> commands = parseWeights(mix);
+		Map<String, Integer> payloads = parseWeights(payloadSizes);
+
+		this.commandNames = commands.keySet().toArray(new String[0]);
+		this.commandWeights = cumulate(commands.values());
+		this.payloadWeights = cumulate(payloads.values());
+		this.bodies = new byte[commandNames.length][payloads.size()][];
+
+		List<Integer> sizes = new ArrayList<Integer>();
+
+		for (String size : payloads.keySet()) {
+			sizes.add(Integer.valueOf(size));
+		}
+
+		for (int c = 0; c < commandNames.length; c++) {
+			int dot = commandNames[c].lastIndexOf('.');
+
+			if (dot <= 0) {
+				throw new IllegalArgumentException("invalid command (serviceId.commandId): " + commandNames[c]);
+			}
+
+			String form = "serviceId=" + URLEncoder.encode(commandNames[c].substring(0, dot), StandardCharsets.UTF_8)
+				+ "&commandId=" + URLEncoder.encode(commandNames[c].substring(dot + 1), StandardCharsets.UTF_8);
+
+			for (int p = 0; p < sizes.size(); p++) {
+				bodies[c][p] = (sizes.get(p) > 0) ? (form + "&payload=" + createPayload(sizes.get(p))).getBytes(StandardCharsets.US_ASCII) : form.getBytes(StandardCharsets.US_ASCII);
+			}
+		}
+	}
+
+	/**
+	 * <p>parse the weighted entries (name:weight, name:weight, ...). the weight is 1 if omitted.</p>
+	 */
+	static Map<String, Integer> parseWeights(final String entries) {
+		Map<String, Integer> weights = new LinkedHashMap<String, Integer>();
+
+		for (String entry : entries.split(",")) {
+			if (entry.isBlank()) {
+				continue;
+			}
+
+			int colon = entry.lastIndexOf(':');
+			int weight = (colon >= 0) ? Integer.parseInt(entry.substring(colon + 1).trim()) : 1;
+
+			if (weight < 0) {
+				throw new IllegalArgumentException("negative weight: " + entry);
+			}
+
+			weights.put(((colon >= 0) ? entry.substring(0, colon) : entry).trim(), weight);
+		}
+
+		if (weights.isEmpty() || weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+			throw new IllegalArgumentException("no weighted entry: " + entries);
+		}
+
+		return weights;
+	}
+
+	private static int[] cumulate(final Iterable<Integer> weights) {
+		List<Integer> cumulated = new ArrayList<Integer>();
+		int sum = 0;
+
+		for (Integer weight : weights) {
+			sum += weight;
+			cumulated.add(sum);
+		}
+
+		return cumulated.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private static int pick(final int[] cumulated) {
+		int index = Arrays.binarySearch(cumulated, ThreadLocalRandom.current().nextInt(cumulated[cumulated.length - 1]) + 1);
+
+		return (index >= 0) ? index : (-index - 1);
+	}
+
+	/**
+	 * <p>url-safe payload of the given size</p>
+	 */
+	private static String createPayload(final int size) {
+		char[] payload = new char[size];
+
+		for (int i = 0; i < size; i++) {
+			payload[i] = (char) ('a' + (i % 26));
+		}
+
+		return new String(payload);
+	}
+
+	private HttpRequest createRequest(final int command) {
+		return HttpRequest.newBuilder(uri)
+			.timeout(timeout)
+			.header("Content-Type", "application/x-www-form-urlencoded")
+			.POST(HttpRequest.BodyPublishers.ofByteArray(bodies[command][pick(payloadWeights)]))
+			.build();
+	}
+
+	/**
+	 * <p>error type of the response (null if the request succeeded): the exception, the HTTP status (400 ~),
+	 * or the "message" of the envelope (not "OK")</p>
+	 */
+	static String errorOf(final HttpResponse<byte[]> response, final Throwable e) {
+		if (e != null) {
+			Throwable cause = ((e instanceof CompletionException) && (e.getCause() != null)) ? e.getCause() : e;
+
+			return cause.getClass().getSimpleName();
+		}
+
+		if (response.statusCode() >= 400) {
+			return "HTTP " + response.statusCode();
+		}
+
+		String message = messageOf(response.body());
+
+		if (message == null) {
+			return "invalid response";
+		}
+
+		if ("OK".equals(message)) {
+			return null;
+		}
+
+		// ------------------------------------------------------------
+		// the error types are counted by the message, keep them short
+		// ------------------------------------------------------------
+		return "message: " + ((message.length() > 60) ? (message.substring(0, 60) + "...") : message);
+	}
+
+	/**
+	 * <p>"message" of the response envelope (the other members are skipped without parsing), null if the body is not an envelope</p>
+	 */
+	static String messageOf(final byte[] body) {
+		if ((body == null) || (body.length == 0)) {
+			return null;
+		}
+
+		try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				return null;
+			}
+
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				if ("message".equals(reader.nextName()) && (reader.peek() == JsonToken.STRING)) {
+					return reader.nextString();
+				}
+
+				reader.skipValue();
+			}
+		}catch (IOException | IllegalStateException e)
+		{
+			return null;
+		}
+
+		return null;
+	}
+
+	static void waitUntil(final long deadline) throws InterruptedException {
+		long remaining;
+
+		while ((remaining = deadline - System.nanoTime()) > 0L) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+
+			LockSupport.parkNanos(remaining);
+		}
+	}
+
+	/**
+	 * <p>open model: send the requests at the fixed rate (requests per second) for the warmup and the measured duration,
+	 * and wait for the requests in flight. returns the measured seconds (until the last response, if the server could not keep up).</p>
+	 */
+	double runOpen(final double rate, final int maxInFlight, final long warmupNanos, final long durationNanos) throws InterruptedException {
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		long start = System.nanoTime();
+		long measureStart = start + warmupNanos;
+		long end = measureStart + durationNanos;
+
+		for (long i = 0L; ; i++) {
+			long intended = start + (long) (i * (1000000000.0 / rate));
+
+			if (intended - end >= 0L) {
+				break;
+			}
+
+			waitUntil(intended);
+
+			// ------------------------------------------------------------
+			// the time waiting for a free slot is a part of the response time (measured from the intended time)
+			// ------------------------------------------------------------
+			inFlight.acquire();
+
+			int command = pick(commandWeights);
+			boolean measured = (intended - measureStart >= 0L);
+			long sent = System.nanoTime();
+
+			CompletableFuture<HttpResponse<byte[]>> future = client.sendAsync(createRequest(command), HttpResponse.BodyHandlers.ofByteArray());
+
+			future.whenComplete((response, e) -> {
+				try {
+					if (measured) {
+						report.record(commandNames[command], intended, sent, System.nanoTime(), errorOf(response, e));
+					}
+				}finally
+				{
+					inFlight.release();
+				}
+			});
+		}
+
+		inFlight.acquire(maxInFlight);
+
+		return (System.nanoTime() - measureStart) / 1000000000.0;
+	}
+
+	/**
+	 * <p>closed model: the workers send the requests one after another for the warmup and the measured duration.
+	 * if the rate is set (requests per second of all workers), each worker sends at its share of the rate. returns the measured seconds.</p>
+	 */
+	double runClosed(final int concurrency, final double rate, final long warmupNanos, final long durationNanos) throws InterruptedException {
+		long start = System.nanoTime();
+		long measureStart = start + warmupNanos;
+		long end = measureStart + durationNanos;
+		double interval = (rate > 0.0) ? (concurrency * 1000000000.0 / rate) : 0.0;
+
+		List<Thread> workers = new ArrayList<Thread>();
+
+		for (int w = 0; w < concurrency; w++) {
+			// ------------------------------------------------------------
+			// spread the schedules of the workers over the interval
+			// ------------------------------------------------------------
+			long first = start + (long) (interval * w / concurrency);
+
+			Thread worker = new Thread(() -> {
+				try {
+					for (long i = 0L; ; i++) {
+						long intended = (interval > 0.0) ? (first + (long) (i * interval)) : System.nanoTime();
+
+						if (intended - end >= 0L) {
+							break;
+						}
+
+						waitUntil(intended);
+
+						int command = pick(commandWeights);
+						long sent = System.nanoTime();
+						HttpResponse<byte[]> response = null;
+						Throwable error = null;
+
+						try {
+							response = client.send(createRequest(command), HttpResponse.BodyHandlers.ofByteArray());
+						}catch (IOException e)
+						{
+							error = e;
+						}
+
+						if (intended - measureStart >= 0L) {
+							report.record(commandNames[command], intended, sent, System.nanoTime(), errorOf(response, error));
+						}
+					}
+				}catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}, "gws-loadtest-" + w);
+
+			worker.start();
+			workers.add(worker);
+		}
+
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		return (System.nanoTime() - measureStart) / 1000000000.0;
+	}
+
+	LoadReport getReport() {
+		return report;
+	}
+
+}
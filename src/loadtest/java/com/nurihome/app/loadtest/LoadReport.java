@@ -0,0 +1,165 @@
+package com.nurihome.app.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.nurihome.app.util.LatencyHistogram;
+
+/**
+ * <p>Results of a load test run (latency histograms, throughput, errors).</p>
+ *
+ * <ul>
+ * <li>response time - from the intended start time of the request (the schedule of the arrival rate) to the completion,
+ * so the requests delayed by a slow server are not omitted (coordinated omission correction)</li>
+ * <li>service time - from the actual send time to the completion (what the client observes without the correction)</li>
+ * </ul>
+ */
+final class LoadReport {
+
+	private final LatencyHistogram responseTime = new LatencyHistogram();
+
+	private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+	/**
+	 * "serviceId.commandId" -> response time
+	 */
+	private final Map<String, LatencyHistogram> commands = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	/**
+	 * "HTTP 503", "HttpTimeoutException", ... -> failed requests
+	 */
+	private final Map<String, LongAdder> errors = new ConcurrentHashMap<String, LongAdder>();
+
+	private final LongAdder errorCount = new LongAdder();
+
+	/**
+	 * <p>record a completed request (error is null if the request succeeded)</p>
+	 */
+	void record(final String command, final long intendedNanos, final long sentNanos, final long completedNanos, final String error) {
+		responseTime.record(completedNanos - intendedNanos);
+		serviceTime.record(completedNanos - sentNanos);
+
+		commands.computeIfAbsent(command, key -> new LatencyHistogram()).record(completedNanos - intendedNanos);
+
+		if (error != null) {
+			errors.computeIfAbsent(error, key -> new LongAdder()).increment();
+			errorCount.increment();
+		}
+	}
+
+	long getCount() {
+		return responseTime.getCount();
+	}
+
+	long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	double getErrorRate() {
+		long count = getCount();
+
+		return (count == 0L) ? 0.0 : ((double) getErrorCount() / count);
+	}
+
+	/**
+	 * <p>99th percentile of the response time (milliseconds)</p>
+	 */
+	double getP99Millis() {
+		return toMillis(responseTime.getPercentile(0.99));
+	}
+
+	private static double toMillis(final long nanos) {
+		return nanos / 1000000.0;
+	}
+
+	private static Map<String, Object> summarize(final LatencyHistogram histogram) {
+		Map<String, Object> summary = new LinkedHashMap<String, Object>();
+
+		summary.put("mean", toMillis(histogram.getMean()));
+		summary.put("p50", toMillis(histogram.getPercentile(0.50)));
+		summary.put("p90", toMillis(histogram.getPercentile(0.90)));
+		summary.put("p99", toMillis(histogram.getPercentile(0.99)));
+		summary.put("p999", toMillis(histogram.getPercentile(0.999)));
+		summary.put("max", toMillis(histogram.getMax()));
+
+		return summary;
+	}
+
+	/**
+	 * <p>request count and response time of each command</p>
+	 */
+	private Map<String, Object> summarizeCommands() {
+		Map<String, Object> summaries = new TreeMap<String, Object>();
+
+		for (Map.Entry<String, LatencyHistogram> command : commands.entrySet()) {
+			Map<String, Object> summary = new LinkedHashMap<String, Object>();
+			summary.put("requests", command.getValue().getCount());
+			summary.putAll(summarize(command.getValue()));
+
+			summaries.put(command.getKey(), summary);
+		}
+
+		return summaries;
+	}
+
+	private static Map<String, Long> toCounts(final Map<String, LongAdder> counters) {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			counts.put(counter.getKey(), counter.getValue().sum());
+		}
+
+		return counts;
+	}
+
+	/**
+	 * <p>returns the report (the latencies are in milliseconds)</p>
+	 */
+	Map<String, Object> toMap(final Map<String, Object> options, final double measuredSeconds) {
+		Map<String, Object> report = new LinkedHashMap<String, Object>();
+
+		report.put("options", options);
+		report.put("requests", getCount());
+		report.put("seconds", measuredSeconds);
+		report.put("throughput", (measuredSeconds > 0.0) ? (getCount() / measuredSeconds) : 0.0);
+		report.put("errors", getErrorCount());
+		report.put("errorRate", getErrorRate());
+		report.put("responseTime", summarize(responseTime));
+		report.put("serviceTime", summarize(serviceTime));
+		report.put("commands", summarizeCommands());
+		report.put("errorTypes", toCounts(errors));
+
+		return report;
+	}
+
+	/**
+	 * <p>returns the summary for the console</p>
+	 */
+	String toText(final double measuredSeconds) {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append(String.format("requests     : %d (%.1f s)%n", getCount(), measuredSeconds));
+		sb.append(String.format("throughput   : %.1f req/s%n", (measuredSeconds > 0.0) ? (getCount() / measuredSeconds) : 0.0));
+		sb.append(String.format("errors       : %d (%.3f%%) %s%n", getErrorCount(), getErrorRate() * 100.0, toCounts(errors)));
+
+		appendLatency(sb, "response time", responseTime);
+		appendLatency(sb, "service time ", serviceTime);
+
+		for (Map.Entry<String, LatencyHistogram> command : new TreeMap<String, LatencyHistogram>(commands).entrySet()) {
+			sb.append(String.format("  %s (%d) ", command.getKey(), command.getValue().getCount()));
+			appendLatency(sb, "", command.getValue());
+		}
+
+		return sb.toString();
+	}
+
+	private static void appendLatency(final StringBuilder sb, final String name, final LatencyHistogram histogram) {
+		sb.append(String.format("%s: p50=%.3f ms, p99=%.3f ms, p999=%.3f ms, max=%.3f ms, mean=%.3f ms%n", name,
+			toMillis(histogram.getPercentile(0.50)), toMillis(histogram.getPercentile(0.99)), toMillis(histogram.getPercentile(0.999)),
+			toMillis(histogram.getMax()), toMillis(histogram.getMean())));
+	}
+
+}
@@ -0,0 +1,222 @@
+package com.nurihome.app.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.nurihome.app.util.GsonUtils;
+
+/**
+ * <p>Load test of the application (gradlew loadTest).</p>
+ *
+ * <p>the application is started in a separate JVM on a random local port with the chosen profile (or the running server of "loadtest.url" is used),
+ * the ajax endpoint is driven by {@link LoadGenerator}, and the report is printed and written to "loadtest.report-dir" (JSON).
+ * the task fails if the p99 response time or the error rate exceeds the threshold.</p>
+ *
+ * <pre>
+ * loadtest.mode            : open | closed (default closed)
+ * loadtest.rate            : requests per second (open model: arrival rate, closed model: pacing of all workers, 0 = no pacing)
+ * loadtest.concurrency     : workers (closed model) or maximum requests in flight (open model)
+ * loadtest.duration        : measured seconds
+ * loadtest.warmup          : warmup seconds (not measured)
+ * loadtest.mix             : serviceId.commandId:weight, ...
+ * loadtest.payload         : payload bytes:weight, ...
+ * loadtest.timeout         : request timeout (milliseconds)
+ * loadtest.max-p99         : threshold of the p99 response time (milliseconds, 0 = no threshold)
+ * loadtest.max-error-rate  : threshold of the error rate (0.0 ~ 1.0, negative = no threshold)
+ * loadtest.url             : url of a running server (the application is not started)
+ * loadtest.server-jvm-args : jvm arguments of the application (space separated)
+ * </pre>
+ */
+public final class LoadTest {
+
+	private static final String ENDPOINT = "/app/1.0/service/ajax";
+
+	/**
+	 * time to wait for the application to start (milliseconds)
+	 */
+	private static final long STARTUP_TIMEOUT = 180000L;
+
+	private LoadTest() {
+	}
+
+	static String option(final String name, final String defaultValue) {
+		String value = System.getProperty("loadtest." + name);
+
+		return ((value == null) || value.isBlank()) ? defaultValue : value.trim();
+	}
+
+	public static void main(String[] args) throws Exception {
+		String mode = option("mode", "closed");
+		double rate = Double.parseDouble(option("rate", "open".equals(mode) ? "200" : "0"));
+		int concurrency = Integer.parseInt(option("concurrency", "open".equals(mode) ? "1024" : "16"));
+		long duration = Long.parseLong(option("duration", "30"));
+		long warmup = Long.parseLong(option("warmup", "10"));
+		String mix = option("mix", "common.test.retrieveTestInfo:1");
+		String payload = option("payload", "0:1");
+		long timeout = Long.parseLong(option("timeout", "10000"));
+		double maxP99 = Double.parseDouble(option("max-p99", "0"));
+		double maxErrorRate = Double.parseDouble(option("max-error-rate", "-1"));
+		String profile = option("profile", "local");
+		Path reportDir = Paths.get(option("report-dir", "build/reports/loadtest"));
+
+		if ((!"open".equals(mode)) && (!"closed".equals(mode))) {
+			throw new IllegalArgumentException("invalid loadtest.mode (open | closed): " + mode);
+		}
+
+		if ("open".equals(mode) && (rate <= 0.0)) {
+			throw new IllegalArgumentException("loadtest.rate is required for the open model");
+		}
+
+		Files.createDirectories(reportDir);
+
+		Map<String, Object> options = new LinkedHashMap<String, Object>();
+		options.put("mode", mode);
+		options.put("rate", rate);
+		options.put("concurrency", concurrency);
+		options.put("duration", duration);
+		options.put("warmup", warmup);
+		options.put("mix", mix);
+		options.put("payload", payload);
+		options.put("timeout", timeout);
+		options.put("profile", profile);
+
+		Process server = null;
+		String url = option("url", null);
+		int exitCode = 0;
+
+		try {
+			if (url == null) {
+				server = startServer(profile, reportDir);
+				url = "http://127.0.0.1:" + waitForPort(server, reportDir.resolve("server.port"));
+			}
+
+			System.out.println("[LoadTest] " + options + " -> " + url + ENDPOINT);
+
+			LoadGenerator generator = new LoadGenerator(URI.create(url + ENDPOINT), mix, payload, timeout);
+			double seconds;
+
+			if ("open".equals(mode)) {
+				seconds = generator.runOpen(rate, concurrency, TimeUnit.SECONDS.toNanos(warmup), TimeUnit.SECONDS.toNanos(duration));
+			}else
+			{
+				seconds = generator.runClosed(concurrency, rate, TimeUnit.SECONDS.toNanos(warmup), TimeUnit.SECONDS.toNanos(duration));
+			}
+
+			LoadReport report = generator.getReport();
+			Path reportFile = reportDir.resolve("loadtest-" + mode + "-" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()) + ".json");
+
+			Files.write(reportFile, GsonUtils.convertObject2JsonBytes(report.toMap(options, seconds)));
+
+			System.out.print(report.toText(seconds));
+			System.out.println("[LoadTest] report: " + reportFile.toAbsolutePath());
+
+			// ------------------------------------------------------------
+			// thresholds
+			// ------------------------------------------------------------
+			List<String> failures = new ArrayList<String>();
+
+			if ((maxP99 > 0.0) && (report.getP99Millis() > maxP99)) {
+				failures.add(String.format("p99 %.3f ms > %.3f ms", report.getP99Millis(), maxP99));
+			}
+
+			if ((maxErrorRate >= 0.0) && (report.getErrorRate() > maxErrorRate)) {
+				failures.add(String.format("error rate %.5f > %.5f", report.getErrorRate(), maxErrorRate));
+			}
+
+			if (!failures.isEmpty()) {
+				System.err.println("[LoadTest] threshold exceeded: " + failures);
+				exitCode = 1;
+			}
+		}finally
+		{
+			if (server != null) {
+				stopServer(server);
+			}
+		}
+
+		System.exit(exitCode);
+	}
+
+	/**
+	 * <p>start the application on a random port (the port is written to the port file by WebServerPortFileWriter)</p>
+	 */
+	static Process startServer(final String profile, final Path reportDir) throws IOException {
+		String classpath = option("server-classpath", null);
+
+		if (classpath == null) {
+			throw new IllegalArgumentException("loadtest.server-classpath is required to start the application (or set loadtest.url)");
+		}
+
+		Path portFile = reportDir.resolve("server.port");
+		Files.deleteIfExists(portFile);
+
+		List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+
+		for (String jvmArg : option("server-jvm-args", "").split("\\s+")) {
+			if (!jvmArg.isEmpty()) {
+				command.add(jvmArg);
+			}
+		}
+
+		command.add("-DPORTFILE=" + portFile.toAbsolutePath());
+		command.add("-cp");
+		command.add(classpath);
+		command.add("com.nurihome.app.Application");
+		command.add("--server.port=0");
+		command.add("--spring.profiles.active=" + profile);
+		command.add("--context.listener.classes=org.springframework.boot.web.context.WebServerPortFileWriter");
+
+		File log = reportDir.resolve("server.log").toFile();
+
+		System.out.println("[LoadTest] starting the application (profile=" + profile + ", log=" + log.getAbsolutePath() + ")");
+
+		return new ProcessBuilder(command)
+			.redirectErrorStream(true)
+			.redirectOutput(log)
+			.start();
+	}
+
+	static int waitForPort(final Process server, final Path portFile) throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+
+		while (System.currentTimeMillis() < deadline) {
+			if (!server.isAlive()) {
+				throw new IllegalStateException("the application has exited (exit code " + server.exitValue() + "), see server.log");
+			}
+
+			if (Files.exists(portFile)) {
+				String port = new String(Files.readAllBytes(portFile), StandardCharsets.UTF_8).trim();
+
+				if (port.matches("[0-9]+")) {
+					return Integer.parseInt(port);
+				}
+			}
+
+			Thread.sleep(200L);
+		}
+
+		throw new IllegalStateException("the application has not started in " + STARTUP_TIMEOUT + " ms, see server.log");
+	}
+
+	static void stopServer(final Process server) throws InterruptedException {
+		server.destroy();
+
+		if (!server.waitFor(30L, TimeUnit.SECONDS)) {
+			server.destroyForcibly();
+		}
+	}
+
+}
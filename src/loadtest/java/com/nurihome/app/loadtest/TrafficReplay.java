@@ -0,0 +1,366 @@
+package com.nurihome.app.loadtest;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.nurihome.app.util.GsonUtils;
+
+/**
+ * <p>Replays the traffic captured by TrafficCaptureFilter (gradlew replay).</p>
+ *
+ * <p>the captured requests are sent with the captured intervals (1x, or accelerated by "loadtest.replay.speed") to the application started
+ * on a random local port (or the running server of "loadtest.url"). the response time is measured from the scheduled time of each request,
+ * and the report (overall and per command) is compared with the report of a previous run ("loadtest.replay.baseline").</p>
+ *
+ * <pre>
+ * loadtest.replay.file           : capture file (NDJSON)
+ * loadtest.replay.speed          : replay speed (1 = captured speed, 2 = twice as fast, ...)
+ * loadtest.replay.max-in-flight  : maximum requests in flight
+ * loadtest.replay.max-file-bytes : maximum size of the files of the multipart requests (the contents are zero bytes)
+ * loadtest.replay.baseline       : report of a previous replay to compare with
+ * loadtest.replay.max-regression : threshold of the p99 response time increase from the baseline (percent, 0 = no threshold)
+ * loadtest.warmup                : the requests of the first seconds (capture time) are sent but not measured
+ * </pre>
+ */
+public final class TrafficReplay {
+
+	private static final String BOUNDARY = "gws-replay-boundary";
+
+	/**
+	 * captured request
+	 */
+	static final class Capture {
+
+		long offsetMillis;
+
+		String method;
+
+		String path;
+
+		String command;
+
+		Map<String, String> params = new LinkedHashMap<String, String>();
+
+		List<String> fileNames = new ArrayList<String>();
+
+		List<Long> fileSizes = new ArrayList<Long>();
+
+	}
+
+	private TrafficReplay() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		String captureFile = LoadTest.option("replay.file", null);
+		double speed = Double.parseDouble(LoadTest.option("replay.speed", "1"));
+		int maxInFlight = Integer.parseInt(LoadTest.option("replay.max-in-flight", "1024"));
+		long maxFileBytes = Long.parseLong(LoadTest.option("replay.max-file-bytes", "52428800"));
+		String baseline = LoadTest.option("replay.baseline", null);
+		double maxRegression = Double.parseDouble(LoadTest.option("replay.max-regression", "0"));
+		long warmup = Long.parseLong(LoadTest.option("warmup", "0"));
+		long timeout = Long.parseLong(LoadTest.option("timeout", "10000"));
+		String profile = LoadTest.option("profile", "local");
+		Path reportDir = Paths.get(LoadTest.option("report-dir", "build/reports/loadtest"));
+
+		if (captureFile == null) {
+			throw new IllegalArgumentException("loadtest.replay.file is required");
+		}
+
+		if (speed <= 0.0) {
+			throw new IllegalArgumentException("invalid loadtest.replay.speed: " + speed);
+		}
+
+		List<Capture> captures = readCaptures(Paths.get(captureFile));
+
+		if (captures.isEmpty()) {
+			throw new IllegalArgumentException("no captured request: " + captureFile);
+		}
+
+		Files.createDirectories(reportDir);
+
+		Map<String, Object> options = new LinkedHashMap<String, Object>();
+		options.put("mode", "replay");
+		options.put("file", captureFile);
+		options.put("requests", captures.size());
+		options.put("speed", speed);
+		options.put("warmup", warmup);
+		options.put("timeout", timeout);
+		options.put("profile", profile);
+
+		Process server = null;
+		String url = LoadTest.option("url", null);
+		int exitCode = 0;
+
+		try {
+			if (url == null) {
+				server = LoadTest.startServer(profile, reportDir);
+				url = "http://127.0.0.1:" + LoadTest.waitForPort(server, reportDir.resolve("server.port"));
+			}
+
+			System.out.println("[TrafficReplay] " + options + " -> " + url);
+
+			LoadReport report = new LoadReport();
+			double seconds = replay(captures, url, speed, maxInFlight, maxFileBytes, TimeUnit.SECONDS.toNanos(warmup), timeout, report);
+
+			Map<String, Object> current = report.toMap(options, seconds);
+			Path reportFile = reportDir.resolve("replay-" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()) + ".json");
+
+			Files.write(reportFile, GsonUtils.convertObject2JsonBytes(current));
+
+			System.out.print(report.toText(seconds));
+			System.out.println("[TrafficReplay] report: " + reportFile.toAbsolutePath());
+
+			// ------------------------------------------------------------
+			// compare with the baseline
+			// ------------------------------------------------------------
+			if (baseline != null) {
+				Map<String, Object> previous = GsonUtils.convertJson2Map(new String(Files.readAllBytes(Paths.get(baseline)), StandardCharsets.UTF_8));
+				double regression = compare(previous, current);
+
+				if ((maxRegression > 0.0) && (regression > maxRegression)) {
+					System.err.println(String.format("[TrafficReplay] p99 regression %.1f%% > %.1f%%", regression, maxRegression));
+					exitCode = 1;
+				}
+			}
+		}finally
+		{
+			if (server != null) {
+				LoadTest.stopServer(server);
+			}
+		}
+
+		System.exit(exitCode);
+	}
+
+	/**
+	 * <p>read the captured requests, ordered by the arrival time (the records are written when the requests are completed)</p>
+	 */
+	@SuppressWarnings("unchecked")
+	static List<Capture> readCaptures(final Path file) throws IOException {
+		List<Capture> captures = new ArrayList<Capture>();
+		long first = Long.MAX_VALUE;
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) {
+					continue;
+				}
+
+				Map<String, Object> record = GsonUtils.convertJson2Map(line);
+				Capture capture = new Capture();
+
+				capture.offsetMillis = ((Number) record.get("ts")).longValue();
+				capture.method = String.valueOf(record.getOrDefault("method", "POST"));
+				capture.path = String.valueOf(record.get("path"));
+
+				Object params = record.get("params");
+
+				if (params instanceof Map) {
+					for (Map.Entry<String, Object> param : ((Map<String, Object>) params).entrySet()) {
+						capture.params.put(param.getKey(), String.valueOf(param.getValue()));
+					}
+				}
+
+				Object files = record.get("files");
+
+				if (files instanceof List) {
+					for (Map<String, Object> fileRecord : (List<Map<String, Object>>) files) {
+						capture.fileNames.add(String.valueOf(fileRecord.get("name")));
+						capture.fileSizes.add(((Number) fileRecord.get("size")).longValue());
+					}
+				}
+
+				capture.command = capture.params.get("serviceId") + "." + capture.params.get("commandId");
+
+				captures.add(capture);
+				first = Math.min(first, capture.offsetMillis);
+			}
+		}
+
+		for (Capture capture : captures) {
+			capture.offsetMillis -= first;
+		}
+
+		captures.sort((a, b) -> Long.compare(a.offsetMillis, b.offsetMillis));
+
+		return captures;
+	}
+
+	private static String encode(final Map<String, String> params) {
+		StringBuilder sb = new StringBuilder();
+
+		for (Map.Entry<String, String> param : params.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append('&');
+			}
+
+			sb.append(URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8)).append('=').append(URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8));
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * <p>multipart body of the captured request (the parameters, and the files of the captured sizes filled with zero bytes)</p>
+	 */
+	private static byte[] createMultipart(final Capture capture, final long maxFileBytes) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		for (Map.Entry<String, String> param : capture.params.entrySet()) {
+			out.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + param.getKey() + "\"\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+			out.write(param.getValue().getBytes(StandardCharsets.UTF_8));
+			out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+		}
+
+		for (int i = 0; i < capture.fileNames.size(); i++) {
+			out.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + capture.fileNames.get(i) + "\"; filename=\"replay-" + i + ".bin\"\r\n"
+				+ "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+			out.write(new byte[(int) Math.min(capture.fileSizes.get(i), maxFileBytes)]);
+			out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+		}
+
+		out.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+		return out.toByteArray();
+	}
+
+	private static HttpRequest createRequest(final Capture capture, final String url, final long maxFileBytes, final Duration timeout) throws IOException {
+		if (!capture.fileNames.isEmpty()) {
+			return HttpRequest.newBuilder(URI.create(url + capture.path))
+				.timeout(timeout)
+				.header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(createMultipart(capture, maxFileBytes)))
+				.build();
+		}
+
+		if ("GET".equalsIgnoreCase(capture.method)) {
+			return HttpRequest.newBuilder(URI.create(url + capture.path + "?" + encode(capture.params)))
+				.timeout(timeout)
+				.GET()
+				.build();
+		}
+
+		return HttpRequest.newBuilder(URI.create(url + capture.path))
+			.timeout(timeout)
+			.header("Content-Type", "application/x-www-form-urlencoded")
+			.POST(HttpRequest.BodyPublishers.ofString(encode(capture.params), StandardCharsets.UTF_8))
+			.build();
+	}
+
+	/**
+	 * <p>send the captured requests on the schedule of the capture (divided by the speed), and wait for the requests in flight.
+	 * returns the measured seconds.</p>
+	 */
+	static double replay(final List<Capture> captures, final String url, final double speed, final int maxInFlight, final long maxFileBytes,
+			final long warmupNanos, final long timeoutMillis, final LoadReport report) throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofMillis(timeoutMillis))
+			.build();
+		Duration timeout = Duration.ofMillis(timeoutMillis);
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		long start = System.nanoTime();
+		long measureStart = start + (long) (warmupNanos / speed);
+
+		for (Capture capture : captures) {
+			long intended = start + (long) (TimeUnit.MILLISECONDS.toNanos(capture.offsetMillis) / speed);
+			HttpRequest request = createRequest(capture, url, maxFileBytes, timeout);
+
+			LoadGenerator.waitUntil(intended);
+
+			inFlight.acquire();
+
+			boolean measured = (intended - measureStart >= 0L);
+			long sent = System.nanoTime();
+
+			client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, e) -> {
+				try {
+					if (measured) {
+						report.record(capture.command, intended, sent, System.nanoTime(), LoadGenerator.errorOf(response, e));
+					}
+				}finally
+				{
+					inFlight.release();
+				}
+			});
+		}
+
+		inFlight.acquire(maxInFlight);
+
+		return (System.nanoTime() - measureStart) / 1000000000.0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static double valueOf(final Map<String, Object> report, final String... keys) {
+		Object value = report;
+
+		for (String key : keys) {
+			if (!(value instanceof Map)) {
+				return Double.NaN;
+			}
+
+			value = ((Map<String, Object>) value).get(key);
+		}
+
+		return (value instanceof Number) ? ((Number) value).doubleValue() : Double.NaN;
+	}
+
+	private static double change(final double previous, final double current) {
+		return (previous > 0.0) ? ((current - previous) * 100.0 / previous) : Double.NaN;
+	}
+
+	private static void appendComparison(final StringBuilder sb, final String name, final double previous, final double current) {
+		sb.append(String.format("%-48s %12.3f %12.3f %+9.1f%%%n", name, previous, current, change(previous, current)));
+	}
+
+	/**
+	 * <p>print the comparison with the baseline report, and returns the change of the p99 response time (percent)</p>
+	 */
+	@SuppressWarnings("unchecked")
+	static double compare(final Map<String, Object> previous, final Map<String, Object> current) {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append(String.format("%-48s %12s %12s %10s%n", "[TrafficReplay] compared with the baseline", "baseline", "current", "change"));
+
+		appendComparison(sb, "throughput (req/s)", valueOf(previous, "throughput"), valueOf(current, "throughput"));
+		appendComparison(sb, "error rate", valueOf(previous, "errorRate"), valueOf(current, "errorRate"));
+
+		for (String percentile : new String[] {"p50", "p90", "p99", "p999", "max"}) {
+			appendComparison(sb, "response time " + percentile + " (ms)", valueOf(previous, "responseTime", percentile), valueOf(current, "responseTime", percentile));
+		}
+
+		Object commands = current.get("commands");
+
+		if (commands instanceof Map) {
+			for (String command : ((Map<String, Object>) commands).keySet()) {
+				appendComparison(sb, command + " p99 (ms)", valueOf(previous, "commands", command, "p99"), valueOf(current, "commands", command, "p99"));
+			}
+		}
+
+		System.out.print(sb);
+
+		return change(valueOf(previous, "responseTime", "p99"), valueOf(current, "responseTime", "p99"));
+	}
+
+}
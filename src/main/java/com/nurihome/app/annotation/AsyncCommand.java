@@ -0,0 +1,24 @@
+package com.nurihome.app.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Marks a service command to run on the dedicated command thread pool when it is requested through the async endpoint (/app/1.0/service/async).</p>
+ * 
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     @AsyncCommand
+ *     public List<Map<String, Object>> retrieveReport(ParamEntity paramEntity) { ... }
+ * }</pre>
+ * </blockquote>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AsyncCommand {
+}
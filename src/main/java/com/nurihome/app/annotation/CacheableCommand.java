@@ -0,0 +1,44 @@
+package com.nurihome.app.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Marks a read-only service command whose JSON response can be cached.</p>
+ * 
+ * <p>the cache key is "serviceId + commandId + request parameters (sorted by name)", and only the successful responses are cached.
+ * multipart requests are never cached.</p>
+ * 
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     @CacheableCommand(ttl = 5, unit = TimeUnit.MINUTES)
+ *     public List<Map<String, Object>> retrieveCodeList(ParamEntity paramEntity) { ... }
+ * }</pre>
+ * </blockquote>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheableCommand {
+
+	/**
+	 * time to live of the cached response
+	 */
+	long ttl() default 60L;
+
+	/**
+	 * time unit of the ttl
+	 */
+	TimeUnit unit() default TimeUnit.SECONDS;
+
+	/**
+	 * request parameters excluded from the cache key (e.g. "_" of the jQuery cache buster)
+	 */
+	String[] ignoreParameters() default {"_"};
+
+}
@@ -0,0 +1,34 @@
+package com.nurihome.app.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Marks a read-only service command whose identical concurrent requests are coalesced.</p>
+ * 
+ * <p>while the command is running for "serviceId + commandId + request parameters (sorted by name)", the identical requests wait for that result
+ * instead of running the command again. each request still gets its own response, and the exception is propagated to every waiting request.
+ * only the running request takes the permits of the bulkheads, the waiting requests are not rejected by the concurrency limit.</p>
+ * 
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     @CoalescedCommand
+ *     public List<Map<String, Object>> retrieveNoticeList(ParamEntity paramEntity) { ... }
+ * }</pre>
+ * </blockquote>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CoalescedCommand {
+
+	/**
+	 * request parameters excluded from the key (e.g. "_" of the jQuery cache buster)
+	 */
+	String[] ignoreParameters() default {"_"};
+
+}
@@ -0,0 +1,43 @@
+package com.nurihome.app.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Sets the timeout of a service command (overrides "gws.command.default-timeout").</p>
+ * 
+ * <p>the client can tighten the limit with "X-Request-Timeout" header (milliseconds). when the deadline passes, the thread running the command is interrupted
+ * and the request returns a timeout error. a command blocked in a call which ignores the interrupt (e.g. the socket of the JDBC driver) should use
+ * {@code ParamEntity.getRemainingMillis()} (e.g. for the query timeout), and its result returned after the deadline is discarded with a timeout error.</p>
+ * 
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     @CommandTimeout(value = 10, unit = TimeUnit.SECONDS)
+ *     public List<Map<String, Object>> retrieveReport(ParamEntity paramEntity) { ... }
+ * 
+ *     @CommandTimeout(0)  // no timeout
+ *     public Map<String, Object> createReport(ParamEntity paramEntity) { ... }
+ * }</pre>
+ * </blockquote>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CommandTimeout {
+
+	/**
+	 * timeout of the command (0 = no timeout)
+	 */
+	long value();
+
+	/**
+	 * time unit of the timeout
+	 */
+	TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+}
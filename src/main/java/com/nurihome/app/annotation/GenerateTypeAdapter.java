@@ -0,0 +1,37 @@
+package com.nurihome.app.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Generates a Gson type adapter of the class at compile time (gws-processor).</p>
+ *
+ * <p>the generated adapter reads and writes the fields without the reflective adapter of Gson (the same field names, order and
+ * null handling as the reflective adapter, the value of a non-final field type is written with the adapter of its runtime class,
+ * the transient and static fields are excluded, {@code @SerializedName} is supported),
+ * and is registered on the Gson instance of {@code GsonUtils} automatically. the classes without this annotation use the reflective adapter.</p>
+ *
+ * <p>the class must have a no-argument constructor, and must not be generic or extend a class other than Object
+ * (otherwise the adapter is not generated and a warning is reported).</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     @GenerateTypeAdapter
+ *     public class OrderEntity {
+ *         private String orderId;
+ *         private List<Map<String, Object>> items;
+ *         ...
+ *     }
+ * }</pre>
+ * </blockquote>
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface GenerateTypeAdapter {
+
+}
@@ -0,0 +1,67 @@
+package com.nurihome.app.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * <p>Thread pools used by the service dispatcher.</p>
+ */
+@Configuration
+public class ExecutorConfig {
+
+	/**
+	 * <p>bounded pool running the entries of a parallel batch request.</p>
+	 * 
+	 * <p>when the pool and the queue are full, the entry is run by the request thread itself (CallerRunsPolicy), so a batch never fails because of the pool.</p>
+	 */
+	@Bean(name = "batchExecutor")
+	public ThreadPoolTaskExecutor batchExecutor(
+			@Value("${gws.batch.pool-size:16}") int poolSize,
+			@Value("${gws.batch.queue-capacity:256}") int queueCapacity) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("gws-batch-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+
+		return executor;
+	}
+
+	/**
+	 * <p>bounded pool running the commands annotated with {@code @AsyncCommand} (async endpoint).</p>
+	 * 
+	 * <p>rejection policy when the pool and the queue are full</p>
+	 * <ul>
+	 * <li>abort - the request fails immediately with "server is busy" error</li>
+	 * <li>caller-runs - the command runs on the request thread</li>
+	 * </ul>
+	 */
+	@Bean(name = "commandExecutor")
+	public ThreadPoolTaskExecutor commandExecutor(
+			@Value("${gws.async.pool-size:32}") int poolSize,
+			@Value("${gws.async.queue-capacity:100}") int queueCapacity,
+			@Value("${gws.async.rejection-policy:abort}") String rejectionPolicy) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("gws-command-");
+
+		if ("caller-runs".equalsIgnoreCase(rejectionPolicy)) {
+			executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		}else
+		{
+			executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		}
+
+		return executor;
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.nurihome.app.config;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import com.nurihome.app.util.UniqueIdGenerator;
+import com.nurihome.app.util.Utils;
+
+/**
+ * <p>Node id and state file of {@link UniqueIdGenerator} (Utils.createUniqueIdByTimestamp).</p>
+ *
+ * <pre>
+ * gws.id.node-id=-1        (0 ~ 1023, unique in the cluster. -1 = the node id kept in the state file, or derived once from the host name and the process id)
+ * gws.id.state-file=       (time reserved by the generator and the node id. default : java.io.tmpdir/gws-id.state)
+ * </pre>
+ *
+ * <p>the derived node id may collide in a cluster, so the prod profile requires the node id (GWS_NODE_ID).</p>
+ */
+@Configuration
+public class IdGeneratorConfig implements InitializingBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(IdGeneratorConfig.class);
+
+	private final int nodeId;
+
+	private final String stateFile;
+
+	public IdGeneratorConfig(@Value("${gws.id.node-id:-1}") int nodeId, @Value("${gws.id.state-file:}") String stateFile) {
+		this.nodeId = nodeId;
+		this.stateFile = stateFile;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		Path file = Utils.isEmpty(stateFile) ? Paths.get(System.getProperty("java.io.tmpdir"), "gws-id.state") : Paths.get(stateFile);
+
+		UniqueIdGenerator.configure(nodeId, file);
+
+		int node = UniqueIdGenerator.getNodeId();
+
+		if (nodeId < 0) {
+			LOG.warn("[IdGeneratorConfig] gws.id.node-id is not set, the node id of the state file (or derived from the host name) is used. nodeId={}, stateFile={}", node, file);
+		}else
+		{
+			LOG.info("[IdGeneratorConfig] nodeId={}, stateFile={}", node, file);
+		}
+	}
+
+}
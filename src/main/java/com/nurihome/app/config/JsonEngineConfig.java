@@ -0,0 +1,47 @@
+package com.nurihome.app.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.nurihome.app.util.GsonUtils;
+import com.nurihome.app.util.JacksonJsonEngine;
+import com.nurihome.app.util.JsonEngine;
+
+/**
+ * <p>JSON engine of {@link GsonUtils} (request and response JSON).</p>
+ *
+ * <pre>
+ * gws.json.engine=gson     (default)
+ * gws.json.engine=jackson
+ * </pre>
+ */
+@Configuration
+public class JsonEngineConfig {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JsonEngineConfig.class);
+
+	@Bean(name = "jsonEngine")
+	public JsonEngine jsonEngine(@Value("${gws.json.engine:gson}") String name) {
+		JsonEngine engine;
+
+		if ("jackson".equalsIgnoreCase(name)) {
+			engine = new JacksonJsonEngine();
+		}else if ("gson".equalsIgnoreCase(name))
+		{
+			engine = GsonUtils.createGsonEngine();
+		}else
+		{
+			throw new IllegalArgumentException("unknown json engine. gws.json.engine=" + name);
+		}
+
+		GsonUtils.setEngine(engine);
+
+		LOG.info("[JsonEngineConfig] json engine={}", engine.getName());
+
+		return engine;
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.nurihome.app.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Concurrency limit of a service or a command.</p>
+ * 
+ * <p>permits are taken with a CAS loop (no lock, no queue), so the excess calls are rejected immediately.</p>
+ * 
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     if (bulkhead.tryAcquire()) {
+ *         try {
+ *             ...
+ *         }finally
+ *         {
+ *             bulkhead.release();
+ *         }
+ *     }
+ * }</pre>
+ * </blockquote>
+ */
+public final class Bulkhead {
+
+	/**
+	 * "serviceId" or "serviceId.commandId"
+	 */
+	private final String name;
+
+	/**
+	 * maximum number of concurrent calls
+	 */
+	private final int limit;
+
+	/**
+	 * current number of concurrent calls
+	 */
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * number of rejected calls
+	 */
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * <p>parameterized constructor with arguments</p>
+	 */
+	public Bulkhead(String name, int limit) {
+		this.name = name;
+		this.limit = limit;
+	}
+
+	/**
+	 * <p>take a permit, or returns false if the limit has been reached</p>
+	 */
+	public boolean tryAcquire() {
+		for (;;) {
+			int current = inFlight.get();
+			
+			if (current >= limit) {
+				rejected.increment();
+				
+				return false;
+			}
+			
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * <p>return the permit taken by {@link #tryAcquire()}</p>
+	 */
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("name=");
+		sb.append(this.name);
+		sb.append(", limit=");
+		sb.append(this.limit);
+		sb.append(", inFlight=");
+		sb.append(this.inFlight.get());
+
+		return sb.toString();
+	}
+
+}
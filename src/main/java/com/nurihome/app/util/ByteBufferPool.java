@@ -0,0 +1,157 @@
+package com.nurihome.app.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>Pool of the size-classed byte buffers (1KB, 4KB, 16KB, 64KB, 256KB, 1MB).</p>
+ *
+ * <p>the small classes (up to 64KB) are kept per thread (one buffer of each class), the large classes (256KB, 1MB) are kept in
+ * a shared striped pool with a fixed number of slots, so the pool holds at most 85KB per thread and 10MB in total.
+ * the buffers larger than the largest class are allocated with the requested size and never pooled
+ * (they are dropped when released, so a single huge response does not stay in the memory).</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     byte[] buffer = ByteBufferPool.acquire(8192);
+ *
+ *     try {
+ *         ...
+ *     }finally
+ *     {
+ *         ByteBufferPool.release(buffer);
+ *     }
+ * }</pre>
+ * </blockquote>
+ */
+public final class ByteBufferPool {
+
+	private static final int[] SIZE_CLASSES = {1 << 10, 1 << 12, 1 << 14, 1 << 16, 1 << 18, 1 << 20};
+
+	/**
+	 * the classes below this index are kept per thread, the others in the shared pool
+	 */
+	private static final int SHARED_CLASS = 4;
+
+	/**
+	 * slots of each shared class
+	 */
+	private static final int SHARED_SLOTS = 8;
+
+	/**
+	 * largest pooled buffer
+	 */
+	public static final int MAX_POOLED_SIZE = SIZE_CLASSES[SIZE_CLASSES.length - 1];
+
+	private static final ThreadLocal<byte[][]> LOCAL = ThreadLocal.withInitial(() -> new byte[SHARED_CLASS][]);
+
+	private static final AtomicReferenceArray<byte[]> SHARED = new AtomicReferenceArray<byte[]>((SIZE_CLASSES.length - SHARED_CLASS) * SHARED_SLOTS);
+
+	private ByteBufferPool() {
+	}
+
+	/**
+	 * <p>index of the smallest size class which can hold the size (-1 if the size is larger than the largest class)</p>
+	 */
+	private static int sizeClass(final int size) {
+		for (int i = 0; i < SIZE_CLASSES.length; i++) {
+			if (size <= SIZE_CLASSES[i]) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * <p>first slot of the shared class</p>
+	 */
+	private static int firstSlot(final int sizeClass) {
+		return ((sizeClass - SHARED_CLASS) * SHARED_SLOTS);
+	}
+
+	/**
+	 * <p>slot where the current thread starts probing (the threads do not contend on the same slot)</p>
+	 */
+	private static int stripe() {
+		return (int) (Thread.currentThread().getId() % SHARED_SLOTS);
+	}
+
+	/**
+	 * <p>acquire a buffer of at least the given size (the length of the buffer is the size class, or the size itself if it is larger than {@link #MAX_POOLED_SIZE})</p>
+	 */
+	public static byte[] acquire(final int size) {
+		int sizeClass = sizeClass(size);
+
+		if (sizeClass < 0) {
+			return new byte[size];
+		}
+
+		byte[] buffer = null;
+
+		if (sizeClass < SHARED_CLASS) {
+			byte[][] local = LOCAL.get();
+
+			buffer = local[sizeClass];
+			local[sizeClass] = null;
+		}else
+		{
+			int first = firstSlot(sizeClass);
+			int stripe = stripe();
+
+			for (int i = 0; (i < SHARED_SLOTS) && (buffer == null); i++) {
+				buffer = SHARED.getAndSet(first + ((stripe + i) % SHARED_SLOTS), null);
+			}
+		}
+
+		return (buffer != null) ? buffer : new byte[SIZE_CLASSES[sizeClass]];
+	}
+
+	/**
+	 * <p>return a buffer to the pool (the buffers which are not of a size class, or the pool of the class is full, are dropped)</p>
+	 */
+	public static void release(final byte[] buffer) {
+		if (buffer == null) {
+			return;
+		}
+
+		int sizeClass = sizeClass(buffer.length);
+
+		if ((sizeClass < 0) || (SIZE_CLASSES[sizeClass] != buffer.length)) {
+			return;
+		}
+
+		if (sizeClass < SHARED_CLASS) {
+			LOCAL.get()[sizeClass] = buffer;
+		}else
+		{
+			int first = firstSlot(sizeClass);
+			int stripe = stripe();
+
+			for (int i = 0; i < SHARED_SLOTS; i++) {
+				if (SHARED.compareAndSet(first + ((stripe + i) % SHARED_SLOTS), null, buffer)) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>the next size of a growing buffer (the smallest size class which can hold the required size, or 1.5 times the length over the largest class)</p>
+	 */
+	public static int grow(final int length, final int required) {
+		int sizeClass = sizeClass(required);
+
+		if (sizeClass >= 0) {
+			return SIZE_CLASSES[sizeClass];
+		}
+
+		// ------------------------------------------------------------
+		// not pooled: grow by the half of the length to limit the copies
+		// ------------------------------------------------------------
+		long size = Math.max((long) required, (long) length + (length >> 1));
+
+		return (int) Math.min(size, Integer.MAX_VALUE - 8);
+	}
+
+}
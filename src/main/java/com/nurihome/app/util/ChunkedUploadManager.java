@@ -0,0 +1,475 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.nurihome.app.exception.ServiceException;
+
+/**
+ * <p>Upload sessions of the resumable chunked uploads.</p>
+ *
+ * <p>the target file is preallocated when the session is created, and each chunk is written at its own position with the positional
+ * {@link FileChannel} write, so the chunks can be uploaded in any order and in parallel. a chunk can be uploaded again (e.g. after a network error),
+ * and the received chunks are reported to the client to resume the upload.</p>
+ *
+ * <p>the idle sessions are expired by a background thread, and the number of the sessions in progress and the total size of their files are limited
+ * (a new session is rejected with {@link CapacityExceededException}).</p>
+ *
+ * <pre>
+ * gws.upload.chunk-dir=/data/gws/upload
+ * gws.upload.max-chunked-file-size=10737418240
+ * gws.upload.session-timeout=3600000
+ * gws.upload.max-sessions=100
+ * gws.upload.max-total-size=107374182400
+ * </pre>
+ */
+@Component
+public class ChunkedUploadManager implements InitializingBean, DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ChunkedUploadManager.class);
+
+	/**
+	 * minimum chunk size (except the last chunk)
+	 */
+	public static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * maximum chunk size
+	 */
+	public static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * directory of the files in progress
+	 */
+	private final Path directory;
+
+	/**
+	 * maximum size of the uploaded file (bytes)
+	 */
+	private final long maxFileSize;
+
+	/**
+	 * idle timeout of the upload session (milliseconds)
+	 */
+	private final long sessionTimeout;
+
+	/**
+	 * maximum number of the sessions in progress
+	 */
+	private final int maxSessions;
+
+	/**
+	 * maximum total size of the files in progress (bytes)
+	 */
+	private final long maxTotalSize;
+
+	/**
+	 * upload id -> session
+	 */
+	private final ConcurrentMap<String, UploadSession> sessions = new ConcurrentHashMap<String, UploadSession>();
+
+	/**
+	 * number of the sessions in progress and the total size of their files (guarded by this)
+	 */
+	private int openSessions;
+
+	private long openBytes;
+
+	private ScheduledExecutorService scheduler;
+
+	public ChunkedUploadManager(@Value("${gws.upload.chunk-dir:}") String directory, @Value("${gws.upload.max-chunked-file-size:10737418240}") long maxFileSize,
+			@Value("${gws.upload.session-timeout:3600000}") long sessionTimeout, @Value("${gws.upload.max-sessions:100}") int maxSessions,
+			@Value("${gws.upload.max-total-size:107374182400}") long maxTotalSize) {
+		this.directory = Utils.isEmpty(directory) ? Paths.get(System.getProperty("java.io.tmpdir"), "gws-upload") : Paths.get(directory);
+		this.maxFileSize = maxFileSize;
+		this.sessionTimeout = sessionTimeout;
+		this.maxSessions = maxSessions;
+		this.maxTotalSize = maxTotalSize;
+	}
+
+	/**
+	 * <p>start the background expiry of the idle sessions (checked 4 times in the session timeout, at most every minute)</p>
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		long interval = Math.max(1000L, Math.min(60000L, sessionTimeout / 4L));
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "gws-upload-expiry");
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		scheduler.scheduleWithFixedDelay(this::expire, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * <p>create an upload session and preallocate the target file</p>
+	 */
+	public UploadSession create(final String fileName, final long fileSize, final int chunkSize, final Map<String, String> params) {
+		if ((Utils.isEmpty(fileName)) || (fileSize <= 0L)) {
+			throw new ServiceException("missing required parameters in the HTTP request");
+		}
+
+		if (fileSize > maxFileSize) {
+			throw new ServiceException("the attachment file is too large. max=" + maxFileSize);
+		}
+
+		if ((chunkSize < MIN_CHUNK_SIZE) || (chunkSize > MAX_CHUNK_SIZE)) {
+			throw new ServiceException("invalid chunk size. min=" + MIN_CHUNK_SIZE + ", max=" + MAX_CHUNK_SIZE);
+		}
+
+		// ------------------------------------------------------------
+		// the idle sessions are expired first, not to be counted in the limits
+		// ------------------------------------------------------------
+		expire();
+		reserve(fileSize);
+
+		try {
+			Files.createDirectories(directory);
+
+			String uploadId = UUID.randomUUID().toString().replace("-", "");
+			Path path = directory.resolve(uploadId + ".part");
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+			// ------------------------------------------------------------
+			// preallocate the file (the size of the file is fixed)
+			// ------------------------------------------------------------
+			channel.write(ByteBuffer.wrap(new byte[1]), fileSize - 1L);
+
+			UploadSession session = new UploadSession(uploadId, fileName, fileSize, chunkSize, new HashMap<String, String>(params), path, channel);
+			sessions.put(uploadId, session);
+
+			LOG.info("[ChunkedUploadManager] session created. uploadId={}, fileName={}, fileSize={}, chunks={}", uploadId, fileName, fileSize, session.getChunkCount());
+
+			return session;
+		}catch (IOException e)
+		{
+			unreserve(fileSize);
+
+			throw new ServiceException("failed to create the upload session", e);
+		}
+	}
+
+	/**
+	 * <p>count the new session in the limits</p>
+	 */
+	private synchronized void reserve(final long fileSize) {
+		if (openSessions >= maxSessions) {
+			throw new CapacityExceededException("too many upload sessions in progress. max=" + maxSessions);
+		}
+
+		if (openBytes + fileSize > maxTotalSize) {
+			throw new CapacityExceededException("not enough space for the upload in progress. max=" + maxTotalSize);
+		}
+
+		openSessions++;
+		openBytes += fileSize;
+	}
+
+	/**
+	 * <p>remove the closed session from the limits</p>
+	 */
+	private synchronized void unreserve(final long fileSize) {
+		openSessions--;
+		openBytes -= fileSize;
+	}
+
+	/**
+	 * <p>returns the upload session, or null if there is no such session (expired, completed or aborted)</p>
+	 */
+	public UploadSession get(final String uploadId) {
+		UploadSession session = sessions.get(uploadId);
+
+		if (session != null) {
+			session.touch();
+		}
+
+		return session;
+	}
+
+	/**
+	 * <p>write a chunk of the request body at the position of the chunk. the chunk can be written concurrently with the other chunks.</p>
+	 */
+	public void writeChunk(final UploadSession session, final int index, final InputStream in) {
+		if ((index < 0) || (index >= session.getChunkCount())) {
+			throw new ServiceException("invalid chunk index. chunks=" + session.getChunkCount());
+		}
+
+		long position = (long) index * session.getChunkSize();
+		long length = Math.min(session.getChunkSize(), session.getFileSize() - position);
+		long written = 0L;
+
+		// ------------------------------------------------------------
+		// the chunk is not received until it has been written completely (the chunk can be uploaded again)
+		// ------------------------------------------------------------
+		session.missing(index);
+
+		try {
+			ReadableByteChannel source = Channels.newChannel(in);
+
+			while (written < length) {
+				long count = session.channel.transferFrom(source, position + written, length - written);
+
+				if (count <= 0L) {
+					break;
+				}
+
+				written += count;
+			}
+
+			if ((written != length) || (in.read() != -1)) {
+				throw new ServiceException("invalid chunk length. expected=" + length);
+			}
+		}catch (IOException e)
+		{
+			throw new ServiceException("failed to write the chunk", e);
+		}
+
+		session.received(index);
+	}
+
+	/**
+	 * <p>complete the upload (all chunks must be received), and returns the file. the session is removed, and the caller owns the file.</p>
+	 */
+	public Path complete(final UploadSession session) {
+		if (!session.isCompleted()) {
+			throw new ServiceException("the upload is not completed. missing chunks=" + session.getMissingChunks().size());
+		}
+
+		if (!sessions.remove(session.getUploadId(), session)) {
+			throw new ServiceException("the upload session has already been closed");
+		}
+
+		unreserve(session.getFileSize());
+
+		try {
+			session.channel.force(false);
+		}catch (IOException e)
+		{
+			delete(session);
+
+			throw new ServiceException("failed to complete the upload", e);
+		}finally
+		{
+			close(session);
+		}
+
+		LOG.info("[ChunkedUploadManager] session completed. uploadId={}, fileName={}, fileSize={}", session.getUploadId(), session.getFileName(), session.getFileSize());
+
+		return session.getPath();
+	}
+
+	/**
+	 * <p>abort the upload, and delete the file in progress</p>
+	 */
+	public void abort(final UploadSession session) {
+		if (sessions.remove(session.getUploadId(), session)) {
+			unreserve(session.getFileSize());
+			close(session);
+			delete(session);
+
+			LOG.info("[ChunkedUploadManager] session aborted. uploadId={}", session.getUploadId());
+		}
+	}
+
+	/**
+	 * <p>abort the sessions which have not been used for the session timeout</p>
+	 */
+	private void expire() {
+		long now = System.currentTimeMillis();
+
+		for (UploadSession session : sessions.values()) {
+			if (now - session.lastAccessedAt > sessionTimeout) {
+				LOG.info("[ChunkedUploadManager] session expired. uploadId={}", session.getUploadId());
+
+				abort(session);
+			}
+		}
+	}
+
+	private static void close(final UploadSession session) {
+		try {
+			session.channel.close();
+		}catch (IOException e)
+		{
+			LOG.warn("[ChunkedUploadManager] failed to close the file. uploadId={}, msg={}", session.getUploadId(), e.getMessage());
+		}
+	}
+
+	private static void delete(final UploadSession session) {
+		try {
+			Files.deleteIfExists(session.getPath());
+		}catch (IOException e)
+		{
+			LOG.warn("[ChunkedUploadManager] failed to delete the file. path={}, msg={}", session.getPath(), e.getMessage());
+		}
+	}
+
+	/**
+	 * <p>abort all sessions in progress when the application is stopped</p>
+	 */
+	@Override
+	public void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+
+		for (UploadSession session : sessions.values()) {
+			abort(session);
+		}
+	}
+
+	/**
+	 * <p>the new session exceeds the number of the sessions in progress or the total size of their files (the client can retry later).</p>
+	 */
+	@SuppressWarnings("serial")
+	public static final class CapacityExceededException extends ServiceException {
+
+		public CapacityExceededException(String errorMessage) {
+			super(errorMessage);
+		}
+
+	}
+
+	/**
+	 * <p>Upload session (file in progress and the received chunks).</p>
+	 */
+	public static final class UploadSession {
+
+		private final String uploadId;
+
+		private final String fileName;
+
+		private final long fileSize;
+
+		private final int chunkSize;
+
+		private final int chunkCount;
+
+		/**
+		 * request parameters of the target command
+		 */
+		private final Map<String, String> params;
+
+		private final Path path;
+
+		private final FileChannel channel;
+
+		/**
+		 * received chunks (guarded by this)
+		 */
+		private final BitSet chunks;
+
+		private volatile long lastAccessedAt = System.currentTimeMillis();
+
+		UploadSession(String uploadId, String fileName, long fileSize, int chunkSize, Map<String, String> params, Path path, FileChannel channel) {
+			this.uploadId = uploadId;
+			this.fileName = fileName;
+			this.fileSize = fileSize;
+			this.chunkSize = chunkSize;
+			this.chunkCount = (int) ((fileSize + chunkSize - 1L) / chunkSize);
+			this.params = params;
+			this.path = path;
+			this.channel = channel;
+			this.chunks = new BitSet(chunkCount);
+		}
+
+		void touch() {
+			lastAccessedAt = System.currentTimeMillis();
+		}
+
+		synchronized void received(final int index) {
+			chunks.set(index);
+			touch();
+		}
+
+		synchronized void missing(final int index) {
+			chunks.clear(index);
+		}
+
+		/**
+		 * <p>check if all chunks have been received</p>
+		 */
+		public synchronized boolean isCompleted() {
+			return chunks.cardinality() == chunkCount;
+		}
+
+		/**
+		 * <p>returns the number of the received chunks</p>
+		 */
+		public synchronized int getReceivedCount() {
+			return chunks.cardinality();
+		}
+
+		/**
+		 * <p>returns the indexes of the chunks which have not been received</p>
+		 */
+		public synchronized List<Integer> getMissingChunks() {
+			List<Integer> missing = new ArrayList<Integer>();
+
+			for (int i = chunks.nextClearBit(0); i < chunkCount; i = chunks.nextClearBit(i + 1)) {
+				missing.add(i);
+			}
+
+			return missing;
+		}
+
+		public String getUploadId() {
+			return uploadId;
+		}
+
+		public String getFileName() {
+			return fileName;
+		}
+
+		public long getFileSize() {
+			return fileSize;
+		}
+
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		public int getChunkCount() {
+			return chunkCount;
+		}
+
+		public Map<String, String> getParams() {
+			return params;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.nurihome.app.util;
+
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>Invoker bound to a single service bean method which takes a {@link ParamEntity}.</p>
+ *
+ * <p>Instances are generated once at startup by {@link ServiceCommandRegistry}, so the exceptions thrown by the command are propagated as is (not wrapped).</p>
+ */
+@FunctionalInterface
+public interface CommandInvoker {
+
+	/**
+	 * <p>invoke the command with the given request parameters</p>
+	 */
+	Object invoke(ParamEntity paramEntity) throws Throwable;
+
+}
@@ -0,0 +1,129 @@
+package com.nurihome.app.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.nurihome.app.exception.APIMessageException;
+import com.nurihome.app.exception.ServiceException;
+
+/**
+ * <p>Call counts, error counts and latency histograms of a service command.</p>
+ *
+ * <p>counters are striped ({@link LongAdder}), so recording does not contend between the request threads.</p>
+ */
+public final class CommandMetrics {
+
+	/**
+	 * latency of the command lookup (dispatch table)
+	 */
+	private final LatencyHistogram lookup = new LatencyHistogram();
+
+	/**
+	 * latency of the command invocation
+	 */
+	private final LatencyHistogram invoke = new LatencyHistogram();
+
+	/**
+	 * latency of the JSON serialization of the response
+	 */
+	private final LatencyHistogram serialize = new LatencyHistogram();
+
+	private final LongAdder calls = new LongAdder();
+
+	private final LongAdder serviceErrors = new LongAdder();
+
+	private final LongAdder apiErrors = new LongAdder();
+
+	private final LongAdder otherErrors = new LongAdder();
+
+	private final LongAdder rejected = new LongAdder();
+
+	private final LongAdder timeouts = new LongAdder();
+
+	/**
+	 * <p>record the latency of the command lookup</p>
+	 */
+	public void recordLookup(final long nanos) {
+		lookup.record(nanos);
+	}
+
+	/**
+	 * <p>record a call and the latency of the command invocation</p>
+	 */
+	public void recordInvoke(final long nanos) {
+		calls.increment();
+		invoke.record(nanos);
+	}
+
+	/**
+	 * <p>record the latency of the JSON serialization</p>
+	 */
+	public void recordSerialize(final long nanos) {
+		serialize.record(nanos);
+	}
+
+	/**
+	 * <p>record an error by the exception type (ServiceException, APIMessageException, other)</p>
+	 */
+	public void recordError(final Throwable t) {
+		if (t instanceof ServiceException) {
+			serviceErrors.increment();
+		}else if (t instanceof APIMessageException)
+		{
+			apiErrors.increment();
+		}else
+		{
+			otherErrors.increment();
+		}
+	}
+
+	/**
+	 * <p>record a call rejected by the bulkhead or the thread pool</p>
+	 */
+	public void recordRejected() {
+		rejected.increment();
+	}
+
+	/**
+	 * <p>record a call which has exceeded the deadline</p>
+	 */
+	public void recordTimeout() {
+		timeouts.increment();
+	}
+
+	public LatencyHistogram getLookup() {
+		return lookup;
+	}
+
+	public LatencyHistogram getInvoke() {
+		return invoke;
+	}
+
+	public LatencyHistogram getSerialize() {
+		return serialize;
+	}
+
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	public long getServiceErrors() {
+		return serviceErrors.sum();
+	}
+
+	public long getApiErrors() {
+		return apiErrors.sum();
+	}
+
+	public long getOtherErrors() {
+		return otherErrors.sum();
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.nurihome.app.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nurihome.app.annotation.CacheableCommand;
+
+/**
+ * <p>Cache of the serialized JSON responses of the commands annotated with {@link CacheableCommand}.</p>
+ *
+ * <p>the cache is bounded by the total byte size of the responses (W-TinyLFU eviction), and each entry expires after the ttl of the command.</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     // invalidate all cached responses of the service (e.g. after the data is updated)
+ *     commandResultCache.invalidate("common.code");
+ * }</pre>
+ * </blockquote>
+ */
+@Component
+public class CommandResultCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CommandResultCache.class);
+
+	/**
+	 * estimated memory overhead of an entry (bytes)
+	 */
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private final boolean enabled;
+
+	private final long maxBytes;
+
+	/**
+	 * cache key -> serialized response (UTF-8 JSON bytes)
+	 */
+	private final Cache<CacheKey, byte[]> cache;
+
+	public CommandResultCache(@Value("${gws.cache.enabled:true}") boolean enabled, @Value("${gws.cache.max-bytes:67108864}") long maxBytes) {
+		this.enabled = enabled;
+		this.maxBytes = maxBytes;
+		this.cache = Caffeine.newBuilder()
+			.maximumWeight(maxBytes)
+			.weigher((CacheKey key, byte[] value) -> value.length + (key.canonical.length() * 2) + ENTRY_OVERHEAD)
+			.expireAfter(new Expiry<CacheKey, byte[]>() {
+				@Override
+				public long expireAfterCreate(CacheKey key, byte[] value, long currentTime) {
+					return key.ttlNanos;
+				}
+
+				@Override
+				public long expireAfterUpdate(CacheKey key, byte[] value, long currentTime, long currentDuration) {
+					return key.ttlNanos;
+				}
+
+				@Override
+				public long expireAfterRead(CacheKey key, byte[] value, long currentTime, long currentDuration) {
+					return currentDuration;
+				}
+			})
+			.recordStats()
+			.build();
+	}
+
+	/**
+	 * <p>returns the cache key of the request, or null if the command is not cacheable</p>
+	 */
+	public CacheKey createKey(final ServiceCommand command, final Map<String, String> params) {
+		if ((!enabled) || (command == null) || (command.getCacheable() == null)) {
+			return null;
+		}
+
+		CacheableCommand cacheable = command.getCacheable();
+
+		return new CacheKey(command.getServiceId(), command.createKey(params, cacheable.ignoreParameters()), cacheable.unit().toNanos(cacheable.ttl()));
+	}
+
+	/**
+	 * <p>returns the cached response, or null if there is no cached response</p>
+	 */
+	public byte[] get(final CacheKey key) {
+		return cache.getIfPresent(key);
+	}
+
+	/**
+	 * <p>store the serialized response</p>
+	 */
+	public void put(final CacheKey key, final byte[] content) {
+		if ((key != null) && (content != null)) {
+			cache.put(key, content);
+		}
+	}
+
+	/**
+	 * <p>invalidate all cached responses of the service</p>
+	 */
+	public void invalidate(final String serviceId) {
+		cache.asMap().keySet().removeIf(key -> key.serviceId.equals(serviceId));
+
+		LOG.info("[CommandResultCache] invalidated. serviceId={}", serviceId);
+	}
+
+	/**
+	 * <p>invalidate all cached responses</p>
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+
+		LOG.info("[CommandResultCache] invalidated all");
+	}
+
+	/**
+	 * <p>returns the hit / miss / eviction statistics</p>
+	 */
+	public Map<String, Object> getStats() {
+		CacheStats stats = cache.stats();
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+
+		map.put("enabled", enabled);
+		map.put("entries", cache.estimatedSize());
+		map.put("bytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+		map.put("maxBytes", maxBytes);
+		map.put("hits", stats.hitCount());
+		map.put("misses", stats.missCount());
+		map.put("hitRate", stats.hitRate());
+		map.put("evictions", stats.evictionCount());
+		map.put("evictedBytes", stats.evictionWeight());
+
+		return map;
+	}
+
+	/**
+	 * <p>Cache key ("serviceId + commandId + canonicalized request parameters").</p>
+	 */
+	public static final class CacheKey {
+
+		private final String serviceId;
+
+		private final String canonical;
+
+		private final long ttlNanos;
+
+		CacheKey(String serviceId, String canonical, long ttlNanos) {
+			this.serviceId = serviceId;
+			this.canonical = canonical;
+			this.ttlNanos = ttlNanos;
+		}
+
+		public String getServiceId() {
+			return serviceId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return (o instanceof CacheKey) && (canonical.equals(((CacheKey) o).canonical));
+		}
+
+		@Override
+		public int hashCode() {
+			return canonical.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return canonical.replace('\u0000', '|');
+		}
+
+	}
+
+}
@@ -0,0 +1,435 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.nurihome.app.exception.ServiceException;
+import com.nurihome.app.web.entity.FileEntity;
+
+/**
+ * <p>Content-addressed file store (each distinct content is stored once).</p>
+ *
+ * <p>the SHA-256 digest is computed while the content is copied to the store, and the hex digest is the content id.
+ * the blobs are stored in the sharded directories ("ab/cd/abcd..."), and each blob has a reference count (".ref" file next to the blob).
+ * the unreferenced blobs are deleted by the background garbage collector after the grace period.</p>
+ *
+ * <p>the blobs and the reference counts of a shard directory are changed under the file lock of the shard (".lock" file, never deleted),
+ * so the store directory can be shared by the instances (the file system must support the locks, e.g. NFSv4).</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     String contentId = contentStore.store(paramEntity.getFile("file"));  // reference count + 1
+ *     FileEntity fileEntity = contentStore.getFile(contentId, "report.pdf");
+ *     contentStore.release(contentId);                                     // reference count - 1
+ * }</pre>
+ * </blockquote>
+ */
+@Component
+public class ContentStore implements InitializingBean, DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ContentStore.class);
+
+	private static final Pattern CONTENT_ID_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+
+	private static final String REF_SUFFIX = ".ref";
+
+	private static final String LOCK_FILE = ".lock";
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	/**
+	 * striped locks of the shards in this process (shard hash -> lock), the file lock is held by a single thread of the process
+	 */
+	private static final Object[] LOCKS = new Object[64];
+
+	static {
+		for (int i = 0; i < LOCKS.length; i++) {
+			LOCKS[i] = new Object();
+		}
+	}
+
+	private final Path directory;
+
+	/**
+	 * interval of the garbage collection (milliseconds, 0 = disabled)
+	 */
+	private final long gcInterval;
+
+	/**
+	 * unreferenced blobs are kept for the grace period (milliseconds)
+	 */
+	private final long gcGrace;
+
+	private ScheduledExecutorService scheduler;
+
+	public ContentStore(@Value("${gws.store.dir:}") String directory, @Value("${gws.store.gc-interval:3600000}") long gcInterval,
+			@Value("${gws.store.gc-grace:86400000}") long gcGrace) {
+		this.directory = Utils.isEmpty(directory) ? Paths.get(System.getProperty("java.io.tmpdir"), "gws-store") : Paths.get(directory);
+		this.gcInterval = gcInterval;
+		this.gcGrace = gcGrace;
+	}
+
+	/**
+	 * <p>start the background garbage collector</p>
+	 */
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		if (gcInterval > 0L) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "gws-store-gc");
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
+			scheduler.scheduleWithFixedDelay(this::collectGarbage, gcInterval, gcInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * <p>store the contents of the file entity, and returns the content id (the reference count is increased)</p>
+	 */
+	public String store(final FileEntity fileEntity) {
+		try (InputStream in = fileEntity.getInputStream()) {
+			return store(in);
+		}catch (IOException e)
+		{
+			throw new ServiceException("failed to store the file", e);
+		}
+	}
+
+	/**
+	 * <p>store the contents of the stream, and returns the content id (the reference count is increased).
+	 * the digest is computed while the contents are copied, so the contents are not loaded in memory.</p>
+	 */
+	public String store(final InputStream in) throws IOException {
+		Files.createDirectories(directory);
+
+		Path temp = Files.createTempFile(directory, "upload-", TEMP_SUFFIX);
+
+		try {
+			MessageDigest digest = DigestUtils.getSha256Digest();
+
+			try (DigestInputStream digestIn = new DigestInputStream(in, digest)) {
+				Files.copy(digestIn, temp, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			String contentId = Hex.encodeHexString(digest.digest());
+			Path blob = resolve(contentId);
+
+			withLock(contentId, () -> {
+				if (!Files.exists(blob)) {
+					try {
+						Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+					}catch (FileAlreadyExistsException ignore)
+					{
+						//--- stored by the other instance
+					}
+				}
+
+				writeRefCount(contentId, readRefCount(contentId) + 1);
+
+				return null;
+			});
+
+			return contentId;
+		}finally
+		{
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * <p>increase the reference count of the content</p>
+	 */
+	public void retain(final String contentId) throws IOException {
+		checkContentId(contentId);
+
+		// ------------------------------------------------------------
+		// checked again under the lock (without creating the shard directory of an unknown content)
+		// ------------------------------------------------------------
+		if (!Files.exists(resolve(contentId))) {
+			throw new ServiceException("no such content. contentId=" + contentId);
+		}
+
+		withLock(contentId, () -> {
+			if (!Files.exists(resolve(contentId))) {
+				throw new ServiceException("no such content. contentId=" + contentId);
+			}
+
+			writeRefCount(contentId, readRefCount(contentId) + 1);
+
+			return null;
+		});
+	}
+
+	/**
+	 * <p>decrease the reference count of the content (the unreferenced content is deleted by the garbage collector)</p>
+	 */
+	public void release(final String contentId) throws IOException {
+		checkContentId(contentId);
+
+		if (!Files.exists(resolveRef(contentId))) {
+			return;
+		}
+
+		withLock(contentId, () -> {
+			int count = readRefCount(contentId);
+
+			if (count > 0) {
+				writeRefCount(contentId, count - 1);
+			}
+
+			return null;
+		});
+	}
+
+	/**
+	 * <p>returns the reference count of the content (the reference file is replaced atomically, so it is read without the lock)</p>
+	 */
+	public int getRefCount(final String contentId) throws IOException {
+		checkContentId(contentId);
+
+		return readRefCount(contentId);
+	}
+
+	/**
+	 * <p>check if the content is stored</p>
+	 */
+	public boolean contains(final String contentId) {
+		return (contentId != null) && (CONTENT_ID_PATTERN.matcher(contentId).matches()) && (Files.exists(resolve(contentId)));
+	}
+
+	/**
+	 * <p>returns the file of the content (read only)</p>
+	 */
+	public Path getPath(final String contentId) {
+		checkContentId(contentId);
+
+		return resolve(contentId);
+	}
+
+	/**
+	 * <p>returns the file backed entity of the content</p>
+	 */
+	public FileEntity getFile(final String contentId, final String name) throws IOException {
+		if (!contains(contentId)) {
+			throw new ServiceException("no such content. contentId=" + contentId);
+		}
+
+		return new FileEntity(name, resolve(contentId));
+	}
+
+	/**
+	 * <p>delete the unreferenced blobs which have been unreferenced longer than the grace period, and the temporary files
+	 * older than the grace period (left by a crash while storing a content or writing a reference count).
+	 * a blob of an invalid reference count is kept.</p>
+	 */
+	public void collectGarbage() {
+		long threshold = System.currentTimeMillis() - gcGrace;
+		int deleted = 0;
+		int temps = 0;
+
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+
+		try {
+			try (DirectoryStream<Path> uploads = Files.newDirectoryStream(directory, "*" + TEMP_SUFFIX)) {
+				for (Path temp : uploads) {
+					if (deleteIfStale(temp, threshold)) {
+						temps++;
+					}
+				}
+			}
+
+			try (DirectoryStream<Path> level1 = Files.newDirectoryStream(directory, Files::isDirectory)) {
+				for (Path shard1 : level1) {
+					try (DirectoryStream<Path> level2 = Files.newDirectoryStream(shard1, Files::isDirectory)) {
+						for (Path shard2 : level2) {
+							try (DirectoryStream<Path> files = Files.newDirectoryStream(shard2)) {
+								for (Path file : files) {
+									String name = file.getFileName().toString();
+
+									if (CONTENT_ID_PATTERN.matcher(name).matches()) {
+										try {
+											if (deleteIfUnreferenced(name, threshold)) {
+												deleted++;
+											}
+										}catch (IOException e)
+										{
+											LOG.warn("[ContentStore] the blob is kept. contentId={}, msg={}", name, e.getMessage());
+										}
+									}else if ((name.endsWith(TEMP_SUFFIX)) && (deleteIfStale(file, threshold)))
+									{
+										temps++;
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}catch (IOException e)
+		{
+			LOG.warn("[ContentStore] garbage collection failed. msg={}", e.getMessage());
+		}
+
+		if ((deleted > 0) || (temps > 0)) {
+			LOG.info("[ContentStore] garbage collected. deleted={}, temporary files={}", deleted, temps);
+		}
+	}
+
+	/**
+	 * <p>delete the temporary file if it has not been modified since the threshold</p>
+	 */
+	private static boolean deleteIfStale(final Path temp, final long threshold) {
+		try {
+			return (Files.getLastModifiedTime(temp).toMillis() < threshold) && (Files.deleteIfExists(temp));
+		}catch (IOException e)
+		{
+			LOG.warn("[ContentStore] failed to delete the temporary file. file={}, msg={}", temp, e.getMessage());
+
+			return false;
+		}
+	}
+
+	private boolean deleteIfUnreferenced(final String contentId, final long threshold) throws IOException {
+		return withLock(contentId, () -> {
+			Path ref = resolveRef(contentId);
+
+			if ((readRefCount(contentId) == 0) && ((!Files.exists(ref)) || (Files.getLastModifiedTime(ref).toMillis() < threshold))) {
+				Files.deleteIfExists(resolve(contentId));
+				Files.deleteIfExists(ref);
+
+				return Boolean.TRUE;
+			}
+
+			return Boolean.FALSE;
+		}).booleanValue();
+	}
+
+	/**
+	 * <p>action on the blob and the reference count of a content</p>
+	 */
+	@FunctionalInterface
+	private interface LockedAction<T> {
+
+		T run() throws IOException;
+
+	}
+
+	/**
+	 * <p>run the action under the lock of the shard of the content (the lock of this instance, then the file lock of the shard directory)</p>
+	 */
+	private <T> T withLock(final String contentId, final LockedAction<T> action) throws IOException {
+		Path shard = resolve(contentId).getParent();
+
+		synchronized (lockOf(contentId)) {
+			Files.createDirectories(shard);
+
+			try (FileChannel channel = FileChannel.open(shard.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					FileLock lock = channel.lock()) {
+				return action.run();
+			}
+		}
+	}
+
+	private Path resolve(final String contentId) {
+		return directory.resolve(contentId.substring(0, 2)).resolve(contentId.substring(2, 4)).resolve(contentId);
+	}
+
+	private Path resolveRef(final String contentId) {
+		return resolve(contentId).resolveSibling(contentId + REF_SUFFIX);
+	}
+
+	/**
+	 * <p>returns the lock of the shard of the content (the contents of a shard share the file lock)</p>
+	 */
+	private Object lockOf(final String contentId) {
+		return LOCKS[(contentId.substring(0, 4).hashCode() & 0x7fffffff) % LOCKS.length];
+	}
+
+	private static void checkContentId(final String contentId) {
+		if ((contentId == null) || (!CONTENT_ID_PATTERN.matcher(contentId).matches())) {
+			throw new ServiceException("invalid content id. contentId=" + contentId);
+		}
+	}
+
+	/**
+	 * <p>read the reference count (0 if there is no reference file).
+	 * throws {@link IOException} if the reference file is corrupt (never read as 0, so the referenced blob is not collected).</p>
+	 */
+	private int readRefCount(final String contentId) throws IOException {
+		Path ref = resolveRef(contentId);
+
+		if (!Files.exists(ref)) {
+			return 0;
+		}
+
+		String value = new String(Files.readAllBytes(ref), StandardCharsets.US_ASCII).trim();
+
+		try {
+			int count = Integer.parseInt(value);
+
+			if (count >= 0) {
+				return count;
+			}
+		}catch (NumberFormatException e)
+		{
+			//--- reported below
+		}
+
+		throw new IOException("invalid reference count. contentId=" + contentId + ", value=" + value);
+	}
+
+	/**
+	 * <p>write the reference count (replaced atomically through a temporary file of a unique name)</p>
+	 */
+	private void writeRefCount(final String contentId, final int count) throws IOException {
+		Path ref = resolveRef(contentId);
+		Path temp = Files.createTempFile(ref.getParent(), contentId + REF_SUFFIX + "-", TEMP_SUFFIX);
+
+		try {
+			Files.write(temp, Integer.toString(count).getBytes(StandardCharsets.US_ASCII));
+			Files.move(temp, ref, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}finally
+		{
+			Files.deleteIfExists(temp);
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.nurihome.app.util;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Interrupts the calling thread when the deadline of the request passes.</p>
+ *
+ * <p>the interrupt cancels the command blocked in an interruptible call (sleep, wait, lock, the interruptible channels, the pool of the connections),
+ * so the request thread returns the timeout error as soon as the deadline passes. {@link #cancel()} must be called by the same thread
+ * when the call returns: it waits for an interrupt in progress and clears the interrupt flag, so the interrupt never leaks into the next request
+ * of the pooled thread.</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     DeadlineInterrupter interrupter = DeadlineInterrupter.schedule(paramEntity.getRemainingNanos());
+ *
+ *     try {
+ *         data = command.invoke(paramEntity);
+ *     }finally
+ *     {
+ *         timedOut = interrupter.cancel();
+ *     }
+ * }</pre>
+ * </blockquote>
+ */
+public final class DeadlineInterrupter {
+
+	private static final int WAITING = 0;
+
+	private static final int INTERRUPTING = 1;
+
+	private static final int INTERRUPTED = 2;
+
+	private static final int CANCELLED = 3;
+
+	/**
+	 * single daemon thread interrupting the threads (the cancelled tasks are removed from the queue)
+	 */
+	private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+	private final Thread thread;
+
+	private final AtomicInteger state = new AtomicInteger(WAITING);
+
+	private volatile ScheduledFuture<?> task;
+
+	/**
+	 * <p>private constructor</p>
+	 */
+	private DeadlineInterrupter(final Thread thread) {
+		this.thread = thread;
+	}
+
+	private static ScheduledThreadPoolExecutor createScheduler() {
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "gws-deadline");
+			thread.setDaemon(true);
+
+			return thread;
+		});
+		scheduler.setRemoveOnCancelPolicy(true);
+
+		return scheduler;
+	}
+
+	/**
+	 * <p>interrupt the calling thread after the given time (nanoseconds)</p>
+	 */
+	public static DeadlineInterrupter schedule(final long delayNanos) {
+		DeadlineInterrupter interrupter = new DeadlineInterrupter(Thread.currentThread());
+		interrupter.task = SCHEDULER.schedule(interrupter::interrupt, Math.max(0L, delayNanos), TimeUnit.NANOSECONDS);
+
+		return interrupter;
+	}
+
+	private void interrupt() {
+		if (state.compareAndSet(WAITING, INTERRUPTING)) {
+			thread.interrupt();
+			state.set(INTERRUPTED);
+		}
+	}
+
+	/**
+	 * <p>cancel the interrupt, and returns true if the thread has been interrupted by the deadline (the interrupt flag is cleared)</p>
+	 */
+	public boolean cancel() {
+		if (state.compareAndSet(WAITING, CANCELLED)) {
+			ScheduledFuture<?> scheduled = task;
+
+			if (scheduled != null) {
+				scheduled.cancel(false);
+			}
+
+			return false;
+		}
+
+		if (state.get() == CANCELLED) {
+			return false;
+		}
+
+		while (state.get() == INTERRUPTING) {
+			Thread.onSpinWait();
+		}
+
+		Thread.interrupted();
+
+		return true;
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * <p>Gson implementation of {@link JsonEngine} (default).</p>
+ */
+public class GsonJsonEngine implements JsonEngine {
+
+	private final Gson gson;
+
+	public GsonJsonEngine(Gson gson) {
+		this.gson = gson;
+	}
+
+	@Override
+	public String getName() {
+		return "gson";
+	}
+
+	@Override
+	public String toJson(final Object o) {
+		return gson.toJson(o);
+	}
+
+	@Override
+	public void writeJson(final Object o, final OutputStream out) throws IOException {
+		try (Utf8StreamWriter writer = new Utf8StreamWriter(out)) {
+			JsonWriter jsonWriter = gson.newJsonWriter(writer);
+
+			gson.toJson(o, (o != null) ? o.getClass() : Object.class, jsonWriter);
+
+			jsonWriter.flush();
+		}catch (JsonIOException e)
+		{
+			// ------------------------------------------------------------
+			// unwrap the I/O error (e.g. the client has closed the connection)
+			// ------------------------------------------------------------
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	@Override
+	public <T> T fromJson(final String json, final Type type) {
+		return gson.fromJson(json, type);
+	}
+
+}
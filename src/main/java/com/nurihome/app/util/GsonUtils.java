@@ -1,18 +1,30 @@
 package com.nurihome.app.util;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * Gson utility class.
@@ -25,69 +37,80 @@ public final class GsonUtils {
 	 * @see https://sites.google.com/site/gson/gson-user-guide
 	 * @see https://google-gson.googlecode.com/svn/trunk/gson/docs/javadocs/com/google/gson/GsonBuilder.html#serializeNulls()
 	 */
-	private static final Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();	
+	private static final Gson gson = createGsonBuilder(true).create();	
+
+	private static final Type MAP_TYPE = new TypeToken<HashMap<Object, Object>>(){}.getType();
+
+	private static final Type LIST_TYPE = new TypeToken<List<Map<Object, Object>>>(){}.getType();
+
+	/**
+	 * <p>JSON engine of the object conversions (convertObject2Json, writeObject2Json, convertJson2*).
+	 * the json path extraction, the json tree and the json writer (row streaming) always use the Gson instance.</p>
+	 */
+	private static volatile JsonEngine engine = new GsonJsonEngine(gson);
 
 	/**
 	 * private constructor
 	 */
 	private GsonUtils() {}
 
-	private static boolean isEmptyJsonElement(final JsonElement jsonElement) {
-		boolean isEmpty = true;
-		
-		if (jsonElement != null) {
-			isEmpty = false;
-		}
-		
-		return isEmpty;
+	/**
+	 * <p>returns the Gson engine (the default engine)</p>
+	 */
+	public static JsonEngine createGsonEngine() {
+		return new GsonJsonEngine(gson);
 	}
 
-	private static JsonElement parse(final JsonObject jsonObject, final String part) {
-		JsonElement jsonElement = null;
+	/**
+	 * <p>returns the JSON engine of the object conversions</p>
+	 */
+	public static JsonEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * <p>sets the JSON engine of the object conversions (set once when the application is started, see "gws.json.engine")</p>
+	 */
+	public static void setEngine(final JsonEngine jsonEngine) {
+		engine = jsonEngine;
+	}
 
-		if ((jsonObject != null) && (!Utils.isEmpty(part))) {
-			if (jsonObject.has(part)) {
-				jsonElement = jsonObject.get(part);
+	/**
+	 * <p>returns the builder of the Gson instance. the type adapters generated by gws-processor ({@code @GenerateTypeAdapter}) are registered
+	 * if "generated" is true, and the other types use the reflective adapters.</p>
+	 */
+	static GsonBuilder createGsonBuilder(final boolean generated) {
+		GsonBuilder builder = new GsonBuilder().disableHtmlEscaping().serializeNulls();
+
+		if (generated) {
+			for (TypeAdapterFactory factory : ServiceLoader.load(TypeAdapterFactory.class, GsonUtils.class.getClassLoader())) {
+				builder.registerTypeAdapterFactory(factory);
 			}
 		}
-		
-		return jsonElement;
+
+		return builder;
 	}
 
-	private static JsonElement parseJsonTree(final JsonObject jsonTree, final String path) {
-		try {
-			String[] parts = path.split("\\.");
-
-			if ((parts != null) && (parts.length != 0)) {
-				JsonElement jsonElement = null;
-				int currentIndex = 1;
-				
-				for (String part : parts) {
-					if (currentIndex == 1) {
-						jsonElement = parse(jsonTree, part);
-					}else
-					{
-						jsonElement = parse(jsonElement.getAsJsonObject(), part);
-					}
-					
-					if (isEmptyJsonElement(jsonElement)) {
-						break;
-					}
-					
-					currentIndex++;
-				}
+	/**
+	 * <p>read the value of the path from the json string, and bind the value directly to the type (the unrelated values are skipped without building them).
+	 * returns null if there is no such value, or the first token of the value is not one of the accepted tokens.
+	 * the json is read leniently, as JsonParser.parseString did (unquoted names and strings, single quotes, comments).</p>
+	 */
+	private static <T> T readJsonPath(final String json, final JsonPath path, final Type type, final JsonToken... accepted) throws IOException {
+		try (JsonReader reader = gson.newJsonReader(new StringReader(json))) {
+			reader.setLenient(true);
+
+			if (path.select(reader)) {
+				JsonToken token = reader.peek();
 
-				if (jsonElement != null) {
-					if ((currentIndex - 1) == parts.length) {
-						return jsonElement;
+				for (JsonToken acceptedToken : accepted) {
+					if (token == acceptedToken) {
+						return gson.fromJson(reader, type);
 					}
 				}
 			}
-		}catch (Exception ignore)
-		{
-			//--- nothing
 		}
-		
+
 		return null;
 	}
 
@@ -104,15 +127,23 @@ public final class GsonUtils {
 	public static <T> T parseJsonTree2Object(final String json, final String path, final Class<T> type) {
 		try {
 			if ((!Utils.isEmpty(json)) && (!Utils.isEmpty(path))) {
-				JsonObject jsonTree = gson.fromJson(json, JsonObject.class);
-				
-				if (jsonTree != null) {
-					JsonElement jsonElement = parseJsonTree(jsonTree, path);
-					
-					if ((jsonElement != null) && (!jsonElement.isJsonArray()) && (!jsonElement.isJsonNull())) {
-						return convertJson2Object(jsonElement.toString(), type);
-					}
-				}
+				return parseJsonTree2Object(json, JsonPath.compile(path), type);
+			}
+		}catch (Exception ignore)
+		{
+			//--- nothing
+		}
+
+		return null;
+	}
+
+	/**
+	 * <p>convert json string to java object with the precompiled path (e.g. "response.body.items[0]")</p>
+	 */
+	public static <T> T parseJsonTree2Object(final String json, final JsonPath path, final Class<T> type) {
+		try {
+			if (!Utils.isEmpty(json)) {
+				return readJsonPath(json, path, type, JsonToken.BEGIN_OBJECT, JsonToken.STRING, JsonToken.NUMBER, JsonToken.BOOLEAN);
 			}
 		}catch (Exception ignore)
 		{
@@ -132,26 +163,34 @@ public final class GsonUtils {
 	 * </blockquote>
 	 */
 	public static <K, V> Map<K, V> parseJsonTree2Map(final String json, final String path) {
-		Map<K, V> map = new HashMap<K, V>();
-		
 		try {
 			if ((!Utils.isEmpty(json)) && (!Utils.isEmpty(path))) {
-				JsonObject jsonTree = gson.fromJson(json, JsonObject.class);
-				
-				if (jsonTree != null) {
-					JsonElement jsonElement = parseJsonTree(jsonTree, path);
-					
-					if ((jsonElement != null) && (jsonElement.isJsonObject()) && (!jsonElement.isJsonNull())) {
-						map = convertJson2Map(jsonElement.toString());
-					}
-				}
+				return parseJsonTree2Map(json, JsonPath.compile(path));
 			}
 		}catch (Exception ignore)
 		{
 			//--- nothing
 		}
 		
-		return map;
+		return new HashMap<K, V>();
+	}
+
+	/**
+	 * <p>convert json string to map with the precompiled path</p>
+	 */
+	public static <K, V> Map<K, V> parseJsonTree2Map(final String json, final JsonPath path) {
+		Map<K, V> map = null;
+		
+		try {
+			if (!Utils.isEmpty(json)) {
+				map = readJsonPath(json, path, MAP_TYPE, JsonToken.BEGIN_OBJECT);
+			}
+		}catch (Exception ignore)
+		{
+			//--- nothing
+		}
+		
+		return (map != null) ? map : new HashMap<K, V>();
 	}
 
 	/**
@@ -164,26 +203,34 @@ public final class GsonUtils {
 	 * </blockquote>
 	 */
 	public static <K, V> List<Map<K, V>> parseJsonTree2List(final String json, final String path) {
-		List<Map<K, V>> rs = new ArrayList<Map<K, V>>();
-		
 		try {
 			if ((!Utils.isEmpty(json)) && (!Utils.isEmpty(path))) {
-				JsonObject jsonTree = gson.fromJson(json, JsonObject.class);
-				
-				if (jsonTree != null) {
-					JsonElement jsonElement = parseJsonTree(jsonTree, path);
-					
-					if ((jsonElement != null) && (jsonElement.isJsonArray()) && (!jsonElement.isJsonNull())) {
-						rs = convertJson2List(jsonElement.toString());
-					}
-				}
+				return parseJsonTree2List(json, JsonPath.compile(path));
 			}
 		}catch (Exception ignore)
 		{
 			//--- nothing
 		}
 		
-		return rs;
+		return new ArrayList<Map<K, V>>();
+	}
+
+	/**
+	 * <p>convert json string to list of map with the precompiled path</p>
+	 */
+	public static <K, V> List<Map<K, V>> parseJsonTree2List(final String json, final JsonPath path) {
+		List<Map<K, V>> rs = null;
+		
+		try {
+			if (!Utils.isEmpty(json)) {
+				rs = readJsonPath(json, path, LIST_TYPE, JsonToken.BEGIN_ARRAY);
+			}
+		}catch (Exception ignore)
+		{
+			//--- nothing
+		}
+		
+		return (rs != null) ? rs : new ArrayList<Map<K, V>>();
 	}
 
 	/**
@@ -196,18 +243,30 @@ public final class GsonUtils {
 	 * </blockquote>
 	 */
 	public static <T> List<T> parseJsonTree2List(final String json, final String path, final Class<T[]> type) {
+		try {
+			if ((!Utils.isEmpty(json)) && (!Utils.isEmpty(path))) {
+				return parseJsonTree2List(json, JsonPath.compile(path), type);
+			}
+		}catch (Exception ignore)
+		{
+			//--- nothing
+		}
+
+		return new ArrayList<T>();
+	}
+
+	/**
+	 * <p>convert json string to list of generic type with the precompiled path</p>
+	 */
+	public static <T> List<T> parseJsonTree2List(final String json, final JsonPath path, final Class<T[]> type) {
 		List<T> rs = new ArrayList<T>();
 		
 		try {
-			if ((!Utils.isEmpty(json)) && (!Utils.isEmpty(path))) {
-				JsonObject jsonTree = gson.fromJson(json, JsonObject.class);
-				
-				if (jsonTree != null) {
-					JsonElement jsonElement = parseJsonTree(jsonTree, path);
-					
-					if ((jsonElement != null) && (jsonElement.isJsonArray()) && (!jsonElement.isJsonNull())) {
-						rs = convertJson2List(jsonElement.toString(), type);
-					}
+			if (!Utils.isEmpty(json)) {
+				T[] array = readJsonPath(json, path, type, JsonToken.BEGIN_ARRAY);
+
+				if (array != null) {
+					rs = Arrays.asList(array);
 				}
 			}
 		}catch (Exception ignore)
@@ -234,7 +293,7 @@ public final class GsonUtils {
 		// JSON 형식의 스트링 객체를 파라미터로 전달받은 클래스 형식의 객체로 변환후 반환
 		// ------------------------------------------------------------
 		try {
-			return gson.fromJson(json, type);
+			return engine.fromJson(json, type);
 			
 		}catch (Exception ignore)
 		{
@@ -278,8 +337,7 @@ public final class GsonUtils {
 		
 		try {
 			if (!Utils.isEmpty(json)) {
-				Type type = new TypeToken<HashMap<K, V>>(){}.getType();
-				map = gson.fromJson(json, type);			
+				map = engine.fromJson(json, MAP_TYPE);
 			}
 		}catch (Exception ignore)
 		{
@@ -306,8 +364,7 @@ public final class GsonUtils {
 		
 		try {
 			if (!Utils.isEmpty(json)) {
-				Type type = new TypeToken<List<Map<K, V>>>(){}.getType();
-				rs = gson.fromJson(json, type);
+				rs = engine.fromJson(json, LIST_TYPE);
 			}
 		}catch (Exception ignore)
 		{
@@ -334,7 +391,8 @@ public final class GsonUtils {
 		
 		try {
 			if (!Utils.isEmpty(json)) {
-				rs = Arrays.asList(gson.fromJson(json, type));			
+				T[] array = engine.fromJson(json, type);
+				rs = Arrays.asList(array);
 			}
 		}catch (Exception ignore)
 		{
@@ -363,7 +421,122 @@ public final class GsonUtils {
 		// ------------------------------------------------------------
 		// https://google-gson.googlecode.com/svn/trunk/gson/docs/javadocs/com/google/gson/Gson.html#toJson(java.lang.Object)
 		// ------------------------------------------------------------
-		return gson.toJson(o);
+		return engine.toJson(o);
+	}
+
+	/**
+	 * <p>convert java object to json tree</p>
+	 * 
+	 * <blockquote>
+	 * <pre>{@code
+	 * Usage:
+	 *     JsonObject jsonObject = GsonUtils.convertObject2JsonTree(modelEntity).getAsJsonObject();
+	 * }</pre>
+	 * </blockquote>
+	 */
+	public static JsonElement convertObject2JsonTree(final Object o) {
+		return gson.toJsonTree(o);
+	}
+
+	/**
+	 * <p>write java object to the output stream in json format (UTF-8), without building the json string in memory</p>
+	 * 
+	 * <blockquote>
+	 * <pre>{@code
+	 * Usage:
+	 *     GsonUtils.writeObject2Json(modelEntity, response.getOutputStream());
+	 * }</pre>
+	 * </blockquote>
+	 */
+	public static void writeObject2Json(final Object o, final OutputStream out) throws IOException {
+		engine.writeJson(o, out);
+	}
+
+	/**
+	 * <p>convert java object to json bytes (UTF-8)</p>
+	 *
+	 * <p>the json text is encoded into a pooled buffer ({@link PooledByteArrayOutputStream}) without the intermediate json string,
+	 * and only the returned array of the exact size is allocated.</p>
+	 *
+	 * <blockquote>
+	 * <pre>{@code
+	 * Usage:
+	 *     byte[] body = GsonUtils.convertObject2JsonBytes(modelEntity);
+	 * }</pre>
+	 * </blockquote>
+	 */
+	public static byte[] convertObject2JsonBytes(final Object o) {
+		try (PooledByteArrayOutputStream out = convertObject2JsonBuffer(o)) {
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * <p>convert java object to json bytes (UTF-8) in a pooled buffer, for the callers which write the bytes without an array
+	 * (e.g. the response of known content length). the caller must close the returned stream to return the buffer to the pool.</p>
+	 *
+	 * <blockquote>
+	 * <pre>{@code
+	 * Usage:
+	 *     try (PooledByteArrayOutputStream body = GsonUtils.convertObject2JsonBuffer(modelEntity)) {
+	 *         response.setContentLengthLong(body.size());
+	 *         body.writeTo(response.getOutputStream());
+	 *     }
+	 * }</pre>
+	 * </blockquote>
+	 */
+	public static PooledByteArrayOutputStream convertObject2JsonBuffer(final Object o) {
+		PooledByteArrayOutputStream out = new PooledByteArrayOutputStream();
+
+		try {
+			engine.writeJson(o, out);
+
+			return out;
+		}catch (IOException e)
+		{
+			out.close();
+
+			// ------------------------------------------------------------
+			// not thrown by the in-memory stream
+			// ------------------------------------------------------------
+			throw new UncheckedIOException(e);
+		}catch (RuntimeException e)
+		{
+			out.close();
+
+			throw e;
+		}
+	}
+
+	/**
+	 * <p>returns a json writer with the same settings as the Gson instance (serialize nulls, no html escaping)</p>
+	 */
+	public static JsonWriter createJsonWriter(final Writer writer) throws IOException {
+		return gson.newJsonWriter(writer);
+	}
+
+	/**
+	 * <p>write java object as a json value to the json writer (e.g. a row of the json array)</p>
+	 */
+	public static void writeObject2Json(final Object o, final JsonWriter writer) throws IOException {
+		try {
+			if (o != null) {
+				gson.toJson(o, o.getClass(), writer);
+			}else
+			{
+				gson.toJson(JsonNull.INSTANCE, writer);
+			}
+		}catch (JsonIOException e)
+		{
+			// ------------------------------------------------------------
+			// unwrap the I/O error (e.g. the client has closed the connection)
+			// ------------------------------------------------------------
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			
+			throw e;
+		}
 	}
 
 }
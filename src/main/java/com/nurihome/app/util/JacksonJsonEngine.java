@@ -0,0 +1,217 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.UntypedObjectDeserializer;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * <p>Jackson implementation of {@link JsonEngine}.</p>
+ *
+ * <p>the object mapper is configured to write the same json text as Gson (see {@link JsonEngine}).
+ * the fields are accessed with the generated accessors of Blackbird (instead of the reflection).</p>
+ *
+ * <ul>
+ * <li>the fields are serialized (getters and setters are not detected), the transient and static fields are excluded</li>
+ * <li>null members are written, the unknown members are ignored</li>
+ * <li>byte[] -> array of numbers, Date -> default format of Gson ("Jan 2, 2024, 3:04:05 PM")</li>
+ * <li>only the control characters, '"', '\\', U+2028 and U+2029 are escaped (lower case hex, no html escaping)</li>
+ * <li>the numbers of the untyped values (Map, List, Object) are read as Double</li>
+ * </ul>
+ */
+public class JacksonJsonEngine implements JsonEngine {
+
+	private final ObjectMapper mapper;
+
+	public JacksonJsonEngine() {
+		SimpleModule module = new SimpleModule("gws-gson-compatible");
+		module.addSerializer(byte[].class, new ByteArraySerializer());
+		module.addSerializer(Date.class, new DateSerializer());
+		module.addDeserializer(Object.class, new DoubleObjectDeserializer());
+
+		this.mapper = JsonMapper.builder()
+			.visibility(PropertyAccessor.ALL, Visibility.NONE)
+			.visibility(PropertyAccessor.FIELD, Visibility.ANY)
+			.serializationInclusion(JsonInclude.Include.ALWAYS)
+			.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+			.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+			.addModule(new BlackbirdModule())
+			.addModule(module)
+			.build();
+
+		this.mapper.getFactory().setCharacterEscapes(new GsonCharacterEscapes());
+	}
+
+	@Override
+	public String getName() {
+		return "jackson";
+	}
+
+	@Override
+	public String toJson(final Object o) {
+		try {
+			return mapper.writeValueAsString(o);
+		}catch (JsonProcessingException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * <p>the json text is encoded by {@link Utf8StreamWriter} (the byte generator of Jackson escapes the surrogate pairs when the character escapes are customized)</p>
+	 */
+	@Override
+	public void writeJson(final Object o, final OutputStream out) throws IOException {
+		try (Utf8StreamWriter writer = new Utf8StreamWriter(out)) {
+			mapper.writeValue(writer, o);
+		}
+	}
+
+	@Override
+	public <T> T fromJson(final String json, final Type type) {
+		try {
+			return mapper.readValue(json, mapper.getTypeFactory().constructType(type));
+		}catch (JsonProcessingException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * <p>escapes the same characters as the JsonWriter of Gson (without html escaping)</p>
+	 */
+	@SuppressWarnings("serial")
+	private static final class GsonCharacterEscapes extends CharacterEscapes {
+
+		private final int[] asciiEscapes = CharacterEscapes.standardAsciiEscapesForJSON();
+
+		GsonCharacterEscapes() {
+			// ------------------------------------------------------------
+			// Jackson writes the upper case hex (\u001F), Gson writes the lower case hex (\u001f)
+			// ------------------------------------------------------------
+			for (int i = 0; i < 0x20; i++) {
+				if (asciiEscapes[i] == CharacterEscapes.ESCAPE_STANDARD) {
+					asciiEscapes[i] = CharacterEscapes.ESCAPE_CUSTOM;
+				}
+			}
+		}
+
+		@Override
+		public int[] getEscapeCodesForAscii() {
+			return asciiEscapes;
+		}
+
+		@Override
+		public SerializableString getEscapeSequence(final int ch) {
+			if ((ch < 0x20) || (ch == 0x2028) || (ch == 0x2029)) {
+				return new SerializedString(String.format("\\u%04x", ch));
+			}
+
+			return null;
+		}
+
+	}
+
+	/**
+	 * <p>byte[] -> array of numbers (Jackson writes base64 string)</p>
+	 */
+	private static final class ByteArraySerializer extends JsonSerializer<byte[]> {
+
+		@Override
+		public void serialize(final byte[] value, final JsonGenerator generator, final SerializerProvider provider) throws IOException {
+			generator.writeStartArray();
+
+			for (byte b : value) {
+				generator.writeNumber(b);
+			}
+
+			generator.writeEndArray();
+		}
+
+	}
+
+	/**
+	 * <p>Date -> default format of Gson (java.sql.Date and java.sql.Time have their own formats in Gson)</p>
+	 */
+	private static final class DateSerializer extends JsonSerializer<Date> {
+
+		@Override
+		public void serialize(final Date value, final JsonGenerator generator, final SerializerProvider provider) throws IOException {
+			DateFormat format;
+
+			if (value instanceof java.sql.Date) {
+				format = new SimpleDateFormat("MMM d, yyyy");
+			}else if (value instanceof java.sql.Time)
+			{
+				format = new SimpleDateFormat("hh:mm:ss a");
+			}else
+			{
+				format = DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT, Locale.US);
+			}
+
+			generator.writeString(format.format(value));
+		}
+
+	}
+
+	/**
+	 * <p>reads the numbers of the untyped values as Double (same as Gson)</p>
+	 */
+	@SuppressWarnings("serial")
+	private static final class DoubleObjectDeserializer extends UntypedObjectDeserializer {
+
+		DoubleObjectDeserializer() {
+			super(null, null);
+		}
+
+		/**
+		 * <p>keep this deserializer for the nested values (Jackson replaces the default untyped deserializer)</p>
+		 */
+		@Override
+		public JsonDeserializer<?> createContextual(final DeserializationContext context, final BeanProperty property) {
+			return this;
+		}
+
+		@Override
+		public Object deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+			JsonToken token = parser.currentToken();
+
+			if ((token == JsonToken.VALUE_NUMBER_INT) || (token == JsonToken.VALUE_NUMBER_FLOAT)) {
+				return parser.getDoubleValue();
+			}
+
+			return super.deserialize(parser, context);
+		}
+
+	}
+
+}
@@ -0,0 +1,761 @@
+package com.nurihome.app.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Lazy, indexed view of a json document.</p>
+ *
+ * <p>the UTF-8 bytes of the document are scanned once, and the structural index (type, offsets and the next sibling of each value)
+ * is stored in the primitive arrays. the values are decoded only when they are accessed, so reading many paths from the same document costs
+ * one scan and cheap lookups, instead of parsing the whole document for each path.</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     JsonDocument document = JsonDocument.parse("json string");
+ *
+ *     String code = document.getString("response.header.resultCode");
+ *     long total = document.getLong("response.body.totalCount", 0L);
+ *     ClassObject classObject = document.get("response.body.items[0]", ClassObject.class);
+ * }</pre>
+ * </blockquote>
+ */
+public final class JsonDocument {
+
+	private static final byte OBJECT = 1;
+
+	private static final byte ARRAY = 2;
+
+	private static final byte STRING = 3;
+
+	/**
+	 * string with escape sequences (decoded by {@link #decodeString(int)})
+	 */
+	private static final byte ESCAPED_STRING = 4;
+
+	private static final byte NUMBER = 5;
+
+	private static final byte TRUE = 6;
+
+	private static final byte FALSE = 7;
+
+	private static final byte NULL = 8;
+
+	/**
+	 * maximum nesting depth
+	 */
+	private static final int MAX_DEPTH = 512;
+
+	private final byte[] json;
+
+	/**
+	 * type of each value (the members of the objects are stored as key and value)
+	 */
+	private byte[] types;
+
+	/**
+	 * start offset of each value (inclusive, the opening quote of the string is excluded)
+	 */
+	private int[] starts;
+
+	/**
+	 * end offset of each value (exclusive, the closing quote of the string is excluded)
+	 */
+	private int[] ends;
+
+	/**
+	 * index of the value after this value and its children (the next sibling)
+	 */
+	private int[] nexts;
+
+	/**
+	 * number of the indexed values
+	 */
+	private int count;
+
+	private int pos;
+
+	private JsonDocument(byte[] json) {
+		int capacity = Math.max(16, json.length / 8);
+
+		this.json = json;
+		this.types = new byte[capacity];
+		this.starts = new int[capacity];
+		this.ends = new int[capacity];
+		this.nexts = new int[capacity];
+	}
+
+	/**
+	 * <p>scan the json string, and returns the indexed view</p>
+	 *
+	 * @throws IllegalArgumentException if the json string is invalid
+	 */
+	public static JsonDocument parse(final String json) {
+		return parse(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * <p>scan the UTF-8 bytes of the json document, and returns the indexed view (the array is not copied, and must not be modified)</p>
+	 *
+	 * @throws IllegalArgumentException if the json document is invalid
+	 */
+	public static JsonDocument parse(final byte[] json) {
+		JsonDocument document = new JsonDocument(json);
+
+		document.skipWhitespace();
+		document.scanValue(0);
+		document.skipWhitespace();
+
+		if (document.pos != json.length) {
+			throw document.error("unexpected data after the json value");
+		}
+
+		return document;
+	}
+
+	// ------------------------------------------------------------
+	// scanner
+	// ------------------------------------------------------------
+
+	private int add(final byte type, final int start) {
+		if (count == types.length) {
+			int capacity = count + (count >> 1);
+
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			nexts = Arrays.copyOf(nexts, capacity);
+		}
+
+		types[count] = type;
+		starts[count] = start;
+
+		return count++;
+	}
+
+	private void scanValue(final int depth) {
+		if (pos >= json.length) {
+			throw error("unexpected end of the json document");
+		}
+
+		switch (json[pos]) {
+			case '{':
+				scanObject(depth);
+				break;
+			case '[':
+				scanArray(depth);
+				break;
+			case '"':
+				scanString();
+				break;
+			case 't':
+				scanLiteral(TRUE, "true");
+				break;
+			case 'f':
+				scanLiteral(FALSE, "false");
+				break;
+			case 'n':
+				scanLiteral(NULL, "null");
+				break;
+			default:
+				scanNumber();
+				break;
+		}
+	}
+
+	private void scanObject(final int depth) {
+		if (depth >= MAX_DEPTH) {
+			throw error("the json document is nested too deeply");
+		}
+
+		int node = add(OBJECT, pos++);
+
+		skipWhitespace();
+
+		if ((pos < json.length) && (json[pos] == '}')) {
+			pos++;
+		}else
+		{
+			while (true) {
+				if ((pos >= json.length) || (json[pos] != '"')) {
+					throw error("expected a member name");
+				}
+
+				scanString();
+				skipWhitespace();
+
+				if ((pos >= json.length) || (json[pos] != ':')) {
+					throw error("expected ':'");
+				}
+
+				pos++;
+				skipWhitespace();
+				scanValue(depth + 1);
+				skipWhitespace();
+
+				if ((pos < json.length) && (json[pos] == ',')) {
+					pos++;
+					skipWhitespace();
+				}else if ((pos < json.length) && (json[pos] == '}'))
+				{
+					pos++;
+					break;
+				}else
+				{
+					throw error("expected ',' or '}'");
+				}
+			}
+		}
+
+		ends[node] = pos;
+		nexts[node] = count;
+	}
+
+	private void scanArray(final int depth) {
+		if (depth >= MAX_DEPTH) {
+			throw error("the json document is nested too deeply");
+		}
+
+		int node = add(ARRAY, pos++);
+
+		skipWhitespace();
+
+		if ((pos < json.length) && (json[pos] == ']')) {
+			pos++;
+		}else
+		{
+			while (true) {
+				scanValue(depth + 1);
+				skipWhitespace();
+
+				if ((pos < json.length) && (json[pos] == ',')) {
+					pos++;
+					skipWhitespace();
+				}else if ((pos < json.length) && (json[pos] == ']'))
+				{
+					pos++;
+					break;
+				}else
+				{
+					throw error("expected ',' or ']'");
+				}
+			}
+		}
+
+		ends[node] = pos;
+		nexts[node] = count;
+	}
+
+	private void scanString() {
+		int node = add(STRING, ++pos);
+
+		while (true) {
+			if (pos >= json.length) {
+				throw error("unterminated string");
+			}
+
+			byte b = json[pos];
+
+			if (b == '"') {
+				break;
+			}
+
+			if (b == '\\') {
+				types[node] = ESCAPED_STRING;
+				scanEscape();
+			}else if ((b >= 0) && (b < 0x20))
+			{
+				throw error("control character in string");
+			}else
+			{
+				pos++;
+			}
+		}
+
+		ends[node] = pos++;
+		nexts[node] = count;
+	}
+
+	/**
+	 * <p>the escape sequence of the string (\", \\, \/, \b, \f, \n, \r, \t, or "\\u" and 4 hex digits)</p>
+	 */
+	private void scanEscape() {
+		if (pos + 1 >= json.length) {
+			throw error("unterminated string");
+		}
+
+		switch (json[pos + 1]) {
+			case '"':
+			case '\\':
+			case '/':
+			case 'b':
+			case 'f':
+			case 'n':
+			case 'r':
+			case 't':
+				pos += 2;
+				break;
+			case 'u':
+				for (int i = pos + 2; i < pos + 6; i++) {
+					if ((i >= json.length) || (Character.digit(json[i], 16) < 0)) {
+						throw error("invalid escape sequence");
+					}
+				}
+
+				pos += 6;
+				break;
+			default:
+				throw error("invalid escape sequence");
+		}
+	}
+
+	/**
+	 * <p>the number of RFC 8259 ("-"? int frac? exp?, no leading zeros)</p>
+	 */
+	private void scanNumber() {
+		int node = add(NUMBER, pos);
+
+		if ((pos < json.length) && (json[pos] == '-')) {
+			pos++;
+		}
+
+		if ((pos < json.length) && (json[pos] == '0')) {
+			pos++;
+		}else if (scanDigits() == 0)
+		{
+			throw error((pos == starts[node]) ? "unexpected character" : "invalid number");
+		}
+
+		if ((pos < json.length) && (json[pos] == '.')) {
+			pos++;
+
+			if (scanDigits() == 0) {
+				throw error("invalid number");
+			}
+		}
+
+		if ((pos < json.length) && ((json[pos] == 'e') || (json[pos] == 'E'))) {
+			pos++;
+
+			if ((pos < json.length) && ((json[pos] == '+') || (json[pos] == '-'))) {
+				pos++;
+			}
+
+			if (scanDigits() == 0) {
+				throw error("invalid number");
+			}
+		}
+
+		ends[node] = pos;
+		nexts[node] = count;
+	}
+
+	/**
+	 * <p>returns the number of the scanned digits</p>
+	 */
+	private int scanDigits() {
+		int start = pos;
+
+		while ((pos < json.length) && (json[pos] >= '0') && (json[pos] <= '9')) {
+			pos++;
+		}
+
+		return pos - start;
+	}
+
+	private void scanLiteral(final byte type, final String literal) {
+		int node = add(type, pos);
+
+		for (int i = 0; i < literal.length(); i++, pos++) {
+			if ((pos >= json.length) || (json[pos] != literal.charAt(i))) {
+				throw error("unexpected literal");
+			}
+		}
+
+		ends[node] = pos;
+		nexts[node] = count;
+	}
+
+	private void skipWhitespace() {
+		while ((pos < json.length) && ((json[pos] == ' ') || (json[pos] == '\n') || (json[pos] == '\r') || (json[pos] == '\t'))) {
+			pos++;
+		}
+	}
+
+	private IllegalArgumentException error(final String message) {
+		return new IllegalArgumentException(message + ". offset=" + pos);
+	}
+
+	// ------------------------------------------------------------
+	// lookup
+	// ------------------------------------------------------------
+
+	/**
+	 * <p>returns the index of the value of the path, or -1 if there is no such value</p>
+	 */
+	private int find(final JsonPath path) {
+		int node = 0;
+
+		for (int i = 0; i < path.size(); i++) {
+			String name = path.getName(i);
+
+			if (name != null) {
+				if (types[node] != OBJECT) {
+					return -1;
+				}
+
+				int end = nexts[node];
+				int key = node + 1;
+
+				node = -1;
+
+				while (key < end) {
+					if (keyEquals(key, name)) {
+						node = key + 1;
+						break;
+					}
+
+					key = nexts[key + 1];
+				}
+			}else
+			{
+				if (types[node] != ARRAY) {
+					return -1;
+				}
+
+				int end = nexts[node];
+				int element = node + 1;
+
+				for (int j = 0; (j < path.getIndex(i)) && (element < end); j++) {
+					element = nexts[element];
+				}
+
+				node = (element < end) ? element : -1;
+			}
+
+			if (node < 0) {
+				return -1;
+			}
+		}
+
+		return node;
+	}
+
+	private boolean keyEquals(final int key, final String name) {
+		if (types[key] == STRING) {
+			int start = starts[key];
+			int length = ends[key] - start;
+
+			if (length == name.length()) {
+				// ------------------------------------------------------------
+				// compare the ASCII name without decoding
+				// ------------------------------------------------------------
+				for (int i = 0; i < length; i++) {
+					byte b = json[start + i];
+
+					if (b < 0) {
+						return name.equals(decodeString(key));
+					}
+
+					if (b != name.charAt(i)) {
+						return false;
+					}
+				}
+
+				return true;
+			}
+
+			if (length < name.length()) {
+				return false;
+			}
+		}
+
+		return name.equals(decodeString(key));
+	}
+
+	private String decodeString(final int node) {
+		int start = starts[node];
+		int end = ends[node];
+
+		if (types[node] == STRING) {
+			return new String(json, start, end - start, StandardCharsets.UTF_8);
+		}
+
+		StringBuilder sb = new StringBuilder(end - start);
+		int i = start;
+
+		while (i < end) {
+			int next = i;
+
+			while ((next < end) && (json[next] != '\\')) {
+				next++;
+			}
+
+			sb.append(new String(json, i, next - i, StandardCharsets.UTF_8));
+
+			if (next >= end) {
+				break;
+			}
+
+			char c = (char) json[next + 1];
+
+			switch (c) {
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'u':
+					if (next + 6 > end) {
+						throw new IllegalArgumentException("invalid escape sequence. offset=" + next);
+					}
+
+					sb.append((char) Integer.parseInt(new String(json, next + 2, 4, StandardCharsets.US_ASCII), 16));
+					next += 4;
+					break;
+				default:
+					sb.append(c);
+					break;
+			}
+
+			i = next + 2;
+		}
+
+		return sb.toString();
+	}
+
+	private Number decodeNumber(final int node) {
+		String value = new String(json, starts[node], ends[node] - starts[node], StandardCharsets.US_ASCII);
+
+		try {
+			if ((value.indexOf('.') >= 0) || (value.indexOf('e') >= 0) || (value.indexOf('E') >= 0)) {
+				return Double.valueOf(value);
+			}
+
+			try {
+				return Long.valueOf(value);
+			}catch (NumberFormatException e)
+			{
+				// ------------------------------------------------------------
+				// out of the range of long
+				// ------------------------------------------------------------
+				return new BigDecimal(value);
+			}
+		}catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("invalid number. offset=" + starts[node], e);
+		}
+	}
+
+	/**
+	 * <p>decode the value (object -> Map, array -> List, string -> String, number -> Long, BigDecimal or Double, true/false -> Boolean, null -> null)</p>
+	 */
+	private Object decode(final int node) {
+		switch (types[node]) {
+			case OBJECT: {
+				Map<String, Object> map = new LinkedHashMap<String, Object>();
+				int end = nexts[node];
+
+				for (int key = node + 1; key < end; key = nexts[key + 1]) {
+					map.put(decodeString(key), decode(key + 1));
+				}
+
+				return map;
+			}
+			case ARRAY: {
+				List<Object> list = new ArrayList<Object>();
+				int end = nexts[node];
+
+				for (int element = node + 1; element < end; element = nexts[element]) {
+					list.add(decode(element));
+				}
+
+				return list;
+			}
+			case STRING:
+			case ESCAPED_STRING:
+				return decodeString(node);
+			case NUMBER:
+				return decodeNumber(node);
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			default:
+				return null;
+		}
+	}
+
+	// ------------------------------------------------------------
+	// accessors
+	// ------------------------------------------------------------
+
+	/**
+	 * <p>check if the document has the value of the path (the null value is included)</p>
+	 */
+	public boolean has(final String path) {
+		return find(JsonPath.compile(path)) >= 0;
+	}
+
+	/**
+	 * <p>returns the decoded value of the path (object -> Map, array -> List, string -> String, number -> Long or Double, true/false -> Boolean),
+	 * or null if there is no such value</p>
+	 */
+	public Object get(final String path) {
+		return get(JsonPath.compile(path));
+	}
+
+	/**
+	 * <p>returns the decoded value of the precompiled path</p>
+	 */
+	public Object get(final JsonPath path) {
+		int node = find(path);
+
+		return (node >= 0) ? decode(node) : null;
+	}
+
+	/**
+	 * <p>bind the value of the path to the type (only the json text of the value is parsed), or returns null if there is no such value</p>
+	 */
+	public <T> T get(final String path, final Class<T> type) {
+		int node = find(JsonPath.compile(path));
+
+		if ((node < 0) || (types[node] == NULL)) {
+			return null;
+		}
+
+		return GsonUtils.convertJson2Object(getRaw(node), type);
+	}
+
+	/**
+	 * <p>returns the string value of the path (the number and boolean values are returned as the json text), or null</p>
+	 */
+	public String getString(final String path) {
+		int node = find(JsonPath.compile(path));
+
+		if (node < 0) {
+			return null;
+		}
+
+		switch (types[node]) {
+			case STRING:
+			case ESCAPED_STRING:
+				return decodeString(node);
+			case NUMBER:
+			case TRUE:
+			case FALSE:
+				return getRaw(node);
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * <p>returns the long value of the path, or the default value if there is no such number (or numeric string)</p>
+	 */
+	public long getLong(final String path, final long defaultValue) {
+		int node = find(JsonPath.compile(path));
+
+		if ((node >= 0) && ((types[node] == NUMBER) || (types[node] == STRING))) {
+			try {
+				return new BigDecimal(new String(json, starts[node], ends[node] - starts[node], StandardCharsets.US_ASCII).trim()).longValue();
+			}catch (NumberFormatException ignore)
+			{
+				//--- nothing
+			}
+		}
+
+		return defaultValue;
+	}
+
+	/**
+	 * <p>returns the double value of the path, or the default value if there is no such number (or numeric string)</p>
+	 */
+	public double getDouble(final String path, final double defaultValue) {
+		int node = find(JsonPath.compile(path));
+
+		if ((node >= 0) && ((types[node] == NUMBER) || (types[node] == STRING))) {
+			try {
+				return Double.parseDouble(new String(json, starts[node], ends[node] - starts[node], StandardCharsets.US_ASCII).trim());
+			}catch (NumberFormatException ignore)
+			{
+				//--- nothing
+			}
+		}
+
+		return defaultValue;
+	}
+
+	/**
+	 * <p>returns the boolean value of the path, or the default value if there is no such boolean</p>
+	 */
+	public boolean getBoolean(final String path, final boolean defaultValue) {
+		int node = find(JsonPath.compile(path));
+
+		if (node >= 0) {
+			if (types[node] == TRUE) {
+				return true;
+			}
+
+			if (types[node] == FALSE) {
+				return false;
+			}
+		}
+
+		return defaultValue;
+	}
+
+	/**
+	 * <p>returns the number of the members (object) or elements (array) of the path, or -1 if the value is not an object or array</p>
+	 */
+	public int size(final String path) {
+		int node = find(JsonPath.compile(path));
+
+		if ((node < 0) || ((types[node] != OBJECT) && (types[node] != ARRAY))) {
+			return -1;
+		}
+
+		int size = 0;
+		int end = nexts[node];
+
+		for (int child = node + 1; child < end; child = nexts[(types[node] == OBJECT) ? child + 1 : child]) {
+			size++;
+		}
+
+		return size;
+	}
+
+	/**
+	 * <p>returns the json text of the value of the path, or null if there is no such value</p>
+	 */
+	public String getRaw(final String path) {
+		int node = find(JsonPath.compile(path));
+
+		return (node >= 0) ? getRaw(node) : null;
+	}
+
+	private String getRaw(final int node) {
+		if ((types[node] == STRING) || (types[node] == ESCAPED_STRING)) {
+			return new String(json, starts[node] - 1, ends[node] - starts[node] + 2, StandardCharsets.UTF_8);
+		}
+
+		return new String(json, starts[node], ends[node] - starts[node], StandardCharsets.UTF_8);
+	}
+
+}
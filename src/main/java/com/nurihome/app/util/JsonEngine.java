@@ -0,0 +1,35 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * <p>JSON engine behind {@link GsonUtils} (Gson or Jackson, selected with "gws.json.engine" property).</p>
+ *
+ * <p>every engine must write the same json text for the same object as the Gson instance of {@link GsonUtils}
+ * (null members are written, no html escaping, the fields are serialized, not the getters, the transient fields are excluded).</p>
+ */
+public interface JsonEngine {
+
+	/**
+	 * <p>returns the name of the engine ("gson", "jackson")</p>
+	 */
+	String getName();
+
+	/**
+	 * <p>convert java object to json string</p>
+	 */
+	String toJson(Object o);
+
+	/**
+	 * <p>write java object to the output stream in json format (UTF-8). the output stream is not closed.</p>
+	 */
+	void writeJson(Object o, OutputStream out) throws IOException;
+
+	/**
+	 * <p>convert json string to java object of the type (the numbers of the untyped values are converted to Double)</p>
+	 */
+	<T> T fromJson(String json, Type type);
+
+}
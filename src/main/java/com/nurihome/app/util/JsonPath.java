@@ -0,0 +1,235 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * <p>Precompiled json path ("a.b[3].c").</p>
+ *
+ * <p>the path is parsed once into the segments (member names and array indexes), and the compiled paths are cached.
+ * {@link #select(JsonReader)} moves the json reader to the value of the path, and skips the unrelated values without building them,
+ * so the selected value can be bound directly from the reader.</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     private static final JsonPath ITEMS = JsonPath.compile("response.body.items[0]");
+ *
+ *     ClassObject classObject = GsonUtils.parseJsonTree2Object("json string", ITEMS, ClassObject.class);
+ * }</pre>
+ * </blockquote>
+ */
+public final class JsonPath {
+
+	/**
+	 * maximum number of the cached paths (the cache is cleared if exceeded, e.g. the paths are built from the request values)
+	 */
+	private static final int MAX_CACHED_PATHS = 1024;
+
+	/**
+	 * compiled paths (path -> json path)
+	 */
+	private static final ConcurrentMap<String, JsonPath> CACHE = new ConcurrentHashMap<String, JsonPath>();
+
+	private final String path;
+
+	/**
+	 * member names (null if the segment is an array index)
+	 */
+	private final String[] names;
+
+	/**
+	 * array indexes (-1 if the segment is a member name)
+	 */
+	private final int[] indexes;
+
+	private JsonPath(String path, String[] names, int[] indexes) {
+		this.path = path;
+		this.names = names;
+		this.indexes = indexes;
+	}
+
+	/**
+	 * <p>returns the compiled json path (cached)</p>
+	 *
+	 * @throws IllegalArgumentException if the path is invalid
+	 */
+	public static JsonPath compile(final String path) {
+		JsonPath jsonPath = CACHE.get(path);
+
+		if (jsonPath == null) {
+			jsonPath = parse(path);
+
+			if (CACHE.size() >= MAX_CACHED_PATHS) {
+				CACHE.clear();
+			}
+
+			CACHE.put(path, jsonPath);
+		}
+
+		return jsonPath;
+	}
+
+	private static JsonPath parse(final String path) {
+		if (Utils.isEmpty(path)) {
+			throw new IllegalArgumentException("empty json path");
+		}
+
+		List<String> names = new ArrayList<String>();
+		List<Integer> indexes = new ArrayList<Integer>();
+		int length = path.length();
+		int i = 0;
+
+		while (i < length) {
+			char c = path.charAt(i);
+
+			if (c == '[') {
+				// ------------------------------------------------------------
+				// array index
+				// ------------------------------------------------------------
+				int end = path.indexOf(']', i);
+
+				if ((end < 0) || (end == i + 1)) {
+					throw new IllegalArgumentException("invalid json path. path=" + path);
+				}
+
+				int index = 0;
+
+				for (int j = i + 1; j < end; j++) {
+					char d = path.charAt(j);
+
+					if ((d < '0') || (d > '9') || (index > (Integer.MAX_VALUE - 9) / 10)) {
+						throw new IllegalArgumentException("invalid json path. path=" + path);
+					}
+
+					index = index * 10 + (d - '0');
+				}
+
+				names.add(null);
+				indexes.add(index);
+
+				i = end + 1;
+			}else
+			{
+				// ------------------------------------------------------------
+				// member name
+				// ------------------------------------------------------------
+				if (c == '.') {
+					if ((names.isEmpty()) || (i + 1 >= length) || (path.charAt(i + 1) == '.') || (path.charAt(i + 1) == '[')) {
+						throw new IllegalArgumentException("invalid json path. path=" + path);
+					}
+
+					i++;
+				}else if (!names.isEmpty())
+				{
+					throw new IllegalArgumentException("invalid json path. path=" + path);
+				}
+
+				int end = i;
+
+				while ((end < length) && (path.charAt(end) != '.') && (path.charAt(end) != '[')) {
+					end++;
+				}
+
+				names.add(path.substring(i, end));
+				indexes.add(-1);
+
+				i = end;
+			}
+		}
+
+		int[] indexArray = new int[indexes.size()];
+
+		for (int j = 0; j < indexArray.length; j++) {
+			indexArray[j] = indexes.get(j);
+		}
+
+		return new JsonPath(path, names.toArray(new String[0]), indexArray);
+	}
+
+	/**
+	 * <p>move the json reader to the value of the path (the next token is the first token of the value).
+	 * returns false if there is no such value.</p>
+	 */
+	public boolean select(final JsonReader reader) throws IOException {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] != null) {
+				if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+					return false;
+				}
+
+				reader.beginObject();
+
+				boolean found = false;
+
+				while (reader.hasNext()) {
+					if (names[i].equals(reader.nextName())) {
+						found = true;
+
+						break;
+					}
+
+					reader.skipValue();
+				}
+
+				if (!found) {
+					return false;
+				}
+			}else
+			{
+				if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+					return false;
+				}
+
+				reader.beginArray();
+
+				for (int j = 0; j < indexes[i]; j++) {
+					if (!reader.hasNext()) {
+						return false;
+					}
+
+					reader.skipValue();
+				}
+
+				if (!reader.hasNext()) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * <p>returns the number of the segments</p>
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * <p>returns the member name of the segment, or null if the segment is an array index</p>
+	 */
+	public String getName(final int i) {
+		return names[i];
+	}
+
+	/**
+	 * <p>returns the array index of the segment, or -1 if the segment is a member name</p>
+	 */
+	public int getIndex(final int i) {
+		return indexes[i];
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.nurihome.app.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Fixed-memory latency histogram (log-linear buckets, about 12% resolution).</p>
+ *
+ * <p>values are recorded in nanoseconds, and bucketed in units of 1024ns (about 1 microsecond). every power of two range is split into 8 sub-buckets,
+ * so the memory does not grow with the number of recorded values. percentiles are reported as the upper bound of the bucket.</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     long start = System.nanoTime();
+ *     ...
+ *     histogram.record(System.nanoTime() - start);
+ *
+ *     histogram.getPercentile(0.99) = 1245184 (nanoseconds)
+ * }</pre>
+ * </blockquote>
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * nanoseconds to bucket unit (1024ns)
+	 */
+	private static final int UNIT_SHIFT = 10;
+
+	/**
+	 * sub-buckets per power of two (2^3)
+	 */
+	private static final int SUB_BITS = 3;
+
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	private static final int BUCKET_COUNT = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder sum = new LongAdder();
+
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+	/**
+	 * <p>record a latency value (nanoseconds)</p>
+	 */
+	public void record(final long nanos) {
+		long value = Math.max(nanos, 0L);
+
+		buckets.incrementAndGet(indexOf(value >>> UNIT_SHIFT));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * <p>returns the bucket index of the value (bucket unit)</p>
+	 */
+	private static int indexOf(final long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+
+		return ((exponent - SUB_BITS + 1) * SUB_COUNT) + sub;
+	}
+
+	/**
+	 * <p>returns the upper bound (nanoseconds) of the bucket</p>
+	 */
+	private static long upperBoundOf(final int index) {
+		if (index < SUB_COUNT) {
+			return ((long) (index + 1) << UNIT_SHIFT) - 1L;
+		}
+
+		int exponent = (index / SUB_COUNT) + SUB_BITS - 1;
+		int sub = index % SUB_COUNT;
+
+		long upper = ((long) (SUB_COUNT + sub + 1) << (exponent - SUB_BITS));
+
+		if (upper >= (Long.MAX_VALUE >>> UNIT_SHIFT)) {
+			return Long.MAX_VALUE;
+		}
+
+		return (upper << UNIT_SHIFT) - 1L;
+	}
+
+	/**
+	 * <p>returns the latency (nanoseconds) at the given percentile (0.0 ~ 1.0), or 0 if no value is recorded</p>
+	 */
+	public long getPercentile(final double percentile) {
+		long[] snapshot = new long[BUCKET_COUNT];
+		long total = 0L;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = buckets.get(i);
+			total += snapshot[i];
+		}
+
+		if (total == 0L) {
+			return 0L;
+		}
+
+		long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+		long seen = 0L;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += snapshot[i];
+
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * <p>returns the mean latency (nanoseconds)</p>
+	 */
+	public long getMean() {
+		long n = count.sum();
+
+		if (n == 0L) {
+			return 0L;
+		}
+
+		return sum.sum() / n;
+	}
+
+}
@@ -0,0 +1,400 @@
+package com.nurihome.app.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Precompiled, thread-safe number format (same output as {@link DecimalFormat} of the pattern and the locale).</p>
+ *
+ * <p>the pattern is compiled once and the formatters are cached by the locale and the pattern, so the formatter can be shared by all threads.
+ * the plain patterns (digits, grouping, decimal separator, prefix and suffix) are formatted directly into the {@link StringBuilder}
+ * without creating a DecimalFormat, and the others (exponent, percent, NaN, infinity) are formatted by a DecimalFormat of the thread.</p>
+ *
+ * <ul>
+ * <li>double - rounded with the rounding mode of the format (HALF_EVEN) on the shortest decimal of the double, and on the exact binary value on a tie,
+ * as DecimalFormat does</li>
+ * <li>long, BigDecimal - exact</li>
+ * <li>currency - the symbol, the position of the symbol and the fraction digits of the currency in the locale</li>
+ * </ul>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     NumberFormatter.getInstance("#,##0.00").format(-1234567.891)                          = "-1,234,567.89"
+ *     NumberFormatter.getInstance("#,##0.00", Locale.GERMANY).format(1234.5)                = "1.234,50"
+ *     NumberFormatter.getCurrencyInstance(Currency.getInstance("KRW"), Locale.KOREA).format(1234567L) = "₩1,234,567"
+ *
+ *     NumberFormatter.getInstance("#,##0").formatColumns(rows, "amount", "quantity");       // rows of the result set
+ * }</pre>
+ * </blockquote>
+ */
+public final class NumberFormatter {
+
+	/**
+	 * maximum formatters cached for each locale (the patterns built at runtime are compiled for each call over the limit)
+	 */
+	private static final int MAX_CACHED = 256;
+
+	private static final long[] POW10 = {
+		1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+		10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L, 1000000000000000L
+	};
+
+	/**
+	 * 2^53 : the doubles below are scaled to a long without losing the integer digits
+	 */
+	private static final double EXACT_LIMIT = 9007199254740992.0;
+
+	private static final Map<Locale, Map<String, NumberFormatter>> FORMATTERS = new ConcurrentHashMap<Locale, Map<String, NumberFormatter>>();
+
+	private static final Map<Locale, Map<Currency, NumberFormatter>> CURRENCY_FORMATTERS = new ConcurrentHashMap<Locale, Map<Currency, NumberFormatter>>();
+
+	/**
+	 * digits of the formatted number (reused by the thread)
+	 */
+	private static final ThreadLocal<char[]> DIGITS = ThreadLocal.withInitial(() -> new char[64]);
+
+	private final DecimalFormat format;
+
+	/**
+	 * DecimalFormat of the thread for the patterns which are not formatted directly
+	 */
+	private final ThreadLocal<DecimalFormat> formats;
+
+	private final boolean direct;
+
+	private final String positivePrefix;
+
+	private final String positiveSuffix;
+
+	private final String negativePrefix;
+
+	private final String negativeSuffix;
+
+	/**
+	 * digits between the grouping separators (0 if the grouping is not used)
+	 */
+	private final int groupingSize;
+
+	private final char groupingSeparator;
+
+	private final char decimalSeparator;
+
+	private final char zeroDigit;
+
+	private final int minimumIntegerDigits;
+
+	private final int minimumFractionDigits;
+
+	private final int maximumFractionDigits;
+
+	private final RoundingMode roundingMode;
+
+	private NumberFormatter(final DecimalFormat format) {
+		DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+		boolean currency = (format.toPattern().indexOf('\u00A4') >= 0);
+
+		this.format = format;
+		this.formats = ThreadLocal.withInitial(() -> (DecimalFormat) format.clone());
+		this.positivePrefix = format.getPositivePrefix();
+		this.positiveSuffix = format.getPositiveSuffix();
+		this.negativePrefix = format.getNegativePrefix();
+		this.negativeSuffix = format.getNegativeSuffix();
+		this.groupingSize = (format.isGroupingUsed() && (format.getGroupingSize() > 0)) ? format.getGroupingSize() : 0;
+		this.groupingSeparator = currency ? symbols.getMonetaryGroupingSeparator() : symbols.getGroupingSeparator();
+		this.decimalSeparator = currency ? symbols.getMonetaryDecimalSeparator() : symbols.getDecimalSeparator();
+		this.zeroDigit = symbols.getZeroDigit();
+		this.minimumIntegerDigits = format.getMinimumIntegerDigits();
+		this.minimumFractionDigits = format.getMinimumFractionDigits();
+		this.maximumFractionDigits = format.getMaximumFractionDigits();
+		this.roundingMode = format.getRoundingMode();
+
+		// ------------------------------------------------------------
+		// exponent, multiplier (percent, per mille), limited integer digits and long fractions are left to DecimalFormat
+		// ------------------------------------------------------------
+		this.direct = (format.toPattern().indexOf('E') < 0) && (format.getMultiplier() == 1) && (!format.isDecimalSeparatorAlwaysShown())
+			&& (format.getMaximumIntegerDigits() >= 340) && (maximumFractionDigits < POW10.length) && (minimumIntegerDigits <= 32);
+	}
+
+	/**
+	 * <p>returns the formatter of the pattern in the default locale</p>
+	 */
+	public static NumberFormatter getInstance(final String pattern) {
+		return getInstance(pattern, Locale.getDefault(Locale.Category.FORMAT));
+	}
+
+	/**
+	 * <p>returns the formatter of the pattern in the locale (see {@link DecimalFormat} for the pattern)</p>
+	 */
+	public static NumberFormatter getInstance(final String pattern, final Locale locale) {
+		Map<String, NumberFormatter> formatters = FORMATTERS.computeIfAbsent(locale, key -> new ConcurrentHashMap<String, NumberFormatter>());
+		NumberFormatter formatter = formatters.get(pattern);
+
+		if (formatter == null) {
+			formatter = new NumberFormatter(new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale)));
+
+			if (formatters.size() < MAX_CACHED) {
+				formatters.putIfAbsent(pattern, formatter);
+			}
+		}
+
+		return formatter;
+	}
+
+	/**
+	 * <p>returns the currency formatter of the locale (symbol, position of the symbol and fraction digits of the currency)</p>
+	 */
+	public static NumberFormatter getCurrencyInstance(final Currency currency, final Locale locale) {
+		return CURRENCY_FORMATTERS.computeIfAbsent(locale, key -> new ConcurrentHashMap<Currency, NumberFormatter>())
+			.computeIfAbsent(currency, key -> {
+				NumberFormat numberFormat = NumberFormat.getCurrencyInstance(locale);
+
+				if (!(numberFormat instanceof DecimalFormat)) {
+					throw new IllegalArgumentException("unsupported currency format. locale=" + locale);
+				}
+
+				numberFormat.setCurrency(currency);
+
+				return new NumberFormatter((DecimalFormat) numberFormat);
+			});
+	}
+
+	public String format(final double number) {
+		return format(number, new StringBuilder(24)).toString();
+	}
+
+	public String format(final long number) {
+		return format(number, new StringBuilder(24)).toString();
+	}
+
+	public String format(final BigDecimal number) {
+		return format(number, new StringBuilder(24)).toString();
+	}
+
+	/**
+	 * <p>format the number string (parsed as a double, as Utils.getNumberType). returns the string if it is not a number.</p>
+	 */
+	public String format(final String number) {
+		try {
+			return format(Double.parseDouble(number));
+		}catch (NumberFormatException e)
+		{
+			return number;
+		}
+	}
+
+	/**
+	 * <p>append the formatted number to the builder</p>
+	 */
+	public StringBuilder format(final double number, final StringBuilder sb) {
+		if ((!direct) || Double.isNaN(number) || Double.isInfinite(number)) {
+			return sb.append(formats.get().format(number));
+		}
+
+		boolean negative = (Double.doubleToRawLongBits(number) < 0L);
+		double abs = Math.abs(number);
+		int scale = maximumFractionDigits;
+
+		if (abs < (EXACT_LIMIT / POW10[scale])) {
+			double scaled = abs * POW10[scale];
+			double floor = Math.floor(scaled);
+			double remainder = scaled - floor;
+
+			// ------------------------------------------------------------
+			// the scaled value is rounded once by the multiplication, so only the values near a half are rounded on the exact value
+			// ------------------------------------------------------------
+			if ((Math.abs(remainder - 0.5) > (Math.ulp(scaled) * 2.0))
+					&& ((roundingMode == RoundingMode.HALF_EVEN) || (roundingMode == RoundingMode.HALF_UP) || (roundingMode == RoundingMode.HALF_DOWN))) {
+				return appendUnscaled(sb, negative, (long) floor + ((remainder > 0.5) ? 1L : 0L), scale);
+			}
+		}
+
+		// ------------------------------------------------------------
+		// DecimalFormat rounds the shortest decimal of the double (Double.toString), and the exact binary value on a tie of the shortest decimal
+		// ------------------------------------------------------------
+		BigDecimal shortest = new BigDecimal(Double.toString(abs)).stripTrailingZeros();
+
+		if ((shortest.scale() == (scale + 1)) && (shortest.unscaledValue().mod(BigInteger.TEN).intValue() == 5)) {
+			return appendDecimal(sb, negative, new BigDecimal(abs));
+		}
+
+		return appendDecimal(sb, negative, shortest);
+	}
+
+	public StringBuilder format(final long number, final StringBuilder sb) {
+		if (!direct) {
+			return sb.append(formats.get().format(number));
+		}
+
+		if (number == Long.MIN_VALUE) {
+			return appendDecimal(sb, true, BigDecimal.valueOf(number).negate());
+		}
+
+		return appendUnscaled(sb, (number < 0L), Math.abs(number), 0);
+	}
+
+	public StringBuilder format(final BigDecimal number, final StringBuilder sb) {
+		if (!direct) {
+			return sb.append(formats.get().format(number));
+		}
+
+		return appendDecimal(sb, (number.signum() < 0), number.abs());
+	}
+
+	/**
+	 * <p>format the number or the number string of a cell (the other values are returned as they are)</p>
+	 */
+	private Object formatCell(final Object value, final StringBuilder sb) {
+		sb.setLength(0);
+
+		if (value instanceof BigDecimal) {
+			format((BigDecimal) value, sb);
+		}else if ((value instanceof Long) || (value instanceof Integer) || (value instanceof Short) || (value instanceof Byte))
+		{
+			format(((Number) value).longValue(), sb);
+		}else if (value instanceof BigInteger)
+		{
+			format(new BigDecimal((BigInteger) value), sb);
+		}else if (value instanceof Number)
+		{
+			format(((Number) value).doubleValue(), sb);
+		}else if ((value instanceof String) && (!((String) value).isEmpty()))
+		{
+			try {
+				format(Double.parseDouble((String) value), sb);
+			}catch (NumberFormatException e)
+			{
+				return value;
+			}
+		}else
+		{
+			return value;
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * <p>format the columns of all rows (the values are replaced with the formatted strings in place, one builder is reused for all cells)</p>
+	 */
+	public <T extends Map<String, Object>> List<T> formatColumns(final List<T> rows, final String... columns) {
+		StringBuilder sb = new StringBuilder(32);
+
+		for (Map<String, Object> row : rows) {
+			for (String column : columns) {
+				Object value = row.get(column);
+
+				if (value != null) {
+					row.put(column, formatCell(value, sb));
+				}
+			}
+		}
+
+		return rows;
+	}
+
+	/**
+	 * <p>append the rounded absolute value to the builder (the unscaled digits are the value * 10^scale)</p>
+	 */
+	private StringBuilder appendUnscaled(final StringBuilder sb, final boolean negative, final long unscaled, final int scale) {
+		char[] digits = DIGITS.get();
+		int length = 0;
+
+		for (long value = unscaled; (value > 0L) || (length <= scale); value /= 10L) {
+			digits[digits.length - 1 - length] = (char) ('0' + (value % 10L));
+			length++;
+		}
+
+		return appendDigits(sb, negative, digits, digits.length - length, length, scale);
+	}
+
+	/**
+	 * <p>append the absolute value rounded with the rounding mode of the format</p>
+	 */
+	private StringBuilder appendDecimal(final StringBuilder sb, final boolean negative, final BigDecimal abs) {
+		BigDecimal rounded = abs.setScale(Math.max(maximumFractionDigits, 0), roundingMode);
+		String unscaled = rounded.unscaledValue().toString();
+		int zeros = Math.max(0, rounded.scale() + 1 - unscaled.length());
+		char[] digits = DIGITS.get();
+
+		if (zeros + unscaled.length() > digits.length) {
+			digits = new char[zeros + unscaled.length()];
+		}
+
+		// ------------------------------------------------------------
+		// at least one integer digit (0.05 = "5" of scale 2 -> "005")
+		// ------------------------------------------------------------
+		for (int i = 0; i < zeros; i++) {
+			digits[i] = '0';
+		}
+
+		unscaled.getChars(0, unscaled.length(), digits, zeros);
+
+		return appendDigits(sb, negative, digits, 0, zeros + unscaled.length(), rounded.scale());
+	}
+
+	/**
+	 * <p>append the digits ('0' ~ '9', the last scale digits are the fraction) with the prefix, the grouping and the suffix of the format</p>
+	 */
+	private StringBuilder appendDigits(final StringBuilder sb, final boolean negative, final char[] digits, final int offset, final int length, final int scale) {
+		int integerEnd = offset + length - scale;
+		int integerStart = offset;
+
+		while ((integerStart < integerEnd) && (digits[integerStart] == '0')) {
+			integerStart++;
+		}
+
+		int fractionLength = scale;
+
+		while ((fractionLength > minimumFractionDigits) && (digits[integerEnd + fractionLength - 1] == '0')) {
+			fractionLength--;
+		}
+
+		int integerLength = integerEnd - integerStart;
+		int shown = Math.max(integerLength, minimumIntegerDigits);
+
+		if ((shown == 0) && (fractionLength == 0)) {
+			shown = 1;
+		}
+
+		sb.append(negative ? negativePrefix : positivePrefix);
+
+		for (int i = shown - 1; i >= 0; i--) {
+			char digit = (i < integerLength) ? digits[integerEnd - 1 - i] : '0';
+
+			sb.append((char) (zeroDigit + (digit - '0')));
+
+			if ((groupingSize > 0) && (i > 0) && ((i % groupingSize) == 0)) {
+				sb.append(groupingSeparator);
+			}
+		}
+
+		if ((fractionLength > 0) || (minimumFractionDigits > 0)) {
+			sb.append(decimalSeparator);
+
+			for (int i = 0; i < fractionLength; i++) {
+				sb.append((char) (zeroDigit + (digits[integerEnd + i] - '0')));
+			}
+
+			for (int i = fractionLength; i < minimumFractionDigits; i++) {
+				sb.append(zeroDigit);
+			}
+		}
+
+		return sb.append(negative ? negativeSuffix : positiveSuffix);
+	}
+
+	public String toPattern() {
+		return format.toPattern();
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * <p>Byte array output stream which writes into the pooled buffers of {@link ByteBufferPool}.</p>
+ *
+ * <p>the buffer grows by the size classes of the pool (the smaller buffer is returned to the pool when it is replaced),
+ * and the buffer is returned to the pool when the stream is closed. the bytes must be copied ({@link #toByteArray()})
+ * or written ({@link #writeTo(OutputStream)}) before closing the stream. not thread-safe.</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     try (PooledByteArrayOutputStream out = new PooledByteArrayOutputStream()) {
+ *         GsonUtils.writeObject2Json(modelEntity, out);
+ *
+ *         return out.toByteArray();
+ *     }
+ * }</pre>
+ * </blockquote>
+ */
+public final class PooledByteArrayOutputStream extends OutputStream {
+
+	private static final int DEFAULT_SIZE = 4096;
+
+	private byte[] buffer;
+
+	private int count;
+
+	public PooledByteArrayOutputStream() {
+		this(DEFAULT_SIZE);
+	}
+
+	public PooledByteArrayOutputStream(final int size) {
+		this.buffer = ByteBufferPool.acquire(size);
+	}
+
+	private void ensureCapacity(final int required) {
+		if (buffer == null) {
+			throw new IllegalStateException("stream closed");
+		}
+
+		if (required < 0) {
+			throw new OutOfMemoryError("required array size too large");
+		}
+
+		if (required <= buffer.length) {
+			return;
+		}
+
+		byte[] grown = ByteBufferPool.acquire(ByteBufferPool.grow(buffer.length, required));
+
+		System.arraycopy(buffer, 0, grown, 0, count);
+		ByteBufferPool.release(buffer);
+
+		buffer = grown;
+	}
+
+	@Override
+	public void write(final int b) {
+		ensureCapacity(count + 1);
+
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) {
+		if ((off < 0) || (len < 0) || (off + len > b.length)) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		ensureCapacity(count + len);
+
+		System.arraycopy(b, off, buffer, count, len);
+		count += len;
+	}
+
+	/**
+	 * <p>number of the written bytes</p>
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * <p>copy of the written bytes</p>
+	 */
+	public byte[] toByteArray() {
+		if (buffer == null) {
+			throw new IllegalStateException("stream closed");
+		}
+
+		return Arrays.copyOf(buffer, count);
+	}
+
+	/**
+	 * <p>write the written bytes to the output stream (without copying)</p>
+	 */
+	public void writeTo(final OutputStream out) throws IOException {
+		if (buffer == null) {
+			throw new IllegalStateException("stream closed");
+		}
+
+		out.write(buffer, 0, count);
+	}
+
+	public void reset() {
+		count = 0;
+	}
+
+	/**
+	 * <p>return the buffer to the pool</p>
+	 */
+	@Override
+	public void close() {
+		if (buffer != null) {
+			ByteBufferPool.release(buffer);
+
+			buffer = null;
+			count = 0;
+		}
+	}
+
+}
@@ -0,0 +1,214 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
+import com.nurihome.app.web.entity.ModelEntity;
+
+/**
+ * <p>Row streaming utility for the commands which return the rows lazily.</p>
+ *
+ * <p>a command can return a {@link Stream}, an {@link Iterator} or a closeable {@link Iterable} (e.g. MyBatis {@code Cursor}) instead of a list.
+ * the rows are written to the response one by one while they are read, and the source is closed when all rows are written,
+ * when an error occurs or when the client has closed the connection.</p>
+ *
+ * <p>the source must stay open after the command returns (e.g. the cursor of a SqlSession which is closed by {@code Stream.onClose()}).</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     public Stream<Map<String, Object>> retrieveLogList(ParamEntity paramEntity) {
+ *         SqlSession sqlSession = sqlSessionFactory.openSession();
+ *         Cursor<Map<String, Object>> cursor = sqlSession.selectCursor("log.retrieveLogList", paramEntity.getParameters());
+ *
+ *         return StreamSupport.stream(cursor.spliterator(), false).onClose(sqlSession::close);
+ *     }
+ * }</pre>
+ * </blockquote>
+ */
+public final class RowStreamUtil {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RowStreamUtil.class);
+
+	/**
+	 * <p>private constructor</p>
+	 */
+	private RowStreamUtil() {}
+
+	/**
+	 * <p>check if the data is a lazily read row source (Stream, Iterator, closeable Iterable)</p>
+	 */
+	public static boolean isRowStream(final Object data) {
+		return (data instanceof Stream) || (data instanceof Iterator) || ((data instanceof Iterable) && (data instanceof AutoCloseable));
+	}
+
+	/**
+	 * <p>returns the iterator of the row source</p>
+	 */
+	private static Iterator<?> iterator(final Object data) {
+		if (data instanceof Stream) {
+			return ((Stream<?>) data).iterator();
+		}
+
+		if (data instanceof Iterator) {
+			return (Iterator<?>) data;
+		}
+
+		return ((Iterable<?>) data).iterator();
+	}
+
+	/**
+	 * <p>close the row source (the errors are logged)</p>
+	 */
+	public static void close(final Object data) {
+		try {
+			if (data instanceof Stream) {
+				((Stream<?>) data).close();
+			}else if (data instanceof AutoCloseable)
+			{
+				((AutoCloseable) data).close();
+			}
+		}catch (Exception e)
+		{
+			LOG.warn("[RowStreamUtil] failed to close the row source. msg={}", e.getMessage());
+		}
+	}
+
+	/**
+	 * <p>read all rows of the row source into a list and close the source, or returns the data as it is if the data is not a row source</p>
+	 */
+	public static Object materialize(final Object data) {
+		if (!isRowStream(data)) {
+			return data;
+		}
+
+		try {
+			List<Object> rows = new ArrayList<Object>();
+			Iterator<?> iterator = iterator(data);
+
+			while (iterator.hasNext()) {
+				rows.add(iterator.next());
+			}
+
+			return rows;
+		}finally
+		{
+			close(data);
+		}
+	}
+
+	/**
+	 * <p>write the model entity with the rows as a json array ("rs") to the output stream, and close the row source.</p>
+	 *
+	 * <p>"message" and "stackTrace" are written after the rows, so the error while reading the rows can be reported in the same response.
+	 * returns false if the rows could not be read to the end.</p>
+	 */
+	public static boolean writeJson(final ModelEntity modelEntity, final OutputStream out) throws IOException {
+		Object data = modelEntity.getData();
+		boolean completed = false;
+
+		try (Utf8StreamWriter writer = new Utf8StreamWriter(out)) {
+			JsonWriter jsonWriter = GsonUtils.createJsonWriter(writer);
+
+			// ------------------------------------------------------------
+			// envelope fields except the rows and the message
+			// ------------------------------------------------------------
+			modelEntity.setData(null);
+
+			jsonWriter.beginObject();
+
+			for (Map.Entry<String, JsonElement> entry : GsonUtils.convertObject2JsonTree(modelEntity).getAsJsonObject().entrySet()) {
+				if ((!"rs".equals(entry.getKey())) && (!"message".equals(entry.getKey())) && (!"stackTrace".equals(entry.getKey()))) {
+					jsonWriter.name(entry.getKey());
+					GsonUtils.writeObject2Json(entry.getValue(), jsonWriter);
+				}
+			}
+
+			// ------------------------------------------------------------
+			// rows
+			// ------------------------------------------------------------
+			jsonWriter.name("rs");
+			jsonWriter.beginArray();
+
+			try {
+				Iterator<?> iterator = iterator(data);
+
+				while (iterator.hasNext()) {
+					GsonUtils.writeObject2Json(iterator.next(), jsonWriter);
+				}
+
+				completed = true;
+			}catch (IOException e)
+			{
+				throw e;
+			}catch (RuntimeException e)
+			{
+				LOG.error("[RowStreamUtil] failed to read the rows. msg={}", e);
+
+				modelEntity.setError("error processing the request");
+			}
+
+			jsonWriter.endArray();
+
+			jsonWriter.name("message");
+			jsonWriter.value(modelEntity.getMessage());
+			jsonWriter.name("stackTrace");
+			jsonWriter.value(modelEntity.getStackTrace());
+			jsonWriter.endObject();
+			jsonWriter.flush();
+		}finally
+		{
+			close(data);
+		}
+
+		return completed;
+	}
+
+	/**
+	 * <p>write the rows as newline delimited json (one row per line) to the output stream, and close the row source.</p>
+	 *
+	 * <p>if an error occurs while reading the rows, {"message": "error processing the request"} is written as the last line.
+	 * returns false if the rows could not be read to the end.</p>
+	 */
+	public static boolean writeNdjson(final Object data, final OutputStream out) throws IOException {
+		try (Utf8StreamWriter writer = new Utf8StreamWriter(out)) {
+			JsonWriter jsonWriter = GsonUtils.createJsonWriter(writer);
+			jsonWriter.setLenient(true);
+
+			try {
+				Iterator<?> iterator = iterator(data);
+
+				while (iterator.hasNext()) {
+					GsonUtils.writeObject2Json(iterator.next(), jsonWriter);
+					writer.write('\n');
+				}
+
+				return true;
+			}catch (IOException e)
+			{
+				throw e;
+			}catch (RuntimeException e)
+			{
+				LOG.error("[RowStreamUtil] failed to read the rows. msg={}", e);
+
+				writer.write("{\"message\":\"error processing the request\"}\n");
+
+				return false;
+			}
+		}finally
+		{
+			close(data);
+		}
+	}
+
+}
@@ -0,0 +1,232 @@
+package com.nurihome.app.util;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.nurihome.app.annotation.AsyncCommand;
+import com.nurihome.app.annotation.CacheableCommand;
+import com.nurihome.app.annotation.CoalescedCommand;
+import com.nurihome.app.annotation.CommandTimeout;
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>Resolved "serviceId.commandId" pair registered in {@link ServiceCommandRegistry}.</p>
+ */
+public final class ServiceCommand {
+
+	/**
+	 * service id (Spring @Service annotation name)
+	 */
+	private final String serviceId;
+
+	/**
+	 * command id (method name)
+	 */
+	private final String commandId;
+
+	/**
+	 * service bean instance
+	 */
+	private final Object service;
+
+	/**
+	 * declared method of the service class
+	 */
+	private final Method method;
+
+	/**
+	 * prebuilt invoker bound to the service bean
+	 */
+	private final CommandInvoker invoker;
+
+	/**
+	 * run on the command thread pool (annotated with {@link AsyncCommand})
+	 */
+	private final boolean async;
+
+	/**
+	 * concurrency limit of the service (shared by the commands of the service, nullable)
+	 */
+	private final Bulkhead serviceBulkhead;
+
+	/**
+	 * concurrency limit of the command (nullable)
+	 */
+	private final Bulkhead commandBulkhead;
+
+	/**
+	 * call counts and latency histograms (null if the metrics are disabled)
+	 */
+	private final CommandMetrics metrics;
+
+	/**
+	 * result cache option (annotated with {@link CacheableCommand}, nullable)
+	 */
+	private final CacheableCommand cacheable;
+
+	/**
+	 * request coalescing option (annotated with {@link CoalescedCommand}, nullable)
+	 */
+	private final CoalescedCommand coalesced;
+
+	/**
+	 * identical requests in flight (null if the command is not coalesced)
+	 */
+	private final SingleFlight<String, Object> singleFlight;
+
+	/**
+	 * timeout of the command (nanoseconds, 0 = no timeout)
+	 */
+	private final long timeoutNanos;
+
+	/**
+	 * <p>parameterized constructor with arguments</p>
+	 */
+	ServiceCommand(String serviceId, String commandId, Object service, Method method, CommandInvoker invoker, Bulkhead serviceBulkhead, Bulkhead commandBulkhead, CommandMetrics metrics, long defaultTimeoutNanos) {
+		this.serviceId = serviceId;
+		this.commandId = commandId;
+		this.service = service;
+		this.method = method;
+		this.invoker = invoker;
+		this.async = method.isAnnotationPresent(AsyncCommand.class);
+		this.serviceBulkhead = serviceBulkhead;
+		this.commandBulkhead = commandBulkhead;
+		this.metrics = metrics;
+		this.cacheable = method.getAnnotation(CacheableCommand.class);
+		this.coalesced = method.getAnnotation(CoalescedCommand.class);
+		this.singleFlight = (this.coalesced != null) ? new SingleFlight<String, Object>() : null;
+		
+		CommandTimeout timeout = method.getAnnotation(CommandTimeout.class);
+		this.timeoutNanos = (timeout != null) ? Math.max(0L, timeout.unit().toNanos(timeout.value())) : defaultTimeoutNanos;
+	}
+
+	/**
+	 * <p>returns the canonical key of the request ("serviceId + commandId + request parameters sorted by name")</p>
+	 */
+	public String createKey(final ParamEntity paramEntity, final String... ignoreParameters) {
+		return createKey(paramEntity.getParameters(), ignoreParameters);
+	}
+
+	/**
+	 * <p>returns the canonical key of the request ("serviceId + commandId + request parameters sorted by name")</p>
+	 */
+	public String createKey(final Map<String, String> params, final String... ignoreParameters) {
+		StringBuilder sb = new StringBuilder(64);
+		sb.append(serviceId).append('\u0000').append(commandId);
+
+		if (params != null) {
+			String[] names = params.keySet().toArray(new String[params.size()]);
+			Arrays.sort(names);
+
+			for (String name : names) {
+				if ((!"serviceId".equals(name)) && (!"commandId".equals(name)) && (!isIgnored(name, ignoreParameters))) {
+					sb.append('\u0000').append(name).append('=').append(params.get(name));
+				}
+			}
+		}
+
+		return sb.toString();
+	}
+
+	private static boolean isIgnored(final String name, final String... ignoreParameters) {
+		for (String ignore : ignoreParameters) {
+			if (ignore.equals(name)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * <p>take the permits of the service and command bulkheads, or returns false if one of the limits has been reached</p>
+	 */
+	public boolean tryAcquire() {
+		if ((serviceBulkhead != null) && (!serviceBulkhead.tryAcquire())) {
+			return false;
+		}
+		
+		if ((commandBulkhead != null) && (!commandBulkhead.tryAcquire())) {
+			if (serviceBulkhead != null) {
+				serviceBulkhead.release();
+			}
+			
+			return false;
+		}
+		
+		return true;
+	}
+
+	/**
+	 * <p>return the permits taken by {@link #tryAcquire()}</p>
+	 */
+	public void release() {
+		if (commandBulkhead != null) {
+			commandBulkhead.release();
+		}
+		
+		if (serviceBulkhead != null) {
+			serviceBulkhead.release();
+		}
+	}
+
+	/**
+	 * <p>invoke the command. the exception thrown by the service method is not wrapped.</p>
+	 */
+	public Object invoke(final ParamEntity paramEntity) throws Throwable {
+		return invoker.invoke(paramEntity);
+	}
+
+	public String getServiceId() {
+		return serviceId;
+	}
+
+	public String getCommandId() {
+		return commandId;
+	}
+
+	public Object getService() {
+		return service;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public boolean isAsync() {
+		return async;
+	}
+
+	public CommandMetrics getMetrics() {
+		return metrics;
+	}
+
+	public CacheableCommand getCacheable() {
+		return cacheable;
+	}
+
+	public CoalescedCommand getCoalesced() {
+		return coalesced;
+	}
+
+	public SingleFlight<String, Object> getSingleFlight() {
+		return singleFlight;
+	}
+
+	public long getTimeoutNanos() {
+		return timeoutNanos;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append(this.serviceId);
+		sb.append(".");
+		sb.append(this.commandId);
+
+		return sb.toString();
+	}
+
+}
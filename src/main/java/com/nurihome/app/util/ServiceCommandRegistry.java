@@ -0,0 +1,285 @@
+package com.nurihome.app.util;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>Command dispatch table for the Spring @Service beans.</p>
+ *
+ * <p>Every @Service bean is scanned once when the application context has been started, and each public method which takes a single {@link ParamEntity}
+ * is resolved to a prebuilt {@link CommandInvoker}. After that, dispatching a "serviceId.commandId" pair does not touch the ApplicationContext or the reflection API.</p>
+ * 
+ * <p>concurrency limits (bulkheads) are set with "gws.bulkhead.limits" property.</p>
+ * 
+ * <pre>
+ * gws.bulkhead.limits=common.report:10, common.test.retrieveTestInfo:50
+ * </pre>
+ * 
+ * <p>the default timeout of the commands is set with "gws.command.default-timeout" property (milliseconds, 0 = no timeout).
+ * the command runs on the request thread, which is interrupted when the deadline passes (the command thread pool is used only by the @AsyncCommand commands).</p>
+ */
+@Component
+public class ServiceCommandRegistry implements ApplicationContextAware, SmartInitializingSingleton {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ServiceCommandRegistry.class);
+
+	private static final MethodType COMMAND_TYPE = MethodType.methodType(Object.class, ParamEntity.class);
+
+	/**
+	 * serviceId -> (commandId -> command). (this is read-only after the registry is initialized)
+	 */
+	private static volatile Map<String, Map<String, ServiceCommand>> services = Collections.emptyMap();
+
+	/**
+	 * "serviceId" or "serviceId.commandId" -> bulkhead
+	 */
+	private static volatile Map<String, Bulkhead> bulkheads = Collections.emptyMap();
+
+	/**
+	 * time when the dispatch table was built (epoch milliseconds)
+	 */
+	private static volatile long initializedAt = System.currentTimeMillis();
+
+	private ApplicationContext applicationContext;
+
+	/**
+	 * concurrency limits (name:limit, name:limit, ...)
+	 */
+	private final String bulkheadLimits;
+
+	/**
+	 * record the call counts and latency histograms of the commands
+	 */
+	private final boolean metricsEnabled;
+
+	/**
+	 * default timeout of the commands (milliseconds, 0 = no timeout)
+	 */
+	private final long defaultTimeout;
+
+	public ServiceCommandRegistry(@Value("${gws.bulkhead.limits:}") String bulkheadLimits, @Value("${gws.metrics.enabled:true}") boolean metricsEnabled,
+			@Value("${gws.command.default-timeout:0}") long defaultTimeout) {
+		this.bulkheadLimits = bulkheadLimits;
+		this.metricsEnabled = metricsEnabled;
+		this.defaultTimeout = defaultTimeout;
+	}
+
+	public void setApplicationContext(ApplicationContext context) throws BeansException {
+		this.applicationContext = context;
+	}
+
+	/**
+	 * <p>scan the @Service beans after all singletons have been instantiated</p>
+	 */
+	@Override
+	public void afterSingletonsInstantiated() {
+		initialize(applicationContext.getBeansWithAnnotation(Service.class), bulkheadLimits, metricsEnabled, defaultTimeout);
+	}
+
+	/**
+	 * <p>build the dispatch table with the given service beans (bean name -> bean instance), without the application context (benchmarks)</p>
+	 */
+	public static void initialize(final Map<String, Object> beans) {
+		initialize(beans, null, true, 0L);
+	}
+
+	/**
+	 * <p>build the dispatch table with the given service beans (bean name -> bean instance), concurrency limits, metrics option and default timeout (milliseconds)</p>
+	 */
+	static void initialize(final Map<String, Object> beans, final String limits, final boolean metricsEnabled, final long defaultTimeout) {
+		long defaultTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, defaultTimeout));
+		Map<String, Map<String, ServiceCommand>> table = new HashMap<String, Map<String, ServiceCommand>>();
+		Map<String, Integer> limitTable = parseLimits(limits);
+		Map<String, Bulkhead> bulkheadTable = new LinkedHashMap<String, Bulkhead>();
+		int count = 0;
+
+		for (Map.Entry<String, Object> bean : beans.entrySet()) {
+			Map<String, ServiceCommand> commands = new HashMap<String, ServiceCommand>();
+			Bulkhead serviceBulkhead = createBulkhead(bean.getKey(), limitTable, bulkheadTable);
+
+			for (Method method : ClassUtils.getUserClass(bean.getValue().getClass()).getDeclaredMethods()) {
+				if (isCommand(method)) {
+					Bulkhead commandBulkhead = createBulkhead(bean.getKey() + "." + method.getName(), limitTable, bulkheadTable);
+
+					commands.put(method.getName(), new ServiceCommand(bean.getKey(), method.getName(), bean.getValue(), method, createInvoker(bean.getValue(), method), serviceBulkhead, commandBulkhead, (metricsEnabled ? new CommandMetrics() : null), defaultTimeoutNanos));
+				}
+			}
+
+			table.put(bean.getKey(), Collections.unmodifiableMap(commands));
+			count += commands.size();
+		}
+
+		for (String name : limitTable.keySet()) {
+			if (!bulkheadTable.containsKey(name)) {
+				LOG.warn("[ServiceCommandRegistry] no service or command matches the bulkhead. name={}", name);
+			}
+		}
+
+		services = Collections.unmodifiableMap(table);
+		bulkheads = Collections.unmodifiableMap(bulkheadTable);
+		initializedAt = System.currentTimeMillis();
+
+		LOG.info("[ServiceCommandRegistry] registered services={}, commands={}, bulkheads={}", table.size(), count, bulkheadTable.size());
+	}
+
+	/**
+	 * <p>parse the concurrency limits (name:limit, name:limit, ...)</p>
+	 */
+	private static Map<String, Integer> parseLimits(final String limits) {
+		Map<String, Integer> limitTable = new HashMap<String, Integer>();
+
+		if (!Utils.isEmpty(limits)) {
+			for (String entry : limits.split(",")) {
+				int index = entry.lastIndexOf(':');
+
+				try {
+					limitTable.put(entry.substring(0, index).trim(), Integer.valueOf(entry.substring(index + 1).trim()));
+				}catch (IndexOutOfBoundsException | NumberFormatException e)
+				{
+					LOG.warn("[ServiceCommandRegistry] invalid bulkhead limit. entry={}", entry);
+				}
+			}
+		}
+
+		return limitTable;
+	}
+
+	/**
+	 * <p>returns the bulkhead with the given name, or null if no limit is set</p>
+	 */
+	private static Bulkhead createBulkhead(final String name, final Map<String, Integer> limitTable, Map<String, Bulkhead> bulkheadTable) {
+		Integer limit = limitTable.get(name);
+
+		if (limit == null) {
+			return null;
+		}
+
+		Bulkhead bulkhead = new Bulkhead(name, limit.intValue());
+		bulkheadTable.put(name, bulkhead);
+
+		return bulkhead;
+	}
+
+	/**
+	 * <p>check whether the method can be dispatched as a command</p>
+	 */
+	private static boolean isCommand(final Method method) {
+		int modifiers = method.getModifiers();
+
+		return Modifier.isPublic(modifiers) && (!Modifier.isStatic(modifiers)) && (!method.isSynthetic()) && (!method.isBridge())
+			&& (method.getParameterCount() == 1) && (method.getParameterTypes()[0] == ParamEntity.class);
+	}
+
+	/**
+	 * <p>returns a LambdaMetafactory generated invoker bound to the service bean, or a MethodHandle based invoker if the metafactory can not be used (void method, proxy class, ..)</p>
+	 */
+	private static CommandInvoker createInvoker(final Object service, final Method method) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+			MethodHandle target = lookup.unreflect(method);
+
+			if (method.getReturnType() != void.class) {
+				try {
+					return (CommandInvoker) LambdaMetafactory.metafactory(lookup, "invoke", MethodType.methodType(CommandInvoker.class, method.getDeclaringClass()), COMMAND_TYPE, target, COMMAND_TYPE)
+						.getTarget()
+						.invoke(service);
+				}catch (Throwable ignore)
+				{
+					//--- fall back to the method handle
+				}
+			}
+
+			final MethodHandle handle = target.bindTo(service).asType(COMMAND_TYPE);
+
+			return paramEntity -> (Object) handle.invokeExact(paramEntity);
+		}catch (IllegalAccessException e)
+		{
+			// ------------------------------------------------------------
+			// last resort - plain reflective call
+			// ------------------------------------------------------------
+			LOG.info("[ServiceCommandRegistry] reflective invoker is used. method={}, msg={}", method, e.getMessage());
+
+			return paramEntity -> {
+				try {
+					return method.invoke(service, paramEntity);
+				}catch (InvocationTargetException ite)
+				{
+					throw ite.getCause();
+				}
+			};
+		}
+	}
+
+	/**
+	 * <p>returns the command registered with the given service id and command id, or null if there is no such command</p>
+	 */
+	public static ServiceCommand lookup(final String serviceId, final String commandId) {
+		Map<String, ServiceCommand> commands = services.get(serviceId);
+
+		if (commands != null) {
+			return commands.get(commandId);
+		}
+
+		return null;
+	}
+
+	/**
+	 * <p>check if a service is registered with the given service id</p>
+	 */
+	public static boolean containsService(final String serviceId) {
+		return services.containsKey(serviceId);
+	}
+
+	/**
+	 * <p>returns all registered commands</p>
+	 */
+	public static Collection<ServiceCommand> getCommands() {
+		Collection<ServiceCommand> commands = new ArrayList<ServiceCommand>();
+
+		for (Map<String, ServiceCommand> service : services.values()) {
+			commands.addAll(service.values());
+		}
+
+		return commands;
+	}
+
+	/**
+	 * <p>returns the time when the dispatch table was built (epoch milliseconds)</p>
+	 */
+	public static long getInitializedAt() {
+		return initializedAt;
+	}
+
+	/**
+	 * <p>returns the bulkheads (concurrency limits) for monitoring</p>
+	 */
+	public static Collection<Bulkhead> getBulkheads() {
+		return bulkheads.values();
+	}
+
+}
@@ -1,7 +1,13 @@
 package com.nurihome.app.util;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +21,11 @@ public final class ServiceFactoryUtil {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ServiceFactoryUtil.class);
 
+	/**
+	 * stage of the command which has finished in the call
+	 */
+	private static final CompletionStage<Void> FINISHED = CompletableFuture.completedStage(null);
+
 	/**
 	 * <p>private constructor</p>
 	 */
@@ -22,95 +33,490 @@ public final class ServiceFactoryUtil {
 
 
 	/**
-	 * <p>return a instance of the specified bean with the given service id</p>
+	 * <p>invoke the command with the given service id and command id, and store the result (or error message) in the model entity.</p>
+	 * 
+	 * <p>commands are resolved by {@link ServiceCommandRegistry} at startup, and always take a single {@link ParamEntity}.
+	 * if the command returns a {@link CompletionStage}, the calling thread waits for the result.
+	 * the identical concurrent requests of the command annotated with {@code @CoalescedCommand} share the result of a single invocation.</p>
+	 * 
+	 * <p>if the request has a deadline (client timeout or command timeout), the command runs on the calling thread (the request context, the MDC
+	 * and the transaction of the thread stay with the command) and the thread is interrupted when the deadline passes ({@link DeadlineInterrupter}),
+	 * so a command blocked in an interruptible call fails at once with the timeout error (HTTP 504). the command blocked in a call which ignores the interrupt
+	 * (e.g. the socket of the JDBC driver) should use {@code ParamEntity.getRemainingMillis()} (e.g. for the query timeout).
+	 * a result returned after the deadline is discarded with the timeout error (a row stream is closed).
+	 * a returned {@link CompletionStage} is waited for until the deadline, and its permits are held until it completes.</p>
+	 * 
+	 * <p>returns the stage completed when the command has finished, which is later than the return of this method
+	 * if the command is still running after the deadline (e.g. to delete the files of the request).</p>
 	 * 
 	 * <blockquote>
 	 * <pre>{@code
 	 * Usage:
-	 *     Object service = ServiceFactoryUtil.serviceLookup("serviceId");
+	 *     ServiceFactoryUtil.invokeCommand(paramEntity, modelEntity);
+	 *     ServiceFactoryUtil.invokeCommand(paramEntity, modelEntity).whenComplete((v, t) -> Files.deleteIfExists(path));
 	 * }</pre>
 	 * </blockquote>
 	 */
-	private static Object serviceLookup(final String serviceId) {
-		return ServiceFactory.getService(serviceId);
+	public static CompletionStage<Void> invokeCommand(final ParamEntity paramEntity, ModelEntity modelEntity) {
+		long lookupStart = System.nanoTime();
+		
+		ServiceCommand command = ServiceCommandRegistry.lookup(paramEntity.getServiceId(), paramEntity.getCommandId());
+		
+		if (command != null) {
+			CommandMetrics metrics = command.getMetrics();
+			long invokeStart = System.nanoTime();
+			
+			if (metrics != null) {
+				metrics.recordLookup(invokeStart - lookupStart);
+			}
+			
+			// ------------------------------------------------------------
+			// deadline of the request (the command timeout tightens the client timeout)
+			// ------------------------------------------------------------
+			if (command.getTimeoutNanos() > 0L) {
+				paramEntity.setTimeout(command.getTimeoutNanos(), TimeUnit.NANOSECONDS);
+			}
+			
+			if (paramEntity.isExpired()) {
+				handleTimeout(command, paramEntity, modelEntity);
+				
+				return FINISHED;
+			}
+			
+			Invocation invocation = new Invocation();
+			
+			// ------------------------------------------------------------
+			// concurrency limit of the service and the command (fast-fail, a coalesced command takes the permits in the call of the single-flight leader)
+			// ------------------------------------------------------------
+			if (command.getSingleFlight() == null) {
+				if (!command.tryAcquire()) {
+					handleRejection(command, paramEntity, modelEntity, "server is busy. too many concurrent requests");
+					
+					return FINISHED;
+				}
+				
+				invocation.acquired = true;
+			}
+			
+			try {
+				if (command.getSingleFlight() != null) {
+					// ------------------------------------------------------------
+					// coalesce the identical requests in flight (the rows of the row stream are read into a list to be shared).
+					// the waiting requests take no permit
+					// ------------------------------------------------------------
+					String key = command.createKey(paramEntity, command.getCoalesced().ignoreParameters());
+					
+					modelEntity.setData(command.getSingleFlight().execute(key, () -> {
+						if (!command.tryAcquire()) {
+							throw BusyException.INSTANCE;
+						}
+						
+						invocation.acquired = true;
+						
+						return RowStreamUtil.materialize(invokeWithDeadline(command, paramEntity, invocation));
+					}, paramEntity.getRemainingNanos()));
+				}else
+				{
+					modelEntity.setData(invokeWithDeadline(command, paramEntity, invocation));
+				}
+			}catch (BusyException e)
+			{
+				handleRejection(command, paramEntity, modelEntity, "server is busy. too many concurrent requests");
+			}catch (TimeoutException e)
+			{
+				handleTimeout(command, paramEntity, modelEntity);
+			}catch (Throwable t)
+			{
+				handleException(command, paramEntity, modelEntity, t);
+			}finally
+			{
+				if (!invocation.acquired) {
+					recordInvoke(command, invokeStart);
+				}else if (invocation.lateStage != null)
+				{
+					// ------------------------------------------------------------
+					// the command is still running after the deadline: the permits are held until it completes
+					// ------------------------------------------------------------
+					invocation.finished = invocation.lateStage.handle((rs, t) -> {
+						complete(command, invokeStart);
+						
+						return null;
+					});
+				}else
+				{
+					complete(command, invokeStart);
+				}
+			}
+			
+			return invocation.finished;
+		}else
+		{
+			handleLookupError(paramEntity, modelEntity);
+		}
+		
+		return FINISHED;
+	}
+
+	/**
+	 * <p>invoke the command (the parameter types are ignored, the commands always take a single {@link ParamEntity}).</p>
+	 * 
+	 * @deprecated use {@link #invokeCommand(ParamEntity, ModelEntity)}
+	 */
+	@Deprecated
+	public static void invokeCommand(final ParamEntity paramEntity, ModelEntity modelEntity, Class<?>... parameterTypes) {
+		invokeCommand(paramEntity, modelEntity);
+	}
+
+	/**
+	 * <p>state of a synchronous invocation</p>
+	 */
+	private static final class Invocation {
+
+		/**
+		 * whether the permits of the command have been taken by this invocation (the waiting requests of a coalesced command take no permit)
+		 */
+		private boolean acquired;
+
+		/**
+		 * CompletionStage of the command which has not completed until the deadline (null if the command has finished)
+		 */
+		private CompletableFuture<?> lateStage;
+
+		/**
+		 * stage completed when the command has finished
+		 */
+		private CompletionStage<Void> finished = FINISHED;
+
+	}
+
+	/**
+	 * <p>thrown in the call of the single-flight leader when the permits of the command are not available (shared by the waiting requests)</p>
+	 */
+	private static final class BusyException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final BusyException INSTANCE = new BusyException();
+
+		private BusyException() {
+			super("server is busy", null, false, false);
+		}
+
 	}
 
 	/**
-	 * <p>returns a Method object that reflects the specified declared method of the class</p>
+	 * <p>invoke the command on the calling thread, and wait for the result of a returned {@link CompletionStage} until the deadline of the request.
+	 * throws {@link TimeoutException} if the deadline has passed when the result is available (the late result is closed if it is a row stream).</p>
+	 */
+	private static Object invokeWithDeadline(final ServiceCommand command, final ParamEntity paramEntity, final Invocation invocation) throws Throwable {
+		Object data = invokeInterruptibly(command, paramEntity);
+		
+		if (data instanceof CompletionStage) {
+			CompletableFuture<?> stage = ((CompletionStage<?>) data).toCompletableFuture();
+			
+			try {
+				data = paramEntity.hasDeadline() ? stage.get(paramEntity.getRemainingNanos(), TimeUnit.NANOSECONDS) : stage.get();
+			}catch (TimeoutException e)
+			{
+				invocation.lateStage = stage.whenComplete((rs, t) -> RowStreamUtil.close(rs));
+				
+				throw e;
+			}catch (InterruptedException e)
+			{
+				invocation.lateStage = stage.whenComplete((rs, t) -> RowStreamUtil.close(rs));
+				Thread.currentThread().interrupt();
+				
+				throw e;
+			}catch (ExecutionException e)
+			{
+				throw e.getCause();
+			}
+		}
+		
+		if (paramEntity.isExpired()) {
+			RowStreamUtil.close(data);
+			
+			throw new TimeoutException();
+		}
+		
+		return data;
+	}
+
+	/**
+	 * <p>invoke the command, interrupting the calling thread when the deadline of the request passes.
+	 * throws {@link TimeoutException} if the command has been interrupted by the deadline (the exception of the interrupted command is discarded).</p>
+	 */
+	private static Object invokeInterruptibly(final ServiceCommand command, final ParamEntity paramEntity) throws Throwable {
+		if (!paramEntity.hasDeadline()) {
+			return command.invoke(paramEntity);
+		}
+		
+		DeadlineInterrupter interrupter = DeadlineInterrupter.schedule(paramEntity.getRemainingNanos());
+		Object data;
+		
+		try {
+			data = command.invoke(paramEntity);
+		}catch (Throwable t)
+		{
+			if (interrupter.cancel()) {
+				throw new TimeoutException();
+			}
+			
+			throw t;
+		}
+		
+		if ((interrupter.cancel()) && (!(data instanceof CompletionStage))) {
+			// ------------------------------------------------------------
+			// the command has ignored the interrupt (the late result is discarded, a returned stage is left to the caller to hold the permits)
+			// ------------------------------------------------------------
+			RowStreamUtil.close(data);
+			
+			throw new TimeoutException();
+		}
+		
+		return data;
+	}
+
+	/**
+	 * <p>invoke the command without blocking the calling thread, and returns a future completed with the model entity (result or error message).</p>
+	 * 
+	 * <ul>
+	 * <li>command annotated with {@code @AsyncCommand} - runs on the given executor</li>
+	 * <li>command returning a {@link CompletionStage} - completes when the returned stage completes</li>
+	 * <li>otherwise - runs on the calling thread</li>
+	 * </ul>
+	 * 
+	 * <p>if the request has a deadline, the returned future is completed with the timeout error when the deadline passes.</p>
 	 * 
 	 * <blockquote>
 	 * <pre>{@code
 	 * Usage:
-	 *     Method command = ServiceFactoryUtil.commandLookup(Object instance, "commandId", Class<T>);
+	 *     ServiceFactoryUtil.invokeCommandAsync(paramEntity, commandExecutor).thenAccept(modelEntity -> ...);
 	 * }</pre>
 	 * </blockquote>
 	 */
-	private static Method commandLookup(final Object serviceInstance, final String commandId, Class<?>... parameterTypes) {
-		try {
-			return serviceInstance.getClass().getDeclaredMethod(commandId, parameterTypes);
-		}catch (NoSuchMethodException | SecurityException ignore)
-		{
-			//--- nothing
+	public static CompletableFuture<ModelEntity> invokeCommandAsync(final ParamEntity paramEntity, final Executor executor) {
+		long lookupStart = System.nanoTime();
+		
+		ServiceCommand command = ServiceCommandRegistry.lookup(paramEntity.getServiceId(), paramEntity.getCommandId());
+		
+		if (command == null) {
+			ModelEntity modelEntity = new ModelEntity();
+			handleLookupError(paramEntity, modelEntity);
+			
+			return CompletableFuture.completedFuture(modelEntity);
 		}
-
-		return null;
+		
+		if (command.getMetrics() != null) {
+			command.getMetrics().recordLookup(System.nanoTime() - lookupStart);
+		}
+		
+		if (command.getTimeoutNanos() > 0L) {
+			paramEntity.setTimeout(command.getTimeoutNanos(), TimeUnit.NANOSECONDS);
+		}
+		
+		if (paramEntity.isExpired()) {
+			ModelEntity modelEntity = new ModelEntity();
+			handleTimeout(command, paramEntity, modelEntity);
+			
+			return CompletableFuture.completedFuture(modelEntity);
+		}
+		
+		// ------------------------------------------------------------
+		// concurrency limit of the service and the command (fast-fail, the permits are held until the command completes)
+		// ------------------------------------------------------------
+		if (!command.tryAcquire()) {
+			ModelEntity modelEntity = new ModelEntity();
+			handleRejection(command, paramEntity, modelEntity, "server is busy. too many concurrent requests");
+			
+			return CompletableFuture.completedFuture(modelEntity);
+		}
+		
+		if (command.isAsync()) {
+			try {
+				return withDeadline(command, paramEntity, CompletableFuture.supplyAsync(() -> invokeAsyncCommand(command, paramEntity), executor).thenCompose(future -> future));
+			}catch (RejectedExecutionException e)
+			{
+				// ------------------------------------------------------------
+				// the command thread pool is saturated (rejection policy = abort)
+				// ------------------------------------------------------------
+				command.release();
+				
+				ModelEntity modelEntity = new ModelEntity();
+				handleRejection(command, paramEntity, modelEntity, "server is busy. try again later");
+				
+				return CompletableFuture.completedFuture(modelEntity);
+			}
+		}
+		
+		return withDeadline(command, paramEntity, invokeAsyncCommand(command, paramEntity));
 	}
 
-	public static void invokeCommand(final ParamEntity paramEntity, ModelEntity modelEntity, Class<?>... parameterTypes) {
-		String serviceId = paramEntity.getServiceId();
-		String commandId = paramEntity.getCommandId();
+	/**
+	 * <p>returns a future completed with the timeout error if the given future does not complete until the deadline of the request</p>
+	 */
+	private static CompletableFuture<ModelEntity> withDeadline(final ServiceCommand command, final ParamEntity paramEntity, final CompletableFuture<ModelEntity> future) {
+		if ((!paramEntity.hasDeadline()) || (future.isDone())) {
+			return future;
+		}
+		
+		return future.applyToEither(new CompletableFuture<ModelEntity>().completeOnTimeout(null, paramEntity.getRemainingNanos(), TimeUnit.NANOSECONDS), modelEntity -> {
+			if (modelEntity == null) {
+				// ------------------------------------------------------------
+				// the late result is discarded (a row stream holding a connection is closed when it arrives)
+				// ------------------------------------------------------------
+				future.thenAccept(late -> RowStreamUtil.close(late.getData()));
+				
+				modelEntity = new ModelEntity();
+				handleTimeout(command, paramEntity, modelEntity);
+			}
+			
+			return modelEntity;
+		});
+	}
 
-		Object service = serviceLookup(serviceId);
+	/**
+	 * <p>invoke the command, and returns a future completed with the model entity. the permits of the command are released when completed.</p>
+	 */
+	private static CompletableFuture<ModelEntity> invokeAsyncCommand(final ServiceCommand command, final ParamEntity paramEntity) {
+		ModelEntity modelEntity = new ModelEntity();
+		long invokeStart = System.nanoTime();
 		
-		if (service != null) {
-			Method command = commandLookup(service, commandId, parameterTypes);
+		try {
+			Object data = invokeInterruptibly(command, paramEntity);
 			
-			if (command != null) {
-				try {
-					modelEntity.setData(command.invoke(service, paramEntity));
-				}catch (IllegalAccessException | IllegalArgumentException e)
-				{
-					LOG.error("[ServiceFactoryUtil] serviceId={}, commandId={}, msg={}", serviceId, commandId, e);
-					
-					modelEntity.setError("error processing the request");
-				}catch (InvocationTargetException e)
-				{
-					Throwable t = e.getCause();
+			if (data instanceof CompletionStage) {
+				return ((CompletionStage<?>) data).handle((rs, t) -> {
+					complete(command, invokeStart);
 					
-					if (t instanceof ServiceException) {
-						ServiceException se = (ServiceException) t;
-						
-						if (t.getCause() != null) {
-							LOG.error("[ServiceFactoryUtil] serviceId={}, commandId={}, msg={}, error={}", serviceId, commandId, se.getErrorMessage(), e);
-						}else
-						{
-							LOG.info("[ServiceFactoryUtil] serviceId={}, commandId={}, msg={}", serviceId, commandId, se.getErrorMessage());
-						}
-						
-						modelEntity.setError(se.getErrorMessage());
-					}else if (t instanceof APIMessageException)
-					{
-						APIMessageException ae = (APIMessageException) t;
-						
-						modelEntity.setApiMessage(ae.getErrorMessage());
+					if (t != null) {
+						handleException(command, paramEntity, modelEntity, t);
 					}else
 					{
-						LOG.error("[ServiceFactoryUtil] serviceId={}, commandId={}, msg={}", serviceId, commandId, e);
-						
-						modelEntity.setError("error processing the request");
+						modelEntity.setData(rs);
 					}
-				}
+					
+					return modelEntity;
+				}).toCompletableFuture();
+			}
+			
+			modelEntity.setData(data);
+		}catch (TimeoutException e)
+		{
+			handleTimeout(command, paramEntity, modelEntity);
+		}catch (Throwable t)
+		{
+			handleException(command, paramEntity, modelEntity, t);
+		}
+		
+		complete(command, invokeStart);
+		
+		return CompletableFuture.completedFuture(modelEntity);
+	}
+
+	/**
+	 * <p>release the permits of the command and record the invocation latency</p>
+	 */
+	private static void complete(final ServiceCommand command, final long invokeStart) {
+		command.release();
+		recordInvoke(command, invokeStart);
+	}
+
+	/**
+	 * <p>record the invocation latency</p>
+	 */
+	private static void recordInvoke(final ServiceCommand command, final long invokeStart) {
+		if (command.getMetrics() != null) {
+			command.getMetrics().recordInvoke(System.nanoTime() - invokeStart);
+		}
+	}
+
+	/**
+	 * <p>store the error message of the exception thrown by the command in the model entity</p>
+	 */
+	private static void handleException(final ServiceCommand command, final ParamEntity paramEntity, ModelEntity modelEntity, Throwable t) {
+		String serviceId = paramEntity.getServiceId();
+		String commandId = paramEntity.getCommandId();
+		
+		// ------------------------------------------------------------
+		// unwrap the exception thrown by the CompletionStage
+		// ------------------------------------------------------------
+		while (((t instanceof CompletionException) || (t instanceof ExecutionException)) && (t.getCause() != null)) {
+			t = t.getCause();
+		}
+		
+		if (command.getMetrics() != null) {
+			command.getMetrics().recordError(t);
+		}
+		
+		if (t instanceof ServiceException) {
+			ServiceException se = (ServiceException) t;
+			
+			if (se.getCause() != null) {
+				LOG.error("[ServiceFactoryUtil] serviceId={}, commandId={}, msg={}, error={}", serviceId, commandId, se.getErrorMessage(), se);
 			}else
 			{
-				// ------------------------------------------------------------
-				// error obtaining declared method - no such method named or invalid argument
-				// ------------------------------------------------------------
-				modelEntity.setError("invalid parameter value. check the commandId");
+				LOG.info("[ServiceFactoryUtil] serviceId={}, commandId={}, msg={}", serviceId, commandId, se.getErrorMessage());
 			}
+			
+			modelEntity.setError(se.getErrorMessage());
+		}else if (t instanceof APIMessageException)
+		{
+			APIMessageException ae = (APIMessageException) t;
+			
+			modelEntity.setApiMessage(ae.getErrorMessage());
+		}else
+		{
+			LOG.error("[ServiceFactoryUtil] serviceId={}, commandId={}, msg={}", serviceId, commandId, t);
+			
+			modelEntity.setError("error processing the request");
+		}
+	}
+
+	/**
+	 * <p>store the error message of the rejected command in the model entity (HTTP 503)</p>
+	 */
+	private static void handleRejection(final ServiceCommand command, final ParamEntity paramEntity, ModelEntity modelEntity, final String message) {
+		if (command.getMetrics() != null) {
+			command.getMetrics().recordRejected();
+		}
+		
+		LOG.info("[ServiceFactoryUtil] command rejected. serviceId={}, commandId={}, msg={}", paramEntity.getServiceId(), paramEntity.getCommandId(), message);
+		
+		modelEntity.setError(message);
+		modelEntity.setStatus(503);
+	}
+
+	/**
+	 * <p>store the timeout error of the command which has exceeded the deadline in the model entity (HTTP 504)</p>
+	 */
+	private static void handleTimeout(final ServiceCommand command, final ParamEntity paramEntity, ModelEntity modelEntity) {
+		if (command.getMetrics() != null) {
+			command.getMetrics().recordTimeout();
+		}
+		
+		LOG.info("[ServiceFactoryUtil] command timed out. serviceId={}, commandId={}", paramEntity.getServiceId(), paramEntity.getCommandId());
+		
+		modelEntity.setError("request timed out");
+		modelEntity.setStatus(504);
+	}
+
+	/**
+	 * <p>store the error message of the unknown service id or command id in the model entity</p>
+	 */
+	private static void handleLookupError(final ParamEntity paramEntity, ModelEntity modelEntity) {
+		String serviceId = paramEntity.getServiceId();
+		String commandId = paramEntity.getCommandId();
+		
+		if (ServiceCommandRegistry.containsService(serviceId)) {
+			// ------------------------------------------------------------
+			// no such method named or invalid argument
+			// ------------------------------------------------------------
+			modelEntity.setError("invalid parameter value. check the commandId");
 		}else
 		{
 			// ------------------------------------------------------------
-			// error obtaining bean instance
+			// no service bean named is registered
 			// ------------------------------------------------------------
 			LOG.info("no service bean named is defined or could not find service bean. check the serviceId. serviceId={}, commandId={}", serviceId, commandId);
 			
@@ -0,0 +1,105 @@
+package com.nurihome.app.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Coalesces the identical concurrent calls.</p>
+ *
+ * <p>while a call for a key is in flight, the later callers with the same key wait for the result of that call instead of calling again.
+ * the result (or the exception) of the call is returned (or thrown) to every waiting caller.</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     Object data = singleFlight.execute(key, () -> command.invoke(paramEntity));
+ * }</pre>
+ * </blockquote>
+ */
+public final class SingleFlight<K, V> {
+
+	/**
+	 * calls in flight (key -> result of the call)
+	 */
+	private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<K, CompletableFuture<V>>();
+
+	/**
+	 * number of the callers which waited for the result of the other call
+	 */
+	private final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * <p>Call which may throw any exception.</p>
+	 */
+	@FunctionalInterface
+	public interface Call<V> {
+
+		V call() throws Throwable;
+
+	}
+
+	/**
+	 * <p>run the call, or wait for the result of the call in flight with the same key</p>
+	 */
+	public V execute(final K key, final Call<V> call) throws Throwable {
+		return execute(key, call, Long.MAX_VALUE);
+	}
+
+	/**
+	 * <p>run the call, or wait for the result of the call in flight with the same key at most the given time (nanoseconds).
+	 * throws {@link TimeoutException} if the call in flight does not complete in time.</p>
+	 */
+	public V execute(final K key, final Call<V> call, final long timeoutNanos) throws Throwable {
+		CompletableFuture<V> future = new CompletableFuture<V>();
+		CompletableFuture<V> inFlight = calls.putIfAbsent(key, future);
+
+		if (inFlight != null) {
+			// ------------------------------------------------------------
+			// wait for the result of the call in flight
+			// ------------------------------------------------------------
+			coalesced.increment();
+
+			try {
+				return inFlight.get(timeoutNanos, TimeUnit.NANOSECONDS);
+			}catch (ExecutionException e)
+			{
+				throw e.getCause();
+			}
+		}
+
+		try {
+			V result = call.call();
+			future.complete(result);
+
+			return result;
+		}catch (Throwable t)
+		{
+			future.completeExceptionally(t);
+
+			throw t;
+		}finally
+		{
+			calls.remove(key, future);
+		}
+	}
+
+	/**
+	 * <p>returns the number of the calls in flight</p>
+	 */
+	public int getInFlight() {
+		return calls.size();
+	}
+
+	/**
+	 * <p>returns the number of the callers which waited for the result of the other call</p>
+	 */
+	public long getCoalesced() {
+		return coalesced.sum();
+	}
+
+}
@@ -0,0 +1,445 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Unique id generator (Snowflake layout: 41 bits milliseconds since {@link #EPOCH}, 10 bits node id, 12 bits sequence).</p>
+ *
+ * <ul>
+ * <li>each thread takes a block of 64 ids with a single CAS and issues them without contention, so the ids of a thread are increasing,
+ * and the ids of all threads are ordered by the time when the blocks were taken</li>
+ * <li>the time of the generator never goes back: when the clock is set back, or more than 4096 ids are taken in a millisecond,
+ * the ids continue from the last id (the time part runs ahead of the clock until the clock catches up)</li>
+ * <li>the time reserved ahead (10 seconds) is written to the state file, and the generator starts after the reserved time,
+ * so the ids are not repeated after a fast restart or a clock set back while the application was stopped</li>
+ * <li>the node id ("gws.id.node-id", 0 ~ 1023) must be unique in the cluster. when it is not configured, the node id is derived
+ * from the host name and the process id once, and kept in the state file for the next runs</li>
+ * <li>the state file is locked while the application is running, so two processes cannot share the same node id through the same file</li>
+ * </ul>
+ *
+ * <p>the epoch (2010-01-01) makes the ids larger than the ids of the former generator (epoch seconds * 10^9 + counter),
+ * and the ids have 19 digits until 2079.</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     long id = UniqueIdGenerator.nextId();                  // 2222552664791609344
+ *     String base32 = UniqueIdGenerator.toBase32(id);        // "1XP0QVXZR0W00" (13 characters, same order as the ids)
+ *     int end = UniqueIdGenerator.writeDecimal(id, buf, 0);  // writes the digits to the byte buffer without allocation
+ * }</pre>
+ * </blockquote>
+ */
+public final class UniqueIdGenerator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(UniqueIdGenerator.class);
+
+	/**
+	 * 2010-01-01T00:00:00Z (epoch milliseconds)
+	 */
+	public static final long EPOCH = 1262304000000L;
+
+	private static final int NODE_BITS = 10;
+
+	private static final int SEQUENCE_BITS = 12;
+
+	public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1L;
+
+	/**
+	 * ids taken by a thread at once
+	 */
+	private static final int BLOCK_SIZE = 64;
+
+	/**
+	 * time reserved in the state file ahead of the generator (milliseconds)
+	 */
+	private static final long LEASE = 10000L;
+
+	/**
+	 * Crockford base32 (no I, L, O, U)
+	 */
+	private static final byte[] BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int BASE32_LENGTH = 13;
+
+	/**
+	 * next free (time << SEQUENCE_BITS | sequence) of the generator, the time is in milliseconds since the epoch
+	 */
+	private static final AtomicLong state = new AtomicLong((System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS);
+
+	/**
+	 * clock of the generator (epoch milliseconds, replaced by the tests)
+	 */
+	static volatile LongSupplier clock = System::currentTimeMillis;
+
+	/**
+	 * block of the thread : next, end, node id
+	 */
+	private static final ThreadLocal<long[]> BLOCKS = ThreadLocal.withInitial(() -> new long[3]);
+
+	private static volatile int nodeId = defaultNodeId();
+
+	private static volatile Path stateFile;
+
+	/**
+	 * time written to the state file (milliseconds since the epoch)
+	 */
+	private static volatile long reserved = Long.MAX_VALUE;
+
+	/**
+	 * lock of the state file held while the application is running
+	 */
+	private static FileChannel lockChannel;
+
+	/**
+	 * private constructor
+	 */
+	private UniqueIdGenerator() {}
+
+	/**
+	 * <p>node id derived from the host name and the process id (for the single node, or when the node id is not configured)</p>
+	 */
+	private static int defaultNodeId() {
+		String host = System.getenv("HOSTNAME");
+
+		try {
+			if (Utils.isEmpty(host)) {
+				host = InetAddress.getLocalHost().getHostName();
+			}
+		}catch (IOException e)
+		{
+			host = "localhost";
+		}
+
+		return ((host.hashCode() * 31) + Long.hashCode(ProcessHandle.current().pid())) & MAX_NODE_ID;
+	}
+
+	/**
+	 * <p>set the node id and the state file (set once when the application is started, see "gws.id.node-id" and "gws.id.state-file").
+	 * the generator continues after the time reserved by the previous run in the state file.
+	 * when the node id is negative, the node id kept in the state file is used (or the derived node id, which is kept for the next runs).</p>
+	 */
+	public static synchronized void configure(final int node, final Path file) {
+		if (node > MAX_NODE_ID) {
+			throw new IllegalArgumentException("node id must be 0 ~ " + MAX_NODE_ID + ". node=" + node);
+		}
+
+		if (file == null) {
+			if (node >= 0) {
+				nodeId = node;
+			}
+
+			return;
+		}
+
+		lock(file);
+
+		int previousNode = -1;
+
+		try {
+			if (Files.exists(file)) {
+				String content = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+				long previous;
+
+				if (content.indexOf('=') < 0) {
+					// ------------------------------------------------------------
+					// former state file : the reserved time only
+					// ------------------------------------------------------------
+					previous = Long.parseLong(content);
+				}else
+				{
+					Properties properties = new Properties();
+					properties.load(new StringReader(content));
+
+					previous = Long.parseLong(properties.getProperty("reserved").trim());
+					previousNode = Integer.parseInt(properties.getProperty("node-id", "-1").trim());
+				}
+
+				// ------------------------------------------------------------
+				// the ids up to the reserved time may have been issued by the previous run
+				// ------------------------------------------------------------
+				state.accumulateAndGet((previous - EPOCH + 1L) << SEQUENCE_BITS, Math::max);
+			}
+		}catch (IOException | RuntimeException e)
+		{
+			LOG.warn("[UniqueIdGenerator] failed to read the state file. file={}", file, e);
+		}
+
+		if (node >= 0) {
+			nodeId = node;
+		}else if ((previousNode >= 0) && (previousNode <= MAX_NODE_ID))
+		{
+			nodeId = previousNode;
+		}
+
+		stateFile = file;
+		reserved = -1L;
+
+		reserve(state.get() >>> SEQUENCE_BITS);
+	}
+
+	/**
+	 * <p>lock the state file (the lock file next to it) until the process exits</p>
+	 */
+	private static void lock(final Path file) {
+		Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+
+		release();
+
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+
+			FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			FileLock fileLock = channel.tryLock();
+
+			if (fileLock == null) {
+				channel.close();
+
+				throw new IllegalStateException("the state file is used by another process, set gws.id.state-file (and gws.id.node-id) for each process. file=" + file);
+			}
+
+			lockChannel = channel;
+		}catch (IOException e)
+		{
+			throw new IllegalStateException("failed to lock the state file. file=" + lockFile, e);
+		}
+	}
+
+	/**
+	 * <p>release the lock of the state file</p>
+	 */
+	private static void release() {
+		if (lockChannel != null) {
+			try {
+				lockChannel.close();
+			}catch (IOException e)
+			{
+				LOG.warn("[UniqueIdGenerator] failed to release the state file lock.", e);
+			}
+
+			lockChannel = null;
+		}
+	}
+
+	/**
+	 * <p>start over as a new process started at the time of the clock (for the tests)</p>
+	 */
+	static synchronized void reset(final LongSupplier newClock) {
+		release();
+
+		clock = newClock;
+		state.set((newClock.getAsLong() - EPOCH) << SEQUENCE_BITS);
+		nodeId = defaultNodeId();
+		stateFile = null;
+		reserved = Long.MAX_VALUE;
+
+		BLOCKS.remove();
+	}
+
+	public static int getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * <p>take a block of ids, and returns the first (time << SEQUENCE_BITS | sequence) of the block</p>
+	 */
+	private static long allocate() {
+		long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+
+		while (true) {
+			long current = state.get();
+			long next = Math.max(current, now);
+
+			if (state.compareAndSet(current, next + BLOCK_SIZE)) {
+				if (((next + BLOCK_SIZE) >>> SEQUENCE_BITS) >= reserved) {
+					reserve((next + BLOCK_SIZE) >>> SEQUENCE_BITS);
+				}
+
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * <p>write the time reserved ahead of the generator (epoch milliseconds) and the node id to the state file.
+	 * the ids are issued before the reserved time only.</p>
+	 */
+	private static synchronized void reserve(final long time) {
+		Path file = stateFile;
+
+		if ((file == null) || (time < reserved)) {
+			return;
+		}
+
+		long until = time + LEASE;
+
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+
+			Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+			Files.write(temp, ("node-id=" + nodeId + "\nreserved=" + (until + EPOCH) + "\n").getBytes(StandardCharsets.US_ASCII));
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch (IOException e)
+		{
+			// ------------------------------------------------------------
+			// the ids are still unique while the application is running
+			// ------------------------------------------------------------
+			LOG.warn("[UniqueIdGenerator] failed to write the state file. file={}", file, e);
+		}
+
+		reserved = until;
+	}
+
+	/**
+	 * <p>returns a new unique id</p>
+	 */
+	public static long nextId() {
+		long[] block = BLOCKS.get();
+
+		if (block[0] == block[1]) {
+			long first = allocate();
+
+			block[0] = first;
+			block[1] = first + BLOCK_SIZE;
+			block[2] = nodeId;
+		}
+
+		long value = block[0]++;
+
+		return ((value >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | (block[2] << SEQUENCE_BITS) | (value & SEQUENCE_MASK);
+	}
+
+	/**
+	 * <p>returns the time of the id (epoch milliseconds)</p>
+	 */
+	public static long getTimestamp(final long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+	}
+
+	/**
+	 * <p>returns the node id of the id</p>
+	 */
+	public static int getNodeId(final long id) {
+		return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+	}
+
+	/**
+	 * <p>write the decimal digits of the id (not negative) to the buffer, and returns the end offset (at most 19 bytes are written)</p>
+	 */
+	public static int writeDecimal(final long id, final byte[] buffer, final int offset) {
+		if (id < 0L) {
+			throw new IllegalArgumentException("negative id: " + id);
+		}
+
+		int length = 1;
+
+		for (long value = id / 10L; value > 0L; value /= 10L) {
+			length++;
+		}
+
+		long value = id;
+
+		for (int i = offset + length - 1; i >= offset; i--) {
+			buffer[i] = (byte) ('0' + (value % 10L));
+			value /= 10L;
+		}
+
+		return offset + length;
+	}
+
+	/**
+	 * <p>write the 13 characters of Crockford base32 of the id (not negative) to the buffer, and returns the end offset.
+	 * the encoded ids are in the same order as the ids.</p>
+	 */
+	public static int writeBase32(final long id, final byte[] buffer, final int offset) {
+		if (id < 0L) {
+			throw new IllegalArgumentException("negative id: " + id);
+		}
+
+		long value = id;
+
+		for (int i = offset + BASE32_LENGTH - 1; i >= offset; i--) {
+			buffer[i] = BASE32[(int) (value & 0x1F)];
+			value >>>= 5;
+		}
+
+		return offset + BASE32_LENGTH;
+	}
+
+	/**
+	 * <p>returns Crockford base32 of the id (13 characters)</p>
+	 */
+	public static String toBase32(final long id) {
+		byte[] buffer = new byte[BASE32_LENGTH];
+
+		writeBase32(id, buffer, 0);
+
+		return new String(buffer, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * <p>returns the id of Crockford base32 (case insensitive, 'O' is read as '0' and 'I', 'L' as '1')</p>
+	 */
+	public static long parseBase32(final CharSequence str) {
+		if ((str == null) || (str.length() == 0) || (str.length() > BASE32_LENGTH)) {
+			throw new IllegalArgumentException("invalid base32 id: " + str);
+		}
+
+		long value = 0L;
+
+		for (int i = 0; i < str.length(); i++) {
+			char c = Character.toUpperCase(str.charAt(i));
+
+			if (c == 'O') {
+				c = '0';
+			}else if ((c == 'I') || (c == 'L'))
+			{
+				c = '1';
+			}
+
+			int digit = -1;
+
+			for (int d = 0; d < BASE32.length; d++) {
+				if (BASE32[d] == c) {
+					digit = d;
+
+					break;
+				}
+			}
+
+			if (digit < 0) {
+				throw new IllegalArgumentException("invalid base32 id: " + str);
+			}
+
+			value = (value << 5) | digit;
+		}
+
+		if (value < 0L) {
+			throw new IllegalArgumentException("invalid base32 id: " + str);
+		}
+
+		return value;
+	}
+
+}
@@ -0,0 +1,183 @@
+package com.nurihome.app.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * <p>Writer which encodes the characters to UTF-8 directly into a reusable byte buffer, and writes the buffer to the output stream when it is full.</p>
+ *
+ * <p>the byte buffer is kept per thread and returned when the writer is closed, so writing a large response does not allocate the intermediate
+ * String, char[] or byte[] copies. unpaired surrogates are written as '?' (same as {@code String.getBytes(UTF_8)}).
+ * the underlying stream is flushed but not closed by {@link #close()} (the servlet container owns the response stream).</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     try (Writer writer = new Utf8StreamWriter(response.getOutputStream())) {
+ *         gson.toJson(modelEntity, ModelEntity.class, gson.newJsonWriter(writer));
+ *     }
+ * }</pre>
+ * </blockquote>
+ */
+public final class Utf8StreamWriter extends Writer {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * reusable byte buffer of the thread (null while it is used by a writer)
+	 */
+	private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>();
+
+	private final OutputStream out;
+
+	private byte[] buffer;
+
+	private int count;
+
+	/**
+	 * pending high surrogate (0 if none)
+	 */
+	private char highSurrogate;
+
+	public Utf8StreamWriter(OutputStream out) {
+		this.out = out;
+
+		byte[] reusable = BUFFERS.get();
+
+		if (reusable != null) {
+			BUFFERS.set(null);
+			this.buffer = reusable;
+		}else
+		{
+			this.buffer = new byte[BUFFER_SIZE];
+		}
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		ensureOpen();
+		writeChar((char) c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+
+		for (int i = off, end = off + len; i < end; i++) {
+			writeChar(cbuf[i]);
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+
+		for (int i = off, end = off + len; i < end; i++) {
+			writeChar(str.charAt(i));
+		}
+	}
+
+	/**
+	 * <p>encode a character to UTF-8 (surrogate pairs are encoded as a 4 bytes sequence)</p>
+	 */
+	private void writeChar(final char c) throws IOException {
+		if (count + 4 > buffer.length) {
+			flushBuffer();
+		}
+
+		if (c < 0x80 && highSurrogate == 0) {
+			buffer[count++] = (byte) c;
+
+			return;
+		}
+
+		if (highSurrogate != 0) {
+			char high = highSurrogate;
+			highSurrogate = 0;
+
+			if (Character.isLowSurrogate(c)) {
+				int codePoint = Character.toCodePoint(high, c);
+
+				buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+				buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+
+				return;
+			}
+
+			buffer[count++] = (byte) '?';
+
+			writeChar(c);
+
+			return;
+		}
+
+		if (c < 0x800) {
+			buffer[count++] = (byte) (0xC0 | (c >> 6));
+			buffer[count++] = (byte) (0x80 | (c & 0x3F));
+		}else if (Character.isHighSurrogate(c))
+		{
+			highSurrogate = c;
+		}else if (Character.isLowSurrogate(c))
+		{
+			buffer[count++] = (byte) '?';
+		}else
+		{
+			buffer[count++] = (byte) (0xE0 | (c >> 12));
+			buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			buffer[count++] = (byte) (0x80 | (c & 0x3F));
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (buffer == null) {
+			throw new IOException("stream closed");
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * <p>flush the buffered bytes, and return the byte buffer to the thread. the underlying stream is not closed.</p>
+	 */
+	@Override
+	public void close() throws IOException {
+		if (buffer == null) {
+			return;
+		}
+
+		try {
+			if (highSurrogate != 0) {
+				highSurrogate = 0;
+
+				if (count + 1 > buffer.length) {
+					flushBuffer();
+				}
+
+				buffer[count++] = (byte) '?';
+			}
+
+			flushBuffer();
+			out.flush();
+		}finally
+		{
+			BUFFERS.set(buffer);
+			buffer = null;
+		}
+	}
+
+}
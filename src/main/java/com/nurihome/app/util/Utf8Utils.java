@@ -0,0 +1,235 @@
+package com.nurihome.app.util;
+
+import java.util.Map;
+
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>UTF-8 byte budget of the strings (DB columns of a byte length), computed in a single pass over the characters
+ * without encoding the string.</p>
+ *
+ * <ul>
+ * <li>U+0000 ~ U+007F : 1 byte, U+0080 ~ U+07FF : 2 bytes, U+0800 ~ U+FFFF : 3 bytes (Korean), surrogate pair : 4 bytes</li>
+ * <li>an unpaired surrogate is counted as 1 byte (encoded as '?', same as {@code String.getBytes(UTF_8)})</li>
+ * <li>the strings are truncated on the code point boundaries (a surrogate pair is never split)</li>
+ * </ul>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     Utf8Utils.encodedLength("가나다abc")        = 12
+ *     Utf8Utils.truncate("가나다abc", 8)          = "가나"
+ *     Utf8Utils.truncate(paramEntity, Map.of("title", 100, "content", 4000));   // column byte limits
+ * }</pre>
+ * </blockquote>
+ */
+public final class Utf8Utils {
+
+	/**
+	 * <p>private constructor</p>
+	 */
+	private Utf8Utils() {}
+
+	/**
+	 * <p>returns the UTF-8 length of the string (bytes)</p>
+	 */
+	public static int encodedLength(final CharSequence str) {
+		int length = str.length();
+		int bytes = length;
+
+		for (int i = 0; i < length; i++) {
+			char c = str.charAt(i);
+
+			if (c < 0x80) {
+				continue;
+			}
+
+			if (c < 0x800) {
+				bytes += 1;
+			}else if (Character.isHighSurrogate(c) && (i + 1 < length) && Character.isLowSurrogate(str.charAt(i + 1)))
+			{
+				bytes += 2;
+				i++;
+			}else if (!Character.isSurrogate(c))
+			{
+				bytes += 2;
+			}
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * <p>returns the end index of the longest prefix which is not longer than the bytes in UTF-8 (on a code point boundary)</p>
+	 */
+	public static int truncateIndex(final CharSequence str, final int maxBytes) {
+		int length = str.length();
+		int bytes = 0;
+		int i = 0;
+
+		while (i < length) {
+			char c = str.charAt(i);
+			int size;
+			int chars = 1;
+
+			if (c < 0x80) {
+				size = 1;
+			}else if (c < 0x800)
+			{
+				size = 2;
+			}else if (Character.isHighSurrogate(c) && (i + 1 < length) && Character.isLowSurrogate(str.charAt(i + 1)))
+			{
+				size = 4;
+				chars = 2;
+			}else if (Character.isSurrogate(c))
+			{
+				size = 1;
+			}else
+			{
+				size = 3;
+			}
+
+			if (bytes + size > maxBytes) {
+				break;
+			}
+
+			bytes += size;
+			i += chars;
+		}
+
+		return i;
+	}
+
+	/**
+	 * <p>truncate the string to the bytes in UTF-8 (the string itself is returned if it is not longer)</p>
+	 */
+	public static String truncate(final String str, final int maxBytes) {
+		if ((str == null) || (str.length() <= (maxBytes / 3))) {
+			// ------------------------------------------------------------
+			// a character is 3 bytes at most (a surrogate pair is 4 bytes for 2 characters)
+			// ------------------------------------------------------------
+			return str;
+		}
+
+		int end = truncateIndex(str, Math.max(maxBytes, 0));
+
+		return (end == str.length()) ? str : str.substring(0, end);
+	}
+
+	/**
+	 * <p>check if the string can be encoded to UTF-8 without loss (no unpaired surrogate)</p>
+	 */
+	public static boolean isValid(final CharSequence str) {
+		int length = str.length();
+
+		for (int i = 0; i < length; i++) {
+			char c = str.charAt(i);
+
+			if (Character.isHighSurrogate(c) && (i + 1 < length) && Character.isLowSurrogate(str.charAt(i + 1))) {
+				i++;
+			}else if (Character.isSurrogate(c))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * <p>check if the bytes are well-formed UTF-8 (no overlong sequence, no surrogate, not above U+10FFFF)</p>
+	 */
+	public static boolean isValid(final byte[] bytes, final int offset, final int length) {
+		int end = offset + length;
+		int i = offset;
+
+		while (i < end) {
+			int b = bytes[i] & 0xFF;
+
+			if (b < 0x80) {
+				i++;
+
+				continue;
+			}
+
+			int size;
+			int min;
+			int codePoint;
+
+			if ((b >= 0xC2) && (b <= 0xDF)) {
+				size = 2;
+				min = 0x80;
+				codePoint = b & 0x1F;
+			}else if ((b & 0xF0) == 0xE0)
+			{
+				size = 3;
+				min = 0x800;
+				codePoint = b & 0x0F;
+			}else if ((b >= 0xF0) && (b <= 0xF4))
+			{
+				size = 4;
+				min = 0x10000;
+				codePoint = b & 0x07;
+			}else
+			{
+				return false;
+			}
+
+			if (i + size > end) {
+				return false;
+			}
+
+			for (int k = 1; k < size; k++) {
+				int next = bytes[i + k] & 0xFF;
+
+				if ((next & 0xC0) != 0x80) {
+					return false;
+				}
+
+				codePoint = (codePoint << 6) | (next & 0x3F);
+			}
+
+			if ((codePoint < min) || (codePoint > Character.MAX_CODE_POINT) || ((codePoint >= Character.MIN_SURROGATE) && (codePoint <= Character.MAX_SURROGATE))) {
+				return false;
+			}
+
+			i += size;
+		}
+
+		return true;
+	}
+
+	/**
+	 * <p>truncate the parameters to the byte limits of the columns (parameter name -> bytes), and returns the number of truncated parameters</p>
+	 */
+	public static int truncate(final ParamEntity paramEntity, final Map<String, Integer> limits) {
+		return truncate(paramEntity.getParameters(), limits);
+	}
+
+	/**
+	 * <p>truncate the string values of the row to the byte limits of the columns (column name -> bytes),
+	 * and returns the number of truncated values</p>
+	 */
+	public static <V> int truncate(final Map<String, V> row, final Map<String, Integer> limits) {
+		int truncated = 0;
+
+		for (Map.Entry<String, Integer> limit : limits.entrySet()) {
+			V value = row.get(limit.getKey());
+
+			if (value instanceof String) {
+				String str = truncate((String) value, limit.getValue());
+
+				if (str != value) {
+					@SuppressWarnings("unchecked")
+					V replaced = (V) str;
+
+					row.put(limit.getKey(), replaced);
+					truncated++;
+				}
+			}
+		}
+
+		return truncated;
+	}
+
+}
@@ -1,10 +1,12 @@
 package com.nurihome.app.util;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URL;
-import java.text.DecimalFormat;
+import java.util.Currency;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.apache.commons.codec.binary.Base64;
@@ -19,8 +21,6 @@ import org.apache.commons.text.StringEscapeUtils;
  */
 public final class Utils {
 
-	private static final AtomicLong timestamp = new AtomicLong((System.currentTimeMillis() / 1000L) * 1000000000L);
-
 	private static final Pattern MAIL_PATTERN_DEFAULT = Pattern.compile("^[\\w!#$%&'*+/=?`{|}~^-]+(?:\\.[\\w!#$%&'*+/=?`{|}~^-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,6}$");
 	private static final Pattern DATE_PATTERN_DEFAULT = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}$");
 	
@@ -30,31 +30,31 @@ public final class Utils {
 	private Utils() {}
 	
 	/**
-	 * <p>generate Unique ID with Timestamp.</p>
+	 * <p>generate Unique ID with Timestamp (see {@link UniqueIdGenerator}).</p>
 	 * 
 	 * <blockquote>
 	 * <pre>{@code
 	 * Usage:
-	 *     Utils.createLongUniqueIdByTimestamp() = 1553844847000000000;
+	 *     Utils.createLongUniqueIdByTimestamp() = 2222552664791609344;
 	 * }</pre>
 	 * </blockquote>
 	 */
 	public static long createLongUniqueIdByTimestamp() {
-		return timestamp.getAndIncrement();
+		return UniqueIdGenerator.nextId();
 	}
 
 	/**
-	 * <p>generate Unique ID with Timestamp.</p>
+	 * <p>generate Unique ID with Timestamp (see {@link UniqueIdGenerator}).</p>
 	 * 
 	 * <blockquote>
 	 * <pre>{@code
 	 * Usage:
-	 *     Utils.createUniqueIdByTimestamp() = "1553844847000000000";
+	 *     Utils.createUniqueIdByTimestamp() = "2222552664791609344";
 	 * }</pre>
 	 * </blockquote>
 	 */
 	public static String createUniqueIdByTimestamp() {
-		return String.format("%1$d", createLongUniqueIdByTimestamp());
+		return Long.toString(UniqueIdGenerator.nextId());
 	}
 
 	/**
@@ -394,6 +394,20 @@ public final class Utils {
 		return sha256hex;
 	}
 
+	/**
+	 * <p>convert the contents of a stream to SHA-256 Hash (the stream is read in blocks, not loaded in memory)</p>
+	 * 
+	 * <blockquote>
+	 * <pre>{@code
+	 * Usage:
+	 *     Utils.convertSHA256Hash(fileEntity.getInputStream()) = "6b86b273ff34fce19d6b804eff5a3f5747ada4eaa22f1d49c01e52ddb7875b4b"
+	 * }</pre>
+	 * </blockquote>
+	 */
+	public static String convertSHA256Hash(final InputStream in) throws IOException {
+		return DigestUtils.sha256Hex(in);
+	}
+
 	/**
 	 * <p>convert a uri to a byte array.</p>
 	 * 
@@ -497,11 +511,7 @@ public final class Utils {
 	}
 	
 	public static String getNumberType(double number, String format){
-        String result = "";
-        DecimalFormat decimalformat = new DecimalFormat(format);
-        result = decimalformat.format(number);
-
-        return result;
+        return NumberFormatter.getInstance(format).format(number);
     }
 
     public static String getNumberType(String strNumber, String format){
@@ -554,48 +564,35 @@ public final class Utils {
     	return result;
     }
 	
-	//바이트 제한
+	/**
+	 * <p>format the number with the currency rules of the locale (symbol, position of the symbol and fraction digits of the currency).</p>
+	 * 
+	 * <blockquote>
+	 * <pre>{@code
+	 * Usage:
+	 *     Utils.setNumberTypeWithCurrency("-1234567", Currency.getInstance("KRW"), Locale.KOREA) = "-₩1,234,567"
+	 *     Utils.setNumberTypeWithCurrency("1234.5", Currency.getInstance("EUR"), Locale.GERMANY) = "1.234,50 €"
+	 * }</pre>
+	 * </blockquote>
+	 */
+	public static String setNumberTypeWithCurrency(String strNumber, Currency currency, Locale locale){
+		if("".equals(strNumber)) {
+			return "";
+		}
+		
+		return NumberFormatter.getCurrencyInstance(currency, locale).format(strNumber);
+	}
+	
+	//바이트 제한 (UTF-8, 문자 단위로 자름 : see Utf8Utils)
 	public static String byteLimit(String inputStr, int limit) throws Exception {
-		byte[] newByte = null;
+		if(inputStr == null) {
+			return "";
+		}
 		
-		try {
-			if(inputStr == null) {
-				return "";
-			}
-	            
-	        if (limit <= 0) {
-	        	return inputStr;
-	        }
-	            
-	        byte[] strbyte = null;
-	        strbyte = inputStr.getBytes("UTF-8");
-	        if (strbyte.length <= limit) {
-	            return inputStr;
-	        }
-	        
-	        char[] charArray = inputStr.toCharArray();
-	        int checkLimit = limit;
-	        for (int i=0; i<charArray.length; i++ ) {
-	            if(charArray[i] < 256) {
-	                checkLimit -= 1;
-	            }
-	            else {
-	                checkLimit -= 2;
-	            }
-	            if(checkLimit <= 0) {
-	                break;
-	            }
-	        }
-	        
-	        //대상 문자열 마지막 자리가 2바이트의 중간일 경우 제거함
-	        newByte = new byte[limit + checkLimit];
-	        for (int i=0 ; i<newByte.length ; i++ ) {
-	            newByte[i] = strbyte[i];
-	        }
-		} catch (Exception e) {
-			e.printStackTrace();
+		if (limit <= 0) {
+			return inputStr;
 		}
 		
-		return new String(newByte, "UTF-8");
-    }
+		return Utf8Utils.truncate(inputStr, limit);
+	}
 }
@@ -0,0 +1,535 @@
+package com.nurihome.app.web.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLConnection;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nurihome.app.util.ServiceFactoryUtil;
+import com.nurihome.app.util.Utils;
+import com.nurihome.app.web.entity.FileEntity;
+import com.nurihome.app.web.entity.ModelEntity;
+import com.nurihome.app.web.entity.ParamEntity;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * <p>File download endpoint.</p>
+ *
+ * <p>the command returns a {@link FileEntity} (or a {@link Path}), and the file is written to the response with {@link FileChannel#transferTo}
+ * (or the sendfile of the servlet container), so the contents do not enter the Java heap. the stream source (e.g. {@code new FileEntity(name, size, source)})
+ * is copied through a small buffer, and the in-memory contents (byte array) are written as is.
+ * single and multiple byte ranges ("Range", "If-Range"), "ETag" / "If-None-Match" and "Last-Modified" are supported.</p>
+ *
+ * <pre>
+ * GET /app/1.0/service/download?serviceId=common.file&amp;commandId=retrieveFile&amp;fileId=..
+ * Range: bytes=0-1023, 4096-
+ * </pre>
+ */
+@RestController
+@RequestMapping("/app")
+public class DownloadController {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DownloadController.class);
+
+	/**
+	 * maximum number of the ranges in a request (the range header is ignored if exceeded)
+	 */
+	private static final int MAX_RANGES = 16;
+
+	/**
+	 * buffer size of copying the stream source to the response
+	 */
+	private static final int COPY_BUFFER_SIZE = 16384;
+
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	/**
+	 * <p>writing a "JSON" response directly to the servlet output stream (returns null, the response has been written)</p>
+	 */
+	private static ResponseEntity<byte[]> writeContent(HttpServletResponse response, final ModelEntity modelEntity) {
+		try {
+			HttpController.writeJson(response, modelEntity.getStatus(), modelEntity);
+		}catch (IOException e)
+		{
+			// ------------------------------------------------------------
+			// the client has closed the connection
+			// ------------------------------------------------------------
+			LOG.info("[DownloadController] failed to write the response. msg={}", e.getMessage());
+		}
+
+		return null;
+	}
+
+	/*
+	 * <p> 파일 다운로드 요청 처리</p>
+	 */
+	@RequestMapping(value = {"/1.0/service/download"}, method = {RequestMethod.GET, RequestMethod.HEAD})
+	public ResponseEntity<byte[]> download(HttpServletRequest request, HttpServletResponse response, @RequestParam Map<String, String> params) {
+		ModelEntity modelEntity = new ModelEntity();
+
+		String serviceId = params.get("serviceId");
+		String commandId = params.get("commandId");
+
+		// ------------------------------------------------------------
+		// check for required parameters
+		// ------------------------------------------------------------
+		if ((Utils.isEmpty(serviceId)) || (Utils.isEmpty(commandId))) {
+			modelEntity.setError("missing required parameters in the HTTP request");
+
+			return writeContent(response, modelEntity);
+		}
+
+		ParamEntity paramEntity = new ParamEntity(params, serviceId, commandId);
+		paramEntity.setTimeout(HttpController.getRequestTimeout(request), TimeUnit.MILLISECONDS);
+
+		// ------------------------------------------------------------
+		// invoke service or business logic
+		// ------------------------------------------------------------
+		ServiceFactoryUtil.invokeCommand(paramEntity, modelEntity);
+
+		if ((modelEntity.getStatus() != HttpStatus.OK.value()) || (!"OK".equals(modelEntity.getMessage()))) {
+			return writeContent(response, modelEntity);
+		}
+
+		Object data = modelEntity.getData();
+		FileEntity fileEntity = null;
+
+		try {
+			if (data instanceof FileEntity) {
+				fileEntity = (FileEntity) data;
+			}else if ((data instanceof Path) && (Files.isRegularFile((Path) data)))
+			{
+				fileEntity = new FileEntity(((Path) data).getFileName().toString(), (Path) data);
+			}
+		}catch (IOException e)
+		{
+			fileEntity = null;
+		}
+
+		if ((fileEntity == null) || ((fileEntity.getPath() != null) ? (!Files.isRegularFile(fileEntity.getPath())) : (!fileEntity.hasContent()))) {
+			LOG.info("[DownloadController] the command did not return a file. serviceId={}, commandId={}", serviceId, commandId);
+
+			modelEntity.setData(null);
+			modelEntity.setError("no such file");
+			modelEntity.setStatus(HttpStatus.NOT_FOUND.value());
+
+			return writeContent(response, modelEntity);
+		}
+
+		try {
+			writeFile(request, response, fileEntity);
+		}catch (IOException e)
+		{
+			// ------------------------------------------------------------
+			// the client has closed the connection
+			// ------------------------------------------------------------
+			LOG.info("[DownloadController] failed to write the file. serviceId={}, commandId={}, msg={}", serviceId, commandId, e.getMessage());
+		}
+
+		return null;
+	}
+
+	/**
+	 * <p>write the file (or the requested ranges of the file) to the response</p>
+	 */
+	private void writeFile(HttpServletRequest request, HttpServletResponse response, final FileEntity fileEntity) throws IOException {
+		Path path = fileEntity.getPath();
+		String name = Utils.isEmpty(fileEntity.getName()) ? ((path != null) ? path.getFileName().toString() : "download") : fileEntity.getName();
+		long size;
+		long lastModified;
+		String eTag;
+
+		if (path != null) {
+			size = Files.size(path);
+			lastModified = Files.getLastModifiedTime(path).toMillis();
+			eTag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+		}else if (fileEntity.isInMemory())
+		{
+			// ------------------------------------------------------------
+			// in-memory contents (the ETag is the hash of the contents)
+			// ------------------------------------------------------------
+			byte[] content = fileEntity.getContent();
+
+			size = content.length;
+			lastModified = -1L;
+			eTag = "\"" + Long.toHexString(size) + "-" + Integer.toHexString(Arrays.hashCode(content)) + "\"";
+		}else
+		{
+			// ------------------------------------------------------------
+			// stream source (not read into memory, the weak ETag of the name and the size is never matched by "If-Range")
+			// ------------------------------------------------------------
+			size = fileEntity.getLength();
+			lastModified = -1L;
+			eTag = "W/\"" + Long.toHexString(size) + "-" + Integer.toHexString(name.hashCode()) + "\"";
+		}
+
+		String contentType = getContentType(path, name);
+		boolean head = RequestMethod.HEAD.name().equals(request.getMethod());
+
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		response.setHeader(HttpHeaders.ETAG, eTag);
+
+		if (lastModified >= 0L) {
+			response.setHeader(HttpHeaders.LAST_MODIFIED, formatDate(lastModified));
+		}
+
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20"));
+
+		// ------------------------------------------------------------
+		// not modified
+		// ------------------------------------------------------------
+		String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+		if ((ifNoneMatch != null) && ((ifNoneMatch.contains(eTag)) || ("*".equals(ifNoneMatch.trim())))) {
+			response.setStatus(HttpStatus.NOT_MODIFIED.value());
+
+			return;
+		}
+
+		List<long[]> ranges = null;
+		String range = request.getHeader(HttpHeaders.RANGE);
+
+		if ((range != null) && (isRangeValid(request.getHeader(HttpHeaders.IF_RANGE), eTag, lastModified))) {
+			ranges = parseRanges(range, size);
+
+			if ((ranges != null) && (ranges.isEmpty())) {
+				// ------------------------------------------------------------
+				// no range is satisfiable
+				// ------------------------------------------------------------
+				response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+
+				return;
+			}
+		}
+
+		if ((ranges == null) || ((ranges.size() == 1) && (ranges.get(0)[0] == 0L) && (ranges.get(0)[1] == size - 1L))) {
+			// ------------------------------------------------------------
+			// whole file
+			// ------------------------------------------------------------
+			response.setStatus(HttpStatus.OK.value());
+			response.setContentType(contentType);
+			response.setContentLengthLong(size);
+
+			if (!head) {
+				transfer(request, response, fileEntity, 0L, size);
+			}
+		}else if (ranges.size() == 1)
+		{
+			// ------------------------------------------------------------
+			// single range
+			// ------------------------------------------------------------
+			long[] r = ranges.get(0);
+
+			response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+			response.setContentType(contentType);
+			response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + r[0] + "-" + r[1] + "/" + size);
+			response.setContentLengthLong(r[1] - r[0] + 1L);
+
+			if (!head) {
+				transfer(request, response, fileEntity, r[0], r[1] - r[0] + 1L);
+			}
+		}else
+		{
+			// ------------------------------------------------------------
+			// multiple ranges (multipart/byteranges)
+			// ------------------------------------------------------------
+			String boundary = UUID.randomUUID().toString().replace("-", "");
+			List<byte[]> partHeaders = new ArrayList<byte[]>(ranges.size());
+			byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+			long length = end.length;
+
+			for (long[] r : ranges) {
+				byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+					+ HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+					+ HttpHeaders.CONTENT_RANGE + ": bytes " + r[0] + "-" + r[1] + "/" + size + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+				partHeaders.add(partHeader);
+				length += partHeader.length + (r[1] - r[0] + 1L);
+			}
+
+			response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+			response.setContentType("multipart/byteranges; boundary=" + boundary);
+			response.setContentLengthLong(length);
+
+			if (!head) {
+				OutputStream out = response.getOutputStream();
+
+				if (path != null) {
+					try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+						WritableByteChannel target = Channels.newChannel(out);
+
+						for (int i = 0; i < ranges.size(); i++) {
+							long[] r = ranges.get(i);
+
+							out.write(partHeaders.get(i));
+							transferTo(channel, r[0], r[1] - r[0] + 1L, target);
+						}
+					}
+				}else
+				{
+					// ------------------------------------------------------------
+					// the stream is read forward, and opened again for a range before the current position
+					// ------------------------------------------------------------
+					byte[] buffer = new byte[COPY_BUFFER_SIZE];
+					InputStream in = fileEntity.getInputStream();
+					long position = 0L;
+
+					try {
+						for (int i = 0; i < ranges.size(); i++) {
+							long[] r = ranges.get(i);
+
+							if (r[0] < position) {
+								in.close();
+								in = fileEntity.getInputStream();
+								position = 0L;
+							}
+
+							out.write(partHeaders.get(i));
+							copyRange(in, r[0] - position, r[1] - r[0] + 1L, out, buffer);
+
+							position = r[1] + 1L;
+						}
+					}finally
+					{
+						in.close();
+					}
+				}
+
+				out.write(end);
+				out.flush();
+			}
+		}
+	}
+
+	/**
+	 * <p>write a region of the file with the sendfile of the servlet container if supported, or {@link FileChannel#transferTo}</p>
+	 */
+	private static void transfer(HttpServletRequest request, HttpServletResponse response, final FileEntity fileEntity, final long position, final long count) throws IOException {
+		Path path = fileEntity.getPath();
+
+		if (path == null) {
+			OutputStream out = response.getOutputStream();
+
+			try (InputStream in = fileEntity.getInputStream()) {
+				copyRange(in, position, count, out, new byte[COPY_BUFFER_SIZE]);
+			}
+
+			out.flush();
+
+			return;
+		}
+
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+			request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+			request.setAttribute(SENDFILE_START, Long.valueOf(position));
+			request.setAttribute(SENDFILE_END, Long.valueOf(position + count));
+
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			OutputStream out = response.getOutputStream();
+
+			transferTo(channel, position, count, Channels.newChannel(out));
+
+			out.flush();
+		}
+	}
+
+	/**
+	 * <p>skip the bytes of the stream, and copy the count bytes to the output stream</p>
+	 */
+	private static void copyRange(final InputStream in, final long skip, final long count, final OutputStream out, final byte[] buffer) throws IOException {
+		in.skipNBytes(skip);
+
+		long remaining = count;
+
+		while (remaining > 0L) {
+			int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+			if (n < 0) {
+				throw new IOException("unexpected end of file");
+			}
+
+			out.write(buffer, 0, n);
+			remaining -= n;
+		}
+	}
+
+	private static void transferTo(final FileChannel channel, final long position, final long count, final WritableByteChannel target) throws IOException {
+		long transferred = 0L;
+
+		while (transferred < count) {
+			long n = channel.transferTo(position + transferred, count - transferred, target);
+
+			if (n <= 0L) {
+				throw new IOException("unexpected end of file");
+			}
+
+			transferred += n;
+		}
+	}
+
+	/**
+	 * <p>check if the range request is valid for the current version of the file ("If-Range" matches the ETag or the last modified time)</p>
+	 */
+	static boolean isRangeValid(final String ifRange, final String eTag, final long lastModified) {
+		if (ifRange == null) {
+			return true;
+		}
+
+		String value = ifRange.trim();
+
+		if (value.startsWith("\"") || value.startsWith("W/")) {
+			// ------------------------------------------------------------
+			// strong comparison (a weak ETag never matches)
+			// ------------------------------------------------------------
+			return value.startsWith("\"") && value.equals(eTag);
+		}
+
+		try {
+			return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() / 1000L == lastModified / 1000L;
+		}catch (DateTimeParseException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * <p>parse the "Range" header (bytes=first-last, first-, -suffix).
+	 * returns null if the header is invalid or has too many ranges (the whole file is sent), or an empty list if no range is satisfiable.</p>
+	 */
+	static List<long[]> parseRanges(final String range, final long size) {
+		if (!range.startsWith("bytes=")) {
+			return null;
+		}
+
+		String[] specs = range.substring(6).split(",");
+
+		if (specs.length > MAX_RANGES) {
+			return null;
+		}
+
+		List<long[]> ranges = new ArrayList<long[]>(specs.length);
+
+		try {
+			for (String spec : specs) {
+				String value = spec.trim();
+				int dash = value.indexOf('-');
+
+				if (dash < 0) {
+					return null;
+				}
+
+				long first;
+				long last;
+
+				if (dash == 0) {
+					// ------------------------------------------------------------
+					// suffix range (last n bytes)
+					// ------------------------------------------------------------
+					long suffix = parsePosition(value.substring(1));
+
+					if (suffix <= 0L) {
+						continue;
+					}
+
+					first = Math.max(0L, size - suffix);
+					last = size - 1L;
+				}else
+				{
+					first = parsePosition(value.substring(0, dash));
+					last = (dash == value.length() - 1) ? Long.MAX_VALUE : parsePosition(value.substring(dash + 1));
+
+					if (last < first) {
+						return null;
+					}
+
+					last = Math.min(last, size - 1L);
+				}
+
+				if ((first < size) && (size > 0L)) {
+					ranges.add(new long[] {first, last});
+				}
+			}
+		}catch (NumberFormatException e)
+		{
+			return null;
+		}
+
+		return ranges;
+	}
+
+	/**
+	 * <p>parse a byte position of the range (digits only, the sign of {@link Long#parseLong} is not allowed)</p>
+	 */
+	private static long parsePosition(final String value) {
+		if ((value.isEmpty()) || (value.charAt(0) < '0') || (value.charAt(0) > '9')) {
+			throw new NumberFormatException(value);
+		}
+
+		return Long.parseLong(value);
+	}
+
+	/**
+	 * <p>returns the content type of the file (by the file name, or the contents), or "application/octet-stream"</p>
+	 */
+	private static String getContentType(final Path path, final String name) {
+		String contentType = URLConnection.guessContentTypeFromName(name);
+
+		if ((contentType == null) && (path != null)) {
+			try {
+				contentType = Files.probeContentType(path);
+			}catch (IOException ignore)
+			{
+				//--- nothing
+			}
+		}
+
+		return (contentType != null) ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+	}
+
+	private static String formatDate(final long millis) {
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+	}
+
+}
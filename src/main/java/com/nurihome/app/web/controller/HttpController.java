@@ -1,24 +1,45 @@
 package com.nurihome.app.web.controller;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 
+import com.nurihome.app.util.CommandResultCache;
 import com.nurihome.app.util.GsonUtils;
+import com.nurihome.app.util.PooledByteArrayOutputStream;
+import com.nurihome.app.util.RowStreamUtil;
+import com.nurihome.app.util.ServiceCommand;
+import com.nurihome.app.util.ServiceCommandRegistry;
 import com.nurihome.app.util.ServiceFactoryUtil;
 import com.nurihome.app.util.Utils;
+import com.nurihome.app.web.entity.BatchCommandEntity;
 import com.nurihome.app.web.entity.FileEntity;
 import com.nurihome.app.web.entity.ModelEntity;
 import com.nurihome.app.web.entity.ParamEntity;
@@ -31,66 +52,341 @@ import jakarta.servlet.http.HttpServletResponse;
 public class HttpController {
 	private static final Logger LOG = LoggerFactory.getLogger(HttpController.class);
 
+	/**
+	 * request header of the client timeout (milliseconds)
+	 */
+	private static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+	/**
+	 * thread pool for the parallel batch request
+	 */
+	private final Executor batchExecutor;
+
+	/**
+	 * maximum number of commands in a batch request
+	 */
+	private final int maxBatchCommands;
+
+	/**
+	 * thread pool for the commands annotated with @AsyncCommand
+	 */
+	private final Executor commandExecutor;
+
+	/**
+	 * timeout of the async request (milliseconds)
+	 */
+	private final long asyncTimeout;
+
+	/**
+	 * cache of the responses of the cacheable commands
+	 */
+	private final CommandResultCache resultCache;
+
+	/**
+	 * write the JSON response from the pooled buffer directly to the servlet output stream (not for the cached responses)
+	 */
+	private final boolean streamingResponse;
+
+	public HttpController(@Qualifier("batchExecutor") Executor batchExecutor, @Value("${gws.batch.max-commands:50}") int maxBatchCommands,
+			@Qualifier("commandExecutor") Executor commandExecutor, @Value("${gws.async.timeout:30000}") long asyncTimeout, CommandResultCache resultCache,
+			@Value("${gws.response.streaming:true}") boolean streamingResponse) {
+		this.batchExecutor = batchExecutor;
+		this.maxBatchCommands = maxBatchCommands;
+		this.commandExecutor = commandExecutor;
+		this.asyncTimeout = asyncTimeout;
+		this.resultCache = resultCache;
+		this.streamingResponse = streamingResponse;
+	}
 	
 	/**
-	 * <p>creating a "JSON" response</p>
+	 * <p>creating a "JSON" response (the status code of the model entity is used, if the object is a model entity).
+	 * only for the responses which need the body as an array (the cached response, the deferred result, gws.response.streaming=false),
+	 * the other responses are written with {@link #writeJson(HttpServletResponse, int, Object)}.</p>
 	 */
-	private ResponseEntity<String> createContent(final Object o) {
+	private ResponseEntity<byte[]> createContent(final Object o) {
+		int status = HttpStatus.OK.value();
+		
+		if (o instanceof ModelEntity) {
+			status = ((ModelEntity) o).getStatus();
+		}
+		
+		return createContent(status, GsonUtils.convertObject2JsonBytes(o));
+	}
+	
+	/**
+	 * <p>creating a "JSON" response with the serialized body (UTF-8)</p>
+	 */
+	private ResponseEntity<byte[]> createContent(final int status, final byte[] body) {
 		// ------------------------------------------------------------
 		// set http response headers and body content
 		// ------------------------------------------------------------
-		return ResponseEntity.status(HttpStatus.OK)
+		return ResponseEntity.status(status)
 			.contentType(MediaType.APPLICATION_JSON)
 			.cacheControl(CacheControl.noCache())
-			.body(GsonUtils.convertObject2Json(o));
+			.body(body);
+	}
+	
+	/**
+	 * <p>creating a "JSON" response of the command, and record the serialization latency in the command metrics</p>
+	 */
+	private ResponseEntity<byte[]> createContent(final String serviceId, final String commandId, final ModelEntity modelEntity) {
+		long start = System.nanoTime();
+		
+		ResponseEntity<byte[]> content = createContent(modelEntity);
+		
+		recordSerialize(serviceId, commandId, start);
+		
+		return content;
+	}
+	
+	/**
+	 * <p>writing a "JSON" response directly to the servlet output stream (UTF-8), and record the serialization latency in the command metrics</p>
+	 */
+	private void writeContent(HttpServletResponse response, final String serviceId, final String commandId, final Object o) {
+		long start = System.nanoTime();
+		
+		try {
+			writeJson(response, (o instanceof ModelEntity) ? ((ModelEntity) o).getStatus() : HttpStatus.OK.value(), o);
+		}catch (IOException e)
+		{
+			// ------------------------------------------------------------
+			// the client has closed the connection
+			// ------------------------------------------------------------
+			LOG.info("[HttpController] failed to write the response. serviceId={}, commandId={}, msg={}", serviceId, commandId, e.getMessage());
+		}
+		
+		recordSerialize(serviceId, commandId, start);
+	}
+	
+	/**
+	 * <p>writing a "JSON" response to the servlet output stream (UTF-8). the json bytes are encoded into a pooled buffer and written from the buffer
+	 * with the content length, so the body is never copied into an array (the handler returns null after writing the response).</p>
+	 */
+	static void writeJson(HttpServletResponse response, final int status, final Object o) throws IOException {
+		try (PooledByteArrayOutputStream body = GsonUtils.convertObject2JsonBuffer(o)) {
+			setContentHeaders(response, status, MediaType.APPLICATION_JSON_VALUE);
+			response.setContentLengthLong(body.size());
+			
+			body.writeTo(response.getOutputStream());
+		}
+	}
+	
+	/**
+	 * <p>writing the rows returned by the command (Stream, Iterator, Cursor) incrementally, as a JSON array in the model entity or as NDJSON
+	 * if the client accepts "application/x-ndjson". the row source is closed when the rows are written or the client has closed the connection.</p>
+	 */
+	private void writeRows(HttpServletRequest request, HttpServletResponse response, final String serviceId, final String commandId, final ModelEntity modelEntity) {
+		long start = System.nanoTime();
+		Object rows = modelEntity.getData();
+		
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		boolean ndjson = (accept != null) && (accept.contains(MediaType.APPLICATION_NDJSON_VALUE));
+		
+		setContentHeaders(response, modelEntity.getStatus(), (ndjson) ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+		
+		try {
+			if (ndjson) {
+				RowStreamUtil.writeNdjson(rows, response.getOutputStream());
+			}else
+			{
+				RowStreamUtil.writeJson(modelEntity, response.getOutputStream());
+			}
+		}catch (IOException e)
+		{
+			// ------------------------------------------------------------
+			// the client has closed the connection (close the cursor)
+			// ------------------------------------------------------------
+			RowStreamUtil.close(rows);
+			
+			LOG.info("[HttpController] failed to write the rows. serviceId={}, commandId={}, msg={}", serviceId, commandId, e.getMessage());
+		}
+		
+		recordSerialize(serviceId, commandId, start);
+	}
+	
+	/**
+	 * <p>read the rows of the row stream (Stream, Iterator, Cursor) into a list, for the response which can not be written incrementally</p>
+	 */
+	private static void materializeRows(final String serviceId, final String commandId, ModelEntity modelEntity) {
+		try {
+			modelEntity.setData(RowStreamUtil.materialize(modelEntity.getData()));
+		}catch (RuntimeException e)
+		{
+			LOG.error("[HttpController] failed to read the rows. serviceId={}, commandId={}, msg={}", serviceId, commandId, e);
+			
+			modelEntity.setData(null);
+			modelEntity.setError("error processing the request");
+		}
+	}
+	
+	/**
+	 * <p>set http response headers of the response written to the servlet output stream</p>
+	 */
+	private static void setContentHeaders(HttpServletResponse response, final int status, final String contentType) {
+		response.setStatus(status);
+		response.setContentType(contentType);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+	}
+	
+	/**
+	 * <p>record the serialization latency in the command metrics</p>
+	 */
+	private static void recordSerialize(final String serviceId, final String commandId, final long start) {
+		ServiceCommand command = ServiceCommandRegistry.lookup(serviceId, commandId);
+		
+		if ((command != null) && (command.getMetrics() != null)) {
+			command.getMetrics().recordSerialize(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * <p>creating the request parameters with the attachment files of the multipart request.
+	 * the attachment files are not read here, the service reads the temporary file of the part when it needs the contents
+	 * (see {@link #keepAttachments(MultipartHttpServletRequest, ParamEntity, CompletionStage)} for the command which outlives the request).</p>
+	 */
+	private ParamEntity createParamEntity(HttpServletRequest request, Map<String, String> params, String serviceId, String commandId) {
+		ParamEntity paramEntity = new ParamEntity(params, serviceId, commandId);
+		paramEntity.setTimeout(getRequestTimeout(request), TimeUnit.MILLISECONDS);
+		
+		// ------------------------------------------------------------
+		// check for multipart request
+		// ------------------------------------------------------------
+		if (request instanceof MultipartHttpServletRequest) {
+			MultipartHttpServletRequest multipart = (MultipartHttpServletRequest) request; 
+
+			for (Map.Entry<String, List<MultipartFile>> files : multipart.getMultiFileMap().entrySet()) {
+				for (MultipartFile file : files.getValue()) {
+					if (file.getSize() > 0L) {
+						// ------------------------------------------------------------
+						// add attachment file (read lazily from the temporary store)
+						// ------------------------------------------------------------
+						paramEntity.addFile(files.getKey(), new FileEntity(file.getOriginalFilename(), file.getSize(), file::getInputStream));
+					}
+				}
+			}
+		}
+		
+		return paramEntity;
+	}
+
+	/**
+	 * <p>the temporary files of the multipart request are deleted when the request has finished.
+	 * the attachment files of the command which is still running are copied to our own temporary files, and deleted when the command completes.</p>
+	 */
+	static void keepAttachments(MultipartHttpServletRequest request, ParamEntity paramEntity, CompletionStage<?> finished) {
+		if (finished.toCompletableFuture().isDone()) {
+			return;
+		}
+		
+		List<Path> copies = new ArrayList<Path>();
+		
+		for (String name : request.getMultiFileMap().keySet()) {
+			for (FileEntity file : paramEntity.getFiles(name)) {
+				Path copy = null;
+				
+				try {
+					copy = Files.createTempFile("gws-part-", ".tmp");
+					
+					if (file.detach(copy)) {
+						copies.add(copy);
+					}else
+					{
+						Files.delete(copy);
+					}
+				}catch (IOException e)
+				{
+					LOG.warn("[HttpController] failed to keep the attachment file. file={}, msg={}", file.getName(), e.getMessage());
+					
+					deleteQuietly(copy);
+				}
+			}
+		}
+		
+		finished.whenComplete((v, t) -> {
+			for (Path copy : copies) {
+				deleteQuietly(copy);
+			}
+		});
+	}
+	
+	/**
+	 * <p>delete the temporary file of the attachment file</p>
+	 */
+	private static void deleteQuietly(final Path path) {
+		if (path != null) {
+			try {
+				Files.deleteIfExists(path);
+			}catch (IOException e)
+			{
+				LOG.warn("[HttpController] failed to delete the file. path={}, msg={}", path, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * <p>returns the client timeout of the request (milliseconds), or 0 if the header is missing or invalid</p>
+	 */
+	static long getRequestTimeout(HttpServletRequest request) {
+		String timeout = request.getHeader(TIMEOUT_HEADER);
+		
+		if (!Utils.isEmpty(timeout)) {
+			try {
+				return Math.max(0L, Long.parseLong(timeout.trim()));
+			}catch (NumberFormatException e)
+			{
+				LOG.info("[HttpController] invalid request timeout. {}={}", TIMEOUT_HEADER, timeout);
+			}
+		}
+		
+		return 0L;
 	}
 	
 	/*
 	 * <p> AJAX 서비스 요청 처리</p>
 	 */
 	@RequestMapping(value = {"/1.0/service/ajax"})
-	public ResponseEntity<String> process(HttpServletRequest request, HttpServletResponse response, @RequestParam Map<String, String> params) {
+	public ResponseEntity<byte[]> process(HttpServletRequest request, HttpServletResponse response, @RequestParam Map<String, String> params) {
 		
 		ModelEntity modelEntity = new ModelEntity();
 		
 		String serviceId = params.get("serviceId");
 		String commandId = params.get("commandId");
 		
+		CommandResultCache.CacheKey cacheKey = null;
+		
 		// ------------------------------------------------------------
 		// check for required parameters
 		// ------------------------------------------------------------
 		if ((!Utils.isEmpty(serviceId)) && (!Utils.isEmpty(commandId))) {
-			ParamEntity paramEntity = new ParamEntity(params, serviceId, commandId);
-			
 			// ------------------------------------------------------------
-			// check for multipart request
+			// returns the cached response of the cacheable command (not for the multipart request)
 			// ------------------------------------------------------------
-			if (request instanceof MultipartHttpServletRequest) {
-				MultipartHttpServletRequest multipart = (MultipartHttpServletRequest) request; 
-
-				for (Map.Entry<String, List<MultipartFile>> files : multipart.getMultiFileMap().entrySet()) {
-					for (MultipartFile file : files.getValue()) {
-						if (file.getSize() > 0L) {
-		        			try {
-		        				// ------------------------------------------------------------
-		        				// add attachment file contents
-		        				// ------------------------------------------------------------
-		        				paramEntity.addFile(files.getKey(), new FileEntity(file.getOriginalFilename(), file.getBytes()));
-		        			}catch (IOException ignore)
-		        			{
-		        				// ------------------------------------------------------------
-		        				// raising access errors (if the temporary store fails)
-		        				// ------------------------------------------------------------
-		        			}
-						}
+			if (!(request instanceof MultipartHttpServletRequest)) {
+				cacheKey = resultCache.createKey(ServiceCommandRegistry.lookup(serviceId, commandId), params);
+				
+				if (cacheKey != null) {
+					byte[] cached = resultCache.get(cacheKey);
+					
+					if (cached != null) {
+						return createContent(HttpStatus.OK.value(), cached);
 					}
 				}
 			}
 			
+			ParamEntity paramEntity = createParamEntity(request, params, serviceId, commandId);
+			
 			// ------------------------------------------------------------
 			// invoke service or business logic
 			// ------------------------------------------------------------
-			ServiceFactoryUtil.invokeCommand(paramEntity, modelEntity, ParamEntity.class);
+			CompletionStage<Void> finished = ServiceFactoryUtil.invokeCommand(paramEntity, modelEntity);
+			
+			// ------------------------------------------------------------
+			// the command is still running after the deadline : keep the attachment files until it completes
+			// ------------------------------------------------------------
+			if (request instanceof MultipartHttpServletRequest) {
+				keepAttachments((MultipartHttpServletRequest) request, paramEntity, finished);
+			}
 		} else {
 			// ------------------------------------------------------------
 			// missing required parameters
@@ -101,9 +397,251 @@ public class HttpController {
 		}
 		
 		// ------------------------------------------------------------
-		// make a JSON response
+		// write the rows incrementally (the command returned a Stream, Iterator or Cursor)
+		// ------------------------------------------------------------
+		if (RowStreamUtil.isRowStream(modelEntity.getData())) {
+			writeRows(request, response, serviceId, commandId, modelEntity);
+			
+			return null;
+		}
+		
+		// ------------------------------------------------------------
+		// make a JSON response (store the successful response of the cacheable command)
 		// ------------------------------------------------------------
-		return createContent(modelEntity);
+		if ((cacheKey == null) && (streamingResponse)) {
+			writeContent(response, serviceId, commandId, modelEntity);
+			
+			return null;
+		}
+		
+		ResponseEntity<byte[]> content = createContent(serviceId, commandId, modelEntity);
+		
+		if ((cacheKey != null) && (isSucceeded(modelEntity))) {
+			resultCache.put(cacheKey, content.getBody());
+		}
+		
+		return content;
+	}
+
+	/**
+	 * <p>the attachment file exceeds the size limit (spring.servlet.multipart.max-file-size, max-request-size)</p>
+	 */
+	@ExceptionHandler(MaxUploadSizeExceededException.class)
+	public ResponseEntity<byte[]> handleMaxUploadSizeExceeded(HttpServletResponse response, MaxUploadSizeExceededException e) {
+		LOG.info("[HttpController] the attachment file is too large. maxUploadSize={}, msg={}", e.getMaxUploadSize(), e.getMessage());
+		
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setError("the attachment file is too large");
+		modelEntity.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+		
+		writeContent(response, null, null, modelEntity);
+		
+		return null;
+	}
+
+	/**
+	 * <p>check if the command has been processed without error</p>
+	 */
+	private static boolean isSucceeded(final ModelEntity modelEntity) {
+		return (modelEntity.getStatus() == HttpStatus.OK.value()) && ("OK".equals(modelEntity.getMessage())) && (Utils.isEmpty(modelEntity.getApiMessage()));
+	}
+
+	/*
+	 * <p> 비동기 AJAX 서비스 요청 처리 (요청 스레드를 점유하지 않음)</p>
+	 * 
+	 * <p>the container thread is released while the command annotated with @AsyncCommand runs on the command thread pool,
+	 * or the CompletableFuture returned by the command completes.</p>
+	 */
+	@RequestMapping(value = {"/1.0/service/async"})
+	public DeferredResult<ResponseEntity<byte[]>> processAsync(HttpServletRequest request, HttpServletResponse response, @RequestParam Map<String, String> params) {
+		
+		DeferredResult<ResponseEntity<byte[]>> deferredResult = new DeferredResult<ResponseEntity<byte[]>>(asyncTimeout);
+		
+		String serviceId = params.get("serviceId");
+		String commandId = params.get("commandId");
+		
+		// ------------------------------------------------------------
+		// check for required parameters
+		// ------------------------------------------------------------
+		if ((!Utils.isEmpty(serviceId)) && (!Utils.isEmpty(commandId))) {
+			ParamEntity paramEntity = createParamEntity(request, params, serviceId, commandId);
+			
+			// ------------------------------------------------------------
+			// invoke service or business logic (make a JSON response when completed, the rows of the row stream are read into a list)
+			// ------------------------------------------------------------
+			CompletableFuture<ModelEntity> result = ServiceFactoryUtil.invokeCommandAsync(paramEntity, commandExecutor);
+			
+			deferredResult.onTimeout(() -> {
+				LOG.info("[HttpController] async request timed out. serviceId={}, commandId={}", serviceId, commandId);
+				
+				// ------------------------------------------------------------
+				// the command is still running : keep the attachment files until it completes
+				// ------------------------------------------------------------
+				if (request instanceof MultipartHttpServletRequest) {
+					keepAttachments((MultipartHttpServletRequest) request, paramEntity, result);
+				}
+				
+				ModelEntity modelEntity = new ModelEntity();
+				modelEntity.setError("request timed out");
+				modelEntity.setStatus(HttpStatus.GATEWAY_TIMEOUT.value());
+				
+				deferredResult.setResult(createContent(modelEntity));
+			});
+			
+			result
+				.thenApply(modelEntity -> {
+					if (deferredResult.isSetOrExpired()) {
+						// ------------------------------------------------------------
+						// the request has timed out, close the rows without reading them
+						// ------------------------------------------------------------
+						RowStreamUtil.close(modelEntity.getData());
+						
+						return null;
+					}
+					
+					materializeRows(serviceId, commandId, modelEntity);
+					
+					return createContent(serviceId, commandId, modelEntity);
+				})
+				.whenComplete((content, t) -> {
+					if (t != null) {
+						LOG.error("[HttpController] async request failed. serviceId={}, commandId={}, msg={}", serviceId, commandId, t);
+						
+						ModelEntity modelEntity = new ModelEntity();
+						modelEntity.setError("error processing the request");
+						
+						deferredResult.setResult(createContent(modelEntity));
+					}else if (content != null)
+					{
+						deferredResult.setResult(content);
+					}
+				});
+		} else {
+			// ------------------------------------------------------------
+			// missing required parameters
+			// ------------------------------------------------------------
+			ModelEntity modelEntity = new ModelEntity();
+			modelEntity.setError("missing required parameters in the HTTP request");
+			
+			LOG.info("[DEBUG] missing required parameters in the HTTP request. serviceId={}, commandId={}", serviceId, commandId);
+			
+			deferredResult.setResult(createContent(modelEntity));
+		}
+		
+		return deferredResult;
+	}
+
+	/*
+	 * <p> 배치 서비스 요청 처리 (여러 서비스 커맨드를 한번의 요청으로 처리)</p>
+	 * 
+	 * <pre>
+	 * POST /app/1.0/service/batch?parallel=true
+	 * [{"serviceId": "common.test", "commandId": "retrieveTestInfo", "params": {"foo": "bar"}}, ...]
+	 * </pre>
+	 */
+	@RequestMapping(value = {"/1.0/service/batch"})
+	public ResponseEntity<byte[]> batch(HttpServletRequest request, HttpServletResponse response, @RequestParam(value = "parallel", required = false, defaultValue = "false") boolean parallel, @RequestBody(required = false) String body) {
+		
+		List<BatchCommandEntity> commands = GsonUtils.convertJson2List(body, BatchCommandEntity[].class);
+		
+		// ------------------------------------------------------------
+		// check the batch commands
+		// ------------------------------------------------------------
+		if ((commands == null) || (commands.isEmpty())) {
+			ModelEntity modelEntity = new ModelEntity();
+			modelEntity.setError("missing required parameters in the HTTP request");
+			
+			writeContent(response, null, null, modelEntity);
+			
+			return null;
+		}
+		
+		if (commands.size() > maxBatchCommands) {
+			ModelEntity modelEntity = new ModelEntity();
+			modelEntity.setError("too many commands in the batch request. max=" + maxBatchCommands);
+			
+			writeContent(response, null, null, modelEntity);
+			
+			return null;
+		}
+		
+		List<ModelEntity> rs = new ArrayList<ModelEntity>(commands.size());
+		long timeout = getRequestTimeout(request);
+		
+		// ------------------------------------------------------------
+		// one deadline of the whole batch request (the entries which have not started by then fail with the timeout)
+		// ------------------------------------------------------------
+		Long deadline = (timeout > 0L) ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : null;
+		
+		if ((parallel) && (commands.size() > 1)) {
+			// ------------------------------------------------------------
+			// run the commands in the batch pool, and collect the results in order
+			// ------------------------------------------------------------
+			List<CompletableFuture<ModelEntity>> futures = new ArrayList<CompletableFuture<ModelEntity>>(commands.size());
+			
+			for (BatchCommandEntity command : commands) {
+				futures.add(CompletableFuture.supplyAsync(() -> invokeBatchCommand(command, deadline), batchExecutor));
+			}
+			
+			for (int i = 0; i < futures.size(); i++) {
+				BatchCommandEntity command = commands.get(i);
+				
+				rs.add(futures.get(i).exceptionally(t -> {
+					LOG.error("[HttpController] batch command={}, msg={}", command, t);
+					
+					ModelEntity modelEntity = new ModelEntity();
+					modelEntity.setError("error processing the request");
+					
+					return modelEntity;
+				}).join());
+			}
+		}else
+		{
+			for (BatchCommandEntity command : commands) {
+				rs.add(invokeBatchCommand(command, deadline));
+			}
+		}
+		
+		// ------------------------------------------------------------
+		// make a JSON response (ordered array of the results)
+		// ------------------------------------------------------------
+		if (streamingResponse) {
+			writeContent(response, null, null, rs);
+			
+			return null;
+		}
+		
+		return createContent(rs);
+	}
+
+	/**
+	 * <p>invoke a command entry of the batch request with the deadline of the batch request (System.nanoTime() based, null if there is no deadline).
+	 * the errors are stored in the returned model entity.</p>
+	 */
+	private ModelEntity invokeBatchCommand(final BatchCommandEntity command, final Long deadline) {
+		ModelEntity modelEntity = new ModelEntity();
+		
+		String serviceId = (command != null) ? command.getServiceId() : null;
+		String commandId = (command != null) ? command.getCommandId() : null;
+		
+		if ((!Utils.isEmpty(serviceId)) && (!Utils.isEmpty(commandId))) {
+			ParamEntity paramEntity = new ParamEntity(command.getParams(), serviceId, commandId);
+			
+			if (deadline != null) {
+				paramEntity.setDeadline(deadline);
+			}
+			
+			ServiceFactoryUtil.invokeCommand(paramEntity, modelEntity);
+			
+			materializeRows(serviceId, commandId, modelEntity);
+		}else
+		{
+			modelEntity.setError("missing required parameters in the HTTP request");
+			
+			LOG.info("[DEBUG] missing required parameters in the batch request. serviceId={}, commandId={}", serviceId, commandId);
+		}
+		
+		return modelEntity;
 	}
 	
 }
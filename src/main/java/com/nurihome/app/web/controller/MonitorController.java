@@ -0,0 +1,391 @@
+package com.nurihome.app.web.controller;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nurihome.app.util.Bulkhead;
+import com.nurihome.app.util.CommandMetrics;
+import com.nurihome.app.util.CommandResultCache;
+import com.nurihome.app.util.LatencyHistogram;
+import com.nurihome.app.util.ServiceCommand;
+import com.nurihome.app.util.ServiceCommandRegistry;
+import com.nurihome.app.util.Utils;
+import com.nurihome.app.web.entity.ModelEntity;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * <p>Monitoring endpoints of the service dispatcher (local requests only by default).</p>
+ *
+ * <p>a local reverse proxy connects from the loopback address, so the request is allowed only if the addresses of the forwarded headers
+ * ("X-Forwarded-For", "Forwarded") are also loopback addresses. a request which has come through a remote proxy, or a forwarded address
+ * which is not an IP address ("unknown", an obfuscated identifier) is denied.</p>
+ */
+@RestController
+@RequestMapping("/app")
+public class MonitorController {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MonitorController.class);
+
+	private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+	private static final String FORWARDED = "Forwarded";
+
+	/**
+	 * allow the requests from the loopback address only
+	 */
+	private final boolean localOnly;
+
+	/**
+	 * cache of the responses of the cacheable commands
+	 */
+	private final CommandResultCache resultCache;
+
+	public MonitorController(@Value("${gws.monitor.local-only:true}") boolean localOnly, CommandResultCache resultCache) {
+		this.localOnly = localOnly;
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * <p>writing a "JSON" response directly to the servlet output stream (returns null, the response has been written)</p>
+	 */
+	private static ResponseEntity<byte[]> writeContent(HttpServletResponse response, final ModelEntity modelEntity) {
+		try {
+			HttpController.writeJson(response, modelEntity.getStatus(), modelEntity);
+		}catch (IOException e)
+		{
+			// ------------------------------------------------------------
+			// the client has closed the connection
+			// ------------------------------------------------------------
+			LOG.info("[MonitorController] failed to write the response. msg={}", e.getMessage());
+		}
+
+		return null;
+	}
+
+	/**
+	 * <p>check if the request is allowed (the client and every forwarded address must be a loopback address)</p>
+	 */
+	boolean isAllowed(final HttpServletRequest request) {
+		if (!localOnly) {
+			return true;
+		}
+		
+		if (!isLoopback(request.getRemoteAddr())) {
+			return false;
+		}
+		
+		Enumeration<String> values = request.getHeaders(X_FORWARDED_FOR);
+		
+		while ((values != null) && (values.hasMoreElements())) {
+			for (String address : values.nextElement().split(",")) {
+				if (!isLoopback(stripPort(address.trim()))) {
+					return false;
+				}
+			}
+		}
+		
+		values = request.getHeaders(FORWARDED);
+		
+		while ((values != null) && (values.hasMoreElements())) {
+			for (String element : values.nextElement().split(",")) {
+				for (String pair : element.split(";")) {
+					int index = pair.indexOf('=');
+					
+					if ((index > 0) && ("for".equalsIgnoreCase(pair.substring(0, index).trim()))) {
+						String address = pair.substring(index + 1).trim();
+						
+						if ((address.length() >= 2) && (address.startsWith("\"")) && (address.endsWith("\""))) {
+							address = address.substring(1, address.length() - 1);
+						}
+						
+						if (!isLoopback(stripPort(address))) {
+							return false;
+						}
+					}
+				}
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * <p>returns the address without the port ("127.0.0.1:8080", "[::1]:8080" -> "127.0.0.1", "::1")</p>
+	 */
+	private static String stripPort(final String address) {
+		if (address.startsWith("[")) {
+			int end = address.indexOf(']');
+			
+			return (end > 0) ? address.substring(1, end) : address;
+		}
+		
+		int index = address.indexOf(':');
+		
+		// ------------------------------------------------------------
+		// an IPv6 address without the brackets has more than one colon
+		// ------------------------------------------------------------
+		if ((index > 0) && (address.indexOf(':', index + 1) < 0)) {
+			return address.substring(0, index);
+		}
+		
+		return address;
+	}
+
+	/**
+	 * <p>check if the address is a loopback IP address (the host names are not resolved, and are not allowed)</p>
+	 */
+	private static boolean isLoopback(final String address) {
+		if ((address == null) || (address.isEmpty())) {
+			return false;
+		}
+		
+		// ------------------------------------------------------------
+		// IPv4 : digits and dots, IPv6 : hex digits, colons and dots (a name like "ab.cd" would be resolved)
+		// ------------------------------------------------------------
+		boolean ipv6 = (address.indexOf(':') >= 0);
+		
+		for (int i = 0; i < address.length(); i++) {
+			char c = address.charAt(i);
+			
+			if ((c != '.') && (c != ':') && ((ipv6) ? (Character.digit(c, 16) < 0) : ((c < '0') || (c > '9')))) {
+				return false;
+			}
+		}
+		
+		try {
+			return InetAddress.getByName(address).isLoopbackAddress();
+		}catch (UnknownHostException ignore)
+		{
+			//--- nothing
+		}
+		
+		return false;
+	}
+
+	/**
+	 * <p>returns a forbidden response</p>
+	 */
+	private static ResponseEntity<byte[]> forbidden(HttpServletResponse response) {
+		ModelEntity modelEntity = new ModelEntity();
+		
+		modelEntity.setError("access denied");
+		modelEntity.setStatus(HttpStatus.FORBIDDEN.value());
+		
+		return writeContent(response, modelEntity);
+	}
+
+	/*
+	 * <p> bulkhead (동시 실행 제한) 현황 조회</p>
+	 */
+	@RequestMapping(value = {"/1.0/monitor/bulkheads"})
+	public ResponseEntity<byte[]> bulkheads(HttpServletRequest request, HttpServletResponse response) {
+		if (!isAllowed(request)) {
+			return forbidden(response);
+		}
+		
+		List<Map<String, Object>> rs = new ArrayList<Map<String, Object>>();
+		
+		for (Bulkhead bulkhead : ServiceCommandRegistry.getBulkheads()) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			
+			row.put("name", bulkhead.getName());
+			row.put("limit", bulkhead.getLimit());
+			row.put("inFlight", bulkhead.getInFlight());
+			row.put("rejected", bulkhead.getRejected());
+			
+			rs.add(row);
+		}
+		
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setData(rs);
+		
+		return writeContent(response, modelEntity);
+	}
+
+	/*
+	 * <p> 서비스 커맨드별 호출 수, 에러 수, 응답 시간 분포 조회</p>
+	 * 
+	 * <pre>
+	 * GET /app/1.0/monitor/metrics              (JSON, milliseconds)
+	 * GET /app/1.0/monitor/metrics?format=text  (text exposition format, seconds)
+	 * </pre>
+	 */
+	@RequestMapping(value = {"/1.0/monitor/metrics"})
+	public ResponseEntity<byte[]> metrics(HttpServletRequest request, HttpServletResponse response, @RequestParam(value = "format", required = false, defaultValue = "json") String format) {
+		if (!isAllowed(request)) {
+			return forbidden(response);
+		}
+		
+		double uptime = Math.max(1L, System.currentTimeMillis() - ServiceCommandRegistry.getInitializedAt()) / 1000.0d;
+		
+		if ("text".equalsIgnoreCase(format)) {
+			StringBuilder sb = new StringBuilder();
+			
+			for (ServiceCommand command : ServiceCommandRegistry.getCommands()) {
+				CommandMetrics metrics = command.getMetrics();
+				
+				if (metrics != null) {
+					String labels = "service=\"" + command.getServiceId() + "\",command=\"" + command.getCommandId() + "\"";
+					
+					appendLine(sb, "gws_command_calls_total", labels, metrics.getCalls());
+					appendLine(sb, "gws_command_throughput", labels, metrics.getCalls() / uptime);
+					appendLine(sb, "gws_command_rejected_total", labels, metrics.getRejected());
+					appendLine(sb, "gws_command_timeouts_total", labels, metrics.getTimeouts());
+					
+					if (command.getSingleFlight() != null) {
+						appendLine(sb, "gws_command_coalesced_total", labels, command.getSingleFlight().getCoalesced());
+					}
+					
+					appendLine(sb, "gws_command_errors_total", labels + ",type=\"ServiceException\"", metrics.getServiceErrors());
+					appendLine(sb, "gws_command_errors_total", labels + ",type=\"APIMessageException\"", metrics.getApiErrors());
+					appendLine(sb, "gws_command_errors_total", labels + ",type=\"other\"", metrics.getOtherErrors());
+					appendHistogram(sb, labels + ",phase=\"lookup\"", metrics.getLookup());
+					appendHistogram(sb, labels + ",phase=\"invoke\"", metrics.getInvoke());
+					appendHistogram(sb, labels + ",phase=\"serialize\"", metrics.getSerialize());
+				}
+			}
+			
+			return ResponseEntity.status(HttpStatus.OK)
+				.contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+				.cacheControl(CacheControl.noCache())
+				.body(sb.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		
+		List<Map<String, Object>> rs = new ArrayList<Map<String, Object>>();
+		
+		for (ServiceCommand command : ServiceCommandRegistry.getCommands()) {
+			CommandMetrics metrics = command.getMetrics();
+			
+			if (metrics != null) {
+				Map<String, Object> errors = new LinkedHashMap<String, Object>();
+				errors.put("ServiceException", metrics.getServiceErrors());
+				errors.put("APIMessageException", metrics.getApiErrors());
+				errors.put("other", metrics.getOtherErrors());
+				
+				Map<String, Object> latency = new LinkedHashMap<String, Object>();
+				latency.put("lookup", toMap(metrics.getLookup()));
+				latency.put("invoke", toMap(metrics.getInvoke()));
+				latency.put("serialize", toMap(metrics.getSerialize()));
+				
+				Map<String, Object> row = new LinkedHashMap<String, Object>();
+				row.put("serviceId", command.getServiceId());
+				row.put("commandId", command.getCommandId());
+				row.put("calls", metrics.getCalls());
+				row.put("throughput", metrics.getCalls() / uptime);
+				row.put("rejected", metrics.getRejected());
+				row.put("timeouts", metrics.getTimeouts());
+				
+				if (command.getSingleFlight() != null) {
+					row.put("coalesced", command.getSingleFlight().getCoalesced());
+				}
+				
+				row.put("errors", errors);
+				row.put("latency", latency);
+				
+				rs.add(row);
+			}
+		}
+		
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setData(rs);
+		
+		return writeContent(response, modelEntity);
+	}
+
+	/*
+	 * <p> 응답 캐시 현황 (hit / miss / eviction) 조회</p>
+	 */
+	@RequestMapping(value = {"/1.0/monitor/cache"})
+	public ResponseEntity<byte[]> cache(HttpServletRequest request, HttpServletResponse response) {
+		if (!isAllowed(request)) {
+			return forbidden(response);
+		}
+		
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setData(resultCache.getStats());
+		
+		return writeContent(response, modelEntity);
+	}
+
+	/*
+	 * <p> 응답 캐시 삭제 (serviceId 가 없으면 전체 삭제)</p>
+	 * 
+	 * <pre>
+	 * POST /app/1.0/monitor/cache/invalidate?serviceId=common.code
+	 * </pre>
+	 */
+	@RequestMapping(value = {"/1.0/monitor/cache/invalidate"}, method = RequestMethod.POST)
+	public ResponseEntity<byte[]> invalidateCache(HttpServletRequest request, HttpServletResponse response, @RequestParam(value = "serviceId", required = false) String serviceId) {
+		if (!isAllowed(request)) {
+			return forbidden(response);
+		}
+		
+		if (Utils.isEmpty(serviceId)) {
+			resultCache.invalidateAll();
+		}else
+		{
+			resultCache.invalidate(serviceId);
+		}
+		
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setData(resultCache.getStats());
+		
+		return writeContent(response, modelEntity);
+	}
+
+	/**
+	 * <p>returns the summary of the histogram (milliseconds)</p>
+	 */
+	private static Map<String, Object> toMap(final LatencyHistogram histogram) {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		
+		map.put("count", histogram.getCount());
+		map.put("mean", histogram.getMean() / 1000000.0d);
+		map.put("p50", histogram.getPercentile(0.50d) / 1000000.0d);
+		map.put("p90", histogram.getPercentile(0.90d) / 1000000.0d);
+		map.put("p99", histogram.getPercentile(0.99d) / 1000000.0d);
+		map.put("max", histogram.getMax() / 1000000.0d);
+		
+		return map;
+	}
+
+	/**
+	 * <p>append the summary of the histogram (seconds) in text exposition format</p>
+	 */
+	private static void appendHistogram(StringBuilder sb, final String labels, final LatencyHistogram histogram) {
+		appendLine(sb, "gws_command_latency_seconds_count", labels, histogram.getCount());
+		appendLine(sb, "gws_command_latency_seconds", labels + ",quantile=\"0.5\"", histogram.getPercentile(0.50d) / 1.0e9d);
+		appendLine(sb, "gws_command_latency_seconds", labels + ",quantile=\"0.9\"", histogram.getPercentile(0.90d) / 1.0e9d);
+		appendLine(sb, "gws_command_latency_seconds", labels + ",quantile=\"0.99\"", histogram.getPercentile(0.99d) / 1.0e9d);
+		appendLine(sb, "gws_command_latency_seconds_max", labels, histogram.getMax() / 1.0e9d);
+	}
+
+	/**
+	 * <p>append a metric line in text exposition format</p>
+	 */
+	private static void appendLine(StringBuilder sb, final String name, final String labels, final Object value) {
+		sb.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+	}
+
+}
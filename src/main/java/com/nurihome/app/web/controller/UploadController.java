@@ -0,0 +1,299 @@
+package com.nurihome.app.web.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nurihome.app.exception.ServiceException;
+import com.nurihome.app.util.ChunkedUploadManager;
+import com.nurihome.app.util.ChunkedUploadManager.CapacityExceededException;
+import com.nurihome.app.util.ChunkedUploadManager.UploadSession;
+import com.nurihome.app.util.ServiceCommandRegistry;
+import com.nurihome.app.util.ServiceFactoryUtil;
+import com.nurihome.app.util.Utils;
+import com.nurihome.app.web.entity.FileEntity;
+import com.nurihome.app.web.entity.ModelEntity;
+import com.nurihome.app.web.entity.ParamEntity;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * <p>Resumable chunked upload endpoints.</p>
+ *
+ * <pre>
+ * 1. POST   /app/1.0/upload?serviceId=..&amp;commandId=..&amp;fileName=..&amp;fileSize=..&amp;chunkSize=..  (+ parameters of the command)
+ *           -> {"uploadId": "..", "chunkSize": 8388608, "chunkCount": 13, "missing": [0, 1, ..]}
+ * 2. PUT    /app/1.0/upload/{uploadId}/{index}   (body = bytes of the chunk as application/octet-stream, the chunks can be uploaded in parallel)
+ * 3. GET    /app/1.0/upload/{uploadId}           (received chunks, to resume the upload)
+ * 4. POST   /app/1.0/upload/{uploadId}/complete  (invoke the command with the file, ParamEntity.getFile(fileParam))
+ *    DELETE /app/1.0/upload/{uploadId}           (abort)
+ * </pre>
+ */
+@RestController
+@RequestMapping("/app")
+public class UploadController {
+
+	private static final Logger LOG = LoggerFactory.getLogger(UploadController.class);
+
+	/**
+	 * default chunk size (8MB)
+	 */
+	private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * parameters of the upload session (not passed to the command)
+	 */
+	private static final String[] SESSION_PARAMS = {"fileName", "fileSize", "chunkSize", "fileParam"};
+
+	private final ChunkedUploadManager uploadManager;
+
+	public UploadController(ChunkedUploadManager uploadManager) {
+		this.uploadManager = uploadManager;
+	}
+
+	/**
+	 * <p>writing a "JSON" response directly to the servlet output stream (returns null, the response has been written)</p>
+	 */
+	private static ResponseEntity<byte[]> writeContent(HttpServletResponse response, final ModelEntity modelEntity) {
+		try {
+			HttpController.writeJson(response, modelEntity.getStatus(), modelEntity);
+		}catch (IOException e)
+		{
+			// ------------------------------------------------------------
+			// the client has closed the connection
+			// ------------------------------------------------------------
+			LOG.info("[UploadController] failed to write the response. msg={}", e.getMessage());
+		}
+
+		return null;
+	}
+
+	/**
+	 * <p>returns an error response</p>
+	 */
+	private static ResponseEntity<byte[]> error(HttpServletResponse response, final HttpStatus status, final String message) {
+		ModelEntity modelEntity = new ModelEntity();
+
+		modelEntity.setError(message);
+		modelEntity.setStatus(status.value());
+
+		return writeContent(response, modelEntity);
+	}
+
+	/**
+	 * <p>returns the progress of the upload session</p>
+	 */
+	private static Map<String, Object> toMap(final UploadSession session) {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+
+		map.put("uploadId", session.getUploadId());
+		map.put("fileName", session.getFileName());
+		map.put("fileSize", session.getFileSize());
+		map.put("chunkSize", session.getChunkSize());
+		map.put("chunkCount", session.getChunkCount());
+		map.put("received", session.getReceivedCount());
+		map.put("missing", session.getMissingChunks());
+
+		return map;
+	}
+
+	/*
+	 * <p> 분할 업로드 세션 생성</p>
+	 */
+	@RequestMapping(value = {"/1.0/upload"}, method = RequestMethod.POST)
+	public ResponseEntity<byte[]> create(HttpServletResponse response, @RequestParam Map<String, String> params) {
+		String serviceId = params.get("serviceId");
+		String commandId = params.get("commandId");
+
+		// ------------------------------------------------------------
+		// check for required parameters
+		// ------------------------------------------------------------
+		if ((Utils.isEmpty(serviceId)) || (Utils.isEmpty(commandId)) || (!Utils.isNumber(params.get("fileSize")))) {
+			return error(response, HttpStatus.BAD_REQUEST, "missing required parameters in the HTTP request");
+		}
+
+		if (ServiceCommandRegistry.lookup(serviceId, commandId) == null) {
+			return error(response, HttpStatus.BAD_REQUEST, "invalid parameter value. check the serviceId and commandId");
+		}
+
+		try {
+			int chunkSize = Utils.isNumber(params.get("chunkSize")) ? Integer.parseInt(params.get("chunkSize")) : DEFAULT_CHUNK_SIZE;
+
+			UploadSession session = uploadManager.create(params.get("fileName"), Long.parseLong(params.get("fileSize")), chunkSize, params);
+
+			ModelEntity modelEntity = new ModelEntity();
+			modelEntity.setData(toMap(session));
+
+			return writeContent(response, modelEntity);
+		}catch (NumberFormatException e)
+		{
+			return error(response, HttpStatus.BAD_REQUEST, "invalid parameter value. check the fileSize and chunkSize");
+		}catch (CapacityExceededException e)
+		{
+			LOG.info("[UploadController] upload session rejected. msg={}", e.getErrorMessage());
+
+			return error(response, HttpStatus.SERVICE_UNAVAILABLE, e.getErrorMessage());
+		}catch (ServiceException e)
+		{
+			return error(response, HttpStatus.BAD_REQUEST, e.getErrorMessage());
+		}
+	}
+
+	/*
+	 * <p> 분할 업로드 진행 현황 조회 (이어 올리기)</p>
+	 */
+	@RequestMapping(value = {"/1.0/upload/{uploadId}"}, method = RequestMethod.GET)
+	public ResponseEntity<byte[]> status(HttpServletResponse response, @PathVariable("uploadId") String uploadId) {
+		UploadSession session = uploadManager.get(uploadId);
+
+		if (session == null) {
+			return error(response, HttpStatus.NOT_FOUND, "no such upload session");
+		}
+
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setData(toMap(session));
+
+		return writeContent(response, modelEntity);
+	}
+
+	/*
+	 * <p> 분할 업로드 청크 저장</p>
+	 */
+	@RequestMapping(value = {"/1.0/upload/{uploadId}/{index}"}, method = RequestMethod.PUT)
+	public ResponseEntity<byte[]> chunk(HttpServletRequest request, HttpServletResponse response, @PathVariable("uploadId") String uploadId, @PathVariable("index") int index) {
+		UploadSession session = uploadManager.get(uploadId);
+
+		if (session == null) {
+			return error(response, HttpStatus.NOT_FOUND, "no such upload session");
+		}
+
+		try {
+			uploadManager.writeChunk(session, index, request.getInputStream());
+		}catch (IOException e)
+		{
+			return error(response, HttpStatus.BAD_REQUEST, "failed to read the chunk");
+		}catch (ServiceException e)
+		{
+			LOG.info("[UploadController] uploadId={}, index={}, msg={}", uploadId, index, e.getErrorMessage());
+
+			return error(response, HttpStatus.BAD_REQUEST, e.getErrorMessage());
+		}
+
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("uploadId", uploadId);
+		map.put("index", index);
+		map.put("received", session.getReceivedCount());
+		map.put("chunkCount", session.getChunkCount());
+
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setData(map);
+
+		return writeContent(response, modelEntity);
+	}
+
+	/*
+	 * <p> 분할 업로드 완료 (업로드 파일로 서비스 커맨드 실행)</p>
+	 *
+	 * <p>the file is passed to the command as the attachment file named "fileParam" (default "file"), and deleted when the command has finished
+	 * (a command which is still running after the deadline keeps the file until it completes).</p>
+	 */
+	@RequestMapping(value = {"/1.0/upload/{uploadId}/complete"}, method = RequestMethod.POST)
+	public ResponseEntity<byte[]> complete(HttpServletRequest request, HttpServletResponse response, @PathVariable("uploadId") String uploadId) {
+		UploadSession session = uploadManager.get(uploadId);
+
+		if (session == null) {
+			return error(response, HttpStatus.NOT_FOUND, "no such upload session");
+		}
+
+		Path path;
+
+		try {
+			path = uploadManager.complete(session);
+		}catch (ServiceException e)
+		{
+			return error(response, HttpStatus.CONFLICT, e.getErrorMessage());
+		}
+
+		ModelEntity modelEntity = new ModelEntity();
+		CompletionStage<Void> finished = null;
+
+		try {
+			Map<String, String> params = new HashMap<String, String>(session.getParams());
+			String fileParam = Utils.isEmpty(params.get("fileParam")) ? "file" : params.get("fileParam");
+
+			for (String name : SESSION_PARAMS) {
+				params.remove(name);
+			}
+
+			ParamEntity paramEntity = new ParamEntity(params, params.get("serviceId"), params.get("commandId"));
+			paramEntity.setClientIp(request.getRemoteAddr());
+			paramEntity.setTimeout(HttpController.getRequestTimeout(request), TimeUnit.MILLISECONDS);
+			paramEntity.addFile(fileParam, new FileEntity(session.getFileName(), path));
+
+			// ------------------------------------------------------------
+			// invoke service or business logic
+			// ------------------------------------------------------------
+			finished = ServiceFactoryUtil.invokeCommand(paramEntity, modelEntity);
+		}catch (IOException e)
+		{
+			LOG.error("[UploadController] uploadId={}, msg={}", uploadId, e);
+
+			modelEntity.setError("error processing the request");
+		}finally
+		{
+			if (finished != null) {
+				finished.whenComplete((v, t) -> delete(path));
+			}else
+			{
+				delete(path);
+			}
+		}
+
+		return writeContent(response, modelEntity);
+	}
+
+	/**
+	 * <p>delete the uploaded file</p>
+	 */
+	private static void delete(final Path path) {
+		try {
+			Files.deleteIfExists(path);
+		}catch (IOException e)
+		{
+			LOG.warn("[UploadController] failed to delete the file. path={}, msg={}", path, e.getMessage());
+		}
+	}
+
+	/*
+	 * <p> 분할 업로드 취소</p>
+	 */
+	@RequestMapping(value = {"/1.0/upload/{uploadId}"}, method = RequestMethod.DELETE)
+	public ResponseEntity<byte[]> abort(HttpServletResponse response, @PathVariable("uploadId") String uploadId) {
+		UploadSession session = uploadManager.get(uploadId);
+
+		if (session == null) {
+			return error(response, HttpStatus.NOT_FOUND, "no such upload session");
+		}
+
+		uploadManager.abort(session);
+
+		return writeContent(response, new ModelEntity());
+	}
+
+}
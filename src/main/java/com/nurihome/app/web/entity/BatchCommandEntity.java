@@ -0,0 +1,80 @@
+package com.nurihome.app.web.entity;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import com.nurihome.app.annotation.GenerateTypeAdapter;
+
+/**
+ * <p>Helper class for storing a command entry of the batch request.</p>
+ */
+@GenerateTypeAdapter
+@SuppressWarnings("serial")
+public class BatchCommandEntity implements Serializable {
+
+	/**
+	 * service id
+	 */
+	private String serviceId;
+
+	/**
+	 * command id
+	 */
+	private String commandId;
+
+	/**
+	 * request parameters of the command
+	 */
+	private Map<String, String> params;
+
+	/**
+	 * default constructor
+	 */
+	public BatchCommandEntity() {}
+
+	/**
+	 * <p>parameterized constructor with arguments</p>
+	 */
+	public BatchCommandEntity(String serviceId, String commandId, Map<String, String> params) {
+		this.serviceId = serviceId;
+		this.commandId = commandId;
+		this.params = params;
+	}
+
+	public String getServiceId() {
+		return serviceId;
+	}
+
+	public void setServiceId(String serviceId) {
+		this.serviceId = serviceId;
+	}
+
+	public String getCommandId() {
+		return commandId;
+	}
+
+	public void setCommandId(String commandId) {
+		this.commandId = commandId;
+	}
+
+	public Map<String, String> getParams() {
+		return params;
+	}
+
+	public void setParams(Map<String, String> params) {
+		this.params = params;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("serviceId=");
+		sb.append(this.serviceId);
+		sb.append(", commandId=");
+		sb.append(this.commandId);
+
+		return sb.toString();
+	}
+
+}
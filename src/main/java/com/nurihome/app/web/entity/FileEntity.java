@@ -1,11 +1,39 @@
 package com.nurihome.app.web.entity;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.nurihome.app.annotation.GenerateTypeAdapter;
 
 /**
  * Helper class for storing upload file contents.
+ *
+ * <p>the contents can be backed by a byte array, a stream source (e.g. the temporary file of the multipart request) or a file.
+ * the stream source and the file are not read until the service calls {@link #getContent()}, {@link #getInputStream()} or {@link #map()},
+ * so the large files can be processed without loading the whole contents in memory.</p>
+ *
+ * <blockquote>
+ * <pre>{@code
+ * Usage:
+ *     FileEntity fileEntity = paramEntity.getFile("file");
+ *
+ *     try (InputStream in = fileEntity.getInputStream()) {
+ *         ...
+ *     }
+ * }</pre>
+ * </blockquote>
  */
+@GenerateTypeAdapter
 @SuppressWarnings("serial")
 public class FileEntity implements Serializable {
 
@@ -24,6 +52,31 @@ public class FileEntity implements Serializable {
 	 */
 	private byte[] content;
 
+	/**
+	 * 파일 콘텐츠 스트림 (not read until the contents are requested)
+	 */
+	private transient volatile ContentSource source;
+
+	/**
+	 * 파일 경로 (file backed contents)
+	 */
+	private transient volatile Path path;
+
+	/**
+	 * 파일 크기 of the stream source (not limited to int)
+	 */
+	private transient long length;
+
+	/**
+	 * <p>Source of the file contents which is opened when the contents are requested.</p>
+	 */
+	@FunctionalInterface
+	public interface ContentSource {
+
+		InputStream openStream() throws IOException;
+
+	}
+
 	/**
 	 * default constructor
 	 */
@@ -41,6 +94,24 @@ public class FileEntity implements Serializable {
 		}
 	}
 
+	/**
+	 * <p>parameterized constructor with the stream source of the contents (e.g. {@code multipartFile::getInputStream})</p>
+	 */
+	public FileEntity(String name, long size, ContentSource source) {
+		this.name = name;
+		this.size = (int) Math.min(size, Integer.MAX_VALUE);
+		this.length = size;
+		this.source = source;
+	}
+
+	/**
+	 * <p>parameterized constructor with the file of the contents</p>
+	 */
+	public FileEntity(String name, Path path) throws IOException {
+		this(name, Files.size(path), () -> Files.newInputStream(path));
+		this.path = path;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -57,12 +128,130 @@ public class FileEntity implements Serializable {
 		this.size = size;
 	}
 
+	/**
+	 * <p>returns the size of the contents in bytes (the size of the stream source is not limited to int)</p>
+	 */
+	public long getLength() {
+		if (content != null) {
+			return content.length;
+		}
+
+		return (source != null) ? length : size;
+	}
+
+	/**
+	 * <p>check if the entity has contents (a byte array, a stream source or a file)</p>
+	 */
+	public boolean hasContent() {
+		return (content != null) || (source != null);
+	}
+
+	/**
+	 * <p>check if the contents are held in memory (a byte array, or the stream source which has been read by {@link #getContent()})</p>
+	 */
+	public boolean isInMemory() {
+		return (content != null);
+	}
+
+	/**
+	 * <p>returns the file contents. the stream source or the file is read into memory at the first call.</p>
+	 *
+	 * @throws UncheckedIOException if the contents can not be read
+	 */
 	public byte[] getContent() {
+		if ((content == null) && (source != null)) {
+			try (InputStream in = source.openStream()) {
+				content = in.readAllBytes();
+			}catch (IOException e)
+			{
+				throw new UncheckedIOException("failed to read the file contents. name=" + name, e);
+			}
+		}
+
 		return content;
 	}
 
 	public void setContent(byte[] content) {
 		this.content = content;
+		this.source = null;
+		this.path = null;
+	}
+
+	/**
+	 * <p>returns a new input stream of the file contents (without loading the whole contents in memory)</p>
+	 */
+	public InputStream getInputStream() throws IOException {
+		if (content != null) {
+			return new ByteArrayInputStream(content);
+		}
+
+		if (source != null) {
+			return source.openStream();
+		}
+
+		return InputStream.nullInputStream();
+	}
+
+	/**
+	 * <p>returns the file of the contents, or null if the contents are not backed by a file</p>
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * <p>returns the read-only memory-mapped contents of the file backed entity</p>
+	 *
+	 * @throws IOException if the contents are not backed by a file
+	 */
+	public MappedByteBuffer map() throws IOException {
+		if (path == null) {
+			throw new IOException("the file contents are not backed by a file. name=" + name);
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+		}
+	}
+
+	/**
+	 * <p>copy the file contents to the target file (replaces the existing file)</p>
+	 */
+	public void transferTo(Path target) throws IOException {
+		if (content != null) {
+			Files.write(target, content);
+		}else if (path != null)
+		{
+			Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+		}else
+		{
+			try (InputStream in = getInputStream()) {
+				Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+
+	/**
+	 * <p>copy the contents of the stream source to the given file, and read the contents from the file afterwards
+	 * (the stream source, e.g. the temporary file of the multipart request, may be deleted while the service is still running).</p>
+	 *
+	 * @return false if the contents are not read from a stream source (a byte array or a file) and the file is not written
+	 */
+	public boolean detach(Path file) throws IOException {
+		ContentSource current = source;
+
+		if ((content != null) || (current == null) || (path != null)) {
+			return false;
+		}
+
+		try (InputStream in = current.openStream()) {
+			Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		this.path = file;
+		this.source = () -> Files.newInputStream(file);
+
+		return true;
 	}
 
 	@Override
@@ -77,4 +266,4 @@ public class FileEntity implements Serializable {
 		return sb.toString();
 	}
 
-}
\ No newline at end of file
+}
@@ -4,10 +4,13 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.nurihome.app.annotation.GenerateTypeAdapter;
+
 
 /**
  * <p>Helper class for storing response data.</p>
  */
+@GenerateTypeAdapter
 @SuppressWarnings("serial")
 public class ModelEntity implements Serializable {
 
@@ -31,12 +34,18 @@ public class ModelEntity implements Serializable {
 	 */
 	private Object rs;
 
+	/**
+	 * http response status code (not serialized)
+	 */
+	private transient int status;
+
 	/**
 	 * default constructor
 	 */
 	public ModelEntity() {
 		this.api = new HashMap<String, String>();
 		this.message = "OK";
+		this.status = 200;
 	}
 
 	public String getApiMessage() {
@@ -84,6 +93,14 @@ public class ModelEntity implements Serializable {
 		this.stackTrace = stackTrace;
 	}
 
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
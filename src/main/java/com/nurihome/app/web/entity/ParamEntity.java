@@ -6,10 +6,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.nurihome.app.annotation.GenerateTypeAdapter;
 
 /**
  * <p>Helper class for storing request parameters.</p>
  */
+@GenerateTypeAdapter
 @SuppressWarnings("serial")
 public class ParamEntity implements Serializable {
 
@@ -43,6 +47,11 @@ public class ParamEntity implements Serializable {
 	 */
 	private Locale locale;
 
+	/**
+	 * deadline of the request (System.nanoTime() based, null if there is no deadline. local to the JVM, so it is not serialized)
+	 */
+	private transient Long deadline;
+
 	/**
 	 * <p>Constructs a new ParamEntity</p>
 	 */
@@ -255,6 +264,79 @@ public class ParamEntity implements Serializable {
 	}
 
 
+	/**
+	 * <p>sets the timeout of the request. the deadline is only tightened, never extended.</p>
+	 */
+	public void setTimeout(long timeout, TimeUnit unit) {
+		if (timeout > 0L) {
+			setDeadline(System.nanoTime() + unit.toNanos(timeout));
+		}
+	}
+
+	/**
+	 * <p>sets the absolute deadline of the request (System.nanoTime() based), e.g. the deadline shared by the commands of a batch request.
+	 * the deadline is only tightened, never extended.</p>
+	 */
+	public void setDeadline(long deadline) {
+		if ((this.deadline == null) || (deadline - this.deadline < 0L)) {
+			this.deadline = deadline;
+		}
+	}
+
+	/**
+	 * <p>check if the request has a deadline</p>
+	 */
+	public boolean hasDeadline() {
+		return (deadline != null);
+	}
+
+	/**
+	 * <p>check if the deadline of the request has passed</p>
+	 */
+	public boolean isExpired() {
+		return (deadline != null) && (deadline - System.nanoTime() <= 0L);
+	}
+
+	/**
+	 * <p>returns the remaining time until the deadline (nanoseconds), or Long.MAX_VALUE if there is no deadline</p>
+	 */
+	public long getRemainingNanos() {
+		if (deadline == null) {
+			return Long.MAX_VALUE;
+		}
+		
+		return Math.max(0L, deadline - System.nanoTime());
+	}
+
+	/**
+	 * <p>returns the remaining time until the deadline (milliseconds), or Long.MAX_VALUE if there is no deadline</p>
+	 */
+	public long getRemainingMillis() {
+		if (deadline == null) {
+			return Long.MAX_VALUE;
+		}
+		
+		return TimeUnit.NANOSECONDS.toMillis(getRemainingNanos());
+	}
+
+	/**
+	 * <p>returns the remaining time until the deadline in seconds (at least 1), or 0 if there is no deadline</p>
+	 * 
+	 * <blockquote>
+	 * <pre>{@code
+	 * Usage:
+	 *     statement.setQueryTimeout(paramEntity.getRemainingSeconds());
+	 * }</pre>
+	 * </blockquote>
+	 */
+	public int getRemainingSeconds() {
+		if (deadline == null) {
+			return 0;
+		}
+		
+		return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toSeconds(getRemainingNanos())));
+	}
+
 	@Override
 	public String toString() {
 		// ------------------------------------------------------------
@@ -0,0 +1,344 @@
+package com.nurihome.app.web.filter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.nurihome.app.util.GsonUtils;
+import com.nurihome.app.util.Utils;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+
+/**
+ * <p>Captures the sampled service requests to a NDJSON file, for the replay of the production traffic (TrafficReplay of the load test).</p>
+ *
+ * <p>one line is written for each sampled request (the records are written by a background thread, and dropped if the queue is full).</p>
+ *
+ * <pre>
+ * {"ts":1700000000000,"path":"/app/1.0/service/ajax","method":"POST","params":{"serviceId":"common.test","commandId":"retrieveTestInfo","userId":"kd83"},
+ *  "files":[{"name":"file","size":1048576}],"status":200,"micros":1534}
+ * </pre>
+ *
+ * <ul>
+ * <li>ts - arrival time (epoch milliseconds), micros - time of the request in the filter chain (the status and micros are omitted for the async requests)</li>
+ * <li>the values of the anonymized parameters ("gws.capture.anonymize", "*" = all except serviceId and commandId) are replaced with a pseudonym
+ * of the same shape (length, digits, letters), and the same value always has the same pseudonym. the pseudonyms are keyed with a secret salt
+ * ("gws.capture.anonymize-salt"), the capture is not started without it (the unsalted pseudonyms of the short values are easily reversed)</li>
+ * <li>the files of the multipart request are recorded with the sizes only</li>
+ * </ul>
+ */
+@Component
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TrafficCaptureFilter.class);
+
+	/**
+	 * parameters which are never anonymized
+	 */
+	private static final Set<String> PLAIN_PARAMETERS = Set.of("serviceId", "commandId");
+
+	private final boolean enabled;
+
+	/**
+	 * ratio of the captured requests (0.0 ~ 1.0)
+	 */
+	private final double sampleRate;
+
+	private final Path file;
+
+	/**
+	 * captured paths (without the context path)
+	 */
+	private final Set<String> paths = new HashSet<String>();
+
+	/**
+	 * anonymized parameter names
+	 */
+	private final Set<String> anonymized = new HashSet<String>();
+
+	private final boolean anonymizeAll;
+
+	private final byte[] salt;
+
+	/**
+	 * maximum size of the capture file (the capture stops when the file is full)
+	 */
+	private final long maxBytes;
+
+	private final BlockingQueue<Map<String, Object>> queue;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private volatile boolean running;
+
+	private Thread writer;
+
+	public TrafficCaptureFilter(@Value("${gws.capture.enabled:false}") boolean enabled, @Value("${gws.capture.sample-rate:0.01}") double sampleRate,
+			@Value("${gws.capture.file:}") String file, @Value("${gws.capture.paths:/app/1.0/service/ajax,/app/1.0/service/async}") String paths,
+			@Value("${gws.capture.anonymize:}") String anonymize, @Value("${gws.capture.anonymize-salt:}") String salt,
+			@Value("${gws.capture.max-bytes:1073741824}") long maxBytes, @Value("${gws.capture.queue-capacity:10000}") int queueCapacity) {
+		this.enabled = enabled;
+		this.sampleRate = sampleRate;
+		this.file = Utils.isEmpty(file) ? Paths.get(System.getProperty("java.io.tmpdir"), "gws-capture", "capture.ndjson") : Paths.get(file);
+		this.salt = salt.getBytes(StandardCharsets.UTF_8);
+		this.maxBytes = maxBytes;
+		this.queue = new ArrayBlockingQueue<Map<String, Object>>(Math.max(1, queueCapacity));
+
+		for (String path : paths.split(",")) {
+			if (!Utils.isEmpty(path)) {
+				this.paths.add(path.trim());
+			}
+		}
+
+		for (String name : anonymize.split(",")) {
+			if (!Utils.isEmpty(name)) {
+				this.anonymized.add(name.trim());
+			}
+		}
+
+		this.anonymizeAll = this.anonymized.contains("*");
+
+		if ((enabled) && (!this.anonymized.isEmpty()) && (Utils.isEmpty(salt))) {
+			throw new IllegalStateException("gws.capture.anonymize-salt is required to anonymize the captured parameters. anonymize=" + anonymize);
+		}
+	}
+
+	/**
+	 * <p>start the background writer</p>
+	 */
+	@Override
+	protected void initFilterBean() throws ServletException {
+		if (enabled) {
+			running = true;
+
+			writer = new Thread(this::writeRecords, "gws-capture");
+			writer.setDaemon(true);
+			writer.start();
+
+			LOG.info("[TrafficCaptureFilter] capturing the requests. file={}, sampleRate={}, paths={}", file, sampleRate, paths);
+		}
+	}
+
+	/**
+	 * <p>write the queued records, and stop the writer</p>
+	 */
+	@Override
+	public void destroy() {
+		if (writer != null) {
+			running = false;
+
+			try {
+				writer.join(5000L);
+			}catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			LOG.info("[TrafficCaptureFilter] stopped. dropped={}", dropped.get());
+		}
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return (!enabled) || (!paths.contains(request.getRequestURI().substring(request.getContextPath().length())));
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+		if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+			filterChain.doFilter(request, response);
+
+			return;
+		}
+
+		long timestamp = System.currentTimeMillis();
+		long start = System.nanoTime();
+
+		try {
+			filterChain.doFilter(request, response);
+		}finally
+		{
+			capture(request, response, timestamp, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * <p>queue the record of the request (the parameters are read after the request is processed, so the body is not read by the filter)</p>
+	 */
+	private void capture(HttpServletRequest request, HttpServletResponse response, final long timestamp, final long nanos) {
+		try {
+			Map<String, Object> record = new LinkedHashMap<String, Object>();
+			Map<String, String> params = new LinkedHashMap<String, String>();
+
+			for (Map.Entry<String, String[]> parameter : request.getParameterMap().entrySet()) {
+				String value = (parameter.getValue().length > 0) ? parameter.getValue()[0] : "";
+
+				params.put(parameter.getKey(), isAnonymized(parameter.getKey()) ? anonymize(value) : value);
+			}
+
+			record.put("ts", timestamp);
+			record.put("path", request.getRequestURI().substring(request.getContextPath().length()));
+			record.put("method", request.getMethod());
+			record.put("params", params);
+
+			String contentType = request.getContentType();
+
+			if ((contentType != null) && contentType.toLowerCase().startsWith("multipart/")) {
+				List<Map<String, Object>> files = new ArrayList<Map<String, Object>>();
+
+				for (Part part : request.getParts()) {
+					if (part.getSubmittedFileName() != null) {
+						Map<String, Object> fileRecord = new LinkedHashMap<String, Object>();
+						fileRecord.put("name", part.getName());
+						fileRecord.put("size", part.getSize());
+						files.add(fileRecord);
+					}
+				}
+
+				record.put("files", files);
+			}
+
+			if (!request.isAsyncStarted()) {
+				record.put("status", response.getStatus());
+				record.put("micros", TimeUnit.NANOSECONDS.toMicros(nanos));
+			}
+
+			if (!queue.offer(record)) {
+				dropped.incrementAndGet();
+			}
+		}catch (Exception e)
+		{
+			// ------------------------------------------------------------
+			// the capture never fails the request
+			// ------------------------------------------------------------
+			dropped.incrementAndGet();
+
+			LOG.debug("[TrafficCaptureFilter] failed to capture the request. uri={}", request.getRequestURI(), e);
+		}
+	}
+
+	private boolean isAnonymized(final String name) {
+		return (!PLAIN_PARAMETERS.contains(name)) && (anonymizeAll || anonymized.contains(name));
+	}
+
+	/**
+	 * <p>returns the pseudonym of the value (same length, the digits are replaced with digits, the letters with letters of the same kind)</p>
+	 */
+	String anonymize(final String value) {
+		if (value.isEmpty()) {
+			return value;
+		}
+
+		byte[] hash;
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(salt);
+			hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+		}catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+
+		char[] chars = value.toCharArray();
+
+		for (int i = 0; i < chars.length; i++) {
+			int h = ((hash[i % hash.length] & 0xFF) << 8) | (hash[(i + (i / hash.length) + 1) % hash.length] & 0xFF);
+			char c = chars[i];
+
+			if ((c >= '0') && (c <= '9')) {
+				chars[i] = (char) ('0' + (h % 10));
+			}else if ((c >= 'a') && (c <= 'z'))
+			{
+				chars[i] = (char) ('a' + (h % 26));
+			}else if ((c >= 'A') && (c <= 'Z'))
+			{
+				chars[i] = (char) ('A' + (h % 26));
+			}else if ((c >= '가') && (c <= '힣'))
+			{
+				chars[i] = (char) ('가' + (h % 11172));
+			}
+		}
+
+		return new String(chars);
+	}
+
+	/**
+	 * <p>background writer of the records (one json line for each record)</p>
+	 */
+	private void writeRecords() {
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 65536)) {
+				long written = Files.size(file);
+				boolean full = false;
+
+				while (running || (!queue.isEmpty())) {
+					Map<String, Object> record = queue.poll(1L, TimeUnit.SECONDS);
+
+					if (record == null) {
+						out.flush();
+
+						continue;
+					}
+
+					byte[] line = GsonUtils.convertObject2JsonBytes(record);
+
+					if (written + line.length + 1 > maxBytes) {
+						if (!full) {
+							full = true;
+
+							LOG.warn("[TrafficCaptureFilter] the capture file is full. file={}, maxBytes={}", file, maxBytes);
+						}
+
+						dropped.incrementAndGet();
+
+						continue;
+					}
+
+					out.write(line);
+					out.write('\n');
+					written += line.length + 1;
+				}
+			}
+		}catch (IOException e)
+		{
+			LOG.error("[TrafficCaptureFilter] failed to write the capture file. file={}", file, e);
+		}catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
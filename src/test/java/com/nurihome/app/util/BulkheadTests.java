@@ -0,0 +1,165 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.nurihome.app.web.entity.ModelEntity;
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>the permits are limited without blocking, and the permits of an asynchronous command are held until the command completes.</p>
+ */
+class BulkheadTests {
+
+	/**
+	 * <p>service bean of the tests (the result is completed by the test)</p>
+	 */
+	public static class AsyncService {
+
+		private volatile CompletableFuture<Object> result;
+
+		public CompletionStage<Object> pending(final ParamEntity paramEntity) {
+			result = new CompletableFuture<Object>();
+
+			return result;
+		}
+
+	}
+
+	private static Bulkhead register(final AsyncService service) {
+		Map<String, Object> beans = new HashMap<String, Object>();
+		beans.put("test", service);
+
+		ServiceCommandRegistry.initialize(beans, "test:1", true, 0L);
+
+		return ServiceCommandRegistry.getBulkheads().iterator().next();
+	}
+
+	private static ParamEntity request(final long timeoutMillis) {
+		ParamEntity paramEntity = new ParamEntity(new HashMap<String, String>(), "test", "pending");
+
+		if (timeoutMillis > 0L) {
+			paramEntity.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		return paramEntity;
+	}
+
+	@Test
+	void limit() {
+		Bulkhead bulkhead = new Bulkhead("test", 2);
+
+		assertTrue(bulkhead.tryAcquire());
+		assertTrue(bulkhead.tryAcquire());
+		assertFalse(bulkhead.tryAcquire());
+		assertEquals(2, bulkhead.getInFlight());
+		assertEquals(1L, bulkhead.getRejected());
+
+		bulkhead.release();
+
+		assertTrue(bulkhead.tryAcquire());
+		assertFalse(bulkhead.tryAcquire());
+		assertEquals(2L, bulkhead.getRejected());
+	}
+
+	@Test
+	void limitUnderContention() throws InterruptedException {
+		Bulkhead bulkhead = new Bulkhead("test", 3);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger max = new AtomicInteger();
+		AtomicInteger acquired = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		try {
+			for (int t = 0; t < 8; t++) {
+				executor.execute(() -> {
+					try {
+						start.await();
+					}catch (InterruptedException e)
+					{
+						return;
+					}
+
+					for (int i = 0; i < 20000; i++) {
+						if (bulkhead.tryAcquire()) {
+							max.accumulateAndGet(running.incrementAndGet(), Math::max);
+							acquired.incrementAndGet();
+							running.decrementAndGet();
+							bulkhead.release();
+						}
+					}
+				});
+			}
+
+			start.countDown();
+			executor.shutdown();
+
+			assertTrue(executor.awaitTermination(30L, TimeUnit.SECONDS));
+		}finally
+		{
+			executor.shutdownNow();
+		}
+
+		assertTrue(max.get() <= 3, "max " + max.get());
+		assertEquals(0, bulkhead.getInFlight());
+		assertEquals(8L * 20000L, acquired.get() + bulkhead.getRejected());
+	}
+
+	@Test
+	void releaseOnAsyncCompletion() {
+		AsyncService service = new AsyncService();
+		Bulkhead bulkhead = register(service);
+
+		CompletableFuture<ModelEntity> first = ServiceFactoryUtil.invokeCommandAsync(request(0L), Runnable::run);
+
+		assertFalse(first.isDone());
+		assertEquals(1, bulkhead.getInFlight());
+
+		// ------------------------------------------------------------
+		// the permit is held while the returned stage is pending
+		// ------------------------------------------------------------
+		assertEquals(503, ServiceFactoryUtil.invokeCommandAsync(request(0L), Runnable::run).join().getStatus());
+
+		service.result.complete("done");
+
+		assertEquals("done", first.join().getData());
+		assertEquals(0, bulkhead.getInFlight());
+		assertFalse(ServiceFactoryUtil.invokeCommandAsync(request(0L), Runnable::run).isDone());
+	}
+
+	@Test
+	void releaseOnLateCompletion() {
+		AsyncService service = new AsyncService();
+		Bulkhead bulkhead = register(service);
+
+		ModelEntity modelEntity = new ModelEntity();
+		CompletionStage<Void> finished = ServiceFactoryUtil.invokeCommand(request(100L), modelEntity);
+
+		// ------------------------------------------------------------
+		// timed out, but the command is still running : the permit is held until the stage completes
+		// ------------------------------------------------------------
+		assertEquals(504, modelEntity.getStatus());
+		assertEquals(1, bulkhead.getInFlight());
+		assertFalse(finished.toCompletableFuture().isDone());
+
+		service.result.complete("late");
+
+		assertTrue(finished.toCompletableFuture().isDone());
+		assertEquals(0, bulkhead.getInFlight());
+	}
+
+}
@@ -0,0 +1,192 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.nurihome.app.exception.ServiceException;
+import com.nurihome.app.util.ChunkedUploadManager.CapacityExceededException;
+import com.nurihome.app.util.ChunkedUploadManager.UploadSession;
+
+/**
+ * <p>the chunks are written at their own positions in any order, and the sessions are limited and expired.</p>
+ */
+class ChunkedUploadManagerTests {
+
+	private static final int CHUNK_SIZE = ChunkedUploadManager.MIN_CHUNK_SIZE;
+
+	private static final long HOUR = 3600000L;
+
+	private static ChunkedUploadManager createManager(final Path directory, final long sessionTimeout, final int maxSessions, final long maxTotalSize) {
+		return new ChunkedUploadManager(directory.toString(), 1024L * 1024L * 1024L, sessionTimeout, maxSessions, maxTotalSize);
+	}
+
+	private static byte[] contents(final int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+
+		return bytes;
+	}
+
+	private static void write(final ChunkedUploadManager manager, final UploadSession session, final byte[] contents, final int index) {
+		int from = index * CHUNK_SIZE;
+		int to = Math.min(contents.length, from + CHUNK_SIZE);
+
+		manager.writeChunk(session, index, new ByteArrayInputStream(Arrays.copyOfRange(contents, from, to)));
+	}
+
+	@Test
+	void outOfOrderChunks() throws IOException {
+		ChunkedUploadManager manager = createManager(Files.createTempDirectory("gws-upload"), HOUR, 10, Long.MAX_VALUE);
+		byte[] contents = contents(CHUNK_SIZE * 4 + 100);
+		UploadSession session = manager.create("data.bin", contents.length, CHUNK_SIZE, new HashMap<String, String>());
+
+		assertEquals(5, session.getChunkCount());
+		assertEquals(List.of(0, 1, 2, 3, 4), session.getMissingChunks());
+
+		for (int index : new int[] {4, 1, 3, 0}) {
+			write(manager, session, contents, index);
+		}
+
+		assertEquals(4, session.getReceivedCount());
+		assertEquals(List.of(2), session.getMissingChunks());
+		assertFalse(session.isCompleted());
+
+		write(manager, session, contents, 2);
+
+		assertTrue(session.isCompleted());
+
+		Path path = manager.complete(session);
+
+		assertArrayEquals(contents, Files.readAllBytes(path));
+		assertNull(manager.get(session.getUploadId()));
+
+		Files.delete(path);
+	}
+
+	@Test
+	void reupload() throws IOException {
+		ChunkedUploadManager manager = createManager(Files.createTempDirectory("gws-upload"), HOUR, 10, Long.MAX_VALUE);
+		byte[] contents = contents(CHUNK_SIZE * 2);
+		UploadSession session = manager.create("data.bin", contents.length, CHUNK_SIZE, new HashMap<String, String>());
+
+		write(manager, session, contents, 0);
+
+		// ------------------------------------------------------------
+		// a broken upload of a received chunk : the chunk is missing again
+		// ------------------------------------------------------------
+		assertThrows(ServiceException.class, () -> manager.writeChunk(session, 0, new ByteArrayInputStream(new byte[100])));
+		assertEquals(List.of(0, 1), session.getMissingChunks());
+
+		// ------------------------------------------------------------
+		// longer than the chunk
+		// ------------------------------------------------------------
+		assertThrows(ServiceException.class, () -> manager.writeChunk(session, 1, new ByteArrayInputStream(new byte[CHUNK_SIZE + 1])));
+		assertThrows(ServiceException.class, () -> manager.writeChunk(session, 2, new ByteArrayInputStream(new byte[1])));
+		assertThrows(ServiceException.class, () -> manager.writeChunk(session, -1, new ByteArrayInputStream(new byte[1])));
+
+		write(manager, session, contents, 1);
+		write(manager, session, contents, 0);
+		write(manager, session, contents, 0);
+
+		assertArrayEquals(contents, Files.readAllBytes(manager.complete(session)));
+	}
+
+	@Test
+	void completeWithMissingChunks() throws IOException {
+		ChunkedUploadManager manager = createManager(Files.createTempDirectory("gws-upload"), HOUR, 10, Long.MAX_VALUE);
+		byte[] contents = contents(CHUNK_SIZE * 3);
+		UploadSession session = manager.create("data.bin", contents.length, CHUNK_SIZE, new HashMap<String, String>());
+
+		write(manager, session, contents, 0);
+		write(manager, session, contents, 2);
+
+		assertThrows(ServiceException.class, () -> manager.complete(session));
+
+		// ------------------------------------------------------------
+		// the session is kept to resume the upload
+		// ------------------------------------------------------------
+		assertSame(session, manager.get(session.getUploadId()));
+
+		write(manager, session, contents, 1);
+		manager.complete(session);
+
+		// ------------------------------------------------------------
+		// completed only once
+		// ------------------------------------------------------------
+		assertThrows(ServiceException.class, () -> manager.complete(session));
+	}
+
+	@Test
+	void capacityLimits() throws IOException {
+		ChunkedUploadManager manager = createManager(Files.createTempDirectory("gws-upload"), HOUR, 2, CHUNK_SIZE * 3L);
+
+		UploadSession first = manager.create("a.bin", CHUNK_SIZE * 2L, CHUNK_SIZE, new HashMap<String, String>());
+
+		// ------------------------------------------------------------
+		// the total size of the files in progress
+		// ------------------------------------------------------------
+		assertThrows(CapacityExceededException.class, () -> manager.create("b.bin", CHUNK_SIZE * 2L, CHUNK_SIZE, new HashMap<String, String>()));
+
+		UploadSession second = manager.create("c.bin", CHUNK_SIZE, CHUNK_SIZE, new HashMap<String, String>());
+
+		// ------------------------------------------------------------
+		// the number of the sessions in progress
+		// ------------------------------------------------------------
+		assertThrows(CapacityExceededException.class, () -> manager.create("d.bin", 1L, CHUNK_SIZE, new HashMap<String, String>()));
+
+		manager.abort(first);
+
+		assertFalse(Files.exists(first.getPath()));
+
+		manager.create("e.bin", CHUNK_SIZE * 2L, CHUNK_SIZE, new HashMap<String, String>());
+
+		manager.abort(second);
+		manager.abort(second);
+
+		manager.create("f.bin", CHUNK_SIZE, CHUNK_SIZE, new HashMap<String, String>());
+
+		assertThrows(ServiceException.class, () -> manager.create("g.bin", 1L, CHUNK_SIZE - 1, new HashMap<String, String>()));
+		assertThrows(ServiceException.class, () -> manager.create("", 1L, CHUNK_SIZE, new HashMap<String, String>()));
+	}
+
+	@Test
+	void expiry() throws IOException, InterruptedException {
+		ChunkedUploadManager manager = createManager(Files.createTempDirectory("gws-upload"), 100L, 1, Long.MAX_VALUE);
+		UploadSession idle = manager.create("a.bin", CHUNK_SIZE, CHUNK_SIZE, new HashMap<String, String>());
+
+		assertThrows(CapacityExceededException.class, () -> manager.create("b.bin", CHUNK_SIZE, CHUNK_SIZE, new HashMap<String, String>()));
+
+		Thread.sleep(250L);
+
+		// ------------------------------------------------------------
+		// the idle session is expired before the limits are checked
+		// ------------------------------------------------------------
+		UploadSession session = manager.create("c.bin", CHUNK_SIZE, CHUNK_SIZE, new HashMap<String, String>());
+
+		assertNull(manager.get(idle.getUploadId()));
+		assertFalse(Files.exists(idle.getPath()));
+		assertSame(session, manager.get(session.getUploadId()));
+
+		manager.destroy();
+
+		assertNull(manager.get(session.getUploadId()));
+		assertFalse(Files.exists(session.getPath()));
+	}
+
+}
@@ -0,0 +1,174 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.nurihome.app.annotation.CacheableCommand;
+import com.nurihome.app.util.CommandResultCache.CacheKey;
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>the responses are cached by the key of the request parameters, expire after the ttl of the command, and are invalidated by the service.</p>
+ */
+class CommandResultCacheTests {
+
+	/**
+	 * <p>service bean of the tests</p>
+	 */
+	public static class CodeService {
+
+		@CacheableCommand(ttl = 200L, unit = TimeUnit.MILLISECONDS)
+		public Object shortLived(final ParamEntity paramEntity) {
+			return "short";
+		}
+
+		@CacheableCommand
+		public Object longLived(final ParamEntity paramEntity) {
+			return "long";
+		}
+
+		public Object notCached(final ParamEntity paramEntity) {
+			return "none";
+		}
+
+	}
+
+	/**
+	 * <p>service bean of the tests (the other service)</p>
+	 */
+	public static class UserService {
+
+		@CacheableCommand
+		public Object info(final ParamEntity paramEntity) {
+			return "info";
+		}
+
+	}
+
+	private static void register() {
+		Map<String, Object> beans = new HashMap<String, Object>();
+		beans.put("code", new CodeService());
+		beans.put("user", new UserService());
+
+		ServiceCommandRegistry.initialize(beans);
+	}
+
+	private static CacheKey key(final CommandResultCache cache, final String serviceId, final String commandId, final String... parameters) {
+		Map<String, String> params = new HashMap<String, String>();
+
+		for (int i = 0; i < parameters.length; i += 2) {
+			params.put(parameters[i], parameters[i + 1]);
+		}
+
+		return cache.createKey(ServiceCommandRegistry.lookup(serviceId, commandId), params);
+	}
+
+	private static byte[] bytes(final String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void cacheKeys() {
+		register();
+
+		CommandResultCache cache = new CommandResultCache(true, 1024L * 1024L);
+
+		assertNull(key(cache, "code", "notCached"));
+		assertNull(cache.createKey(null, new HashMap<String, String>()));
+		assertNull(key(new CommandResultCache(false, 1024L * 1024L), "code", "longLived"));
+
+		// ------------------------------------------------------------
+		// the order of the parameters and the ignored parameters ("_") do not change the key
+		// ------------------------------------------------------------
+		assertEquals(key(cache, "code", "longLived", "a", "1", "b", "2"), key(cache, "code", "longLived", "b", "2", "a", "1", "_", "1700000000"));
+		assertFalse(key(cache, "code", "longLived", "a", "1").equals(key(cache, "code", "longLived", "a", "2")));
+		assertFalse(key(cache, "code", "longLived", "a", "1").equals(key(cache, "code", "shortLived", "a", "1")));
+		assertEquals("code", key(cache, "code", "longLived").getServiceId());
+	}
+
+	@Test
+	void expiresAfterTtl() throws InterruptedException {
+		register();
+
+		CommandResultCache cache = new CommandResultCache(true, 1024L * 1024L);
+		CacheKey shortKey = key(cache, "code", "shortLived", "id", "1");
+		CacheKey longKey = key(cache, "code", "longLived", "id", "1");
+
+		cache.put(shortKey, bytes("short"));
+		cache.put(longKey, bytes("long"));
+
+		assertArrayEquals(bytes("short"), cache.get(shortKey));
+		assertArrayEquals(bytes("long"), cache.get(longKey));
+
+		Thread.sleep(400L);
+
+		assertNull(cache.get(shortKey));
+		assertArrayEquals(bytes("long"), cache.get(longKey));
+	}
+
+	@Test
+	void invalidateByService() {
+		register();
+
+		CommandResultCache cache = new CommandResultCache(true, 1024L * 1024L);
+		CacheKey code1 = key(cache, "code", "longLived", "id", "1");
+		CacheKey code2 = key(cache, "code", "shortLived", "id", "2");
+		CacheKey user = key(cache, "user", "info", "id", "1");
+
+		cache.put(code1, bytes("1"));
+		cache.put(code2, bytes("2"));
+		cache.put(user, bytes("u"));
+
+		cache.invalidate("code");
+
+		assertNull(cache.get(code1));
+		assertNull(cache.get(code2));
+		assertNotNull(cache.get(user));
+
+		// ------------------------------------------------------------
+		// the unknown service does nothing
+		// ------------------------------------------------------------
+		cache.invalidate("unknown");
+
+		assertNotNull(cache.get(user));
+
+		cache.invalidateAll();
+
+		assertNull(cache.get(user));
+		assertEquals(0L, cache.getStats().get("entries"));
+	}
+
+	@Test
+	void stats() {
+		register();
+
+		CommandResultCache cache = new CommandResultCache(true, 1024L * 1024L);
+		CacheKey key = key(cache, "code", "longLived", "id", "1");
+
+		assertNull(cache.get(key));
+
+		cache.put(key, bytes("cached"));
+		cache.put(key, null);
+		cache.put(null, bytes("ignored"));
+
+		assertArrayEquals(bytes("cached"), cache.get(key));
+
+		Map<String, Object> stats = cache.getStats();
+
+		assertEquals(true, stats.get("enabled"));
+		assertEquals(1L, stats.get("entries"));
+		assertEquals(1L, stats.get("hits"));
+		assertEquals(1L, stats.get("misses"));
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+import com.nurihome.app.exception.ServiceException;
+
+/**
+ * <p>the contents are stored once, and the blobs are collected only when unreferenced longer than the grace period.</p>
+ */
+class ContentStoreTests {
+
+	private static final long HOUR = 3600000L;
+
+	private static ContentStore createStore(final Path directory) {
+		return new ContentStore(directory.toString(), 0L, HOUR);
+	}
+
+	private static String store(final ContentStore contentStore, final String contents) throws IOException {
+		return contentStore.store(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * <p>set the modified time of the file back (older than the grace period)</p>
+	 */
+	private static void age(final Path file) throws IOException {
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 2L * HOUR));
+	}
+
+	private static long countFiles(final Path directory, final String suffix) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(path -> path.getFileName().toString().endsWith(suffix)).count();
+		}
+	}
+
+	@Test
+	void deduplicated() throws IOException {
+		Path directory = Files.createTempDirectory("gws-store");
+		ContentStore contentStore = createStore(directory);
+
+		String contentId = store(contentStore, "hello");
+
+		assertEquals(DigestUtils.sha256Hex("hello"), contentId);
+		assertEquals(contentId, store(contentStore, "hello"));
+		assertEquals(2, contentStore.getRefCount(contentId));
+		assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(contentStore.getPath(contentId)));
+		assertEquals(1L, countFiles(directory, contentId));
+		assertEquals(0L, countFiles(directory, ".tmp"));
+
+		String other = store(contentStore, "world");
+
+		assertFalse(contentId.equals(other));
+		assertEquals(1, contentStore.getRefCount(other));
+	}
+
+	@Test
+	void retainAndRelease() throws IOException {
+		ContentStore contentStore = createStore(Files.createTempDirectory("gws-store"));
+		String contentId = store(contentStore, "contents");
+
+		contentStore.retain(contentId);
+		contentStore.retain(contentId);
+
+		assertEquals(3, contentStore.getRefCount(contentId));
+
+		for (int i = 0; i < 5; i++) {
+			contentStore.release(contentId);
+		}
+
+		// ------------------------------------------------------------
+		// never below 0
+		// ------------------------------------------------------------
+		assertEquals(0, contentStore.getRefCount(contentId));
+
+		String unknown = DigestUtils.sha256Hex("unknown");
+
+		assertThrows(ServiceException.class, () -> contentStore.retain(unknown));
+		assertThrows(ServiceException.class, () -> contentStore.retain("../etc/passwd"));
+		assertFalse(contentStore.contains(unknown));
+	}
+
+	@Test
+	void collectedAfterGracePeriod() throws IOException {
+		ContentStore contentStore = createStore(Files.createTempDirectory("gws-store"));
+		String referenced = store(contentStore, "referenced");
+		String released = store(contentStore, "released");
+		String recent = store(contentStore, "recent");
+
+		contentStore.release(released);
+		contentStore.release(recent);
+
+		age(contentStore.getPath(referenced).resolveSibling(referenced + ".ref"));
+		age(contentStore.getPath(released).resolveSibling(released + ".ref"));
+
+		contentStore.collectGarbage();
+
+		assertTrue(contentStore.contains(referenced));
+		assertFalse(contentStore.contains(released));
+		assertFalse(Files.exists(contentStore.getPath(released).resolveSibling(released + ".ref")));
+
+		// ------------------------------------------------------------
+		// unreferenced within the grace period : kept, and can be retained again
+		// ------------------------------------------------------------
+		assertTrue(contentStore.contains(recent));
+
+		contentStore.retain(recent);
+
+		assertEquals(1, contentStore.getRefCount(recent));
+	}
+
+	@Test
+	void corruptRefCountIsNeverZero() throws IOException {
+		ContentStore contentStore = createStore(Files.createTempDirectory("gws-store"));
+		String contentId = store(contentStore, "contents");
+		Path ref = contentStore.getPath(contentId).resolveSibling(contentId + ".ref");
+
+		for (String corrupt : new String[] {"", "1x", "-1"}) {
+			Files.write(ref, corrupt.getBytes(StandardCharsets.US_ASCII));
+			age(ref);
+
+			assertThrows(IOException.class, () -> contentStore.getRefCount(contentId));
+			assertThrows(IOException.class, () -> contentStore.release(contentId));
+
+			contentStore.collectGarbage();
+
+			assertTrue(contentStore.contains(contentId), corrupt);
+		}
+	}
+
+	@Test
+	void staleTemporaryFilesCollected() throws IOException {
+		Path directory = Files.createTempDirectory("gws-store");
+		ContentStore contentStore = createStore(directory);
+		String contentId = store(contentStore, "contents");
+		Path shard = contentStore.getPath(contentId).getParent();
+
+		Path staleUpload = Files.createTempFile(directory, "upload-", ".tmp");
+		Path staleRef = Files.createTempFile(shard, contentId + ".ref-", ".tmp");
+		Path recentUpload = Files.createTempFile(directory, "upload-", ".tmp");
+
+		age(staleUpload);
+		age(staleRef);
+
+		contentStore.collectGarbage();
+
+		assertFalse(Files.exists(staleUpload));
+		assertFalse(Files.exists(staleRef));
+		assertTrue(Files.exists(recentUpload));
+		assertTrue(contentStore.contains(contentId));
+		assertEquals(1, contentStore.getRefCount(contentId));
+	}
+
+}
@@ -0,0 +1,297 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.nurihome.app.web.entity.BatchCommandEntity;
+
+/**
+ * <p>every value of the indexed document must be the same as the value of the Gson tree of the same document.</p>
+ */
+class JsonDocumentTests {
+
+	private static final String[] NAMES = {"a", "b", "items", "이름", "x_y", "n1", "body", "emoji😀"};
+
+	private static final String[] STRINGS = {"", "abc", "한글", "😀 é", "quote \" backslash \\ slash /", "<html> & 'x'", "\b\f\n\r\t", "\u0000\u001f\u007f", "  "};
+
+	/**
+	 * html escaping on : the strings are written with the \\u escapes
+	 */
+	private final Gson escaping = new GsonBuilder().serializeNulls().create();
+
+	private final Gson plain = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+	private JsonElement randomElement(final Random random, final int depth) {
+		int kind = (depth >= 4) ? (3 + random.nextInt(5)) : random.nextInt(8);
+
+		switch (kind) {
+			case 0:
+			case 1: {
+				JsonObject object = new JsonObject();
+				List<String> names = new ArrayList<String>(List.of(NAMES));
+				Collections.shuffle(names, random);
+
+				for (int i = random.nextInt(5); i > 0; i--) {
+					object.add(names.get(i), randomElement(random, depth + 1));
+				}
+
+				return object;
+			}
+			case 2: {
+				JsonArray array = new JsonArray();
+
+				for (int i = random.nextInt(6); i > 0; i--) {
+					array.add(randomElement(random, depth + 1));
+				}
+
+				return array;
+			}
+			case 3:
+				return new JsonPrimitive(STRINGS[random.nextInt(STRINGS.length)] + random.nextInt(100));
+			case 4:
+				return new JsonPrimitive(random.nextBoolean() ? random.nextLong() : random.nextInt(1000) - 500);
+			case 5:
+				return new JsonPrimitive(random.nextBoolean() ? (random.nextDouble() * 1000.0 - 500.0) : (random.nextGaussian() * 1.0E-10));
+			case 6:
+				return new JsonPrimitive(random.nextBoolean());
+			default:
+				return JsonNull.INSTANCE;
+		}
+	}
+
+	/**
+	 * <p>collect the paths of all values of the element</p>
+	 */
+	private static void collectPaths(final JsonElement element, final String path, final Map<String, JsonElement> paths) {
+		if (element.isJsonObject()) {
+			for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+				String child = path.isEmpty() ? member.getKey() : (path + "." + member.getKey());
+
+				paths.put(child, member.getValue());
+				collectPaths(member.getValue(), child, paths);
+			}
+		}else if (element.isJsonArray())
+		{
+			for (int i = 0; i < element.getAsJsonArray().size(); i++) {
+				String child = path + "[" + i + "]";
+
+				paths.put(child, element.getAsJsonArray().get(i));
+				collectPaths(element.getAsJsonArray().get(i), child, paths);
+			}
+		}
+	}
+
+	/**
+	 * <p>the decoded value is the same as the Gson element (the numbers are compared by the value)</p>
+	 */
+	private static void assertSameValue(final JsonElement expected, final Object actual, final String path) {
+		if (expected.isJsonNull()) {
+			assertNull(actual, path);
+		}else if (expected.isJsonObject())
+		{
+			Map<?, ?> map = (Map<?, ?>) actual;
+
+			assertEquals(expected.getAsJsonObject().size(), map.size(), path);
+
+			for (Map.Entry<String, JsonElement> member : expected.getAsJsonObject().entrySet()) {
+				assertTrue(map.containsKey(member.getKey()), path);
+				assertSameValue(member.getValue(), map.get(member.getKey()), path + "." + member.getKey());
+			}
+		}else if (expected.isJsonArray())
+		{
+			List<?> list = (List<?>) actual;
+
+			assertEquals(expected.getAsJsonArray().size(), list.size(), path);
+
+			for (int i = 0; i < list.size(); i++) {
+				assertSameValue(expected.getAsJsonArray().get(i), list.get(i), path + "[" + i + "]");
+			}
+		}else if (expected.getAsJsonPrimitive().isNumber())
+		{
+			assertEquals(0, expected.getAsBigDecimal().compareTo(new BigDecimal(actual.toString())), path);
+		}else if (expected.getAsJsonPrimitive().isBoolean())
+		{
+			assertEquals(Boolean.valueOf(expected.getAsBoolean()), actual, path);
+		}else
+		{
+			assertEquals(expected.getAsString(), actual, path);
+		}
+	}
+
+	@Test
+	void sameAsGsonTree() {
+		Random random = new Random(16L);
+
+		for (int n = 0; n < 300; n++) {
+			JsonObject root = new JsonObject();
+			root.add("body", randomElement(random, 0));
+			root.add("items", randomElement(random, 1));
+
+			String json = ((n % 2) == 0) ? escaping.toJson(root) : plain.toJson(root);
+			JsonDocument document = ((n % 3) == 0) ? JsonDocument.parse(json.getBytes(StandardCharsets.UTF_8)) : JsonDocument.parse(json);
+
+			Map<String, JsonElement> paths = new LinkedHashMap<String, JsonElement>();
+			collectPaths(root, "", paths);
+
+			for (Map.Entry<String, JsonElement> entry : paths.entrySet()) {
+				String path = entry.getKey();
+				JsonElement expected = entry.getValue();
+
+				assertTrue(document.has(path), path);
+				assertSameValue(expected, document.get(path), path);
+				assertEquals(expected, JsonParser.parseString(document.getRaw(path)), path);
+
+				if (expected.isJsonPrimitive() && expected.getAsJsonPrimitive().isString()) {
+					assertEquals(expected.getAsString(), document.getString(path), path);
+				}else if (expected.isJsonObject())
+				{
+					assertEquals(expected.getAsJsonObject().size(), document.size(path), path);
+				}else if (expected.isJsonArray())
+				{
+					assertEquals(expected.getAsJsonArray().size(), document.size(path), path);
+				}else
+				{
+					assertEquals(-1, document.size(path), path);
+				}
+			}
+
+			assertSameValue(root, wrap(document), "");
+		}
+	}
+
+	/**
+	 * <p>the whole document as the decoded map (the path of the root is not expressible)</p>
+	 */
+	private static Object wrap(final JsonDocument document) {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("body", document.get("body"));
+		map.put("items", document.get("items"));
+
+		return map;
+	}
+
+	@Test
+	void missingValues() {
+		JsonDocument document = JsonDocument.parse("{\"a\":{\"b\":[1,{\"c\":null}],\"s\":\"x\"},\"n\":7}");
+
+		assertFalse(document.has("z"));
+		assertFalse(document.has("a.z"));
+		assertFalse(document.has("a.b[2]"));
+		assertFalse(document.has("a.s.z"));
+		assertFalse(document.has("n[0]"));
+		assertFalse(document.has("a[0]"));
+		assertTrue(document.has("a.b[1].c"));
+
+		assertNull(document.get("a.b[1].c"));
+		assertNull(document.get("a.b[5]"));
+		assertNull(document.getString("a.b"));
+		assertNull(document.getRaw("a.z"));
+		assertNull(document.get("a.b[1].c", BatchCommandEntity.class));
+		assertEquals(-1L, document.getLong("a.z", -1L));
+		assertEquals(-1, document.size("n"));
+		assertEquals(-1, document.size("z"));
+	}
+
+	@Test
+	void typedValues() {
+		JsonDocument document = JsonDocument.parse("{\"response\":{\"header\":{\"resultCode\":\"00\",\"ok\":true},"
+			+ "\"body\":{\"totalCount\":\"12\",\"page\":3,\"rate\":1.5e2,\"big\":123456789012345678901234567890,"
+			+ "\"items\":[{\"serviceId\":\"common.test\",\"commandId\":\"retrieveTestInfo\",\"params\":{\"a\":\"1\"}}]}}}");
+
+		assertEquals("00", document.getString("response.header.resultCode"));
+		assertEquals("3", document.getString("response.body.page"));
+		assertEquals("true", document.getString("response.header.ok"));
+		assertTrue(document.getBoolean("response.header.ok", false));
+		assertFalse(document.getBoolean("response.header.resultCode", false));
+		assertEquals(12L, document.getLong("response.body.totalCount", 0L));
+		assertEquals(3L, document.getLong("response.body.page", 0L));
+		assertEquals(150L, document.getLong("response.body.rate", 0L));
+		assertEquals(150.0, document.getDouble("response.body.rate", 0.0));
+		assertEquals(0L, document.getLong("response.header.ok", 0L));
+		assertEquals(Long.valueOf(3L), document.get("response.body.page"));
+		assertEquals(Double.valueOf(150.0), document.get("response.body.rate"));
+		assertEquals(new BigDecimal("123456789012345678901234567890"), document.get("response.body.big"));
+		assertEquals(1, document.size("response.body.items"));
+
+		BatchCommandEntity command = document.get("response.body.items[0]", BatchCommandEntity.class);
+
+		assertEquals("common.test", command.getServiceId());
+		assertEquals("retrieveTestInfo", command.getCommandId());
+	}
+
+	@Test
+	void escapedNames() {
+		JsonDocument document = JsonDocument.parse("{\"\\uC774\\uB984\":\"kim\",\"a\\\"b\":1,\"이름2\":2,\"longer\":3}");
+
+		assertEquals("kim", document.getString("이름"));
+		assertEquals(2L, document.getLong("이름2", 0L));
+		assertEquals(3L, document.getLong("longer", 0L));
+		assertFalse(document.has("long"));
+		assertEquals(1L, document.getLong("a\"b", 0L));
+	}
+
+	@Test
+	void firstOfDuplicateNames() {
+		JsonDocument document = JsonDocument.parse("{\"a\":1,\"a\":2}");
+
+		assertEquals(1L, document.getLong("a", 0L));
+	}
+
+	@Test
+	void invalidDocuments() {
+		String[] invalid = {"", " ", "{", "[", "{\"a\"}", "{\"a\" 1}", "{a:1}", "{\"a\":1,}", "[1,]", "[1 2]", "\"abc", "\"a\u0001\"", "tru", "nul", "{} {}", "[1] x", "}"};
+
+		for (String json : invalid) {
+			assertThrows(IllegalArgumentException.class, () -> JsonDocument.parse(json), json);
+		}
+
+		// ------------------------------------------------------------
+		// the number grammar and the escape sequences of RFC 8259 (checked by the scan, not when the value is read)
+		// ------------------------------------------------------------
+		String[] invalidValues = {"1-2", "--", "-", "1e", "1e+", "1E-", "1.", ".5", "+1", "01", "-01", "1.e5", "0x10", "1..2", "1ee2", "[1-2]", "{\"a\":1e}",
+			"\"\\x\"", "\"\\u12\"", "\"\\u12g4\"", "\"\\\"", "\"\\'\"", "\"\\U0041\""};
+
+		for (String json : invalidValues) {
+			assertThrows(IllegalArgumentException.class, () -> JsonDocument.parse(json), json);
+		}
+
+		JsonDocument numbers = JsonDocument.parse("{\"a\":[0,-0,10,-12.5,0.5e-10,1E+2,2e3],\"s\":\"\\/\\\"\\u00e9\\n\"}");
+
+		assertEquals(7, numbers.size("a"));
+		assertEquals(0L, numbers.get("a[1]"));
+		assertEquals(-12.5d, numbers.get("a[3]"));
+		assertEquals(100.0d, numbers.get("a[5]"));
+		assertEquals("/\"\u00e9\n", numbers.getString("s"));
+
+		String deep = "[".repeat(600) + "]".repeat(600);
+
+		assertThrows(IllegalArgumentException.class, () -> JsonDocument.parse(deep));
+
+		String nested = "[".repeat(500) + "]".repeat(500);
+
+		assertEquals(1, JsonDocument.parse("{\"a\":" + nested + "}").size("a"));
+	}
+
+}
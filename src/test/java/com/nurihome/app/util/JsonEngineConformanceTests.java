@@ -0,0 +1,148 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.nurihome.app.web.entity.BatchCommandEntity;
+import com.nurihome.app.web.entity.FileEntity;
+import com.nurihome.app.web.entity.ModelEntity;
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>every JSON engine must write the same json text as the Gson engine.</p>
+ */
+class JsonEngineConformanceTests {
+
+	private final JsonEngine gson = GsonUtils.createGsonEngine();
+
+	private final JsonEngine jackson = new JacksonJsonEngine();
+
+	private void assertSameJson(final Object o) throws IOException {
+		String expected = gson.toJson(o);
+
+		assertEquals(expected, jackson.toJson(o));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		jackson.writeJson(o, out);
+
+		assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void emptyEnvelope() throws IOException {
+		assertSameJson(new ModelEntity());
+	}
+
+	@Test
+	void errorEnvelope() throws IOException {
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setError("error processing the request", "java.lang.IllegalStateException: at line 1\n\tat Foo.bar(Foo.java:1)");
+		modelEntity.setApiMessage("실패");
+		modelEntity.setStatus(500);
+
+		assertSameJson(modelEntity);
+	}
+
+	@Test
+	void nullMembers() throws IOException {
+		Map<String, Object> row = new LinkedHashMap<String, Object>();
+		row.put("a", null);
+		row.put("b", Arrays.asList(null, "x", null));
+
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setData(row);
+
+		assertSameJson(modelEntity);
+		assertSameJson(new BatchCommandEntity("common.test", "retrieveTestInfo", null));
+	}
+
+	@Test
+	void noHtmlEscaping() throws IOException {
+		Map<String, Object> row = new LinkedHashMap<String, Object>();
+		row.put("html", "<script>alert('x') && a=b</script>");
+		row.put("quote", "\"\\/");
+		row.put("control", "\b\f\n\r\t\u0000\u001f\u007f");
+		row.put("separator", "\u2028\u2029");
+		row.put("unicode", "한글 😀 é");
+
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setData(row);
+
+		assertSameJson(modelEntity);
+	}
+
+	@Test
+	void numbersAndRows() throws IOException {
+		List<Map<String, Object>> rs = new ArrayList<Map<String, Object>>();
+
+		for (int i = 0; i < 10; i++) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put("int", i);
+			row.put("long", Long.MAX_VALUE - i);
+			row.put("double", i * 1000.5);
+			row.put("small", 1.0E-7 * i);
+			row.put("decimal", new BigDecimal("12345678901234567890.123"));
+			row.put("boolean", (i % 2) == 0);
+			rs.add(row);
+		}
+
+		ModelEntity modelEntity = new ModelEntity();
+		modelEntity.setData(rs);
+
+		assertSameJson(modelEntity);
+	}
+
+	@Test
+	void entities() throws IOException {
+		Map<String, String> parameters = new HashMap<String, String>();
+		parameters.put("userId", "admin");
+
+		ParamEntity paramEntity = new ParamEntity(parameters, "common.test", "retrieveTestInfo", "127.0.0.1", Locale.KOREA);
+		paramEntity.addFile("file", new FileEntity("a.txt", "abc".getBytes(StandardCharsets.UTF_8)));
+
+		assertSameJson(paramEntity);
+		assertSameJson(new FileEntity("b.bin", new byte[] {0, -1, 127, -128}));
+	}
+
+	@Test
+	void dates() throws IOException {
+		Map<String, Object> row = new LinkedHashMap<String, Object>();
+		row.put("date", new Date(1700000000000L));
+		row.put("timestamp", new java.sql.Timestamp(1700000000000L));
+
+		assertSameJson(row);
+	}
+
+	@Test
+	void readUntypedValues() {
+		String json = "{\"a\":1,\"b\":[1,2.5,{\"c\":\"d\",\"e\":null}],\"f\":true}";
+
+		assertEquals(gson.<Object>fromJson(json, Object.class), jackson.<Object>fromJson(json, Object.class));
+		assertEquals(GsonUtils.convertJson2Map(json), jackson.<Object>fromJson(json, HashMap.class));
+	}
+
+	@Test
+	void readEntities() {
+		String json = "{\"serviceId\":\"common.test\",\"commandId\":\"retrieveTestInfo\",\"params\":{\"a\":\"1\"},\"unknown\":[1]}";
+
+		BatchCommandEntity expected = gson.fromJson(json, BatchCommandEntity.class);
+		BatchCommandEntity actual = jackson.fromJson(json, BatchCommandEntity.class);
+
+		assertEquals(gson.toJson(expected), gson.toJson(actual));
+	}
+
+}
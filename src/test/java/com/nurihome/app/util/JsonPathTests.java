@@ -0,0 +1,156 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.nurihome.app.web.entity.BatchCommandEntity;
+
+/**
+ * <p>the value selected by the json path must be the same as the value of the Gson tree (the former JsonParser.parseString navigation).</p>
+ */
+class JsonPathTests {
+
+	private static final String JSON = "{\"response\":{\"header\":{\"resultCode\":\"00\",\"resultMsg\":\"NORMAL SERVICE.\"},"
+		+ "\"body\":{\"items\":{\"item\":[{\"id\":1,\"name\":\"서울\",\"tags\":[\"a\",\"b\"],\"geo\":{\"x\":127.0,\"y\":37.5}},"
+		+ "{\"id\":2,\"name\":\"부산\",\"tags\":[],\"geo\":null},[[1,2],[3]],\"\\\"quoted\\\"\"]},\"numOfRows\":10,\"pageNo\":1,\"totalCount\":2}},"
+		+ "\"empty\":{},\"list\":[],\"flag\":false}";
+
+	private static void collectPaths(final JsonElement element, final String path, final Map<String, JsonElement> paths) {
+		if (element.isJsonObject()) {
+			for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+				String child = path.isEmpty() ? member.getKey() : (path + "." + member.getKey());
+
+				paths.put(child, member.getValue());
+				collectPaths(member.getValue(), child, paths);
+			}
+		}else if (element.isJsonArray())
+		{
+			for (int i = 0; i < element.getAsJsonArray().size(); i++) {
+				String child = path + "[" + i + "]";
+
+				paths.put(child, element.getAsJsonArray().get(i));
+				collectPaths(element.getAsJsonArray().get(i), child, paths);
+			}
+		}
+	}
+
+	private static JsonElement select(final String json, final String path) throws IOException {
+		try (JsonReader reader = new JsonReader(new StringReader(json))) {
+			return JsonPath.compile(path).select(reader) ? JsonParser.parseReader(reader) : null;
+		}
+	}
+
+	@Test
+	void segments() {
+		JsonPath path = JsonPath.compile("response.body.items[12].name");
+
+		assertEquals(5, path.size());
+		assertEquals("response", path.getName(0));
+		assertEquals(-1, path.getIndex(0));
+		assertEquals("items", path.getName(2));
+		assertNull(path.getName(3));
+		assertEquals(12, path.getIndex(3));
+		assertEquals("name", path.getName(4));
+		assertEquals("response.body.items[12].name", path.toString());
+
+		JsonPath arrays = JsonPath.compile("[0][1]");
+
+		assertEquals(2, arrays.size());
+		assertEquals(0, arrays.getIndex(0));
+		assertEquals(1, arrays.getIndex(1));
+
+		assertEquals("이름", JsonPath.compile("이름").getName(0));
+		assertSame(JsonPath.compile("a.b[0]"), JsonPath.compile("a.b[0]"));
+	}
+
+	@Test
+	void invalidPaths() {
+		String[] invalid = {"", ".a", "a.", "a..b", "a.[0]", "a[", "a[]", "a[x]", "a[-1]", "a[1]b", "a[0", "a[99999999999]"};
+
+		for (String path : invalid) {
+			assertThrows(IllegalArgumentException.class, () -> JsonPath.compile(path), path);
+		}
+	}
+
+	@Test
+	void sameAsGsonTree() throws IOException {
+		JsonElement root = JsonParser.parseString(JSON);
+		Map<String, JsonElement> paths = new LinkedHashMap<String, JsonElement>();
+
+		collectPaths(root, "", paths);
+
+		assertTrue(paths.size() > 30);
+
+		for (Map.Entry<String, JsonElement> entry : paths.entrySet()) {
+			assertEquals(entry.getValue(), select(JSON, entry.getKey()), entry.getKey());
+		}
+	}
+
+	@Test
+	void missingValues() throws IOException {
+		String[] missing = {"nothing", "response.nothing", "response.body.items.item[4]", "response.body.items.item[0].name.first",
+			"response[0]", "flag.x", "list[0]", "empty.a", "response.body.items.item[2][0][5]"};
+
+		for (String path : missing) {
+			assertNull(select(JSON, path), path);
+		}
+
+		assertFalse(JsonPath.compile("a").select(new JsonReader(new StringReader("[1]"))));
+	}
+
+	@Test
+	void gsonUtils() {
+		Map<String, Object> header = GsonUtils.parseJsonTree2Map(JSON, "response.header");
+
+		assertEquals("00", header.get("resultCode"));
+		assertEquals("서울", GsonUtils.parseJsonTree2Object(JSON, "response.body.items.item[0].name", String.class));
+		assertEquals(Integer.valueOf(10), GsonUtils.parseJsonTree2Object(JSON, "response.body.numOfRows", Integer.class));
+		assertEquals(Boolean.FALSE, GsonUtils.parseJsonTree2Object(JSON, "flag", Boolean.class));
+
+		List<Map<String, Object>> items = GsonUtils.parseJsonTree2List(JSON, "response.body.items.item[0].geo.x");
+
+		assertTrue(items.isEmpty());
+		assertEquals(List.of("a", "b"), GsonUtils.parseJsonTree2List(JSON, "response.body.items.item[0].tags", String[].class));
+		assertTrue(GsonUtils.parseJsonTree2List(JSON, "list").isEmpty());
+		assertTrue(GsonUtils.parseJsonTree2List(JSON, "response.nothing").isEmpty());
+
+		// ------------------------------------------------------------
+		// the value of the other type, the missing value and the invalid json are empty (null for the object)
+		// ------------------------------------------------------------
+		assertTrue(GsonUtils.parseJsonTree2Map(JSON, "response.body.items.item").isEmpty());
+		assertTrue(GsonUtils.parseJsonTree2Map(JSON, "response.nothing").isEmpty());
+		assertTrue(GsonUtils.parseJsonTree2Map("{\"a\":", "a").isEmpty());
+		assertNull(GsonUtils.parseJsonTree2Object(JSON, "response..body", Map.class));
+		assertNull(GsonUtils.parseJsonTree2Object(JSON, "response.body.items.item", Map.class));
+	}
+
+	@Test
+	void lenientJson() {
+		String json = "{response: {'header': {resultCode: 00, resultMsg: 'OK'}, /* comment */ body: {items: [{id: 1}, {id: 2}]}}}";
+
+		assertEquals("00", GsonUtils.parseJsonTree2Object(json, "response.header.resultCode", String.class));
+		assertEquals("OK", GsonUtils.parseJsonTree2Map(json, "response.header").get("resultMsg"));
+		assertEquals(2, GsonUtils.parseJsonTree2List(json, "response.body.items").size());
+
+		BatchCommandEntity command = GsonUtils.parseJsonTree2Object("{data: {serviceId: common.test, commandId: 'retrieveTestInfo'}}", "data", BatchCommandEntity.class);
+
+		assertEquals("common.test", command.getServiceId());
+		assertEquals("retrieveTestInfo", command.getCommandId());
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>the percentiles are the upper bound of the bucket : never below the exact value, and at most 1/8 (+ 1 unit of 1024ns) above it.</p>
+ */
+class LatencyHistogramTests {
+
+	private static final double[] PERCENTILES = {0.0d, 0.01d, 0.25d, 0.5d, 0.9d, 0.99d, 0.999d, 1.0d};
+
+	/**
+	 * <p>exact value at the percentile (the same rank as the histogram)</p>
+	 */
+	private static long exact(final long[] sorted, final double percentile) {
+		long rank = Math.max(1L, (long) Math.ceil(percentile * sorted.length));
+
+		return sorted[(int) rank - 1];
+	}
+
+	private static void assertPercentiles(final long[] values) {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		for (long value : values) {
+			histogram.record(value);
+		}
+
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+
+		for (double percentile : PERCENTILES) {
+			long expected = exact(sorted, percentile);
+			long actual = histogram.getPercentile(percentile);
+			long bound = (expected > Long.MAX_VALUE / 2L) ? Long.MAX_VALUE : expected + (expected / 8L) + 1024L;
+
+			assertTrue(actual >= expected, percentile + " : " + actual + " < " + expected);
+			assertTrue(actual <= bound, percentile + " : " + actual + " > " + expected);
+			assertTrue(actual <= histogram.getMax());
+		}
+
+		assertEquals(values.length, histogram.getCount());
+		assertEquals(sorted[sorted.length - 1], histogram.getMax());
+		assertEquals(sorted[sorted.length - 1], histogram.getPercentile(1.0d));
+	}
+
+	@Test
+	void empty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0L, histogram.getPercentile(0.5d));
+		assertEquals(0L, histogram.getPercentile(0.99d));
+		assertEquals(0L, histogram.getMean());
+		assertEquals(0L, histogram.getMax());
+		assertEquals(0L, histogram.getCount());
+	}
+
+	@Test
+	void uniformPercentiles() {
+		long[] values = new long[10000];
+
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (i + 1) * 1000L;
+		}
+
+		assertPercentiles(values);
+	}
+
+	@Test
+	void skewedPercentiles() {
+		Random random = new Random(5L);
+
+		for (int n = 0; n < 20; n++) {
+			long[] values = new long[1 + random.nextInt(5000)];
+
+			for (int i = 0; i < values.length; i++) {
+				// ------------------------------------------------------------
+				// log-normal latencies (microseconds to seconds) with a few outliers
+				// ------------------------------------------------------------
+				values[i] = (long) Math.exp(random.nextGaussian() * 2.0d + 13.0d);
+
+				if (random.nextInt(100) == 0) {
+					values[i] *= 1000L;
+				}
+			}
+
+			assertPercentiles(values);
+		}
+	}
+
+	@Test
+	void smallAndExtremeValues() {
+		assertPercentiles(new long[] {0L, 1L, 1023L, 1024L, 1025L, 8191L, 8192L});
+		assertPercentiles(new long[] {5L, Long.MAX_VALUE / 2L, Long.MAX_VALUE});
+
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		// ------------------------------------------------------------
+		// a negative value (clock adjustment) is recorded as 0
+		// ------------------------------------------------------------
+		histogram.record(-5L);
+		histogram.record(3000L);
+
+		assertEquals(2L, histogram.getCount());
+		assertEquals(1500L, histogram.getMean());
+		assertEquals(1023L, histogram.getPercentile(0.5d));
+		assertEquals(3000L, histogram.getPercentile(0.99d));
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>the formatter must write the same string as a new {@link DecimalFormat} of the same pattern and locale.</p>
+ */
+class NumberFormatterTests {
+
+	private static final String[] PATTERNS = {"###,###,###,###,##0.00", "###,###,###,###,##0", "#.##", "0.000", "#,##0.###", ".##", "00000",
+		"#,##0.0#", "#,##0.00;(#,##0.00)", "0.00%", "0.###E0", "#"};
+
+	private static final Locale[] LOCALES = {Locale.US, Locale.KOREA, Locale.GERMANY, Locale.FRANCE, new Locale("ar", "EG"), new Locale("hi", "IN")};
+
+	private static double randomDouble(final Random random, final int i) {
+		switch (i % 6) {
+			case 0:
+				return random.nextGaussian() * Math.pow(10, random.nextInt(20) - 6);
+			case 1:
+				return Math.round(random.nextDouble() * 100000) / 1000.0 * (random.nextBoolean() ? 1 : -1);
+			case 2:
+				return (random.nextInt(20001) - 10000) / 8.0;
+			case 3:
+				return Double.longBitsToDouble(random.nextLong());
+			case 4:
+				// ------------------------------------------------------------
+				// ties of the shortest decimal (0.005, 0.015, ...)
+				// ------------------------------------------------------------
+				return random.nextInt(1000) * 0.005;
+			default:
+				return (random.nextInt(200) - 100) * 0.0005;
+		}
+	}
+
+	@Test
+	void sameAsDecimalFormat() {
+		Random random = new Random(24L);
+
+		for (Locale locale : LOCALES) {
+			for (String pattern : PATTERNS) {
+				DecimalFormat expected = new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale));
+				NumberFormatter formatter = NumberFormatter.getInstance(pattern, locale);
+
+				for (int i = 0; i < 5000; i++) {
+					double d = randomDouble(random, i);
+
+					// ------------------------------------------------------------
+					// see underflowTie()
+					// ------------------------------------------------------------
+					if ((Math.abs(d) != 5.0E-4) || (!"0.000".equals(pattern))) {
+						assertEquals(expected.format(d), formatter.format(d), locale + " " + pattern + " " + d);
+					}
+
+					long l = random.nextLong() >> random.nextInt(64);
+
+					assertEquals(expected.format(l), formatter.format(l), locale + " " + pattern + " " + l);
+
+					BigDecimal b = new BigDecimal(BigInteger.valueOf(random.nextLong()), random.nextInt(30) - 5);
+
+					assertEquals(expected.format(b), formatter.format(b), locale + " " + pattern + " " + b);
+				}
+
+				for (double d : new double[] {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE}) {
+					assertEquals(expected.format(d), formatter.format(d), locale + " " + pattern + " " + d);
+				}
+
+				for (long l : new long[] {0L, Long.MIN_VALUE, Long.MAX_VALUE}) {
+					assertEquals(expected.format(l), formatter.format(l), locale + " " + pattern + " " + l);
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>the double 5.0E-4 is a little above 0.0005, and DecimalFormat("0.000") rounds it down to "0.000" (its own fast path of "#,##0.###" rounds it up).
+	 * the formatter rounds on the exact binary value of the tie, as DecimalFormat does for the other ties.</p>
+	 */
+	@Test
+	void underflowTie() {
+		assertEquals("0.001", NumberFormatter.getInstance("0.000", Locale.US).format(5.0E-4));
+		assertEquals("-0.001", NumberFormatter.getInstance("0.000", Locale.US).format(-5.0E-4));
+		assertEquals(new DecimalFormat("#,##0.###", DecimalFormatSymbols.getInstance(Locale.US)).format(5.0E-4), NumberFormatter.getInstance("#,##0.###", Locale.US).format(5.0E-4));
+	}
+
+	@Test
+	void currency() {
+		for (Locale locale : LOCALES) {
+			for (String code : new String[] {"KRW", "USD", "EUR", "JPY"}) {
+				NumberFormat expected = NumberFormat.getCurrencyInstance(locale);
+				expected.setCurrency(Currency.getInstance(code));
+
+				NumberFormatter formatter = NumberFormatter.getCurrencyInstance(Currency.getInstance(code), locale);
+
+				for (double d : new double[] {-1234567.891, 0.5, 1.005, -0.0, 99.995, 1e15}) {
+					assertEquals(expected.format(d), formatter.format(d), locale + " " + code + " " + d);
+				}
+
+				assertEquals(expected.format(-1234567L), formatter.format(-1234567L), locale + " " + code);
+			}
+		}
+	}
+
+	@Test
+	void strings() {
+		NumberFormatter formatter = NumberFormatter.getInstance("#,##0.00", Locale.US);
+
+		assertEquals("-1,234,567.89", formatter.format("-1234567.891"));
+		assertEquals("abc", formatter.format("abc"));
+		assertEquals("", formatter.format(""));
+		assertSame(formatter, NumberFormatter.getInstance("#,##0.00", Locale.US));
+	}
+
+	@Test
+	void formatColumns() {
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("int", 1234567);
+		row.put("string", "-1234.5");
+		row.put("text", "x");
+		row.put("decimal", new BigDecimal("12345.675"));
+		row.put("double", 0.125);
+		row.put("null", null);
+		rows.add(row);
+
+		NumberFormatter.getInstance("#,##0.00", Locale.US).formatColumns(rows, "int", "string", "text", "decimal", "double", "null", "missing");
+
+		DecimalFormat expected = new DecimalFormat("#,##0.00", DecimalFormatSymbols.getInstance(Locale.US));
+
+		assertEquals(expected.format(1234567), row.get("int"));
+		assertEquals(expected.format(-1234.5), row.get("string"));
+		assertEquals("x", row.get("text"));
+		assertEquals(expected.format(new BigDecimal("12345.675")), row.get("decimal"));
+		assertEquals(expected.format(0.125), row.get("double"));
+		assertEquals(null, row.get("null"));
+		assertEquals(6, row.size());
+	}
+
+	@Test
+	void setNumberType() {
+		DecimalFormat decimals = new DecimalFormat("###,###,###,###,##0.00");
+		DecimalFormat integers = new DecimalFormat("###,###,###,###,##0");
+
+		for (String number : new String[] {"-1234567.891", "0.005", "0.015", "1234567", "-0", "12345678901234567", "1.0E10"}) {
+			String expected = (number.indexOf('.') > -1) ? decimals.format(Double.parseDouble(number)) : integers.format(Double.parseDouble(number));
+
+			assertEquals(expected, Utils.setNumberType(number), number);
+		}
+
+		assertEquals("abc", Utils.setNumberType("abc"));
+		assertEquals("", Utils.setNumberType(""));
+	}
+
+	@Test
+	void threads() throws InterruptedException {
+		NumberFormatter formatter = NumberFormatter.getInstance("#,##0.00;(#,##0.00)", Locale.US);
+		AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[8];
+
+		for (int t = 0; t < threads.length; t++) {
+			long seed = t;
+
+			threads[t] = new Thread(() -> {
+				DecimalFormat expected = new DecimalFormat("#,##0.00;(#,##0.00)", DecimalFormatSymbols.getInstance(Locale.US));
+				Random random = new Random(seed);
+
+				for (int i = 0; i < 20000; i++) {
+					double d = randomDouble(random, i);
+
+					if (!expected.format(d).equals(formatter.format(d))) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+			threads[t].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(0, failures.get());
+	}
+
+}
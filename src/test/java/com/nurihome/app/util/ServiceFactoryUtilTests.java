@@ -0,0 +1,194 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.nurihome.app.annotation.CoalescedCommand;
+import com.nurihome.app.web.entity.ModelEntity;
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>the commands are dispatched with the deadline of the request (the commands of {@link TestService} are registered without the application context).</p>
+ */
+class ServiceFactoryUtilTests {
+
+	/**
+	 * <p>service bean of the tests</p>
+	 */
+	public static class TestService {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		@CoalescedCommand
+		public Object coalesced(final ParamEntity paramEntity) throws InterruptedException {
+			calls.incrementAndGet();
+			started.countDown();
+			release.await();
+
+			return "shared";
+		}
+
+		public Object sleep(final ParamEntity paramEntity) throws InterruptedException {
+			Thread.sleep(Long.parseLong(paramEntity.getParameters().get("millis")));
+
+			return "slept";
+		}
+
+		public Object ignoreInterrupt(final ParamEntity paramEntity) {
+			long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(400L);
+
+			while (System.nanoTime() - end < 0L) {
+				Thread.onSpinWait();
+			}
+
+			return "late";
+		}
+
+	}
+
+	private static void register(final Object service, final String limits) {
+		Map<String, Object> beans = new HashMap<String, Object>();
+		beans.put("test", service);
+
+		ServiceCommandRegistry.initialize(beans, limits, true, 0L);
+	}
+
+	private static ParamEntity request(final String commandId, final long timeoutMillis, final String... parameters) {
+		Map<String, String> map = new HashMap<String, String>();
+
+		for (int i = 0; i < parameters.length; i += 2) {
+			map.put(parameters[i], parameters[i + 1]);
+		}
+
+		ParamEntity paramEntity = new ParamEntity(map, "test", commandId);
+
+		if (timeoutMillis > 0L) {
+			paramEntity.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		return paramEntity;
+	}
+
+	@Test
+	void stuckCommandIsInterruptedAtDeadline() {
+		register(new TestService(), null);
+
+		ModelEntity modelEntity = new ModelEntity();
+		long start = System.nanoTime();
+
+		ServiceFactoryUtil.invokeCommand(request("sleep", 200L, "millis", "10000"), modelEntity);
+
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertEquals(504, modelEntity.getStatus());
+		assertEquals("request timed out", modelEntity.getMessage());
+		assertTrue(elapsed < 2000L, "elapsed " + elapsed);
+
+		// ------------------------------------------------------------
+		// the interrupt does not leak into the next request of the thread
+		// ------------------------------------------------------------
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	@Test
+	void resultAfterIgnoredInterruptIsDiscarded() {
+		register(new TestService(), null);
+
+		ModelEntity modelEntity = new ModelEntity();
+
+		ServiceFactoryUtil.invokeCommand(request("ignoreInterrupt", 100L), modelEntity);
+
+		assertEquals(504, modelEntity.getStatus());
+		assertEquals(null, modelEntity.getData());
+		assertFalse(Thread.interrupted());
+	}
+
+	@Test
+	void commandWithinDeadline() throws InterruptedException {
+		register(new TestService(), null);
+
+		for (int i = 0; i < 50; i++) {
+			ModelEntity modelEntity = new ModelEntity();
+
+			ServiceFactoryUtil.invokeCommand(request("sleep", 300L, "millis", "1"), modelEntity);
+
+			assertEquals(200, modelEntity.getStatus());
+			assertEquals("slept", modelEntity.getData());
+		}
+
+		// ------------------------------------------------------------
+		// the cancelled interrupts never fire
+		// ------------------------------------------------------------
+		Thread.sleep(400L);
+
+		assertFalse(Thread.interrupted());
+	}
+
+	@Test
+	void coalescedWaitersTakeNoPermit() throws InterruptedException {
+		TestService service = new TestService();
+
+		register(service, "test.coalesced:1");
+
+		ModelEntity[] results = new ModelEntity[8];
+		Thread[] threads = new Thread[results.length];
+
+		for (int t = 0; t < threads.length; t++) {
+			int index = t;
+
+			results[index] = new ModelEntity();
+			threads[index] = new Thread(() -> ServiceFactoryUtil.invokeCommand(request("coalesced", 0L, "id", "1"), results[index]));
+			threads[index].start();
+
+			if (t == 0) {
+				assertTrue(service.started.await(5L, TimeUnit.SECONDS));
+			}
+		}
+
+		// ------------------------------------------------------------
+		// the waiters join the leader holding the only permit
+		// ------------------------------------------------------------
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+
+		while ((ServiceCommandRegistry.lookup("test", "coalesced").getSingleFlight().getCoalesced() < threads.length - 1) && (System.nanoTime() - end < 0L)) {
+			Thread.sleep(5L);
+		}
+
+		// ------------------------------------------------------------
+		// the other requests are still limited
+		// ------------------------------------------------------------
+		ModelEntity other = new ModelEntity();
+
+		ServiceFactoryUtil.invokeCommand(request("coalesced", 0L, "id", "2"), other);
+
+		assertEquals(503, other.getStatus());
+
+		service.release.countDown();
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (ModelEntity modelEntity : results) {
+			assertEquals(200, modelEntity.getStatus());
+			assertEquals("shared", modelEntity.getData());
+		}
+
+		assertEquals(1, service.calls.get());
+		assertEquals(0, ServiceCommandRegistry.getBulkheads().iterator().next().getInFlight());
+	}
+
+}
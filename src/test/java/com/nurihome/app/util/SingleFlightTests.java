@@ -0,0 +1,190 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>the concurrent calls with the same key run once, and every caller gets the result (or the exception) of that call.</p>
+ */
+class SingleFlightTests {
+
+	/**
+	 * <p>the call of the single flight as a task of the executor</p>
+	 */
+	private static <V> Callable<V> task(final SingleFlight<String, V> singleFlight, final SingleFlight.Call<V> call) {
+		return () -> {
+			try {
+				return singleFlight.execute("key", call);
+			}catch (Exception | Error e)
+			{
+				throw e;
+			}catch (Throwable t)
+			{
+				throw new IllegalStateException(t);
+			}
+		};
+	}
+
+	/**
+	 * <p>wait until the given number of the callers have joined the call in flight</p>
+	 */
+	private static void awaitCoalesced(final SingleFlight<?, ?> singleFlight, final long expected) throws InterruptedException {
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+
+		while ((singleFlight.getCoalesced() < expected) && (System.nanoTime() - end < 0L)) {
+			Thread.sleep(5L);
+		}
+
+		assertEquals(expected, singleFlight.getCoalesced());
+	}
+
+	@Test
+	void oneExecution() throws Exception {
+		SingleFlight<String, String> singleFlight = new SingleFlight<String, String>();
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		try {
+			List<Future<String>> futures = new ArrayList<Future<String>>();
+
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(task(singleFlight, () -> {
+					calls.incrementAndGet();
+					started.countDown();
+					release.await();
+
+					return "result";
+				})));
+
+				if (i == 0) {
+					assertTrue(started.await(5L, TimeUnit.SECONDS));
+				}
+			}
+
+			awaitCoalesced(singleFlight, 7L);
+
+			assertEquals(1, singleFlight.getInFlight());
+
+			release.countDown();
+
+			for (Future<String> future : futures) {
+				assertEquals("result", future.get(5L, TimeUnit.SECONDS));
+			}
+
+			assertEquals(1, calls.get());
+			assertEquals(0, singleFlight.getInFlight());
+		}finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void differentKeysAndLaterCalls() throws Throwable {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<String, Integer>();
+		AtomicInteger calls = new AtomicInteger();
+
+		assertEquals(Integer.valueOf(1), singleFlight.execute("a", calls::incrementAndGet));
+		assertEquals(Integer.valueOf(2), singleFlight.execute("b", calls::incrementAndGet));
+
+		// ------------------------------------------------------------
+		// the completed call is not cached
+		// ------------------------------------------------------------
+		assertEquals(Integer.valueOf(3), singleFlight.execute("a", calls::incrementAndGet));
+		assertEquals(0L, singleFlight.getCoalesced());
+	}
+
+	@Test
+	void waiterTimeout() throws Exception {
+		SingleFlight<String, String> singleFlight = new SingleFlight<String, String>();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			Future<String> leader = executor.submit(task(singleFlight, () -> {
+				started.countDown();
+				release.await();
+
+				return "late";
+			}));
+
+			assertTrue(started.await(5L, TimeUnit.SECONDS));
+
+			long start = System.nanoTime();
+
+			assertThrows(TimeoutException.class, () -> singleFlight.execute("key", () -> "never", TimeUnit.MILLISECONDS.toNanos(100L)));
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2L));
+
+			// ------------------------------------------------------------
+			// the timeout of the waiter does not cancel the call in flight
+			// ------------------------------------------------------------
+			release.countDown();
+
+			assertEquals("late", leader.get(5L, TimeUnit.SECONDS));
+			assertEquals(0, singleFlight.getInFlight());
+		}finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void exceptionPropagation() throws Throwable {
+		SingleFlight<String, String> singleFlight = new SingleFlight<String, String>();
+		IllegalStateException failure = new IllegalStateException("failed");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<String> leader = executor.submit(task(singleFlight, () -> {
+				started.countDown();
+				release.await();
+
+				throw failure;
+			}));
+
+			assertTrue(started.await(5L, TimeUnit.SECONDS));
+
+			Future<String> waiter = executor.submit(task(singleFlight, () -> "never"));
+
+			awaitCoalesced(singleFlight, 1L);
+			release.countDown();
+
+			// ------------------------------------------------------------
+			// the same exception is thrown to the leader and the waiter
+			// ------------------------------------------------------------
+			assertSame(failure, assertThrows(ExecutionException.class, () -> leader.get(5L, TimeUnit.SECONDS)).getCause());
+			assertSame(failure, assertThrows(ExecutionException.class, () -> waiter.get(5L, TimeUnit.SECONDS)).getCause());
+
+			// ------------------------------------------------------------
+			// the failed call is removed, the next call runs again
+			// ------------------------------------------------------------
+			assertEquals(0, singleFlight.getInFlight());
+			assertEquals("again", singleFlight.execute("key", () -> "again"));
+		}finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+}
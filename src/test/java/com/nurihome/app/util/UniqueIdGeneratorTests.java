@@ -0,0 +1,230 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>the ids are unique and increasing across the threads, the clock set back and the restarts (a restart is simulated
+ * with {@link UniqueIdGenerator#reset}).</p>
+ */
+class UniqueIdGeneratorTests {
+
+	private static final long NOW = 1790000000000L;
+
+	private static final long HOUR = 3600000L;
+
+	private Path stateFile() throws IOException {
+		return Files.createTempDirectory("gws-id").resolve("gws-id.state");
+	}
+
+	private long reservedOf(final Path file) throws IOException {
+		Properties properties = new Properties();
+		properties.load(new StringReader(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII)));
+
+		return Long.parseLong(properties.getProperty("reserved"));
+	}
+
+	private int nodeIdOf(final Path file) throws IOException {
+		Properties properties = new Properties();
+		properties.load(new StringReader(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII)));
+
+		return Integer.parseInt(properties.getProperty("node-id"));
+	}
+
+	@Test
+	void uniqueAndIncreasingInThreads() throws Exception {
+		UniqueIdGenerator.reset(System::currentTimeMillis);
+		UniqueIdGenerator.configure(7, stateFile());
+
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		Thread[] threads = new Thread[8];
+		AtomicLong failures = new AtomicLong();
+
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				long last = -1L;
+
+				for (int i = 0; i < 50000; i++) {
+					long id = UniqueIdGenerator.nextId();
+
+					if ((id <= last) || !ids.add(Long.valueOf(id)) || (UniqueIdGenerator.getNodeId(id) != 7)) {
+						failures.incrementAndGet();
+					}
+
+					last = id;
+				}
+			});
+			threads[t].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(0L, failures.get());
+		assertEquals(8 * 50000, ids.size());
+
+		UniqueIdGenerator.reset(System::currentTimeMillis);
+	}
+
+	@Test
+	void increasingWhenClockIsSetBack() throws IOException {
+		AtomicLong clock = new AtomicLong(NOW);
+
+		UniqueIdGenerator.reset(clock::get);
+		UniqueIdGenerator.configure(1, stateFile());
+
+		long last = -1L;
+
+		for (int i = 0; i < 20000; i++) {
+			if (i == 10000) {
+				clock.set(NOW - HOUR);
+			}
+
+			long id = UniqueIdGenerator.nextId();
+
+			assertTrue(id > last);
+
+			last = id;
+		}
+
+		UniqueIdGenerator.reset(System::currentTimeMillis);
+	}
+
+	@Test
+	void restartAfterReservedTime() throws IOException {
+		Path file = stateFile();
+		Set<Long> ids = new HashSet<Long>();
+
+		UniqueIdGenerator.reset(() -> NOW);
+		UniqueIdGenerator.configure(1, file);
+
+		long last = -1L;
+
+		for (int i = 0; i < 10000; i++) {
+			last = UniqueIdGenerator.nextId();
+			ids.add(Long.valueOf(last));
+		}
+
+		long reserved = reservedOf(file);
+
+		// ------------------------------------------------------------
+		// restarted with the clock set back an hour : continues after the reserved time
+		// ------------------------------------------------------------
+		UniqueIdGenerator.reset(() -> NOW - HOUR);
+		UniqueIdGenerator.configure(1, file);
+
+		long first = UniqueIdGenerator.nextId();
+
+		assertTrue(first > last);
+		assertTrue(UniqueIdGenerator.getTimestamp(first) > reserved);
+
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(ids.add(Long.valueOf(UniqueIdGenerator.nextId())));
+		}
+
+		UniqueIdGenerator.reset(System::currentTimeMillis);
+	}
+
+	@Test
+	void reservedAheadOfIssuedIds() throws IOException {
+		Path file = stateFile();
+
+		UniqueIdGenerator.reset(() -> NOW);
+		UniqueIdGenerator.configure(1, file);
+
+		long reserved = reservedOf(file);
+		long id;
+
+		// ------------------------------------------------------------
+		// the clock stands still, the time part of the ids runs up to the reserved time
+		// ------------------------------------------------------------
+		do {
+			id = UniqueIdGenerator.nextId();
+		} while (UniqueIdGenerator.getTimestamp(id) < reserved);
+
+		assertTrue(UniqueIdGenerator.getTimestamp(id) < reservedOf(file));
+
+		UniqueIdGenerator.reset(System::currentTimeMillis);
+	}
+
+	@Test
+	void nodeIdKeptInStateFile() throws IOException {
+		Path file = stateFile();
+
+		Files.write(file, ("node-id=555\nreserved=" + NOW + "\n").getBytes(StandardCharsets.US_ASCII));
+
+		UniqueIdGenerator.reset(() -> NOW);
+		UniqueIdGenerator.configure(-1, file);
+
+		assertEquals(555, UniqueIdGenerator.getNodeId());
+		assertEquals(555, UniqueIdGenerator.getNodeId(UniqueIdGenerator.nextId()));
+
+		// ------------------------------------------------------------
+		// the configured node id replaces the kept node id
+		// ------------------------------------------------------------
+		UniqueIdGenerator.reset(() -> NOW);
+		UniqueIdGenerator.configure(12, file);
+
+		assertEquals(12, nodeIdOf(file));
+
+		// ------------------------------------------------------------
+		// the derived node id is kept for the next runs
+		// ------------------------------------------------------------
+		Path derived = stateFile();
+
+		UniqueIdGenerator.reset(() -> NOW);
+		UniqueIdGenerator.configure(-1, derived);
+
+		int node = UniqueIdGenerator.getNodeId();
+
+		assertEquals(node, nodeIdOf(derived));
+
+		UniqueIdGenerator.reset(System::currentTimeMillis);
+	}
+
+	@Test
+	void formerStateFile() throws IOException {
+		Path file = stateFile();
+
+		Files.write(file, Long.toString(NOW + HOUR).getBytes(StandardCharsets.US_ASCII));
+
+		UniqueIdGenerator.reset(() -> NOW);
+		UniqueIdGenerator.configure(3, file);
+
+		assertTrue(UniqueIdGenerator.getTimestamp(UniqueIdGenerator.nextId()) > NOW + HOUR);
+
+		UniqueIdGenerator.reset(System::currentTimeMillis);
+	}
+
+	@Test
+	void encodings() {
+		byte[] buffer = new byte[19];
+
+		for (int i = 0; i < 1000; i++) {
+			long id = UniqueIdGenerator.nextId();
+			int end = UniqueIdGenerator.writeDecimal(id, buffer, 0);
+
+			assertEquals(Long.toString(id), new String(buffer, 0, end, StandardCharsets.US_ASCII));
+			assertEquals(id, UniqueIdGenerator.parseBase32(UniqueIdGenerator.toBase32(id)));
+			assertEquals(id, UniqueIdGenerator.parseBase32(UniqueIdGenerator.toBase32(id).toLowerCase()));
+		}
+
+		assertTrue(UniqueIdGenerator.toBase32(1L).compareTo(UniqueIdGenerator.toBase32(32L)) < 0);
+		assertEquals(Long.MAX_VALUE, UniqueIdGenerator.parseBase32(UniqueIdGenerator.toBase32(Long.MAX_VALUE)));
+	}
+
+}
@@ -0,0 +1,248 @@
+package com.nurihome.app.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>the byte lengths and the validity must be the same as the UTF-8 encoder and decoder of the JDK.</p>
+ */
+class Utf8UtilsTests {
+
+	private static String randomString(final Random random, final int length) {
+		StringBuilder builder = new StringBuilder(length);
+
+		for (int i = 0; i < length; i++) {
+			switch (random.nextInt(7)) {
+				case 0:
+					builder.append((char) random.nextInt(0x80));
+					break;
+				case 1:
+					builder.append((char) (0x80 + random.nextInt(0x800 - 0x80)));
+					break;
+				case 2:
+					builder.append((char) (0xAC00 + random.nextInt(11172)));
+					break;
+				case 3:
+					builder.appendCodePoint(0x10000 + random.nextInt(Character.MAX_CODE_POINT - 0xFFFF));
+					break;
+				case 4:
+					// ------------------------------------------------------------
+					// unpaired surrogate (or a pair by chance)
+					// ------------------------------------------------------------
+					builder.append((char) (Character.MIN_SURROGATE + random.nextInt(0x800)));
+					break;
+				case 5:
+					builder.append((char) (0xE000 + random.nextInt(0x2000)));
+					break;
+				default:
+					builder.append((char) random.nextInt(0x10000));
+					break;
+			}
+		}
+
+		return builder.toString();
+	}
+
+	private static boolean encodable(final String str) {
+		try {
+			StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT).encode(CharBuffer.wrap(str));
+
+			return true;
+		}catch (CharacterCodingException e)
+		{
+			return false;
+		}
+	}
+
+	private static boolean decodable(final byte[] bytes, final int offset, final int length) {
+		try {
+			StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT).decode(ByteBuffer.wrap(bytes, offset, length));
+
+			return true;
+		}catch (CharacterCodingException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * <p>the longest prefix on a code point boundary which is not longer than the bytes (encoded by the JDK)</p>
+	 */
+	private static String longestPrefix(final String str, final int maxBytes) {
+		String prefix = "";
+
+		for (int end = 0; end <= str.length(); end++) {
+			if ((end > 0) && (end < str.length()) && Character.isHighSurrogate(str.charAt(end - 1)) && Character.isLowSurrogate(str.charAt(end))) {
+				continue;
+			}
+
+			if (str.substring(0, end).getBytes(StandardCharsets.UTF_8).length > maxBytes) {
+				break;
+			}
+
+			prefix = str.substring(0, end);
+		}
+
+		return prefix;
+	}
+
+	@Test
+	void sameLengthAsEncoder() {
+		Random random = new Random(25L);
+
+		for (int n = 0; n < 20000; n++) {
+			String str = randomString(random, random.nextInt(40));
+
+			assertEquals(str.getBytes(StandardCharsets.UTF_8).length, Utf8Utils.encodedLength(str), str);
+			assertEquals(str.getBytes(StandardCharsets.UTF_8).length, Utf8Utils.encodedLength(new StringBuilder(str)), str);
+			assertEquals(encodable(str), Utf8Utils.isValid(str), str);
+		}
+
+		assertEquals(12, Utf8Utils.encodedLength("가나다abc"));
+		assertEquals(0, Utf8Utils.encodedLength(""));
+		assertEquals(5, Utf8Utils.encodedLength("😀a"));
+		assertEquals(2, Utf8Utils.encodedLength("\uDE00\uD83D"));
+	}
+
+	@Test
+	void truncateToLongestPrefix() {
+		Random random = new Random(2025L);
+
+		for (int n = 0; n < 5000; n++) {
+			String str = randomString(random, random.nextInt(30));
+			int maxBytes = random.nextInt(str.length() * 4 + 2);
+			String expected = longestPrefix(str, maxBytes);
+
+			assertEquals(expected, Utf8Utils.truncate(str, maxBytes), str + " " + maxBytes);
+			assertEquals(expected.length(), Utf8Utils.truncateIndex(str, maxBytes), str + " " + maxBytes);
+		}
+
+		assertEquals("가나", Utf8Utils.truncate("가나다abc", 8));
+		assertEquals("a", Utf8Utils.truncate("a😀", 4));
+		assertEquals("a😀", Utf8Utils.truncate("a😀b", 5));
+		assertEquals("", Utf8Utils.truncate("가", 0));
+		assertEquals("", Utf8Utils.truncate("가", -1));
+		assertEquals(null, Utf8Utils.truncate(null, 10));
+
+		String same = "가나다abc";
+
+		assertSame(same, Utf8Utils.truncate(same, 12));
+		assertSame(same, Utf8Utils.truncate(same, 100));
+	}
+
+	@Test
+	void sameValidityAsDecoder() {
+		Random random = new Random(8L);
+
+		for (int n = 0; n < 100000; n++) {
+			byte[] bytes = new byte[random.nextInt(12)];
+
+			if ((n % 2) == 0) {
+				random.nextBytes(bytes);
+			}else
+			{
+				// ------------------------------------------------------------
+				// the lead and continuation bytes mostly
+				// ------------------------------------------------------------
+				for (int i = 0; i < bytes.length; i++) {
+					bytes[i] = (byte) (random.nextBoolean() ? (0x80 + random.nextInt(0x40)) : (0xC0 + random.nextInt(0x40)));
+				}
+			}
+
+			assertEquals(decodable(bytes, 0, bytes.length), Utf8Utils.isValid(bytes, 0, bytes.length), Arrays.toString(bytes));
+		}
+
+		for (int n = 0; n < 5000; n++) {
+			byte[] bytes = randomString(random, random.nextInt(20)).getBytes(StandardCharsets.UTF_8);
+			int offset = random.nextInt(bytes.length + 1);
+			int length = random.nextInt(bytes.length - offset + 1);
+
+			assertEquals(decodable(bytes, offset, length), Utf8Utils.isValid(bytes, offset, length), Arrays.toString(bytes) + " " + offset + " " + length);
+		}
+	}
+
+	@Test
+	void malformedBytes() {
+		int[][] invalid = {
+			{0xC0, 0x80},                  // overlong NUL
+			{0xC1, 0xBF},                  // overlong 2 bytes
+			{0xE0, 0x80, 0x80},            // overlong 3 bytes
+			{0xF0, 0x80, 0x80, 0x80},      // overlong 4 bytes
+			{0xED, 0xA0, 0x80},            // U+D800
+			{0xED, 0xBF, 0xBF},            // U+DFFF
+			{0xF4, 0x90, 0x80, 0x80},      // U+110000
+			{0xF5, 0x80, 0x80, 0x80},
+			{0xFF},
+			{0x80},
+			{0xEA, 0xB0},                  // truncated
+			{0xF0, 0x9F, 0x98},
+			{0x61, 0xC3}
+		};
+
+		for (int[] codes : invalid) {
+			byte[] bytes = new byte[codes.length];
+
+			for (int i = 0; i < codes.length; i++) {
+				bytes[i] = (byte) codes[i];
+			}
+
+			assertFalse(decodable(bytes, 0, bytes.length));
+			assertFalse(Utf8Utils.isValid(bytes, 0, bytes.length), Arrays.toString(codes));
+		}
+
+		byte[] valid = "a가😀􏿿߿￿".getBytes(StandardCharsets.UTF_8);
+
+		assertTrue(Utf8Utils.isValid(valid, 0, valid.length));
+		assertTrue(Utf8Utils.isValid(new byte[0], 0, 0));
+		assertFalse(Utf8Utils.isValid("\uD83Dx"));
+		assertFalse(Utf8Utils.isValid("x\uDE00"));
+		assertTrue(Utf8Utils.isValid("x😀"));
+	}
+
+	@Test
+	void truncateColumns() {
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("title", "가나다abc");
+		row.put("short", "abc");
+		row.put("number", 12345);
+		row.put("free", "가나다라마바사");
+
+		Map<String, Integer> limits = new HashMap<String, Integer>();
+		limits.put("title", 8);
+		limits.put("short", 3);
+		limits.put("number", 1);
+		limits.put("missing", 1);
+
+		assertEquals(1, Utf8Utils.truncate(row, limits));
+		assertEquals("가나", row.get("title"));
+		assertEquals("abc", row.get("short"));
+		assertEquals(12345, row.get("number"));
+		assertEquals("가나다라마바사", row.get("free"));
+		assertEquals(0, Utf8Utils.truncate(row, limits));
+
+		ParamEntity paramEntity = new ParamEntity();
+		paramEntity.getParameters().put("title", "😀😀");
+		paramEntity.getParameters().put("content", "abc");
+
+		assertEquals(1, Utf8Utils.truncate(paramEntity, Map.of("title", 6, "content", 3)));
+		assertEquals("😀", paramEntity.getParameters().get("title"));
+		assertEquals("abc", paramEntity.getParameters().get("content"));
+	}
+
+}
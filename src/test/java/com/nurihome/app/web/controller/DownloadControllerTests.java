@@ -0,0 +1,276 @@
+package com.nurihome.app.web.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.nurihome.app.util.ServiceCommandRegistry;
+import com.nurihome.app.web.entity.FileEntity;
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>the "Range" and "If-Range" headers of the download (the ranges are inclusive byte offsets, as in "Content-Range").</p>
+ */
+class DownloadControllerTests {
+
+	private static final long SIZE = 10000L;
+
+	/**
+	 * <p>service bean returning a file of the stream source (the bytes are i % 251)</p>
+	 */
+	public static class FileService {
+
+		private final AtomicInteger opened = new AtomicInteger();
+
+		private FileEntity last;
+
+		public Object source(final ParamEntity paramEntity) {
+			last = new FileEntity("data.bin", SIZE, () -> {
+				opened.incrementAndGet();
+
+				return new InputStream() {
+
+					private long position;
+
+					@Override
+					public int read() {
+						return (position < SIZE) ? (int) (position++ % 251) : -1;
+					}
+
+				};
+			});
+
+			return last;
+		}
+
+	}
+
+	private static byte[] contents(final long first, final long last) {
+		byte[] bytes = new byte[(int) (last - first + 1L)];
+
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) ((first + i) % 251);
+		}
+
+		return bytes;
+	}
+
+	private static MockHttpServletResponse download(final FileService service, final String... headers) {
+		Map<String, Object> beans = new HashMap<String, Object>();
+		beans.put("file", service);
+
+		ServiceCommandRegistry.initialize(beans);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/1.0/service/download");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("serviceId", "file");
+		params.put("commandId", "source");
+
+		for (int i = 0; i < headers.length; i += 2) {
+			request.addHeader(headers[i], headers[i + 1]);
+		}
+
+		new DownloadController().download(request, response, params);
+
+		return response;
+	}
+
+	private static void assertRanges(final List<long[]> ranges, final long... expected) {
+		assertEquals(expected.length / 2, ranges.size());
+
+		for (int i = 0; i < ranges.size(); i++) {
+			assertArrayEquals(new long[] {expected[i * 2], expected[i * 2 + 1]}, ranges.get(i));
+		}
+	}
+
+	@Test
+	void singleRanges() {
+		assertRanges(DownloadController.parseRanges("bytes=0-499", SIZE), 0L, 499L);
+		assertRanges(DownloadController.parseRanges("bytes=500-999", SIZE), 500L, 999L);
+		assertRanges(DownloadController.parseRanges("bytes=9999-9999", SIZE), 9999L, 9999L);
+
+		// ------------------------------------------------------------
+		// the last position beyond the end is the end
+		// ------------------------------------------------------------
+		assertRanges(DownloadController.parseRanges("bytes=9500-20000", SIZE), 9500L, 9999L);
+	}
+
+	@Test
+	void suffixRanges() {
+		assertRanges(DownloadController.parseRanges("bytes=-500", SIZE), 9500L, 9999L);
+		assertRanges(DownloadController.parseRanges("bytes=-1", SIZE), 9999L, 9999L);
+		assertRanges(DownloadController.parseRanges("bytes=-20000", SIZE), 0L, 9999L);
+	}
+
+	@Test
+	void openEndedRanges() {
+		assertRanges(DownloadController.parseRanges("bytes=9500-", SIZE), 9500L, 9999L);
+		assertRanges(DownloadController.parseRanges("bytes=0-", SIZE), 0L, 9999L);
+	}
+
+	@Test
+	void multipleRanges() {
+		assertRanges(DownloadController.parseRanges("bytes=0-0,-1", SIZE), 0L, 0L, 9999L, 9999L);
+		assertRanges(DownloadController.parseRanges("bytes=0-1023, 4096-, -100", SIZE), 0L, 1023L, 4096L, 9999L, 9900L, 9999L);
+
+		// ------------------------------------------------------------
+		// the unsatisfiable ranges are left out
+		// ------------------------------------------------------------
+		assertRanges(DownloadController.parseRanges("bytes=20000-30000,100-199", SIZE), 100L, 199L);
+	}
+
+	@Test
+	void unsatisfiableRanges() {
+		assertTrue(DownloadController.parseRanges("bytes=10000-", SIZE).isEmpty());
+		assertTrue(DownloadController.parseRanges("bytes=10000-10001,20000-", SIZE).isEmpty());
+		assertTrue(DownloadController.parseRanges("bytes=-0", SIZE).isEmpty());
+		assertTrue(DownloadController.parseRanges("bytes=0-", 0L).isEmpty());
+		assertTrue(DownloadController.parseRanges("bytes=-100", 0L).isEmpty());
+	}
+
+	@Test
+	void invalidRanges() {
+		String[] invalid = {"items=0-1", "bytes=", "bytes=abc", "bytes=5", "bytes=500-100", "bytes=1-2-3", "bytes=x-", "bytes=0-1,,2-3", "bytes=--5", "bytes=+1-2", "bytes=0-+5", "bytes=-+5"};
+
+		for (String range : invalid) {
+			assertNull(DownloadController.parseRanges(range, SIZE), range);
+		}
+	}
+
+	@Test
+	void tooManyRanges() {
+		StringBuilder range = new StringBuilder("bytes=0-0");
+
+		for (int i = 1; i < 16; i++) {
+			range.append(',').append(i * 10).append('-').append(i * 10);
+		}
+
+		assertEquals(16, DownloadController.parseRanges(range.toString(), SIZE).size());
+
+		range.append(",200-200");
+
+		// ------------------------------------------------------------
+		// over the limit : the whole file is sent
+		// ------------------------------------------------------------
+		assertNull(DownloadController.parseRanges(range.toString(), SIZE));
+	}
+
+	@Test
+	void ifRange() {
+		long lastModified = 1790000000123L;
+		String eTag = "\"2710-" + Long.toHexString(lastModified) + "\"";
+		String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(lastModified).atZone(ZoneOffset.UTC));
+		String older = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(lastModified - 60000L).atZone(ZoneOffset.UTC));
+
+		assertTrue(DownloadController.isRangeValid(null, eTag, lastModified));
+		assertTrue(DownloadController.isRangeValid(eTag, eTag, lastModified));
+		assertTrue(DownloadController.isRangeValid(" " + eTag + " ", eTag, lastModified));
+		assertFalse(DownloadController.isRangeValid("\"other\"", eTag, lastModified));
+		assertFalse(DownloadController.isRangeValid("W/" + eTag, eTag, lastModified));
+		assertFalse(DownloadController.isRangeValid("W/" + eTag, "W/" + eTag, lastModified));
+
+		// ------------------------------------------------------------
+		// the date is compared by the seconds
+		// ------------------------------------------------------------
+		assertTrue(DownloadController.isRangeValid(date, eTag, lastModified));
+		assertFalse(DownloadController.isRangeValid(older, eTag, lastModified));
+		assertFalse(DownloadController.isRangeValid("yesterday", eTag, lastModified));
+
+		// ------------------------------------------------------------
+		// the contents in memory have no modified time
+		// ------------------------------------------------------------
+		assertFalse(DownloadController.isRangeValid(date, eTag, -1L));
+	}
+
+	@Test
+	void streamSource() {
+		FileService service = new FileService();
+		MockHttpServletResponse response = download(service);
+
+		assertEquals(200, response.getStatus());
+		assertArrayEquals(contents(0L, SIZE - 1L), response.getContentAsByteArray());
+		assertTrue(response.getHeader(HttpHeaders.ETAG).startsWith("W/"));
+		assertFalse(service.last.isInMemory());
+
+		response = download(service, HttpHeaders.RANGE, "bytes=100-199");
+
+		assertEquals(206, response.getStatus());
+		assertEquals("bytes 100-199/" + SIZE, response.getHeader(HttpHeaders.CONTENT_RANGE));
+		assertArrayEquals(contents(100L, 199L), response.getContentAsByteArray());
+		assertFalse(service.last.isInMemory());
+
+		// ------------------------------------------------------------
+		// the weak ETag never validates "If-Range" : the whole file
+		// ------------------------------------------------------------
+		String eTag = response.getHeader(HttpHeaders.ETAG);
+
+		response = download(service, HttpHeaders.RANGE, "bytes=100-199", HttpHeaders.IF_RANGE, eTag);
+
+		assertEquals(200, response.getStatus());
+		assertEquals(SIZE, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	void errorResponseWrittenWithContentLength() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertNull(new DownloadController().download(new MockHttpServletRequest("GET", "/app/1.0/service/download"), response, new HashMap<String, String>()));
+
+		byte[] body = response.getContentAsByteArray();
+
+		assertEquals(200, response.getStatus());
+		assertTrue(response.getContentType().startsWith("application/json"));
+		assertEquals(Long.toString(body.length), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+		assertTrue(new String(body, StandardCharsets.UTF_8).contains("missing required parameters"));
+	}
+
+	@Test
+	void streamSourceMultipleRanges() {
+		FileService service = new FileService();
+		MockHttpServletResponse response = download(service, HttpHeaders.RANGE, "bytes=500-599,0-9,-5");
+
+		assertEquals(206, response.getStatus());
+		assertFalse(service.last.isInMemory());
+
+		// ------------------------------------------------------------
+		// a range before the current position opens the stream again
+		// ------------------------------------------------------------
+		assertEquals(2, service.opened.get());
+
+		String contentType = response.getContentType();
+		String boundary = contentType.substring(contentType.indexOf("boundary=") + 9);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		long[][] ranges = {{500L, 599L}, {0L, 9L}, {SIZE - 5L, SIZE - 1L}};
+
+		for (long[] r : ranges) {
+			expected.writeBytes(("\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\nContent-Range: bytes " + r[0] + "-" + r[1] + "/" + SIZE + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			expected.writeBytes(contents(r[0], r[1]));
+		}
+
+		expected.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+		assertTrue(Arrays.equals(expected.toByteArray(), response.getContentAsByteArray()));
+		assertEquals(Long.toString(expected.size()), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+	}
+
+}
@@ -0,0 +1,262 @@
+package com.nurihome.app.web.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartHttpServletRequest;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.nurihome.app.util.CommandResultCache;
+import com.nurihome.app.util.GsonUtils;
+import com.nurihome.app.util.ServiceCommandRegistry;
+import com.nurihome.app.web.entity.FileEntity;
+import com.nurihome.app.web.entity.ParamEntity;
+
+/**
+ * <p>the commands of the batch request share the deadline of the request ("X-Request-Timeout"), and the attachment files outlive the request with the command.</p>
+ */
+class HttpControllerTests {
+
+	/**
+	 * <p>service bean of the tests</p>
+	 */
+	public static class SleepService {
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		public Object sleep(final ParamEntity paramEntity) throws InterruptedException {
+			calls.incrementAndGet();
+
+			Thread.sleep(Long.parseLong(paramEntity.getParameters().get("millis")));
+
+			return "slept";
+		}
+
+	}
+
+	/**
+	 * <p>service bean of the tests (the attachment file is read after the test releases the command)</p>
+	 */
+	public static class FileService {
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private volatile FileEntity file;
+
+		private volatile CompletableFuture<Object> result;
+
+		public CompletableFuture<Object> read(final ParamEntity paramEntity) {
+			file = paramEntity.getFile("file");
+			result = CompletableFuture.supplyAsync(() -> {
+				try {
+					release.await();
+				}catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+
+				return new String(file.getContent(), StandardCharsets.UTF_8);
+			});
+
+			return result;
+		}
+
+	}
+
+	/**
+	 * <p>the part of the multipart request stored in the temporary file</p>
+	 */
+	private static class TempPart implements MultipartFile {
+
+		private final Path path;
+
+		TempPart(final Path path) {
+			this.path = path;
+		}
+
+		@Override
+		public String getName() {
+			return "file";
+		}
+
+		@Override
+		public String getOriginalFilename() {
+			return "data.txt";
+		}
+
+		@Override
+		public String getContentType() {
+			return "text/plain";
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return getSize() == 0L;
+		}
+
+		@Override
+		public long getSize() {
+			return path.toFile().length();
+		}
+
+		@Override
+		public byte[] getBytes() throws IOException {
+			return Files.readAllBytes(path);
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			return Files.newInputStream(path);
+		}
+
+		@Override
+		public void transferTo(final File dest) throws IOException {
+			Files.copy(path, dest.toPath());
+		}
+
+	}
+
+	private static String entry(final long millis) {
+		return "{\"serviceId\": \"test\", \"commandId\": \"sleep\", \"params\": {\"millis\": \"" + millis + "\"}}";
+	}
+
+	private static List<String> batch(final SleepService service, final ExecutorService executor, final boolean parallel, final String timeout, final long... millis) {
+		Map<String, Object> beans = new HashMap<String, Object>();
+		beans.put("test", service);
+
+		ServiceCommandRegistry.initialize(beans);
+
+		List<String> entries = new ArrayList<String>();
+
+		for (long m : millis) {
+			entries.add(entry(m));
+		}
+
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/app/1.0/service/batch");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		request.addHeader("X-Request-Timeout", timeout);
+
+		HttpController controller = new HttpController(executor, 50, executor, 30000L, new CommandResultCache(false, 0L), true);
+
+		assertNull(controller.batch(request, response, parallel, "[" + String.join(",", entries) + "]"));
+
+		List<String> messages = new ArrayList<String>();
+
+		for (Map<String, Object> row : GsonUtils.<String, Object>convertJson2List(response.getContentAsString())) {
+			messages.add((String) row.get("message"));
+		}
+
+		return messages;
+	}
+
+	@Test
+	void batchSharesOneDeadline() {
+		SleepService service = new SleepService();
+
+		// ------------------------------------------------------------
+		// each entry is within the timeout, the batch is not
+		// ------------------------------------------------------------
+		List<String> messages = batch(service, null, false, "300", 200L, 200L, 1L);
+
+		assertEquals("OK", messages.get(0));
+		assertEquals("request timed out", messages.get(1));
+		assertEquals("request timed out", messages.get(2));
+
+		// ------------------------------------------------------------
+		// the entry which has not started by the deadline is never invoked
+		// ------------------------------------------------------------
+		assertEquals(2, service.calls.get());
+	}
+
+	@Test
+	void parallelBatchSharesOneDeadline() {
+		SleepService service = new SleepService();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			List<String> messages = batch(service, executor, true, "300", 200L, 200L, 1L);
+
+			assertEquals("OK", messages.get(0));
+			assertEquals("request timed out", messages.get(1));
+			assertEquals("request timed out", messages.get(2));
+			assertEquals(2, service.calls.get());
+		}finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void batchWithoutTimeout() {
+		SleepService service = new SleepService();
+
+		assertEquals(List.of("OK", "OK"), batch(service, null, false, "", 1L, 1L));
+	}
+
+	@Test
+	void attachmentOutlivesRequest() throws Exception {
+		FileService service = new FileService();
+		Map<String, Object> beans = new HashMap<String, Object>();
+		beans.put("test", service);
+
+		ServiceCommandRegistry.initialize(beans);
+
+		Path part = Files.createTempFile("gws-test-", ".tmp");
+		Files.write(part, "contents".getBytes(StandardCharsets.UTF_8));
+
+		MockMultipartHttpServletRequest request = new MockMultipartHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		request.addFile(new TempPart(part));
+		request.addHeader("X-Request-Timeout", "100");
+
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("serviceId", "test");
+		params.put("commandId", "read");
+
+		HttpController controller = new HttpController(null, 50, null, 30000L, new CommandResultCache(false, 0L), true);
+
+		assertNull(controller.process(request, response, params));
+		assertEquals(504, response.getStatus());
+
+		// ------------------------------------------------------------
+		// the temporary file of the part is deleted when the request has finished, the command reads the copy
+		// ------------------------------------------------------------
+		Files.delete(part);
+		service.release.countDown();
+
+		assertEquals("contents", service.result.get(5L, TimeUnit.SECONDS));
+
+		// ------------------------------------------------------------
+		// the copy is deleted when the command has finished
+		// ------------------------------------------------------------
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+
+		while ((Files.exists(service.file.getPath())) && (System.nanoTime() - end < 0L)) {
+			Thread.sleep(5L);
+		}
+
+		assertFalse(Files.exists(service.file.getPath()));
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.nurihome.app.web.controller;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.nurihome.app.util.CommandResultCache;
+
+/**
+ * <p>the local-only monitoring endpoints check the client and the forwarded addresses of a local reverse proxy.</p>
+ */
+class MonitorControllerTests {
+
+	private static boolean isAllowed(final boolean localOnly, final String remoteAddr, final String... headers) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/1.0/monitor/metrics");
+		request.setRemoteAddr(remoteAddr);
+
+		for (int i = 0; i < headers.length; i += 2) {
+			request.addHeader(headers[i], headers[i + 1]);
+		}
+
+		return new MonitorController(localOnly, new CommandResultCache(false, 0L)).isAllowed(request);
+	}
+
+	@Test
+	void loopbackClient() {
+		assertTrue(isAllowed(true, "127.0.0.1"));
+		assertTrue(isAllowed(true, "0:0:0:0:0:0:0:1"));
+		assertFalse(isAllowed(true, "10.0.0.5"));
+		assertTrue(isAllowed(false, "10.0.0.5"));
+	}
+
+	@Test
+	void forwardedByLocalProxy() {
+		assertTrue(isAllowed(true, "127.0.0.1", "X-Forwarded-For", "127.0.0.1"));
+		assertTrue(isAllowed(true, "127.0.0.1", "Forwarded", "for=\"[::1]:4711\";proto=http"));
+		assertTrue(isAllowed(true, "127.0.0.1", "X-Forwarded-For", "::1, 127.0.0.2:8080"));
+
+		// ------------------------------------------------------------
+		// a remote client behind the local proxy
+		// ------------------------------------------------------------
+		assertFalse(isAllowed(true, "127.0.0.1", "X-Forwarded-For", "203.0.113.7"));
+		assertFalse(isAllowed(true, "127.0.0.1", "X-Forwarded-For", "127.0.0.1, 203.0.113.7"));
+		assertFalse(isAllowed(true, "127.0.0.1", "X-Forwarded-For", "127.0.0.1", "X-Forwarded-For", "203.0.113.7"));
+		assertFalse(isAllowed(true, "127.0.0.1", "Forwarded", "for=192.0.2.60;proto=http;by=127.0.0.1"));
+		assertFalse(isAllowed(true, "127.0.0.1", "Forwarded", "for=127.0.0.1, For=\"[2001:db8:cafe::17]:4711\""));
+
+		// ------------------------------------------------------------
+		// not an IP address (never resolved)
+		// ------------------------------------------------------------
+		assertFalse(isAllowed(true, "127.0.0.1", "Forwarded", "for=unknown"));
+		assertFalse(isAllowed(true, "127.0.0.1", "Forwarded", "for=_hidden"));
+		assertFalse(isAllowed(true, "127.0.0.1", "X-Forwarded-For", "localhost"));
+		assertFalse(isAllowed(true, "127.0.0.1", "X-Forwarded-For", ""));
+	}
+
+}